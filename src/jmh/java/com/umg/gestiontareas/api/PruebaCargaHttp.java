@@ -0,0 +1,157 @@
+package com.umg.gestiontareas.api;
+
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de carga de la API REST para comparar el modo de hilos de plataforma con el de hilos virtuales
+ * (spring.threads.virtual.enabled). Cada cliente es un hilo virtual que repite solicitudes sin pausa, esperando
+ * la respuesta de cada una antes de enviar la siguiente: 70 % GET /api/tareas/{id} con un ID al azar,
+ * 20 % GET /api/tareas/estado?valor=PENDIENTE&amp;limite=20 y 10 % POST /api/tareas.
+ * Reporta solicitudes por segundo, percentiles de latencia y códigos de estado, sin contar el calentamiento.
+ * La latencia es la que ve cada cliente desde que envía hasta que recibe la respuesta completa.
+ * <p>
+ * No es un benchmark de JMH. Con la aplicación corriendo (una vez con cada modo), se ejecuta con:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.mainClass=com.umg.gestiontareas.api.PruebaCargaHttp \
+ *     -Dexec.classpathScope=test -Dexec.args="http://localhost:8080 1000 60 15 100000"
+ * </pre>
+ * Argumentos: URL base, clientes (1000), segundos medidos (60), segundos de calentamiento (15) e ID máximo
+ * de las tareas existentes (100000). Conviene ejecutarla desde otra máquina que la aplicación, para que no compitan por CPU.
+ */
+public class PruebaCargaHttp {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    public static void main(String[] args) throws Exception {
+        String base = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clientes = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int segundos = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        int calentamiento = args.length > 3 ? Integer.parseInt(args[3]) : 15;
+        long idMaximo = args.length > 4 ? Long.parseLong(args[4]) : 100_000;
+
+        long inicioMedicion = System.nanoTime() + TimeUnit.SECONDS.toNanos(calentamiento);
+        long fin = inicioMedicion + TimeUnit.SECONDS.toNanos(segundos);
+        System.out.printf("%d clientes contra %s: %d s de calentamiento y %d s medidos.%n", clientes, base, calentamiento, segundos);
+
+        List<Future<Resultado>> futuros = new ArrayList<>(clientes);
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(TIMEOUT)
+                     .executor(hilos)
+                     .build()) {
+            for (int i = 0; i < clientes; i++) {
+                long semilla = i;
+                futuros.add(hilos.submit(() -> ejecutarCliente(http, base, idMaximo, semilla, inicioMedicion, fin)));
+            }
+            Resultado total = new Resultado();
+            for (Future<Resultado> futuro : futuros) {
+                total.agregar(futuro.get());
+            }
+            imprimir(total, segundos);
+        }
+    }
+
+    // Un cliente: solicitudes seguidas hasta el final; solo se registran las que empiezan después del calentamiento
+    private static Resultado ejecutarCliente(HttpClient http, String base, long idMaximo, long semilla,
+                                             long inicioMedicion, long fin) {
+        SplittableRandom aleatorio = new SplittableRandom(semilla);
+        Resultado resultado = new Resultado();
+        long ahora;
+        while ((ahora = System.nanoTime()) < fin) {
+            HttpRequest solicitud = siguienteSolicitud(base, idMaximo, aleatorio);
+            boolean medida = ahora >= inicioMedicion;
+            try {
+                HttpResponse<byte[]> respuesta = http.send(solicitud, HttpResponse.BodyHandlers.ofByteArray());
+                if (medida) {
+                    resultado.registrar(respuesta.statusCode(), System.nanoTime() - ahora);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                if (medida) {
+                    resultado.errores++;
+                }
+            }
+        }
+        return resultado;
+    }
+
+    private static HttpRequest siguienteSolicitud(String base, long idMaximo, SplittableRandom aleatorio) {
+        int tipo = aleatorio.nextInt(10);
+        if (tipo < 7) {
+            return HttpRequest.newBuilder(URI.create(base + "/api/tareas/" + aleatorio.nextLong(1, idMaximo + 1)))
+                    .timeout(TIMEOUT).GET().build();
+        }
+        if (tipo < 9) {
+            return HttpRequest.newBuilder(URI.create(base + "/api/tareas/estado?valor=PENDIENTE&limite=20"))
+                    .timeout(TIMEOUT).GET().build();
+        }
+        String cuerpo = "{\"titulo\":\"Carga " + aleatorio.nextInt(1_000_000) + "\",\"descripcion\":\"prueba de carga\","
+                + "\"estado\":\"PENDIENTE\",\"prioridad\":\"MEDIA\",\"tipo\":\"GENERAL\"}";
+        return HttpRequest.newBuilder(URI.create(base + "/api/tareas"))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("X-Usuario", "carga")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                .build();
+    }
+
+    private static void imprimir(Resultado total, int segundos) {
+        Histogram latencias = total.latencias;
+        System.out.printf("Solicitudes: %d (%.1f por segundo); errores de conexión o timeout: %d%n",
+                latencias.getTotalCount(), (double) latencias.getTotalCount() / segundos, total.errores);
+        System.out.printf("Estados: 2xx=%d 4xx=%d 5xx=%d%n", total.exitosas, total.rechazadas, total.fallidas);
+        System.out.printf("Latencia (ms): p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                milisegundos(latencias.getValueAtPercentile(50)), milisegundos(latencias.getValueAtPercentile(90)),
+                milisegundos(latencias.getValueAtPercentile(99)), milisegundos(latencias.getValueAtPercentile(99.9)),
+                milisegundos(latencias.getMaxValue()));
+    }
+
+    private static double milisegundos(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    // Resultados de un cliente; se suman al final, así que no necesitan sincronización
+    private static class Resultado {
+        // Hasta 60 s con 3 dígitos significativos
+        private final Histogram latencias = new Histogram(TimeUnit.SECONDS.toNanos(60), 3);
+        private long exitosas;
+        private long rechazadas;
+        private long fallidas;
+        private long errores;
+
+        void registrar(int estado, long nanos) {
+            latencias.recordValue(Math.min(nanos, latencias.getHighestTrackableValue()));
+            if (estado < 400) {
+                exitosas++;
+            } else if (estado < 500) {
+                rechazadas++;
+            } else {
+                fallidas++;
+            }
+        }
+
+        void agregar(Resultado otro) {
+            latencias.add(otro.latencias);
+            exitosas += otro.exitosas;
+            rechazadas += otro.rechazadas;
+            fallidas += otro.fallidas;
+            errores += otro.errores;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.umg.gestiontareas.api;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.bridge.SLF4JBridgeHandler;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo del registro (logging) de una solicitud POST /api/tareas, antes y después del cambio a SLF4J asíncrono.
+ * Cada operación emite las cuatro líneas de TareaController.crearTarea, TareaService.crearTarea y del
+ * publicador de eventos:
+ * - julSincrono (antes): las cuatro en INFO con java.util.logging y MessageFormat ({0}), que el puente de
+ *   Spring Boot (SLF4JBridgeHandler) pasa a Logback, escritas por un appender síncrono.
+ * - slf4jSincrono: las tres de eco en DEBUG (desactivado) y la del servicio en INFO con {},
+ *   escritas por el mismo appender síncrono.
+ * - slf4jAsincrono (después): igual que slf4jSincrono, detrás de un AsyncAppender configurado como
+ *   logback-spring.xml (cola de 8192, neverBlock, sin datos del llamador).
+ * El appender final usa el patrón de consola de Spring Boot y escribe en /dev/null, así que se mide
+ * el formateo y la llamada de escritura pero no el costo de la terminal.
+ * Con neverBlock, si el hilo de Logback no alcanza a vaciar la cola se descartan eventos INFO: el modo
+ * asíncrono saturado mide en parte lo que deja de escribir.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistroCrearTareaBenchmark {
+
+    private static final String PATRON_CONSOLA =
+            "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n";
+
+    @Param({"julSincrono", "slf4jSincrono", "slf4jAsincrono"})
+    private String modo;
+
+    private boolean jul;
+    private LoggerContext contexto;
+    private Appender<ILoggingEvent> appender;
+
+    private java.util.logging.Logger julControlador;
+    private java.util.logging.Logger julServicio;
+    private java.util.logging.Logger julPublicador;
+    private Logger controlador;
+    private Logger servicio;
+    private Logger publicador;
+
+    private final String titulo = "Preparar informe trimestral";
+    private final String tipoEvento = "TAREA_CREADA";
+    private final Long idTarea = 12345L;
+
+    @Setup
+    public void preparar() throws FileNotFoundException {
+        jul = "julSincrono".equals(modo);
+        contexto = (LoggerContext) LoggerFactory.getILoggerFactory();
+        contexto.reset();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(contexto);
+        encoder.setPattern(PATRON_CONSOLA);
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> salida = new OutputStreamAppender<>();
+        salida.setContext(contexto);
+        salida.setName("CONSOLE");
+        salida.setEncoder(encoder);
+        salida.setOutputStream(destino());
+        salida.start();
+        appender = salida;
+
+        if ("slf4jAsincrono".equals(modo)) {
+            AsyncAppender asincrono = new AsyncAppender();
+            asincrono.setContext(contexto);
+            asincrono.setName("CONSOLA_ASINCRONA");
+            asincrono.setQueueSize(8192);
+            asincrono.setNeverBlock(true);
+            asincrono.setIncludeCallerData(false);
+            asincrono.setMaxFlushTime(2000);
+            asincrono.addAppender(salida);
+            asincrono.start();
+            appender = asincrono;
+        }
+
+        ch.qos.logback.classic.Logger raiz = contexto.getLogger(Logger.ROOT_LOGGER_NAME);
+        raiz.setLevel(Level.INFO);
+        raiz.addAppender(appender);
+
+        // Lo mismo que hace Spring Boot al arrancar: java.util.logging pasa por SLF4J
+        SLF4JBridgeHandler.removeHandlersForRootLogger();
+        SLF4JBridgeHandler.install();
+        java.util.logging.Logger.getLogger("").setLevel(java.util.logging.Level.INFO);
+
+        julControlador = java.util.logging.Logger.getLogger(TareaController.class.getName());
+        julServicio = java.util.logging.Logger.getLogger("com.umg.gestiontareas.servicios.TareaService");
+        julPublicador = java.util.logging.Logger.getLogger("com.umg.gestiontareas.servicios.RabbitMQSender");
+        controlador = LoggerFactory.getLogger(TareaController.class);
+        servicio = LoggerFactory.getLogger("com.umg.gestiontareas.servicios.TareaService");
+        publicador = LoggerFactory.getLogger("com.umg.gestiontareas.servicios.RabbitMQSender");
+    }
+
+    @TearDown
+    public void cerrar() {
+        appender.stop();
+        SLF4JBridgeHandler.uninstall();
+    }
+
+    private static OutputStream destino() throws FileNotFoundException {
+        File nulo = new File("/dev/null");
+        return nulo.exists() ? new FileOutputStream(nulo) : OutputStream.nullOutputStream();
+    }
+
+    private void registrarSolicitud() {
+        if (jul) {
+            julControlador.log(java.util.logging.Level.INFO, "Solicitud para crear nueva tarea: {0}", titulo);
+            julServicio.log(java.util.logging.Level.INFO, "Creando nueva tarea: {0}", titulo);
+            julPublicador.log(java.util.logging.Level.INFO, "Encolando evento para RabbitMQ: {0} (ID {1})",
+                    new Object[]{tipoEvento, idTarea});
+            julControlador.log(java.util.logging.Level.INFO, "Tarea creada. El servicio envió el mensaje a RabbitMQ.");
+        } else {
+            controlador.debug("Solicitud para crear nueva tarea: {}", titulo);
+            servicio.info("Creando nueva tarea: {}", titulo);
+            publicador.debug("Encolando evento para RabbitMQ: {} (ID {})", tipoEvento, idTarea);
+            controlador.debug("Tarea creada. El servicio envió el mensaje a RabbitMQ.");
+        }
+    }
+
+    @Benchmark
+    public void unHilo() {
+        registrarSolicitud();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void cuatroHilos() {
+        registrarSolicitud();
+    }
+}
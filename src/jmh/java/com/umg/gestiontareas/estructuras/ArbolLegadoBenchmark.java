@@ -0,0 +1,117 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.estructuras.arbol.ArbolJerarquicoTareas;
+import com.umg.gestiontareas.modelo.Tarea;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Referencia: ArbolJerarquicoTareas (módulo estructuras-datos) con el algoritmo de construcción
+ * por pasadas que usaba inicializarArbolDesdeDB antes de ArbolTareas.
+ * Ese algoritmo es cuadrático, por eso se mide con tamaños menores que ArbolTareasBenchmark;
+ * compare ambos con el mismo tamaño (-p tamano=10000).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ArbolLegadoBenchmark {
+
+    @Param({"1000", "10000"})
+    private int tamano;
+
+    private List<Tarea> tareas;
+    private ArbolJerarquicoTareas<Tarea> arbol;
+    private SplittableRandom aleatorio;
+    private long siguienteId;
+    private Long[] padres;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        tareas = DatosBenchmark.generarTareas(tamano, 42);
+        padres = new Long[tamano + 1];
+        for (Tarea tarea : tareas) {
+            padres[tarea.getId().intValue()] = tarea.getIdTareaPadre();
+        }
+        arbol = construirPorPasadas(tareas);
+        aleatorio = new SplittableRandom(7);
+        siguienteId = tamano + 1L;
+    }
+
+    // Copia del algoritmo original: primero las raíces y luego pasadas hasta que no se agregue nada
+    static ArbolJerarquicoTareas<Tarea> construirPorPasadas(List<Tarea> todasLasTareas) {
+        ArbolJerarquicoTareas<Tarea> arbol = new ArbolJerarquicoTareas<>();
+        List<Tarea> tareasConPadre = new ArrayList<>();
+        for (Tarea tarea : todasLasTareas) {
+            if (tarea.getIdTareaPadre() == null) {
+                arbol.agregarTarea(tarea, null);
+            } else {
+                tareasConPadre.add(tarea);
+            }
+        }
+        boolean algoAgregadoEnPasada;
+        do {
+            algoAgregadoEnPasada = false;
+            List<Tarea> tareasAgregadasEnEstaPasada = new ArrayList<>();
+            for (Tarea tarea : tareasConPadre) {
+                if (arbol.buscarNodoPorId(tarea.getId()) == null && arbol.buscarNodoPorId(tarea.getIdTareaPadre()) != null) {
+                    arbol.agregarTarea(tarea, tarea.getIdTareaPadre());
+                    tareasAgregadasEnEstaPasada.add(tarea);
+                    algoAgregadoEnPasada = true;
+                }
+            }
+            tareasConPadre.removeAll(tareasAgregadasEnEstaPasada);
+        } while (algoAgregadoEnPasada && !tareasConPadre.isEmpty());
+        return arbol;
+    }
+
+    private long idAleatorio() {
+        return 1 + aleatorio.nextInt(tamano);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ArbolJerarquicoTareas<Tarea> construir() {
+        return construirPorPasadas(tareas);
+    }
+
+    @Benchmark
+    public Object buscarPorId() {
+        return arbol.buscarNodoPorId(idAleatorio());
+    }
+
+    @Benchmark
+    public void agregarYEliminar() {
+        long id = siguienteId++;
+        arbol.agregarTarea(DatosBenchmark.nuevaTarea(id, null), idAleatorio());
+        arbol.eliminarNodoPorId(id);
+    }
+
+    // Mueve un nodo a la raíz y lo devuelve a su padre original
+    @Benchmark
+    public void moverYRestaurar() {
+        long id = idAleatorio();
+        Long idPadre = padres[(int) id];
+        if (idPadre != null) {
+            arbol.moverNodo(id, null);
+            arbol.moverNodo(id, idPadre);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.Tarea;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Árbol de tareas en memoria (ArbolTareas): construcción completa, como en inicializarArbolDesdeDB,
+ * y operaciones individuales por ID.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ArbolTareasBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int tamano;
+
+    private List<Tarea> tareas;
+    private ArbolTareas arbol;
+    private SplittableRandom aleatorio;
+    private long siguienteId;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        tareas = DatosBenchmark.generarTareas(tamano, 42);
+        arbol = new ArbolTareas();
+        arbol.construirDesde(tareas);
+        aleatorio = new SplittableRandom(7);
+        siguienteId = tamano + 1L;
+    }
+
+    private long idAleatorio() {
+        return 1 + aleatorio.nextInt(tamano);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public DiagnosticoArbol construir() {
+        return new ArbolTareas().construirDesde(tareas);
+    }
+
+    @Benchmark
+    public NodoTarea buscarPorId() {
+        return arbol.buscarNodoPorId(idAleatorio());
+    }
+
+    // Agrega una hoja bajo un padre aleatorio y la elimina, para que el árbol no crezca entre iteraciones
+    @Benchmark
+    public NodoTarea agregarYEliminar() {
+        long id = siguienteId++;
+        arbol.agregarTarea(DatosBenchmark.nuevaTarea(id, idAleatorio()), idAleatorio());
+        return arbol.eliminarNodoPorId(id);
+    }
+
+    // Mueve un nodo a la raíz y lo devuelve a su padre original
+    @Benchmark
+    public boolean moverYRestaurar() {
+        NodoTarea nodo = arbol.buscarNodoPorId(idAleatorio());
+        if (nodo == null || nodo.getPadre() == null) {
+            return false;
+        }
+        Long idPadre = nodo.getPadre().getId();
+        arbol.moverNodo(nodo.getId(), null);
+        return arbol.moverNodo(nodo.getId(), idPadre);
+    }
+
+    @Benchmark
+    public boolean cambiarEstado() {
+        Tarea copia = arbol.obtenerTarea(idAleatorio());
+        copia.setEstado("COMPLETADA".equals(copia.getEstado()) ? "PENDIENTE" : "COMPLETADA");
+        return arbol.reemplazarTarea(copia);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int recorrerCompleto() {
+        return arbol.obtenerTareasDelArbol().size();
+    }
+}
@@ -0,0 +1,59 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.Tarea;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Genera conjuntos de tareas con forma parecida a los datos reales: unas pocas raíces (proyectos)
+ * y el resto como subtareas de una tarea anterior, con la mayoría de los padres cerca del final
+ * (árboles anchos y poco profundos, con algunas ramas largas).
+ */
+public final class DatosBenchmark {
+
+    private static final String[] ESTADOS = {"PENDIENTE", "EN_PROGRESO", "COMPLETADA"};
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+    private static final String[] TIPOS = {"PERSONAL", "TRABAJO", "ESTUDIO"};
+
+    private DatosBenchmark() {
+    }
+
+    /**
+     * @param cantidad Número de tareas a generar, con IDs de 1 a cantidad.
+     * @param semilla Semilla fija para que todas las ejecuciones usen los mismos datos.
+     * @return Tareas en orden aleatorio, como podrían venir de un findAll() sin ORDER BY.
+     */
+    public static List<Tarea> generarTareas(int cantidad, long semilla) {
+        SplittableRandom aleatorio = new SplittableRandom(semilla);
+        List<Tarea> tareas = new ArrayList<>(cantidad);
+        for (long id = 1; id <= cantidad; id++) {
+            Tarea tarea = new Tarea();
+            tarea.setId(id);
+            tarea.setTitulo("Tarea " + id);
+            tarea.setDescripcion("Descripción de la tarea " + id);
+            tarea.setEstado(ESTADOS[aleatorio.nextInt(ESTADOS.length)]);
+            tarea.setPrioridad(PRIORIDADES[aleatorio.nextInt(PRIORIDADES.length)]);
+            tarea.setTipo(TIPOS[aleatorio.nextInt(TIPOS.length)]);
+            if (id > 1 && aleatorio.nextInt(100) >= 2) {
+                // Padre elegido entre las tareas anteriores, con sesgo hacia las más recientes
+                long distancia = 1 + (long) (Math.pow(aleatorio.nextDouble(), 3) * (id - 1));
+                tarea.setIdTareaPadre(id - Math.min(distancia, id - 1));
+            }
+            tareas.add(tarea);
+        }
+        Collections.shuffle(tareas, new java.util.Random(semilla));
+        return tareas;
+    }
+
+    public static Tarea nuevaTarea(long id, Long idPadre) {
+        Tarea tarea = new Tarea();
+        tarea.setId(id);
+        tarea.setTitulo("Tarea " + id);
+        tarea.setEstado("PENDIENTE");
+        tarea.setIdTareaPadre(idPadre);
+        return tarea;
+    }
+}
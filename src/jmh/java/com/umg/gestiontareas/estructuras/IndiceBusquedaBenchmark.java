@@ -0,0 +1,88 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.Tarea;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda en IndiceBusqueda con textos armados de un vocabulario con frecuencias muy desiguales:
+ * "informe" aparece en cerca de la mitad de las tareas, "revisar" en un cuarto, y los códigos de cliente
+ * ("cli123") en unas pocas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class IndiceBusquedaBenchmark {
+
+    private static final String[] COMUNES = {"informe", "revisar", "reunion", "cliente", "mensual", "entrega",
+            "factura", "soporte", "pruebas", "diseno", "servidor", "migracion", "presupuesto", "contrato"};
+
+    @Param({"100000", "1000000"})
+    private int tamano;
+
+    private IndiceBusqueda indice;
+
+    @Setup
+    public void preparar() {
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        List<Tarea> tareas = new ArrayList<>(tamano);
+        for (long id = 1; id <= tamano; id++) {
+            StringBuilder titulo = new StringBuilder();
+            StringBuilder descripcion = new StringBuilder();
+            for (int i = 0; i < COMUNES.length; i++) {
+                // La palabra i aparece con probabilidad 1/2^(i+1) en el título y el doble en la descripción
+                if (aleatorio.nextInt(1 << (i + 1)) == 0) {
+                    titulo.append(COMUNES[i]).append(' ');
+                }
+                if (aleatorio.nextInt(1 << i) == 0) {
+                    descripcion.append(COMUNES[i]).append(' ');
+                }
+            }
+            descripcion.append("cli").append(aleatorio.nextInt(5000));
+            Tarea tarea = new Tarea();
+            tarea.setId(id);
+            tarea.setTitulo(titulo.toString());
+            tarea.setDescripcion(descripcion.toString());
+            tareas.add(tarea);
+        }
+        indice = IndiceBusqueda.construir(tareas);
+    }
+
+    @Benchmark
+    public List<IndiceBusqueda.Coincidencia> terminoComun() {
+        return indice.buscar("informe", 20);
+    }
+
+    @Benchmark
+    public List<IndiceBusqueda.Coincidencia> dosTerminosComunes() {
+        return indice.buscar("informe revisar", 20);
+    }
+
+    // "re" expande a revisar y reunion
+    @Benchmark
+    public List<IndiceBusqueda.Coincidencia> prefijoComun() {
+        return indice.buscar("re", 20);
+    }
+
+    @Benchmark
+    public List<IndiceBusqueda.Coincidencia> terminoRaro() {
+        return indice.buscar("cli1234 informe", 20);
+    }
+}
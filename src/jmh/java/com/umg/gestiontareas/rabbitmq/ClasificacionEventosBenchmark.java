@@ -0,0 +1,115 @@
+package com.umg.gestiontareas.rabbitmq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.umg.gestiontareas.modelo.TareaEvento;
+import com.umg.gestiontareas.modelo.TipoEventoTarea;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clasificación de eventos en el receptor: la cadena de contains() sobre el texto del mensaje
+ * que usaba el receptor original, frente a leer el TareaEvento en JSON y tomar su tipo.
+ * Se recorre una mezcla de los tipos de evento, porque el costo de contains() depende de la posición del tipo en la cadena.
+ * Los dos últimos miden el lado del publicador: pasar el texto a bytes (lo que hace SimpleMessageConverter)
+ * frente a serializar el evento con Jackson. Los bytes de cada formato los reporta TamanoMensajesEventos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClasificacionEventosBenchmark {
+
+    private String[] mensajesTexto;
+    private byte[][] mensajesJson;
+    private TareaEvento[] eventos;
+    private ObjectMapper objectMapper;
+    private ObjectReader lector;
+    private int siguiente;
+
+    @Setup
+    public void preparar() throws Exception {
+        objectMapper = new ObjectMapper();
+        lector = objectMapper.readerFor(TareaEvento.class);
+        TipoEventoTarea[] tipos = TipoEventoTarea.values();
+        mensajesTexto = new String[tipos.length];
+        mensajesJson = new byte[tipos.length][];
+        eventos = new TareaEvento[tipos.length];
+        for (int i = 0; i < tipos.length; i++) {
+            TareaEvento evento = new TareaEvento(tipos[i], 1000L + i, i % 2 == 0 ? 10L : null,
+                    System.currentTimeMillis(), tipos[i] == TipoEventoTarea.TAREA_ACTUALIZADA ? List.of("estado") : null, null, null);
+            eventos[i] = evento;
+            mensajesTexto[i] = evento.describir();
+            mensajesJson[i] = objectMapper.writeValueAsBytes(evento);
+        }
+    }
+
+    // Copia de la clasificación del receptor original
+    static String clasificarPorTexto(String message) {
+        String eventType = "TAREA_EVENTO";
+        if (message.contains("Tarea creada")) {
+            eventType = "TAREA_CREADA";
+        } else if (message.contains("Tarea actualizada")) {
+            eventType = "TAREA_ACTUALIZADA";
+        } else if (message.contains("Tarea eliminada")) {
+            eventType = "TAREA_ELIMINADA";
+        } else if (message.contains("Tarea completada")) {
+            eventType = "TAREA_COMPLETADA";
+        } else if (message.contains("Tarea programada")) {
+            eventType = "TAREA_PROGRAMADA";
+        } else if (message.contains("Tarea procesada")) {
+            eventType = "TAREA_PROCESADA";
+        } else if (message.contains("Subtarea creada")) {
+            eventType = "SUBTAREA_CREADA";
+        }
+        return eventType;
+    }
+
+    private int indice() {
+        int i = siguiente;
+        siguiente = (i + 1) % mensajesTexto.length;
+        return i;
+    }
+
+    @Benchmark
+    public String textoConContains() {
+        return clasificarPorTexto(mensajesTexto[indice()]);
+    }
+
+    // Incluye la deserialización, que es lo que hace el convertidor JSON por cada mensaje
+    @Benchmark
+    public String jsonConTipo() throws Exception {
+        TareaEvento evento = lector.readValue(mensajesJson[indice()]);
+        return evento.tipo().name();
+    }
+
+    // Solo la clasificación, una vez que el mensaje ya es un TareaEvento
+    @Benchmark
+    public String soloTipo() throws Exception {
+        return TipoEventoTarea.values()[indice()].name();
+    }
+
+    @Benchmark
+    public byte[] publicarTexto() {
+        return mensajesTexto[indice()].getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] publicarJson() throws Exception {
+        return objectMapper.writeValueAsBytes(eventos[indice()]);
+    }
+}
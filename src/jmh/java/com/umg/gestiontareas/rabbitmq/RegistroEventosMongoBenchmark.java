@@ -0,0 +1,142 @@
+package com.umg.gestiontareas.rabbitmq;
+
+import ch.qos.logback.classic.LoggerContext;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.umg.gestiontareas.modelo.TareaEvento;
+import com.umg.gestiontareas.modelo.TipoEventoTarea;
+import com.umg.gestiontareas.servicios.ResumenEventosService;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Eventos por segundo que RabbitMQReceiver guarda en MongoDB en modo "individual" (un insert por mensaje)
+ * frente a modo "lote" (un insertMany no ordenado por lote). Cada operación guarda 'tamanoLote' eventos con
+ * messageId nuevos; la fila "eventos" del resultado está en eventos por segundo (la fila principal, en lotes por segundo).
+ * Por defecto usa un servidor MongoDB en memoria (mongo-java-server) en el mismo proceso: mide sobre todo los
+ * viajes de ida y vuelta por TCP local, no el costo de escritura de un MongoDB real. Para medir contra uno real:
+ * -p uri=mongodb://host:27017
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5) // El driver y el servidor en memoria tardan en estabilizarse
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class RegistroEventosMongoBenchmark {
+
+    @Param({"100", "500"})
+    private int tamanoLote;
+
+    @Param({""})
+    private String uri;
+
+    private MongoServer servidor;
+    private MongoClient cliente;
+    private MongoTemplate mongoTemplate;
+    private RabbitMQReceiver receptor;
+    private List<Message<TareaEvento>> mensajes;
+
+    @Setup
+    public void preparar() {
+        // Sin Spring, logback registraría en DEBUG cada comando del driver y cada lote
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger(Logger.ROOT_LOGGER_NAME)
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        if (uri.isEmpty()) {
+            servidor = new MongoServer(new MemoryBackend());
+            cliente = MongoClients.create(servidor.bindAndGetConnectionString());
+        } else {
+            cliente = MongoClients.create(uri);
+        }
+        mongoTemplate = new MongoTemplate(cliente, "benchmark_eventos");
+        ResumenEventosService resumenes = new ResumenEventosService();
+        ReflectionTestUtils.setField(resumenes, "mongoTemplate", mongoTemplate);
+        receptor = new RabbitMQReceiver();
+        ReflectionTestUtils.setField(receptor, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(receptor, "resumenEventosService", resumenes);
+        ReflectionTestUtils.setField(receptor, "meterRegistry", new SimpleMeterRegistry());
+        receptor.registrarMetricas();
+    }
+
+    // Sin vaciar, la colección en memoria crece con cada iteración
+    @Setup(Level.Iteration)
+    public void vaciar() {
+        mongoTemplate.getDb().drop();
+    }
+
+    // messageId nuevos en cada operación, para que ningún evento se descarte como repetido
+    @Setup(Level.Invocation)
+    public void prepararLote() {
+        mensajes = new ArrayList<>(tamanoLote);
+        TipoEventoTarea[] tipos = TipoEventoTarea.values();
+        for (int i = 0; i < tamanoLote; i++) {
+            TareaEvento evento = new TareaEvento(tipos[i % tipos.length], 1000L + i, null, System.currentTimeMillis(),
+                    null, null, null);
+            mensajes.add(MessageBuilder.withPayload(evento)
+                    .setHeader(AmqpHeaders.MESSAGE_ID, new ObjectId().toHexString())
+                    .build());
+        }
+    }
+
+    @TearDown
+    public void cerrar() {
+        mongoTemplate.getDb().drop();
+        cliente.close();
+        if (servidor != null) {
+            servidor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void individual(Contador contador) {
+        for (Message<TareaEvento> mensaje : mensajes) {
+            receptor.receiveMessage(mensaje.getPayload(), mensaje.getHeaders().get(AmqpHeaders.MESSAGE_ID, String.class));
+        }
+        contador.eventos += tamanoLote;
+    }
+
+    @Benchmark
+    public void lote(Contador contador) {
+        receptor.receiveLote(mensajes);
+        contador.eventos += tamanoLote;
+    }
+
+    // JMH reporta el campo público como una métrica más, por segundo
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contador {
+        public long eventos;
+
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            eventos = 0;
+        }
+    }
+}
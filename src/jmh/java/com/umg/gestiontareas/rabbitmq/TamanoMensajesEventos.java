@@ -0,0 +1,127 @@
+package com.umg.gestiontareas.rabbitmq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.impl.AMQContentHeader;
+import com.umg.gestiontareas.config.RabbitMQConfig;
+import com.umg.gestiontareas.modelo.TareaEvento;
+import com.umg.gestiontareas.modelo.TipoEventoTarea;
+import org.bson.types.ObjectId;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bytes que ocupa en la conexión AMQP cada evento: el texto libre que publicaba la versión original
+ * ("Tarea creada: ID ..., Título: ...") frente al TareaEvento en JSON.
+ * Cuenta la trama de cabecera (propiedades del mensaje) y la de cuerpo, que son las que cambian entre los dos formatos;
+ * la trama basic.publish (exchange y clave de enrutamiento) es la misma en los dos y no se incluye.
+ * El JSON se mide con el convertidor de RabbitMQConfig (nombres abreviados y sin __TypeId__) dos veces: solo con
+ * lo que agrega el formato (content-type) y con las cabeceras del outbox y la replicación (messageId, x-publicador,
+ * x-secuencia), que no existían en la versión original. La columna "json anterior" es el primer formato JSON:
+ * nombres completos de los campos y la cabecera __TypeId__ con el nombre de la clase.
+ * No es un benchmark de JMH; se ejecuta con:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.mainClass=com.umg.gestiontareas.rabbitmq.TamanoMensajesEventos -Dexec.classpathScope=test
+ * </pre>
+ */
+public class TamanoMensajesEventos {
+
+    // Tamaño de la trama sin la carga: tipo (1), canal (2), longitud (4) y fin de trama (1)
+    private static final int TRAMA = 8;
+
+    // Títulos de largo típico; el texto original los incluía, el evento no
+    private static final String[] TITULOS = {"Revisar informe mensual", "Preparar presupuesto del cliente 2024",
+            "Llamar a soporte", "Migrar servidor de pruebas al nuevo entorno de integración"};
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        MessageConverter json = new RabbitMQConfig().jsonMessageConverter(objectMapper);
+        SimpleMessageConverter texto = new SimpleMessageConverter();
+        DefaultMessagePropertiesConverter propiedades = new DefaultMessagePropertiesConverter();
+        String idPublicador = UUID.randomUUID().toString();
+
+        TipoEventoTarea[] tipos = {TipoEventoTarea.TAREA_CREADA, TipoEventoTarea.TAREA_ACTUALIZADA,
+                TipoEventoTarea.TAREA_COMPLETADA, TipoEventoTarea.TAREA_ELIMINADA, TipoEventoTarea.SUBTAREA_CREADA};
+        long totalTexto = 0;
+        long totalJsonAnterior = 0;
+        long totalJson = 0;
+        long totalJsonCompleto = 0;
+        int cantidad = 0;
+        System.out.printf("%-18s %14s %22s %14s %20s%n", "tipo", "texto (bytes)", "json anterior (bytes)", "json (bytes)",
+                "json + outbox (bytes)");
+        for (TipoEventoTarea tipo : tipos) {
+            for (int i = 0; i < TITULOS.length; i++) {
+                long idTarea = 120_000L + i;
+                Long idPadre = tipo == TipoEventoTarea.SUBTAREA_CREADA ? 119_000L : null;
+                TareaEvento evento = new TareaEvento(tipo, idTarea, idPadre, System.currentTimeMillis(),
+                        tipo == TipoEventoTarea.TAREA_ACTUALIZADA ? List.of("estado", "prioridad") : null, null, null);
+
+                Message original = texto.toMessage(textoOriginal(tipo, idTarea, idPadre, TITULOS[i]), new MessageProperties());
+                Message anterior = json.toMessage(camposAnteriores(evento), new MessageProperties());
+                anterior.getMessageProperties().setHeader("__TypeId__", TareaEvento.class.getName());
+                Message conFormato = json.toMessage(evento, new MessageProperties());
+                MessageProperties outbox = new MessageProperties();
+                outbox.setMessageId(new ObjectId().toHexString());
+                outbox.setHeader(RabbitMQConfig.CABECERA_PUBLICADOR, idPublicador);
+                outbox.setHeader(RabbitMQConfig.CABECERA_SECUENCIA, 1_234_567L);
+                Message completo = json.toMessage(evento, outbox);
+
+                long bytesTexto = enConexion(original, propiedades);
+                long bytesAnterior = enConexion(anterior, propiedades);
+                long bytesJson = enConexion(conFormato, propiedades);
+                long bytesCompleto = enConexion(completo, propiedades);
+                totalTexto += bytesTexto;
+                totalJsonAnterior += bytesAnterior;
+                totalJson += bytesJson;
+                totalJsonCompleto += bytesCompleto;
+                cantidad++;
+                if (i == 0) {
+                    System.out.printf("%-18s %14d %22d %14d %20d%n", tipo, bytesTexto, bytesAnterior, bytesJson, bytesCompleto);
+                }
+            }
+        }
+        System.out.printf("%-18s %14.1f %22.1f %14.1f %20.1f%n", "promedio (" + cantidad + ")",
+                (double) totalTexto / cantidad, (double) totalJsonAnterior / cantidad, (double) totalJson / cantidad,
+                (double) totalJsonCompleto / cantidad);
+    }
+
+    // El evento con los nombres de campo completos que usaba el primer formato JSON
+    private static Map<String, Object> camposAnteriores(TareaEvento evento) {
+        Map<String, Object> campos = new LinkedHashMap<>();
+        campos.put("tipo", evento.tipo());
+        campos.put("idTarea", evento.idTarea());
+        if (evento.idPadre() != null) {
+            campos.put("idPadre", evento.idPadre());
+        }
+        campos.put("timestamp", evento.timestamp());
+        if (evento.camposCambiados() != null) {
+            campos.put("camposCambiados", evento.camposCambiados());
+        }
+        return campos;
+    }
+
+    // Mismo formato que armaba el TareaService original
+    private static String textoOriginal(TipoEventoTarea tipo, long idTarea, Long idPadre, String titulo) {
+        if (tipo == TipoEventoTarea.SUBTAREA_CREADA) {
+            return "Subtarea creada: ID " + idTarea + ", Padre ID: " + idPadre;
+        }
+        return tipo.getDescripcion() + ": ID " + idTarea + ", Título: " + titulo;
+    }
+
+    // Trama de cabecera más trama de cuerpo, con las propiedades que RabbitTemplate envía al broker
+    private static long enConexion(Message mensaje, DefaultMessagePropertiesConverter propiedades) throws Exception {
+        AMQP.BasicProperties basicas = propiedades.fromMessageProperties(mensaje.getMessageProperties(),
+                StandardCharsets.UTF_8.name());
+        int cabecera = ((AMQContentHeader) basicas).toFrame(0, mensaje.getBody().length).size();
+        return cabecera + TRAMA + mensaje.getBody().length;
+    }
+}
@@ -0,0 +1,155 @@
+package com.umg.gestiontareas.repositorio;
+
+import com.umg.gestiontareas.modelo.Tarea;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filas por segundo al crear 'tamano' tareas una por una (como N llamadas a POST /api/tareas: un INSERT y un commit
+ * por tarea, igual que Hibernate con IDs IDENTITY) frente a TareaJdbcRepository.insertarLote (como POST /api/tareas/lote:
+ * lotes JDBC con claves generadas dentro de una sola transacción). La fila "filas" del resultado está en filas por segundo.
+ * El modo individual usa JDBC directo, sin el costo de Hibernate, así que es una cota optimista del camino por tarea.
+ * Por defecto usa H2 en memoria en modo MySQL: no hay red ni disco, así que mide sobre todo el costo por sentencia y
+ * por commit en el driver, no los viajes de ida y vuelta que ahorra el lote. Con un servidor H2 por TCP
+ * (java -cp h2.jar org.h2.tools.Server -tcp -ifNotExists y -p url=jdbc:h2:tcp://localhost/mem:benchmark;MODE=MySQL)
+ * cada sentencia ya cruza la red local. Para medir contra un MySQL real:
+ * -p url="jdbc:mysql://host:3306/benchmark?rewriteBatchedStatements=true&amp;createDatabaseIfNotExist=true" -p usuario=... -p clave=...
+ * (crea la tabla tareas si no existe y la vacía en cada iteración: no usar la base de la aplicación).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class InsercionLoteJdbcBenchmark {
+
+    private static final String SQL_TABLA = "CREATE TABLE IF NOT EXISTS tareas (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+            + "titulo VARCHAR(255), descripcion VARCHAR(255), estado VARCHAR(255), prioridad VARCHAR(255), tipo VARCHAR(255), "
+            + "fecha_creacion TIMESTAMP(6) NULL, fecha_completada TIMESTAMP(6) NULL, id_tarea_padre BIGINT, "
+            + "version BIGINT NOT NULL DEFAULT 0)";
+
+    // Mismo INSERT que TareaJdbcRepository, de a una fila
+    private static final String SQL_INSERTAR =
+            "INSERT INTO tareas (titulo, descripcion, estado, prioridad, tipo, fecha_creacion, fecha_completada, id_tarea_padre, version) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, NULL, NULL, 0)";
+
+    private static final String[] ESTADOS = {"PENDIENTE", "EN_PROGRESO", "COMPLETADA"};
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+
+    @Param({"100", "1000"})
+    private int tamano;
+
+    @Param({"jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1"})
+    private String url;
+
+    @Param({"sa"})
+    private String usuario;
+
+    @Param({""})
+    private String clave;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transaccion;
+    private TareaJdbcRepository repositorio;
+    private List<Tarea> tareas;
+
+    @Setup
+    public void preparar() {
+        // Una sola conexión reutilizada, como la que entrega el pool de la aplicación
+        dataSource = new SingleConnectionDataSource(url, usuario, clave, true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(SQL_TABLA);
+        transaccion = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        repositorio = new TareaJdbcRepository();
+        ReflectionTestUtils.setField(repositorio, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repositorio, "namedParameterJdbcTemplate", new NamedParameterJdbcTemplate(jdbcTemplate));
+    }
+
+    // Sin vaciar, la tabla y su índice crecen con cada iteración
+    @Setup(Level.Iteration)
+    public void vaciar() {
+        jdbcTemplate.execute("DELETE FROM tareas");
+    }
+
+    // Tareas nuevas (sin ID) en cada operación, porque insertarLote les asigna el ID generado
+    @Setup(Level.Invocation)
+    public void prepararTareas() {
+        tareas = new ArrayList<>(tamano);
+        for (int i = 0; i < tamano; i++) {
+            tareas.add(new Tarea("Tarea " + i, "Creada por el benchmark", ESTADOS[i % ESTADOS.length],
+                    PRIORIDADES[i % PRIORIDADES.length], "TRABAJO"));
+        }
+    }
+
+    @TearDown
+    public void cerrar() {
+        jdbcTemplate.execute("DROP TABLE tareas");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public void individual(Contador contador) {
+        for (Tarea tarea : tareas) {
+            KeyHolder generada = new GeneratedKeyHolder();
+            jdbcTemplate.update(conexion -> {
+                PreparedStatement ps = conexion.prepareStatement(SQL_INSERTAR, Statement.RETURN_GENERATED_KEYS);
+                ps.setString(1, tarea.getTitulo());
+                ps.setString(2, tarea.getDescripcion());
+                ps.setString(3, tarea.getEstado());
+                ps.setString(4, tarea.getPrioridad());
+                ps.setString(5, tarea.getTipo());
+                ps.setTimestamp(6, Timestamp.valueOf(tarea.getFechaCreacion()));
+                return ps;
+            }, generada);
+            tarea.setId(generada.getKey().longValue());
+        }
+        contador.filas += tamano;
+    }
+
+    @Benchmark
+    public void lote(Contador contador) {
+        transaccion.executeWithoutResult(estado -> repositorio.insertarLote(tareas));
+        contador.filas += tamano;
+    }
+
+    // JMH reporta el campo público como una métrica más, por segundo
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contador {
+        public long filas;
+
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            filas = 0;
+        }
+    }
+}
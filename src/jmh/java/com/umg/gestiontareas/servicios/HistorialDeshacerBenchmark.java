@@ -0,0 +1,85 @@
+package com.umg.gestiontareas.servicios;
+
+import com.umg.estructuras.pila.PilaAcciones;
+import com.umg.gestiontareas.estructuras.DatosBenchmark;
+import com.umg.gestiontareas.modelo.Tarea;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Historial de deshacer por usuario (HistorialDeshacer) frente a la pila global PilaAcciones.
+ * Cada operación registra una acción y la saca, como un "crear" seguido de "deshacer".
+ * PilaAcciones no es segura para varios hilos, así que solo se mide con uno.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistorialDeshacerBenchmark {
+
+    // Usuarios distintos en las pruebas con varios hilos
+    private static final int USUARIOS = 1000;
+
+    private HistorialDeshacer historial;
+    private PilaAcciones<AccionDeshacer> pila;
+    private AccionDeshacer accion;
+
+    @Setup
+    public void preparar() {
+        historial = new HistorialDeshacer(50, 500_000, 60);
+        pila = new PilaAcciones<>();
+        Tarea tarea = DatosBenchmark.nuevaTarea(1, null);
+        accion = new AccionDeshacer("CREAR", tarea);
+        // Historial con profundidad llena, como en uso continuo
+        for (int i = 0; i < USUARIOS; i++) {
+            for (int j = 0; j < 50; j++) {
+                historial.registrar("usuario-" + i, accion);
+            }
+        }
+        for (int j = 0; j < 50; j++) {
+            pila.push(accion);
+        }
+    }
+
+    @Benchmark
+    public AccionDeshacer pilaLegado() {
+        pila.push(accion);
+        return pila.pop();
+    }
+
+    @Benchmark
+    public AccionDeshacer historialUnUsuario() {
+        historial.registrar("usuario-0", accion);
+        return historial.sacarUltima("usuario-0");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public AccionDeshacer historialCuatroHilos() {
+        String usuario = "usuario-" + ThreadLocalRandom.current().nextInt(USUARIOS);
+        historial.registrar(usuario, accion);
+        return historial.sacarUltima(usuario);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public AccionDeshacer historialDieciseisHilos() {
+        String usuario = "usuario-" + ThreadLocalRandom.current().nextInt(USUARIOS);
+        historial.registrar(usuario, accion);
+        return historial.sacarUltima(usuario);
+    }
+}
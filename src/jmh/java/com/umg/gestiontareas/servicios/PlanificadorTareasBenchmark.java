@@ -0,0 +1,124 @@
+package com.umg.gestiontareas.servicios;
+
+import com.umg.estructuras.cola.ColaTareasProgramadas;
+import com.umg.gestiontareas.estructuras.DatosBenchmark;
+import com.umg.gestiontareas.modelo.Tarea;
+import com.umg.gestiontareas.modelo.TareaProgramada;
+import com.umg.gestiontareas.repositorio.TareaProgramadaRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Planificador de tareas programadas (montículo por prioridad y fecha) frente a la cola FIFO
+ * ColaTareasProgramadas. Cada operación programa una tarea y procesa la siguiente, sobre una cola
+ * con 'pendientes' tareas ya cargadas. El repositorio se reemplaza por uno en memoria,
+ * así que solo se mide la estructura, no MySQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanificadorTareasBenchmark {
+
+    private static final String[] PRIORIDADES = {"ALTA", "MEDIA", "BAJA"};
+
+    @Param({"1000", "100000"})
+    private int pendientes;
+
+    private PlanificadorTareas planificador;
+    private ColaTareasProgramadas<Tarea> colaLegado;
+    private Tarea[] tareas;
+
+    @Setup
+    public void preparar() {
+        planificador = new PlanificadorTareas();
+        ReflectionTestUtils.setField(planificador, "tareaProgramadaRepository", repositorioEnMemoria());
+        colaLegado = new ColaTareasProgramadas<>();
+        tareas = new Tarea[1024];
+        for (int i = 0; i < tareas.length; i++) {
+            tareas[i] = DatosBenchmark.nuevaTarea(i + 1, null);
+            tareas[i].setPrioridad(PRIORIDADES[i % PRIORIDADES.length]);
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 0; i < pendientes; i++) {
+            Tarea tarea = tareas[i % tareas.length];
+            planificador.programar(tarea, ahora.plusSeconds(i));
+            colaLegado.enqueue(tarea);
+        }
+    }
+
+    // Repositorio que solo asigna IDs: save() devuelve la misma entidad, el resto no hace nada
+    private static TareaProgramadaRepository repositorioEnMemoria() {
+        AtomicLong ids = new AtomicLong();
+        return (TareaProgramadaRepository) Proxy.newProxyInstance(
+                TareaProgramadaRepository.class.getClassLoader(),
+                new Class<?>[]{TareaProgramadaRepository.class},
+                (proxy, metodo, argumentos) -> switch (metodo.getName()) {
+                    case "save" -> {
+                        ReflectionTestUtils.setField(argumentos[0], "id", ids.incrementAndGet());
+                        yield argumentos[0];
+                    }
+                    case "findAll" -> List.of();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == argumentos[0];
+                    case "toString" -> "TareaProgramadaRepository en memoria";
+                    default -> null;
+                });
+    }
+
+    private Tarea tareaAleatoria() {
+        return tareas[ThreadLocalRandom.current().nextInt(tareas.length)];
+    }
+
+    @Benchmark
+    public Tarea colaLegado() {
+        colaLegado.enqueue(tareaAleatoria());
+        return colaLegado.dequeue();
+    }
+
+    @Benchmark
+    public Tarea planificadorUnHilo() {
+        planificador.programar(tareaAleatoria(), null);
+        return planificador.siguiente();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Tarea planificadorCuatroHilos() {
+        planificador.programar(tareaAleatoria(), null);
+        return planificador.siguiente();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Tarea planificadorDieciseisHilos() {
+        planificador.programar(tareaAleatoria(), null);
+        return planificador.siguiente();
+    }
+
+    // Costo de construir el objeto persistente, incluido en cada programar()
+    @Benchmark
+    public TareaProgramada crearTareaProgramada() {
+        return new TareaProgramada(tareaAleatoria(), null);
+    }
+}
@@ -2,8 +2,10 @@ package com.umg.gestiontareas;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // Tareas periódicas, como el resumen de eventos en MongoDB
 public class GestionTareasApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,108 @@
+package com.umg.gestiontareas.api;
+
+import com.umg.gestiontareas.modelo.ConteoEventos;
+import com.umg.gestiontareas.modelo.LogEntry;
+import com.umg.gestiontareas.modelo.PaginaEventos;
+import com.umg.gestiontareas.servicios.EventoService;
+import com.umg.gestiontareas.servicios.OutboxEventos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consulta del historial de eventos de tareas guardado en MongoDB.
+ */
+@RestController
+@RequestMapping("/api/eventos")
+public class EventoController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventoController.class);
+
+    @Autowired
+    private EventoService eventoService;
+
+    @Autowired
+    private OutboxEventos outboxEventos;
+
+    /**
+     * Obtiene los eventos, del más reciente al más antiguo, paginados por cursor.
+     * Ejemplo: GET /api/eventos?eventType=TAREA_CREADA&idTarea=15&desde=2024-06-01T00:00:00&limite=50
+     * El cursor de la siguiente página se devuelve en la cabecera X-Siguiente-Cursor.
+     * @param eventType Tipo de evento (opcional).
+     * @param idTarea ID de la tarea (opcional).
+     * @param desde Fecha mínima, inclusive (opcional, ISO-8601).
+     * @param hasta Fecha máxima, exclusiva (opcional, ISO-8601).
+     * @param cursor Cursor de paginación (opcional).
+     * @param limite Tamaño de página (opcional, máximo EventoService.TAMANO_PAGINA_MAXIMO).
+     * @return Página de eventos, o 400 si el cursor no es válido.
+     */
+    @GetMapping
+    public ResponseEntity<List<LogEntry>> obtenerEventos(@RequestParam(required = false) String eventType,
+                                                         @RequestParam(required = false) Long idTarea,
+                                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+                                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer limite) {
+        LOGGER.debug("Solicitud para obtener eventos: tipo={}, tarea={}, cursor={}", eventType, idTarea, cursor);
+        PaginaEventos pagina = eventoService.obtenerPaginaEventos(eventType, idTarea, desde, hasta, cursor, limite);
+        if (pagina == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguienteCursor() != null) {
+            respuesta.header(TareaController.CABECERA_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+        }
+        return respuesta.body(pagina.getEventos());
+    }
+
+    /**
+     * Cuenta los eventos por tipo e intervalo, calculado en MongoDB.
+     * Ejemplo: GET /api/eventos/conteo?intervalo=hora&desde=2024-06-01T00:00:00&hasta=2024-06-02T00:00:00
+     * @param intervalo "minuto", "hora" (por defecto) o "dia".
+     * @param desde Inicio del rango (opcional, por defecto un día antes de 'hasta').
+     * @param hasta Fin del rango, exclusivo (opcional, por defecto ahora).
+     * @param eventType Tipo de evento (opcional).
+     * @return Conteos por intervalo y tipo, o 400 si el intervalo no es válido o el rango es demasiado grande.
+     */
+    @GetMapping("/conteo")
+    public ResponseEntity<List<ConteoEventos>> contarEventos(@RequestParam(required = false) String intervalo,
+                                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+                                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+                                                             @RequestParam(required = false) String eventType) {
+        LOGGER.debug("Solicitud para contar eventos por {}: desde={}, hasta={}, tipo={}", intervalo, desde, hasta, eventType);
+        List<ConteoEventos> conteos = eventoService.contarEventos(intervalo, desde, hasta, eventType);
+        if (conteos == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(conteos);
+    }
+
+    /**
+     * Vuelve a publicar en RabbitMQ los eventos del outbox creados en el rango, por ejemplo para reconstruir
+     * event_logs después de perder datos en MongoDB. Los eventos que ya están registrados no se duplican.
+     * Solo se pueden reenviar eventos dentro de la retención del outbox (gestion.outbox.retencion-dias).
+     * Ejemplo: POST /api/eventos/reenviar?desde=2024-06-01T00:00:00&hasta=2024-06-02T00:00:00
+     * @return Cantidad de eventos marcados para reenviar, o 400 si el rango está vacío.
+     */
+    @PostMapping("/reenviar")
+    public ResponseEntity<Map<String, Integer>> reenviarEventos(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        LocalDateTime fin = hasta != null ? hasta : LocalDateTime.now();
+        LOGGER.debug("Solicitud para reenviar eventos: desde={}, hasta={}", desde, fin);
+        if (!desde.isBefore(fin)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(Map.of("reenviados", outboxEventos.reenviar(desde, fin)));
+    }
+}
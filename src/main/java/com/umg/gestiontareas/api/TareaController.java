@@ -1,145 +1,402 @@
 package com.umg.gestiontareas.api;
 
+import com.umg.gestiontareas.estructuras.InstantaneaArbol;
+import com.umg.gestiontareas.modelo.PaginaTareas;
+import com.umg.gestiontareas.modelo.ProgresoTarea;
+import com.umg.gestiontareas.modelo.ResultadoActualizacion;
+import com.umg.gestiontareas.modelo.ResultadoBusqueda;
+import com.umg.gestiontareas.modelo.SubarbolTarea;
 import com.umg.gestiontareas.modelo.Tarea;
 import com.umg.gestiontareas.servicios.TareaService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/tareas")
 public class TareaController {
 
-    private static final Logger LOGGER = Logger.getLogger(TareaController.class.getName());
+    private static final Logger LOGGER = LoggerFactory.getLogger(TareaController.class);
+
+    // Cabecera con el cursor para pedir la siguiente página (ausente en la última página)
+    public static final String CABECERA_SIGUIENTE_CURSOR = "X-Siguiente-Cursor";
+
+    // Cabecera que identifica al usuario; cada usuario tiene su propio historial de deshacer
+    public static final String CABECERA_USUARIO = "X-Usuario";
+    public static final String USUARIO_ANONIMO = "anonimo";
+    private static final String ATRIBUTO_USUARIO = "usuario";
 
     @Autowired
     private TareaService tareaService; // Inyecta el servicio de tareas
 
-    // Endpoint para obtener todas las tareas
+    /**
+     * Clave del historial de deshacer de la solicitud: la cabecera X-Usuario o, sin ella,
+     * "anonimo@" más la dirección del cliente, para que un cliente anónimo no deshaga acciones de otro.
+     */
+    @ModelAttribute(ATRIBUTO_USUARIO)
+    public String usuario(@RequestHeader(value = CABECERA_USUARIO, required = false) String usuario,
+                          HttpServletRequest request) {
+        return usuario != null && !usuario.isBlank() ? usuario : USUARIO_ANONIMO + "@" + request.getRemoteAddr();
+    }
+
+    // Si es true, PUT y PATCH sin If-Match se rechazan con 428 en lugar de escribir sobre la versión actual
+    @Value("${gestion.tareas.exigir-if-match:false}")
+    private boolean exigirIfMatch;
+
+    /**
+     * Obtiene las tareas paginadas por cursor sobre el ID.
+     * Ejemplo: GET /api/tareas?despuesDe=250&limite=100
+     * El cursor de la siguiente página se devuelve en la cabecera X-Siguiente-Cursor.
+     * @param despuesDe ID de la última tarea recibida (opcional).
+     * @param limite Tamaño de página (opcional, máximo TareaService.TAMANO_PAGINA_MAXIMO).
+     * @return Lista de tareas de la página.
+     */
     @GetMapping
-    public ResponseEntity<List<Tarea>> obtenerTodasLasTareas() {
-        LOGGER.log(Level.INFO, "Solicitud para obtener todas las tareas.");
-        List<Tarea> tareas = tareaService.obtenerTodasLasTareas();
-        return ResponseEntity.ok(tareas);
+    public ResponseEntity<List<Tarea>> obtenerTodasLasTareas(@RequestParam(required = false) Long despuesDe,
+                                                             @RequestParam(required = false) Integer limite) {
+        LOGGER.debug("Solicitud para obtener tareas después del ID: {}", despuesDe);
+        return respuestaPaginada(tareaService.obtenerPaginaTareas(despuesDe, limite));
+    }
+
+    /**
+     * Exporta todas las tareas en formato NDJSON, escribiendo cada fila a medida que se lee.
+     * Ejemplo: GET /api/tareas/exportar
+     * @return Flujo NDJSON con una tarea por línea.
+     */
+    @GetMapping(value = "/exportar", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarTareas() {
+        LOGGER.debug("Solicitud para exportar todas las tareas.");
+        StreamingResponseBody cuerpo = salida -> tareaService.exportarTareasNdjson(salida);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(cuerpo);
+    }
+
+    /**
+     * Busca tareas por palabras de su título o descripción (también por el comienzo de una palabra).
+     * Ejemplo: GET /api/tareas/buscar?q=informe%20mens&limite=20
+     * @param q Texto a buscar.
+     * @param limite Cantidad máxima de resultados (opcional).
+     * @return Tareas encontradas con su puntaje, de la más a la menos relevante.
+     */
+    @GetMapping("/buscar")
+    public ResponseEntity<List<ResultadoBusqueda>> buscarTareas(@RequestParam String q,
+                                                                @RequestParam(required = false) Integer limite) {
+        LOGGER.debug("Solicitud para buscar tareas: {}", q);
+        return ResponseEntity.ok(tareaService.buscarTareas(q, limite));
+    }
+
+    // Endpoint para consultar las estadísticas de la caché de tareas (aciertos, fallos, desalojos)
+    @GetMapping("/cache-estadisticas")
+    public ResponseEntity<Map<String, Number>> obtenerEstadisticasCache() {
+        LOGGER.debug("Solicitud para obtener las estadísticas de la caché de tareas.");
+        return ResponseEntity.ok(tareaService.obtenerEstadisticasCache());
     }
 
     // Endpoint para obtener una tarea por su ID
     @GetMapping("/{id}")
     public ResponseEntity<Tarea> obtenerTareaPorId(@PathVariable Long id) {
-        LOGGER.log(Level.INFO, "Solicitud para obtener tarea con ID: {0}", id);
+        LOGGER.debug("Solicitud para obtener tarea con ID: {}", id);
         Tarea tarea = tareaService.obtenerTareaPorId(id);
         if (tarea != null) {
-            return ResponseEntity.ok(tarea);
+            return ResponseEntity.ok().eTag(etag(tarea)).body(tarea);
         } else {
-            LOGGER.log(Level.WARNING, "Tarea con ID {0} no encontrada.", id);
+            LOGGER.warn("Tarea con ID {} no encontrada.", id);
             return ResponseEntity.notFound().build();
         }
     }
 
     // Endpoint para crear una nueva tarea (el servicio se encarga de enviar el mensaje)
     @PostMapping
-    public ResponseEntity<Tarea> crearTarea(@RequestBody Tarea tarea) {
-        LOGGER.log(Level.INFO, "Solicitud para crear nueva tarea: {0}", tarea.getTitulo());
-        Tarea nuevaTarea = tareaService.crearTarea(tarea);
-        LOGGER.log(Level.INFO, "Tarea creada. El servicio envió el mensaje a RabbitMQ.");
+    public ResponseEntity<Tarea> crearTarea(@RequestBody Tarea tarea,
+                                            @ModelAttribute(ATRIBUTO_USUARIO) String usuario) {
+        LOGGER.debug("Solicitud para crear nueva tarea: {}", tarea.getTitulo());
+        Tarea nuevaTarea = tareaService.crearTarea(tarea, usuario);
+        LOGGER.debug("Tarea creada. El servicio envió el mensaje a RabbitMQ.");
         return ResponseEntity.status(HttpStatus.CREATED).body(nuevaTarea);
     }
 
-    // Endpoint para actualizar una tarea existente (el servicio se encarga de enviar el mensaje)
+    /**
+     * Crea muchas tareas en una sola solicitud usando inserciones JDBC por lotes.
+     * Ejemplo: POST /api/tareas/lote con un arreglo JSON de tareas.
+     * @param tareas Tareas a crear (cada una puede indicar su idTareaPadre).
+     * @return Las tareas creadas, con sus IDs.
+     */
+    @PostMapping("/lote")
+    public ResponseEntity<List<Tarea>> crearTareasEnLote(@RequestBody List<Tarea> tareas,
+                                                         @ModelAttribute(ATRIBUTO_USUARIO) String usuario) {
+        LOGGER.debug("Solicitud para crear un lote de {} tareas.", tareas.size());
+        List<Tarea> nuevasTareas = tareaService.crearTareasEnLote(tareas, usuario);
+        return ResponseEntity.status(HttpStatus.CREATED).body(nuevasTareas);
+    }
+
+    /**
+     * Marca como completadas muchas tareas en una sola solicitud.
+     * Ejemplo: PUT /api/tareas/lote/completar con un arreglo JSON de IDs.
+     * @param ids IDs de las tareas a completar.
+     * @return Cantidad de tareas completadas.
+     */
+    @PutMapping("/lote/completar")
+    public ResponseEntity<Map<String, Integer>> completarTareasEnLote(@RequestBody List<Long> ids,
+                                                                      @ModelAttribute(ATRIBUTO_USUARIO) String usuario) {
+        LOGGER.debug("Solicitud para completar un lote de {} tareas.", ids.size());
+        int completadas = tareaService.completarTareasEnLote(ids, usuario);
+        return ResponseEntity.ok(Map.of("completadas", completadas));
+    }
+
+    /**
+     * Reemplaza todos los campos editables de una tarea.
+     * Con If-Match (el ETag recibido al leerla) solo se guarda si nadie la cambió desde entonces; si no, 412.
+     * La respuesta trae el ETag de la versión nueva.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<Tarea> actualizarTarea(@PathVariable Long id, @RequestBody Tarea tareaActualizada) {
-        LOGGER.log(Level.INFO, "Solicitud para actualizar tarea con ID: {0}", id);
-        Tarea tareaGuardada = tareaService.actualizarTarea(id, tareaActualizada);
-        if (tareaGuardada != null) {
-            LOGGER.log(Level.INFO, "Tarea actualizada. El servicio envió el mensaje a RabbitMQ.");
-            return ResponseEntity.ok(tareaGuardada);
-        } else {
-            LOGGER.log(Level.WARNING, "Tarea con ID {0} no encontrada para actualizar.", id);
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<Tarea> actualizarTarea(@PathVariable Long id, @RequestBody Tarea tareaActualizada,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                 @ModelAttribute(ATRIBUTO_USUARIO) String usuario) {
+        LOGGER.debug("Solicitud para actualizar tarea con ID: {}", id);
+        if (exigirIfMatch && ifMatch == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
         }
+        return responderActualizacion(id, tareaService.actualizarTarea(id, tareaActualizada, versionesDeIfMatch(ifMatch), usuario));
+    }
+
+    /**
+     * Cambia solo los campos enviados; el UPDATE incluye solo las columnas que cambiaron.
+     * Ejemplo: PATCH /api/tareas/5 con {"estado": "EN_PROGRESO"} e If-Match: "3".
+     * @return La tarea guardada con su ETag nuevo; 400 si hay un campo no editable, 412 si la versión no coincide.
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<Tarea> actualizarTareaParcialmente(@PathVariable Long id, @RequestBody Map<String, Object> cambios,
+                                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                             @ModelAttribute(ATRIBUTO_USUARIO) String usuario) {
+        LOGGER.debug("Solicitud para actualizar parcialmente la tarea con ID: {}", id);
+        if (exigirIfMatch && ifMatch == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).build();
+        }
+        return responderActualizacion(id, tareaService.actualizarParcialmente(id, cambios, versionesDeIfMatch(ifMatch), usuario));
+    }
+
+    private static ResponseEntity<Tarea> responderActualizacion(Long id, ResultadoActualizacion resultado) {
+        switch (resultado.estado()) {
+            case ACTUALIZADA:
+                LOGGER.debug("Tarea actualizada. El servicio envió el mensaje a RabbitMQ.");
+                return ResponseEntity.ok().eTag(etag(resultado.tarea())).body(resultado.tarea());
+            case VERSION_DISTINTA:
+                LOGGER.info("Tarea con ID {} modificada por otro cliente; se rechaza la actualización.", id);
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            case CAMBIOS_INVALIDOS:
+                return ResponseEntity.badRequest().build();
+            default:
+                LOGGER.warn("Tarea con ID {} no encontrada para actualizar.", id);
+                return ResponseEntity.notFound().build();
+        }
+    }
+
+    private static String etag(Tarea tarea) {
+        return "\"" + tarea.getVersion() + "\"";
+    }
+
+    // Versiones indicadas en If-Match: una etiqueta ("3" o 3) o una lista ("3", "4"). Sin cabecera o con "*" no se
+    // comprueba la versión (null). If-Match usa comparación fuerte, así que las etiquetas débiles (W/"3") no coinciden
+    // con ninguna versión, igual que los valores que no son una versión; si no queda ninguna, la actualización responde 412.
+    static Set<Long> versionesDeIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Set<Long> versiones = new HashSet<>();
+        for (String etiqueta : ifMatch.split(",")) {
+            String valor = etiqueta.trim();
+            if (valor.startsWith("W/")) {
+                continue;
+            }
+            if (valor.length() >= 2 && valor.startsWith("\"") && valor.endsWith("\"")) {
+                valor = valor.substring(1, valor.length() - 1);
+            }
+            try {
+                versiones.add(Long.parseLong(valor));
+            } catch (NumberFormatException e) {
+                // No es una versión de esta API: no coincide
+            }
+        }
+        return versiones;
     }
 
     // Endpoint para eliminar una tarea (el servicio se encarga de enviar el mensaje)
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> eliminarTarea(@PathVariable Long id) {
-        LOGGER.log(Level.INFO, "Solicitud para eliminar tarea con ID: {0}", id);
-        tareaService.eliminarTarea(id);
-        LOGGER.log(Level.INFO, "Tarea eliminada. El servicio envió el mensaje a RabbitMQ.");
+    public ResponseEntity<Void> eliminarTarea(@PathVariable Long id,
+                                              @ModelAttribute(ATRIBUTO_USUARIO) String usuario) {
+        LOGGER.debug("Solicitud para eliminar tarea con ID: {}", id);
+        tareaService.eliminarTarea(id, usuario);
+        LOGGER.debug("Tarea eliminada. El servicio envió el mensaje a RabbitMQ.");
         return ResponseEntity.noContent().build();
     }
 
     // Endpoint para marcar una tarea como completada (el servicio se encarga de enviar el mensaje)
     @PutMapping("/{id}/completar")
-    public ResponseEntity<Void> marcarComoCompletada(@PathVariable Long id) {
-        LOGGER.log(Level.INFO, "Solicitud para marcar tarea con ID: {0} como completada.", id);
-        tareaService.marcarComoCompletada(id);
-        LOGGER.log(Level.INFO, "Tarea marcada como completada. El servicio envió el mensaje a RabbitMQ.");
+    public ResponseEntity<Void> marcarComoCompletada(@PathVariable Long id,
+                                                     @ModelAttribute(ATRIBUTO_USUARIO) String usuario) {
+        LOGGER.debug("Solicitud para marcar tarea con ID: {} como completada.", id);
+        tareaService.marcarComoCompletada(id, usuario);
+        LOGGER.debug("Tarea marcada como completada. El servicio envió el mensaje a RabbitMQ.");
         return ResponseEntity.ok().build();
     }
 
-    // Endpoint para deshacer la última acción
+    // Endpoint para deshacer la última acción del usuario (cabecera X-Usuario)
     @PostMapping("/deshacer")
-    public ResponseEntity<String> deshacerUltimaAccion() {
-        LOGGER.log(Level.INFO, "Solicitud para deshacer la última acción.");
-        String mensaje = tareaService.deshacerUltimaAccion();
+    public ResponseEntity<String> deshacerUltimaAccion(@ModelAttribute(ATRIBUTO_USUARIO) String usuario) {
+        LOGGER.debug("Solicitud para deshacer la última acción del usuario: {}", usuario);
+        String mensaje = tareaService.deshacerUltimaAccion(usuario);
         return ResponseEntity.ok(mensaje);
     }
 
     // Nuevos endpoints para la jerarquía de tareas
     @PostMapping("/{idPadre}/subtarea")
-    public ResponseEntity<Tarea> crearSubtarea(@PathVariable Long idPadre, @RequestBody Tarea tarea) {
-        LOGGER.log(Level.INFO, "Solicitud para crear subtarea de la tarea con ID: {0}", idPadre);
-        Tarea nuevaSubtarea = tareaService.crearSubtarea(tarea, idPadre);
+    public ResponseEntity<Tarea> crearSubtarea(@PathVariable Long idPadre, @RequestBody Tarea tarea,
+                                               @ModelAttribute(ATRIBUTO_USUARIO) String usuario) {
+        LOGGER.debug("Solicitud para crear subtarea de la tarea con ID: {}", idPadre);
+        Tarea nuevaSubtarea = tareaService.crearSubtarea(tarea, idPadre, usuario);
         return ResponseEntity.status(HttpStatus.CREATED).body(nuevaSubtarea);
     }
 
-    @GetMapping("/jerarquia")
-    public ResponseEntity<List<Tarea>> obtenerJerarquiaTareas() {
-        LOGGER.log(Level.INFO, "Solicitud para obtener la jerarquía de tareas.");
-        List<Tarea> tareas = tareaService.obtenerJerarquiaTareas();
-        return ResponseEntity.ok(tareas);
+    /**
+     * Obtiene una tarea con sus subtareas anidadas.
+     * Ejemplo: GET /api/tareas/10/subarbol?profundidad=2
+     * @param profundidad Niveles de subtareas a incluir (opcional; sin límite si se omite).
+     * @return El subárbol de la tarea.
+     */
+    @GetMapping("/{id}/subarbol")
+    public ResponseEntity<SubarbolTarea> obtenerSubarbol(@PathVariable Long id,
+                                                         @RequestParam(required = false) Integer profundidad) {
+        LOGGER.debug("Solicitud para obtener el subárbol de la tarea con ID: {}", id);
+        SubarbolTarea subarbol = tareaService.obtenerSubarbol(id, profundidad);
+        if (subarbol == null) {
+            LOGGER.warn("Tarea con ID {} no encontrada en el árbol.", id);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(subarbol);
+    }
+
+    /**
+     * Obtiene el porcentaje completado y el conteo por estado de una tarea y sus subtareas.
+     * Ejemplo: GET /api/tareas/10/progreso
+     * @return El progreso del subárbol de la tarea.
+     */
+    @GetMapping("/{id}/progreso")
+    public ResponseEntity<ProgresoTarea> obtenerProgreso(@PathVariable Long id) {
+        LOGGER.debug("Solicitud para obtener el progreso de la tarea con ID: {}", id);
+        ProgresoTarea progreso = tareaService.obtenerProgreso(id);
+        if (progreso == null) {
+            LOGGER.warn("Tarea con ID {} no encontrada en el árbol.", id);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(progreso);
+    }
+
+    /**
+     * Elimina una tarea y todas sus subtareas en una sola operación (se deshace como una unidad).
+     * Ejemplo: DELETE /api/tareas/10/subarbol
+     * @return Cantidad de tareas eliminadas.
+     */
+    @DeleteMapping("/{id}/subarbol")
+    public ResponseEntity<Map<String, Integer>> eliminarSubarbol(@PathVariable Long id,
+                                                                 @ModelAttribute(ATRIBUTO_USUARIO) String usuario) {
+        LOGGER.debug("Solicitud para eliminar en cascada la tarea con ID: {}", id);
+        int eliminadas = tareaService.eliminarSubarbol(id, usuario);
+        if (eliminadas == 0) {
+            LOGGER.warn("Tarea con ID {} no encontrada en el árbol para eliminar.", id);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("eliminadas", eliminadas));
+    }
+
+    /**
+     * Marca como completadas una tarea y todas sus subtareas pendientes (se deshace como una unidad).
+     * Ejemplo: PUT /api/tareas/10/subarbol/completar
+     * @return Cantidad de tareas completadas.
+     */
+    @PutMapping("/{id}/subarbol/completar")
+    public ResponseEntity<Map<String, Integer>> completarSubarbol(@PathVariable Long id,
+                                                                  @ModelAttribute(ATRIBUTO_USUARIO) String usuario) {
+        LOGGER.debug("Solicitud para completar en cascada la tarea con ID: {}", id);
+        int completadas = tareaService.completarSubarbol(id, usuario);
+        if (completadas < 0) {
+            LOGGER.warn("Tarea con ID {} no encontrada en el árbol para completar.", id);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("completadas", completadas));
+    }
+
+    /**
+     * Obtiene la jerarquía completa desde una instantánea inmutable del árbol.
+     * Responde con ETag; si el cliente envía If-None-Match con la versión actual, devuelve 304 sin cuerpo.
+     * @return Lista plana de tareas en preorden, serializada una sola vez por versión.
+     */
+    @GetMapping(value = "/jerarquia", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> obtenerJerarquiaTareas(WebRequest solicitud) {
+        LOGGER.debug("Solicitud para obtener la jerarquía de tareas.");
+        InstantaneaArbol instantanea = tareaService.obtenerInstantaneaJerarquia();
+        if (solicitud.checkNotModified(instantanea.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(instantanea.getEtag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(instantanea.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(tareaService.serializarJerarquia(instantanea));
     }
 
     // Nuevos endpoints para la cola de tareas programadas
     @PostMapping("/programar")
-    public ResponseEntity<String> programarTarea(@RequestBody Tarea tarea) {
-        LOGGER.log(Level.INFO, "Solicitud para programar tarea: {0}", tarea.getTitulo());
-        tareaService.programarTarea(tarea);
+    public ResponseEntity<String> programarTarea(@RequestBody Tarea tarea,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime ejecutarEn) {
+        LOGGER.debug("Solicitud para programar tarea: {}", tarea.getTitulo());
+        tareaService.programarTarea(tarea, ejecutarEn);
         return ResponseEntity.ok("Tarea programada exitosamente.");
     }
 
     @PostMapping("/procesar-siguiente")
     public ResponseEntity<Tarea> procesarSiguienteTareaProgramada() {
-        LOGGER.log(Level.INFO, "Solicitud para procesar la siguiente tarea programada.");
+        LOGGER.debug("Solicitud para procesar la siguiente tarea programada.");
         Tarea tareaProcesada = tareaService.procesarSiguienteTareaProgramada();
         if (tareaProcesada != null) {
             return ResponseEntity.ok(tareaProcesada);
         } else {
-            LOGGER.log(Level.INFO, "No hay tareas en la cola para procesar.");
+            LOGGER.debug("No hay tareas en la cola para procesar.");
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build(); // 204 No Content si está vacía
         }
     }
 
     @GetMapping("/siguiente-programada")
     public ResponseEntity<Tarea> verSiguienteTareaProgramada() {
-        LOGGER.log(Level.INFO, "Solicitud para ver la siguiente tarea programada.");
+        LOGGER.debug("Solicitud para ver la siguiente tarea programada.");
         Tarea tarea = tareaService.verSiguienteTareaProgramada();
         if (tarea != null) {
             return ResponseEntity.ok(tarea);
         } else {
-            LOGGER.log(Level.INFO, "No hay tareas en la cola para ver.");
+            LOGGER.debug("No hay tareas en la cola para ver.");
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build(); // 204 No Content si está vacía
         }
     }
 
     @GetMapping("/cola-vacia")
     public ResponseEntity<Boolean> estaColaTareasProgramadasVacia() {
-        LOGGER.log(Level.INFO, "Solicitud para verificar si la cola de tareas programadas está vacía.");
+        LOGGER.debug("Solicitud para verificar si la cola de tareas programadas está vacía.");
         boolean estaVacia = tareaService.estaColaTareasProgramadasVacia();
         return ResponseEntity.ok(estaVacia);
     }
@@ -148,66 +405,126 @@ public class TareaController {
 
     /**
      * Obtiene tareas filtradas por estado.
-     * Ejemplo: GET /api/tareas/estado?valor=PENDIENTE
+     * Ejemplo: GET /api/tareas/estado?valor=PENDIENTE&despuesDe=250&limite=100
      * @param valor El estado por el cual filtrar.
-     * @return Lista de tareas que coinciden con el estado.
+     * @param despuesDe Cursor de paginación (opcional).
+     * @param limite Tamaño de página (opcional).
+     * @return Página de tareas que coinciden con el estado.
      */
     @GetMapping("/estado")
-    public ResponseEntity<List<Tarea>> obtenerTareasPorEstado(@RequestParam String valor) {
-        LOGGER.log(Level.INFO, "Solicitud para obtener tareas por estado: {0}", valor);
-        List<Tarea> tareas = tareaService.findByEstado(valor);
-        return ResponseEntity.ok(tareas);
+    public ResponseEntity<List<Tarea>> obtenerTareasPorEstado(@RequestParam String valor,
+                                                     @RequestParam(required = false) Long despuesDe,
+                                                     @RequestParam(required = false) Integer limite) {
+        LOGGER.debug("Solicitud para obtener tareas por estado: {}", valor);
+        return respuestaPaginada(tareaService.findByEstado(valor, despuesDe, limite));
     }
 
     /**
      * Obtiene tareas filtradas por prioridad.
-     * Ejemplo: GET /api/tareas/prioridad?valor=ALTA
+     * Ejemplo: GET /api/tareas/prioridad?valor=ALTA&despuesDe=250&limite=100
      * @param valor La prioridad por la cual filtrar.
-     * @return Lista de tareas que coinciden con la prioridad.
+     * @param despuesDe Cursor de paginación (opcional).
+     * @param limite Tamaño de página (opcional).
+     * @return Página de tareas que coinciden con la prioridad.
      */
     @GetMapping("/prioridad")
-    public ResponseEntity<List<Tarea>> obtenerTareasPorPrioridad(@RequestParam String valor) {
-        LOGGER.log(Level.INFO, "Solicitud para obtener tareas por prioridad: {0}", valor);
-        List<Tarea> tareas = tareaService.findByPrioridad(valor);
-        return ResponseEntity.ok(tareas);
+    public ResponseEntity<List<Tarea>> obtenerTareasPorPrioridad(@RequestParam String valor,
+                                                     @RequestParam(required = false) Long despuesDe,
+                                                     @RequestParam(required = false) Integer limite) {
+        LOGGER.debug("Solicitud para obtener tareas por prioridad: {}", valor);
+        return respuestaPaginada(tareaService.findByPrioridad(valor, despuesDe, limite));
     }
 
     /**
      * Obtiene tareas filtradas por tipo.
-     * Ejemplo: GET /api/tareas/tipo?valor=TRABAJO
+     * Ejemplo: GET /api/tareas/tipo?valor=TRABAJO&despuesDe=250&limite=100
      * @param valor El tipo por el cual filtrar.
-     * @return Lista de tareas que coinciden con el tipo.
+     * @param despuesDe Cursor de paginación (opcional).
+     * @param limite Tamaño de página (opcional).
+     * @return Página de tareas que coinciden con el tipo.
      */
     @GetMapping("/tipo")
-    public ResponseEntity<List<Tarea>> obtenerTareasPorTipo(@RequestParam String valor) {
-        LOGGER.log(Level.INFO, "Solicitud para obtener tareas por tipo: {0}", valor);
-        List<Tarea> tareas = tareaService.findByTipo(valor);
-        return ResponseEntity.ok(tareas);
+    public ResponseEntity<List<Tarea>> obtenerTareasPorTipo(@RequestParam String valor,
+                                                     @RequestParam(required = false) Long despuesDe,
+                                                     @RequestParam(required = false) Integer limite) {
+        LOGGER.debug("Solicitud para obtener tareas por tipo: {}", valor);
+        return respuestaPaginada(tareaService.findByTipo(valor, despuesDe, limite));
+    }
+
+    /**
+     * Filtra tareas combinando estado, prioridad, tipo y rango de fecha de creación (todos opcionales).
+     * Ejemplo: GET /api/tareas/filtrar?estado=PENDIENTE&prioridad=ALTA&desde=2024-01-01T00:00:00&limite=100
+     * @param estado Estado exacto (opcional).
+     * @param prioridad Prioridad exacta (opcional).
+     * @param tipo Tipo exacto (opcional).
+     * @param desde Fecha de creación mínima, inclusive (opcional, ISO-8601).
+     * @param hasta Fecha de creación máxima, exclusiva (opcional, ISO-8601).
+     * @param cursor Cursor de paginación, "<fechaCreacion>_<id>" (opcional).
+     * @param limite Tamaño de página (opcional).
+     * @return Página de tareas que cumplen todos los criterios indicados, por fecha de creación; 400 si el cursor no es válido.
+     */
+    @GetMapping("/filtrar")
+    public ResponseEntity<List<Tarea>> filtrarTareas(@RequestParam(required = false) String estado,
+                                                     @RequestParam(required = false) String prioridad,
+                                                     @RequestParam(required = false) String tipo,
+                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer limite) {
+        LOGGER.debug("Solicitud para filtrar tareas por estado={}, prioridad={}, tipo={}", estado, prioridad, tipo);
+        return respuestaPaginada(tareaService.filtrarTareas(estado, prioridad, tipo, desde, hasta, cursor, limite));
     }
 
     /**
      * Obtiene tareas filtradas por estado y ordenadas por fecha de creación ascendente.
-     * Ejemplo: GET /api/tareas/estado-ordenado?valor=PENDIENTE
+     * Ejemplo: GET /api/tareas/estado-ordenado?valor=PENDIENTE&limite=100
+     * El cursor de la siguiente página ("<fechaCreacion>_<id>") se devuelve en la cabecera X-Siguiente-Cursor.
      * @param valor El estado por el cual filtrar.
-     * @return Lista de tareas que coinciden con el estado, ordenadas.
+     * @param cursor Cursor de paginación (opcional).
+     * @param limite Tamaño de página (opcional).
+     * @return Página de tareas que coinciden con el estado, ordenadas; 400 si el cursor no es válido.
      */
     @GetMapping("/estado-ordenado")
-    public ResponseEntity<List<Tarea>> obtenerTareasPorEstadoOrdenado(@RequestParam String valor) {
-        LOGGER.log(Level.INFO, "Solicitud para obtener tareas por estado ordenado: {0}", valor);
-        List<Tarea> tareas = tareaService.findByEstadoOrderByFechaCreacionAsc(valor);
-        return ResponseEntity.ok(tareas);
+    public ResponseEntity<List<Tarea>> obtenerTareasPorEstadoOrdenado(@RequestParam String valor,
+                                                                      @RequestParam(required = false) String cursor,
+                                                                      @RequestParam(required = false) Integer limite) {
+        LOGGER.debug("Solicitud para obtener tareas por estado ordenado: {}", valor);
+        return respuestaPaginada(tareaService.findByEstadoOrderByFechaCreacionAsc(valor, cursor, limite));
     }
 
     /**
      * Obtiene tareas filtradas por prioridad y ordenadas por fecha de creación descendente.
-     * Ejemplo: GET /api/tareas/prioridad-ordenada?valor=ALTA
+     * Ejemplo: GET /api/tareas/prioridad-ordenada?valor=ALTA&limite=100
+     * El cursor de la siguiente página ("<fechaCreacion>_<id>") se devuelve en la cabecera X-Siguiente-Cursor.
      * @param valor La prioridad por la cual filtrar.
-     * @return Lista de tareas que coinciden con la prioridad, ordenadas.
+     * @param cursor Cursor de paginación (opcional).
+     * @param limite Tamaño de página (opcional).
+     * @return Página de tareas que coinciden con la prioridad, ordenadas; 400 si el cursor no es válido.
      */
     @GetMapping("/prioridad-ordenada")
-    public ResponseEntity<List<Tarea>> obtenerTareasPorPrioridadOrdenada(@RequestParam String valor) {
-        LOGGER.log(Level.INFO, "Solicitud para obtener tareas por prioridad ordenada: {0}", valor);
-        List<Tarea> tareas = tareaService.findByPrioridadOrderByFechaCreacionDesc(valor);
-        return ResponseEntity.ok(tareas);
+    public ResponseEntity<List<Tarea>> obtenerTareasPorPrioridadOrdenada(@RequestParam String valor,
+                                                                         @RequestParam(required = false) String cursor,
+                                                                         @RequestParam(required = false) Integer limite) {
+        LOGGER.debug("Solicitud para obtener tareas por prioridad ordenada: {}", valor);
+        return respuestaPaginada(tareaService.findByPrioridadOrderByFechaCreacionDesc(valor, cursor, limite));
+    }
+
+    // Un cambio sin If-Match chocó con otro que se guardó al mismo tiempo; el cliente puede volver a intentarlo
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Void> conflictoDeVersion(OptimisticLockingFailureException e) {
+        LOGGER.info("Conflicto de versión al guardar una tarea: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    // Devuelve la lista de la página y, si hay más, el cursor en la cabecera X-Siguiente-Cursor (400 si la página es null)
+    private ResponseEntity<List<Tarea>> respuestaPaginada(PaginaTareas pagina) {
+        if (pagina == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguienteCursor() != null) {
+            respuesta.header(CABECERA_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+        }
+        return respuesta.body(pagina.getTareas());
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.umg.gestiontareas.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Habilita la anotación @Timed: cada método anotado (o cada método público de una clase anotada)
+ * registra un Timer con su cantidad de llamadas, latencia y la excepción lanzada, si la hubo.
+ */
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
@@ -1,9 +1,23 @@
 package com.umg.gestiontareas.config;
 
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.AnonymousQueue;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -19,6 +33,13 @@ public class RabbitMQConfig {
     // Clave de enrutamiento (routing key)
     public static final String ROUTING_KEY = "tareas.creacion";
 
+    // Intercambiador fanout que reparte los eventos a todas las instancias (modo "multiple")
+    public static final String EXCHANGE_REPLICACION = "gestionTareasReplicacion";
+
+    // Cabeceras con las que el publicador numera sus mensajes: ID del publicador y número consecutivo
+    public static final String CABECERA_PUBLICADOR = "x-publicador";
+    public static final String CABECERA_SECUENCIA = "x-secuencia";
+
     // 1. Definir la Cola (Queue)
     @Bean
     public Queue queue() {
@@ -42,17 +63,73 @@ public class RabbitMQConfig {
                 .with(ROUTING_KEY); // La clave de enrutamiento que usará el productor
     }
 
-    // Opcional: Configuración para el convertidor de mensajes JSON (recomendado para objetos Java)
-    // @Bean
-    // public MessageConverter jsonMessageConverter() {
-    //     return new Jackson2JsonMessageConverter();
-    // }
+    // 3b. Replicación entre instancias (gestion.instancias.modo=multiple)
+    // El fanout se enlaza al exchange principal, así que recibe una copia de cada evento sin publicarlo dos veces.
+    // Cada instancia declara su propia cola anónima (exclusiva, se borra al desconectarse) enlazada al fanout.
+    @Bean
+    @ConditionalOnProperty(name = "gestion.instancias.modo", havingValue = "multiple")
+    public FanoutExchange exchangeReplicacion() {
+        return new FanoutExchange(EXCHANGE_REPLICACION);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gestion.instancias.modo", havingValue = "multiple")
+    public Binding bindingReplicacion(TopicExchange exchange, FanoutExchange exchangeReplicacion) {
+        return BindingBuilder.bind(exchangeReplicacion).to(exchange).with("#");
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gestion.instancias.modo", havingValue = "multiple")
+    public AnonymousQueue colaReplicacion() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gestion.instancias.modo", havingValue = "multiple")
+    public Binding bindingColaReplicacion(AnonymousQueue colaReplicacion, FanoutExchange exchangeReplicacion) {
+        return BindingBuilder.bind(colaReplicacion).to(exchangeReplicacion);
+    }
 
-    // Opcional: Plantilla AMQP para enviar mensajes
-    // @Bean
-    // public AmqpTemplate amqpTemplate(ConnectionFactory connectionFactory) {
-    //     final RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-    //     rabbitTemplate.setMessageConverter(jsonMessageConverter());
-    //     return rabbitTemplate;
-    // }
+    // 4. Fábrica de contenedores para el receptor por lotes
+    // Entrega al listener hasta 'tamano-lote' mensajes, o los que hayan llegado si pasan 'espera-lote-ms'
+    // sin recibir más. El ack (modo AUTO) se envía cuando el listener termina, es decir, después de guardar el lote.
+    @Bean
+    public SimpleRabbitListenerContainerFactory loteListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${gestion.rabbitmq.receptor.tamano-lote:500}") int tamanoLote,
+            @Value("${gestion.rabbitmq.receptor.espera-lote-ms:200}") long esperaLoteMs,
+            @Value("${gestion.rabbitmq.receptor.consumidores:1}") int consumidores,
+            @Value("${gestion.rabbitmq.receptor.consumidores-maximos:4}") int consumidoresMaximos,
+            @Value("${gestion.rabbitmq.receptor.prefetch:1000}") int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(tamanoLote);
+        factory.setReceiveTimeout(esperaLoteMs);
+        factory.setConcurrentConsumers(consumidores);
+        factory.setMaxConcurrentConsumers(consumidoresMaximos);
+        factory.setPrefetchCount(Math.max(prefetch, tamanoLote)); // El prefetch debe cubrir al menos un lote completo
+        return factory;
+    }
+
+    // 5. Convertidor de mensajes JSON para los eventos TareaEvento
+    // Spring Boot lo aplica tanto al RabbitTemplate como a las fábricas de listeners.
+    // Agrega la cabecera content-type application/json, y el receptor convierte al tipo del parámetro
+    // (TareaEvento, también en List<Message<TareaEvento>>), así que no se envía la cabecera __TypeId__
+    // con el nombre completo de la clase.
+    @Bean
+    public MessageConverter jsonMessageConverter(ObjectMapper objectMapper) {
+        DefaultJackson2JavaTypeMapper tipos = new DefaultJackson2JavaTypeMapper() {
+            @Override
+            public void fromJavaType(JavaType javaType, MessageProperties properties) {
+                // Sin __TypeId__: el tipo lo da el parámetro del listener
+            }
+        };
+        tipos.setTypePrecedence(Jackson2JavaTypeMapper.TypePrecedence.INFERRED);
+        Jackson2JsonMessageConverter convertidor = new Jackson2JsonMessageConverter(objectMapper);
+        convertidor.setJavaTypeMapper(tipos);
+        return convertidor;
+    }
 }
\ No newline at end of file
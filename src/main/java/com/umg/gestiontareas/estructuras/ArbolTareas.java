@@ -0,0 +1,501 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.SubarbolTarea;
+import com.umg.gestiontareas.modelo.Tarea;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Árbol general de tareas (padre/hijos) que mantiene la jerarquía en memoria.
+ * A diferencia de ArbolJerarquicoTareas, permite construir el árbol completo
+ * en una sola pasada lineal a partir de las tareas leídas de la base de datos.
+ * Mantiene además un índice por ID de tarea, de modo que buscar, agregar, mover y eliminar
+ * por ID no requieren recorrer el árbol.
+ * Quitar un nodo de la lista de hijos de su padre (o de las raíces) también es O(1): el último hermano
+ * ocupa su lugar, así que el orden de los hermanos es el de inserción solo hasta la primera eliminación.
+ * Cada nodo guarda el conteo por estado de su subárbol; los cambios se propagan solo por la
+ * cadena de ancestros (O(profundidad)), así que consultar el progreso de un nodo es O(1).
+ * Los nodos guardan las tareas en forma compacta (ver NodoTarea); los valores de estado, prioridad
+ * y tipo se comparten con un diccionario propio del árbol, de tamaño limitado, y los textos repetidos también.
+ * El idTareaPadre de las tareas devueltas es el del padre en el árbol, no el que traía la tarea guardada.
+ * Las consultas devuelven tareas nuevas, así que modificarlas no afecta al árbol.
+ * Mantiene también una huella del contenido (suma de un hash de ID y versión de cada tarea) que no
+ * depende del orden de inserción, así que dos árboles con las mismas filas de MySQL tienen la misma huella.
+ * Las consultas no modifican el árbol, así que pueden hacerse varias a la vez mientras nadie lo modifica.
+ * No es seguro para uso concurrente con modificaciones.
+ */
+public class ArbolTareas {
+
+    private static final byte EN_CAMINO = 1;
+    private static final byte RESUELTA = 2;
+
+    private final List<NodoTarea> raices = new ArrayList<>();
+    private final MapaLong<NodoTarea> indice = new MapaLong<>();
+    private final DiccionarioValores categorias = new DiccionarioValores();
+    private final DeduplicadorTextos textos = new DeduplicadorTextos();
+    private long huella;
+
+    /**
+     * Construye el árbol completo a partir de todas las tareas, agrupándolas por idTareaPadre
+     * y recorriendo desde las raíces. Cada tarea se visita una sola vez: O(n).
+     * Las tareas que no se pueden enlazar (padre inexistente o ciclo) se reportan en el diagnóstico.
+     * @param tareas Todas las tareas a cargar. El contenido anterior del árbol se descarta.
+     * @return Diagnóstico con el resultado de la construcción.
+     */
+    public DiagnosticoArbol construirDesde(Collection<Tarea> tareas) {
+        long inicio = System.nanoTime();
+        raices.clear();
+        indice.limpiar();
+        huella = 0;
+
+        Map<Long, Tarea> porId = new HashMap<>(capacidadPara(tareas.size()));
+        Map<Long, List<Tarea>> hijosPorPadre = new HashMap<>();
+        Deque<NodoTarea> pendientes = new ArrayDeque<>();
+        List<NodoTarea> enPreorden = new ArrayList<>(tareas.size());
+
+        for (Tarea tarea : tareas) {
+            porId.put(tarea.getId(), tarea);
+            if (tarea.getIdTareaPadre() == null) {
+                NodoTarea raiz = crearNodo(tarea, null);
+                enlazar(raiz, null);
+                indice.put(tarea.getId(), raiz);
+                pendientes.push(raiz);
+            } else {
+                hijosPorPadre.computeIfAbsent(tarea.getIdTareaPadre(), k -> new ArrayList<>()).add(tarea);
+            }
+        }
+
+        // Recorrido iterativo desde las raíces; cada grupo de hijos se consume una sola vez
+        while (!pendientes.isEmpty()) {
+            NodoTarea nodo = pendientes.pop();
+            enPreorden.add(nodo);
+            List<Tarea> hijos = hijosPorPadre.remove(nodo.getId());
+            if (hijos != null) {
+                for (Tarea hijo : hijos) {
+                    NodoTarea nodoHijo = crearNodo(hijo, nodo);
+                    enlazar(nodoHijo, nodo);
+                    indice.put(hijo.getId(), nodoHijo);
+                    pendientes.push(nodoHijo);
+                }
+            }
+        }
+
+        // Agregados por estado: de abajo hacia arriba, cada nodo suma su subárbol al de su padre
+        for (int i = enPreorden.size() - 1; i >= 0; i--) {
+            NodoTarea nodo = enPreorden.get(i);
+            if (nodo.getPadre() != null) {
+                nodo.getPadre().getConteoSubarbol().sumarTodo(nodo.getConteoSubarbol(), 1);
+            }
+        }
+
+        // Lo que queda en hijosPorPadre no es alcanzable desde ninguna raíz
+        DiagnosticoArbol diagnostico = new DiagnosticoArbol(tareas.size(), indice.tamano());
+        Map<Long, Byte> marcas = new HashMap<>();
+        for (List<Tarea> grupo : hijosPorPadre.values()) {
+            for (Tarea tarea : grupo) {
+                clasificarNoEnlazada(tarea, porId, marcas, diagnostico);
+            }
+        }
+        diagnostico.setDuracionMillis((System.nanoTime() - inicio) / 1_000_000);
+        return diagnostico;
+    }
+
+    /**
+     * Sube por la cadena de padres de una tarea no enlazada hasta encontrar un padre inexistente
+     * (huérfana), una tarea ya clasificada, o una tarea repetida en el camino (ciclo).
+     * Cada tarea se marca una sola vez, por lo que el costo total sigue siendo lineal.
+     */
+    private void clasificarNoEnlazada(Tarea inicio, Map<Long, Tarea> porId, Map<Long, Byte> marcas,
+                                      DiagnosticoArbol diagnostico) {
+        if (marcas.containsKey(inicio.getId())) {
+            return;
+        }
+        List<Long> camino = new ArrayList<>();
+        int inicioCiclo = -1;
+        Tarea actual = inicio;
+        while (true) {
+            Long id = actual.getId();
+            Byte marca = marcas.get(id);
+            if (marca != null) {
+                if (marca == EN_CAMINO) {
+                    inicioCiclo = camino.indexOf(id);
+                }
+                break;
+            }
+            marcas.put(id, EN_CAMINO);
+            camino.add(id);
+            Tarea padre = porId.get(actual.getIdTareaPadre());
+            if (padre == null) {
+                diagnostico.agregarHuerfana(id);
+                camino.remove(camino.size() - 1);
+                marcas.put(id, RESUELTA);
+                break;
+            }
+            actual = padre;
+        }
+
+        for (int i = 0; i < camino.size(); i++) {
+            if (inicioCiclo >= 0 && i >= inicioCiclo) {
+                diagnostico.agregarEnCiclo(camino.get(i));
+            } else {
+                diagnostico.incrementarDescendientesNoEnlazados();
+            }
+            marcas.put(camino.get(i), RESUELTA);
+        }
+    }
+
+    /**
+     * Agrega una tarea al árbol como hija de idPadre, o como raíz si idPadre es null.
+     * Si el padre no existe en el árbol, la tarea se agrega como raíz.
+     * Si la tarea ya estaba en el árbol, se actualiza su contenido y se mueve al padre indicado.
+     * @return true si la tarea quedó enlazada al padre solicitado.
+     */
+    public boolean agregarTarea(Tarea tarea, Long idPadre) {
+        NodoTarea existente = indice.get(tarea.getId());
+        if (existente != null) {
+            reemplazarTarea(tarea);
+            return moverNodo(tarea.getId(), idPadre);
+        }
+        NodoTarea padre = buscarNodoPorId(idPadre);
+        NodoTarea nodo = crearNodo(tarea, padre);
+        enlazar(nodo, padre);
+        indice.put(tarea.getId(), nodo);
+        propagarAAncestros(padre, nodo.getConteoSubarbol(), 1);
+        return idPadre == null || padre != null;
+    }
+
+    /**
+     * Agrega un lote de tareas, cada una bajo el padre indicado en su idTareaPadre.
+     * Las tareas del lote deben venir ordenadas de modo que cada padre aparezca antes que sus hijos.
+     * @return Cantidad de tareas que quedaron como raíz porque su padre no existe en el árbol.
+     */
+    public int agregarTareas(Collection<Tarea> tareas) {
+        int sinPadre = 0;
+        for (Tarea tarea : tareas) {
+            if (!agregarTarea(tarea, tarea.getIdTareaPadre())) {
+                sinPadre++;
+            }
+        }
+        return sinPadre;
+    }
+
+    /**
+     * Reemplaza la tarea guardada en su nodo (por ejemplo, después de actualizarla) y, si cambió
+     * su estado, ajusta los conteos del nodo y de sus ancestros. No cambia la posición del nodo.
+     * @return true si la tarea está en el árbol.
+     */
+    public boolean reemplazarTarea(Tarea tarea) {
+        NodoTarea nodo = buscarNodoPorId(tarea.getId());
+        if (nodo == null) {
+            return false;
+        }
+        String estadoAnterior = nodo.getEstado();
+        String estadoNuevo = tarea.getEstado();
+        if (!Objects.equals(estadoAnterior, estadoNuevo)) {
+            for (NodoTarea actual = nodo; actual != null; actual = actual.getPadre()) {
+                actual.getConteoSubarbol().sumar(estadoAnterior, -1);
+                actual.getConteoSubarbol().sumar(estadoNuevo, 1);
+            }
+        }
+        huella -= huellaDe(nodo);
+        guardarDatos(nodo, tarea);
+        huella += huellaDe(nodo);
+        return true;
+    }
+
+    /**
+     * Busca un nodo por el ID de su tarea usando el índice: O(1).
+     * @return El nodo encontrado, o null si no existe.
+     */
+    public NodoTarea buscarNodoPorId(Long id) {
+        return id != null ? indice.get(id) : null;
+    }
+
+    /**
+     * Crea una tarea nueva con los datos guardados en el árbol.
+     * @return La tarea, o null si no está en el árbol.
+     */
+    public Tarea obtenerTarea(Long id) {
+        NodoTarea nodo = buscarNodoPorId(id);
+        return nodo != null ? crearTarea(nodo) : null;
+    }
+
+    /**
+     * Mueve un nodo (con todo su subárbol) bajo un nuevo padre, o a la raíz si idNuevoPadre es null.
+     * No se permite mover un nodo debajo de sí mismo o de uno de sus descendientes.
+     * @return true si el nodo se movió.
+     */
+    public boolean moverNodo(Long id, Long idNuevoPadre) {
+        NodoTarea nodo = buscarNodoPorId(id);
+        if (nodo == null) {
+            return false;
+        }
+        NodoTarea nuevoPadre = null;
+        if (idNuevoPadre != null) {
+            nuevoPadre = buscarNodoPorId(idNuevoPadre);
+            if (nuevoPadre == null || esAncestroOIgual(nodo, nuevoPadre)) {
+                return false;
+            }
+        }
+        propagarAAncestros(nodo.getPadre(), nodo.getConteoSubarbol(), -1);
+        desenlazar(nodo);
+        enlazar(nodo, nuevoPadre);
+        propagarAAncestros(nuevoPadre, nodo.getConteoSubarbol(), 1);
+        return true;
+    }
+
+    /**
+     * Elimina un nodo y todo su subárbol.
+     * @return El nodo eliminado, o null si no existía.
+     */
+    public NodoTarea eliminarNodoPorId(Long id) {
+        NodoTarea nodo = buscarNodoPorId(id);
+        if (nodo == null) {
+            return null;
+        }
+        propagarAAncestros(nodo.getPadre(), nodo.getConteoSubarbol(), -1);
+        desenlazar(nodo);
+        quitarDelIndice(nodo);
+        return nodo;
+    }
+
+    /**
+     * Devuelve todas las tareas del árbol en preorden (cada padre antes que sus hijos).
+     */
+    public List<Tarea> obtenerTareasDelArbol() {
+        List<Tarea> tareas = new ArrayList<>(indice.tamano());
+        Deque<NodoTarea> pendientes = new ArrayDeque<>();
+        for (int i = raices.size() - 1; i >= 0; i--) {
+            pendientes.push(raices.get(i));
+        }
+        while (!pendientes.isEmpty()) {
+            NodoTarea nodo = pendientes.pop();
+            tareas.add(crearTarea(nodo));
+            List<NodoTarea> hijos = nodo.getHijos();
+            for (int i = hijos.size() - 1; i >= 0; i--) {
+                pendientes.push(hijos.get(i));
+            }
+        }
+        return tareas;
+    }
+
+    /**
+     * Devuelve las tareas del subárbol de un nodo (incluido el propio nodo) en preorden,
+     * de modo que cada padre aparece antes que sus hijos.
+     * @return Las tareas del subárbol, o una lista vacía si el nodo no existe.
+     */
+    public List<Tarea> obtenerTareasDelSubarbol(Long id) {
+        NodoTarea nodo = buscarNodoPorId(id);
+        if (nodo == null) {
+            return new ArrayList<>();
+        }
+        List<Tarea> tareas = new ArrayList<>();
+        Deque<NodoTarea> pendientes = new ArrayDeque<>();
+        pendientes.push(nodo);
+        while (!pendientes.isEmpty()) {
+            NodoTarea actual = pendientes.pop();
+            tareas.add(crearTarea(actual));
+            List<NodoTarea> hijos = actual.getHijos();
+            for (int i = hijos.size() - 1; i >= 0; i--) {
+                pendientes.push(hijos.get(i));
+            }
+        }
+        return tareas;
+    }
+
+    /**
+     * Construye la vista anidada del subárbol de un nodo sin recursión (no depende de la profundidad de la pila).
+     * @param id ID de la tarea raíz del subárbol.
+     * @param profundidadMaxima Niveles de subtareas a expandir debajo de la raíz; negativo = sin límite.
+     * @return El subárbol, o null si el nodo no existe.
+     */
+    public SubarbolTarea obtenerSubarbol(Long id, int profundidadMaxima) {
+        NodoTarea nodo = buscarNodoPorId(id);
+        if (nodo == null) {
+            return null;
+        }
+        SubarbolTarea raiz = new SubarbolTarea(crearTarea(nodo));
+        Deque<NodoTarea> nodos = new ArrayDeque<>();
+        Deque<SubarbolTarea> vistas = new ArrayDeque<>();
+        Deque<Integer> profundidades = new ArrayDeque<>();
+        nodos.push(nodo);
+        vistas.push(raiz);
+        profundidades.push(0);
+        while (!nodos.isEmpty()) {
+            NodoTarea actual = nodos.pop();
+            SubarbolTarea vista = vistas.pop();
+            int profundidad = profundidades.pop();
+            if (profundidadMaxima >= 0 && profundidad >= profundidadMaxima) {
+                vista.setSubtareasOmitidas(actual.getHijos().size());
+                continue;
+            }
+            for (NodoTarea hijo : actual.getHijos()) {
+                SubarbolTarea vistaHijo = new SubarbolTarea(crearTarea(hijo));
+                vista.getSubtareas().add(vistaHijo);
+                nodos.push(hijo);
+                vistas.push(vistaHijo);
+                profundidades.push(profundidad + 1);
+            }
+        }
+        return raiz;
+    }
+
+    /**
+     * Copia los datos compactos de todos los nodos en preorden. Es mucho más barato que obtenerTareasDelArbol(),
+     * así que sirve para copiar bajo un bloqueo y crear las tareas después de liberarlo (ver CopiaArbol.aTareas()).
+     */
+    public CopiaArbol copiar() {
+        CopiaArbol copia = new CopiaArbol(indice.tamano(), huella);
+        Deque<NodoTarea> pendientes = new ArrayDeque<>();
+        for (int i = raices.size() - 1; i >= 0; i--) {
+            pendientes.push(raices.get(i));
+        }
+        while (!pendientes.isEmpty()) {
+            NodoTarea nodo = pendientes.pop();
+            copia.agregar(nodo);
+            List<NodoTarea> hijos = nodo.getHijos();
+            for (int i = hijos.size() - 1; i >= 0; i--) {
+                pendientes.push(hijos.get(i));
+            }
+        }
+        return copia;
+    }
+
+    public int tamano() {
+        return indice.tamano();
+    }
+
+    /**
+     * @return Huella del contenido: cambia con cada alta, baja o cambio de versión de una tarea,
+     * y es igual en todas las instancias que tienen las mismas tareas.
+     */
+    public long huella() {
+        return huella;
+    }
+
+    private NodoTarea crearNodo(Tarea tarea, NodoTarea padre) {
+        NodoTarea nodo = new NodoTarea(tarea.getId(), padre);
+        guardarDatos(nodo, tarea);
+        huella += huellaDe(nodo);
+        nodo.getConteoSubarbol().sumar(tarea.getEstado(), 1);
+        return nodo;
+    }
+
+    // Copia los datos de la tarea al nodo en forma compacta; no toca los conteos por estado ni el enlace al padre,
+    // que solo cambian enlazar() y moverNodo()
+    private void guardarDatos(NodoTarea nodo, Tarea tarea) {
+        nodo.setDatos(
+                textos.deduplicar(tarea.getTitulo()),
+                textos.deduplicar(tarea.getDescripcion()),
+                categorias.compartir(tarea.getEstado()),
+                categorias.compartir(tarea.getPrioridad()),
+                categorias.compartir(tarea.getTipo()),
+                aMicros(tarea.getFechaCreacion()),
+                aMicros(tarea.getFechaCompletada()),
+                tarea.getVersion() != null ? tarea.getVersion() : NodoTarea.SIN_VALOR);
+    }
+
+    private Tarea crearTarea(NodoTarea nodo) {
+        return crearTarea(nodo.getId(), nodo.getIdTareaPadre(), nodo.getTitulo(), nodo.getDescripcion(),
+                nodo.getEstado(), nodo.getPrioridad(), nodo.getTipo(),
+                nodo.getFechaCreacion(), nodo.getFechaCompletada(), nodo.getVersion());
+    }
+
+    static Tarea crearTarea(long id, long idTareaPadre, String titulo, String descripcion, String estado,
+                            String prioridad, String tipo, long fechaCreacion, long fechaCompletada, long version) {
+        Tarea tarea = new Tarea(titulo, descripcion, estado, prioridad, tipo);
+        tarea.setId(id);
+        tarea.setIdTareaPadre(idTareaPadre != NodoTarea.SIN_VALOR ? idTareaPadre : null);
+        tarea.setFechaCreacion(desdeMicros(fechaCreacion));
+        tarea.setFechaCompletada(desdeMicros(fechaCompletada));
+        tarea.setVersion(version != NodoTarea.SIN_VALOR ? version : null);
+        return tarea;
+    }
+
+    // Mezcla ID y versión (finalizador de SplitMix64) para que la suma de huellas no se cancele entre tareas
+    private static long huellaDe(NodoTarea nodo) {
+        long x = nodo.getId() * 0x9E3779B97F4A7C15L + nodo.getVersion();
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    // Las fechas de Tarea no tienen zona; UTC se usa solo como referencia fija para convertirlas a un long.
+    // Se guardan microsegundos porque es la precisión de las columnas DATETIME(6) de MySQL.
+    private static long aMicros(LocalDateTime fecha) {
+        if (fecha == null) {
+            return NodoTarea.SIN_VALOR;
+        }
+        return fecha.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + fecha.getNano() / 1_000;
+    }
+
+    private static LocalDateTime desdeMicros(long micros) {
+        if (micros == NodoTarea.SIN_VALOR) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    // Suma (signo = 1) o resta (signo = -1) el conteo de un subárbol a 'desde' y a todos sus ancestros
+    private static void propagarAAncestros(NodoTarea desde, ConteoEstados conteo, int signo) {
+        for (NodoTarea actual = desde; actual != null; actual = actual.getPadre()) {
+            actual.getConteoSubarbol().sumarTodo(conteo, signo);
+        }
+    }
+
+    // Agrega el nodo al final de los hijos de 'padre' (o de las raíces si es null) y recuerda su posición
+    private void enlazar(NodoTarea nodo, NodoTarea padre) {
+        List<NodoTarea> hermanos = padre != null ? padre.getHijos() : raices;
+        nodo.setPadre(padre);
+        nodo.setPosicion(hermanos.size());
+        hermanos.add(nodo);
+    }
+
+    // Quita el nodo de su lista de hermanos en O(1): el último hermano pasa a ocupar su posición
+    private void desenlazar(NodoTarea nodo) {
+        List<NodoTarea> hermanos = nodo.getPadre() != null ? nodo.getPadre().getHijos() : raices;
+        int posicion = nodo.getPosicion();
+        NodoTarea ultimo = hermanos.remove(hermanos.size() - 1);
+        if (ultimo != nodo) {
+            hermanos.set(posicion, ultimo);
+            ultimo.setPosicion(posicion);
+        }
+        nodo.setPadre(null);
+    }
+
+    private static boolean esAncestroOIgual(NodoTarea posibleAncestro, NodoTarea nodo) {
+        for (NodoTarea actual = nodo; actual != null; actual = actual.getPadre()) {
+            if (actual == posibleAncestro) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void quitarDelIndice(NodoTarea nodo) {
+        Deque<NodoTarea> pendientes = new ArrayDeque<>();
+        pendientes.push(nodo);
+        while (!pendientes.isEmpty()) {
+            NodoTarea actual = pendientes.pop();
+            indice.remove(actual.getId());
+            huella -= huellaDe(actual);
+            for (NodoTarea hijo : actual.getHijos()) {
+                pendientes.push(hijo);
+            }
+        }
+    }
+
+    private static int capacidadPara(int elementos) {
+        return (int) (elementos / 0.75f) + 1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.Tarea;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Envoltura de ArbolTareas para uso concurrente.
+ * Las modificaciones toman el bloqueo de escritura; las consultas puntuales (subárbol, progreso) el de lectura,
+ * así que varias consultas avanzan a la vez.
+ * La lectura de la jerarquía completa se sirve desde una InstantaneaArbol inmutable: cada modificación
+ * solo incrementa la versión, y la instantánea se reconstruye la próxima vez que alguien la pide.
+ * Bajo el bloqueo de lectura solo se copian los datos compactos de los nodos (CopiaArbol); las tareas
+ * se crean y se serializan fuera del bloqueo, así que una reconstrucción casi no demora a quien modifica.
+ * Quien pide la instantánea nunca espera: si hay una modificación en curso, recibe la última publicada.
+ */
+public class ArbolTareasConcurrente {
+
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    private ArbolTareas arbol = new ArbolTareas(); // Protegido por 'bloqueo'
+    private volatile long version;
+    private volatile int tamano;
+    private final AtomicReference<InstantaneaArbol> instantanea =
+            new AtomicReference<>(new InstantaneaArbol(0, 0, 0, List.of()));
+
+    /**
+     * Aplica un cambio al árbol bajo el bloqueo de escritura y marca la instantánea actual como desactualizada.
+     * Un lote de cambios dentro de la misma función publica una sola versión nueva.
+     */
+    public <T> T modificar(Function<ArbolTareas, T> cambio) {
+        bloqueo.writeLock().lock();
+        try {
+            T resultado = cambio.apply(arbol);
+            version++;
+            tamano = arbol.tamano();
+            return resultado;
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ejecuta una consulta sobre el árbol bajo el bloqueo de lectura. La consulta no debe modificar el árbol
+     * ni devolver estructuras internas que se lean después de liberar el bloqueo.
+     */
+    public <T> T leer(Function<ArbolTareas, T> consulta) {
+        bloqueo.readLock().lock();
+        try {
+            return consulta.apply(arbol);
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Construye un árbol nuevo fuera del bloqueo y lo reemplaza de una sola vez.
+     * @return Diagnóstico de la construcción.
+     */
+    public DiagnosticoArbol reconstruir(Collection<Tarea> tareas) {
+        ArbolTareas nuevo = new ArbolTareas();
+        DiagnosticoArbol diagnostico = nuevo.construirDesde(tareas);
+        modificar(actual -> arbol = nuevo);
+        return diagnostico;
+    }
+
+    /**
+     * Devuelve la instantánea más reciente posible sin esperar por el bloqueo.
+     * Si está desactualizada y no hay una modificación en curso, copia los nodos bajo el bloqueo de lectura
+     * y crea la instantánea fuera de él; si hay una modificación en curso, devuelve la última publicada.
+     * Dos lectores pueden reconstruir la misma versión a la vez; se publica la más nueva.
+     */
+    public InstantaneaArbol instantanea() {
+        InstantaneaArbol actual = instantanea.get();
+        Lock lectura = bloqueo.readLock();
+        if (actual.getVersion() == version || !lectura.tryLock()) {
+            return actual;
+        }
+        long versionCopiada;
+        CopiaArbol copia;
+        try {
+            versionCopiada = version;
+            copia = arbol.copiar();
+        } finally {
+            lectura.unlock();
+        }
+        InstantaneaArbol nueva = new InstantaneaArbol(versionCopiada, copia.tamano(), copia.getHuella(), copia.aTareas());
+        return instantanea.updateAndGet(publicada -> publicada.getVersion() < versionCopiada ? nueva : publicada);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Cantidad de tareas en el árbol después del último cambio, sin tomar el bloqueo.
+     */
+    public int tamano() {
+        return tamano;
+    }
+}
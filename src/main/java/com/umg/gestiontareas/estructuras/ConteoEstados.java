@@ -0,0 +1,95 @@
+package com.umg.gestiontareas.estructuras;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cantidad de tareas por estado dentro de un subárbol.
+ * Como cada subárbol suele tener muy pocos estados distintos, se guardan en dos arreglos paralelos
+ * pequeños en lugar de un HashMap por nodo. Los estados cuya cantidad llega a cero se quitan.
+ * No es seguro para uso concurrente.
+ */
+public class ConteoEstados {
+
+    // Clave usada para las tareas sin estado
+    public static final String SIN_ESTADO = "SIN_ESTADO";
+
+    private static final String[] SIN_ESTADOS = new String[0];
+    private static final int[] SIN_CANTIDADES = new int[0];
+
+    private String[] estados = SIN_ESTADOS;
+    private int[] cantidades = SIN_CANTIDADES;
+    private int total;
+
+    /**
+     * Suma (o resta, si cantidad es negativa) tareas de un estado.
+     */
+    void sumar(String estado, int cantidad) {
+        if (cantidad == 0) {
+            return;
+        }
+        String clave = estado != null ? estado : SIN_ESTADO;
+        total += cantidad;
+        int i = posicion(clave);
+        if (i < 0) {
+            i = estados.length;
+            estados = Arrays.copyOf(estados, i + 1);
+            cantidades = Arrays.copyOf(cantidades, i + 1);
+            estados[i] = clave;
+        }
+        cantidades[i] += cantidad;
+        if (cantidades[i] == 0) {
+            quitar(i);
+        }
+    }
+
+    /**
+     * Suma (signo = 1) o resta (signo = -1) todos los conteos de otro subárbol.
+     */
+    void sumarTodo(ConteoEstados otro, int signo) {
+        for (int i = 0; i < otro.estados.length; i++) {
+            sumar(otro.estados[i], signo * otro.cantidades[i]);
+        }
+    }
+
+    /**
+     * @return Cantidad de tareas del subárbol con el estado indicado.
+     */
+    public int cantidad(String estado) {
+        int i = posicion(estado != null ? estado : SIN_ESTADO);
+        return i >= 0 ? cantidades[i] : 0;
+    }
+
+    /**
+     * @return Cantidad total de tareas del subárbol.
+     */
+    public int total() {
+        return total;
+    }
+
+    public Map<String, Integer> comoMapa() {
+        Map<String, Integer> mapa = new LinkedHashMap<>();
+        for (int i = 0; i < estados.length; i++) {
+            mapa.put(estados[i], cantidades[i]);
+        }
+        return mapa;
+    }
+
+    private int posicion(String estado) {
+        for (int i = 0; i < estados.length; i++) {
+            if (estados[i].equals(estado)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void quitar(int i) {
+        int ultimo = estados.length - 1;
+        estados[i] = estados[ultimo];
+        cantidades[i] = cantidades[ultimo];
+        estados = Arrays.copyOf(estados, ultimo);
+        cantidades = Arrays.copyOf(cantidades, ultimo);
+    }
+}
@@ -0,0 +1,78 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.Tarea;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copia de los datos compactos de los nodos de un ArbolTareas, en preorden, en arreglos paralelos.
+ * Copiarla solo mueve números y referencias a textos ya existentes, así que puede hacerse bajo un
+ * bloqueo corto; las tareas se crean después con aTareas(), sin el bloqueo.
+ */
+public final class CopiaArbol {
+
+    private final long huella;
+    private final long[] ids;
+    private final long[] idsPadre;
+    private final String[] titulos;
+    private final String[] descripciones;
+    private final String[] estados;
+    private final String[] prioridades;
+    private final String[] tipos;
+    private final long[] fechasCreacion;
+    private final long[] fechasCompletada;
+    private final long[] versiones;
+    private int tamano;
+
+    CopiaArbol(int capacidad, long huella) {
+        this.huella = huella;
+        this.ids = new long[capacidad];
+        this.idsPadre = new long[capacidad];
+        this.titulos = new String[capacidad];
+        this.descripciones = new String[capacidad];
+        this.estados = new String[capacidad];
+        this.prioridades = new String[capacidad];
+        this.tipos = new String[capacidad];
+        this.fechasCreacion = new long[capacidad];
+        this.fechasCompletada = new long[capacidad];
+        this.versiones = new long[capacidad];
+    }
+
+    void agregar(NodoTarea nodo) {
+        int i = tamano++;
+        ids[i] = nodo.getId();
+        idsPadre[i] = nodo.getIdTareaPadre();
+        titulos[i] = nodo.getTitulo();
+        descripciones[i] = nodo.getDescripcion();
+        estados[i] = nodo.getEstado();
+        prioridades[i] = nodo.getPrioridad();
+        tipos[i] = nodo.getTipo();
+        fechasCreacion[i] = nodo.getFechaCreacion();
+        fechasCompletada[i] = nodo.getFechaCompletada();
+        versiones[i] = nodo.getVersion();
+    }
+
+    /**
+     * @return Tareas nuevas en preorden (cada padre antes que sus hijos).
+     */
+    public List<Tarea> aTareas() {
+        List<Tarea> tareas = new ArrayList<>(tamano);
+        for (int i = 0; i < tamano; i++) {
+            tareas.add(ArbolTareas.crearTarea(ids[i], idsPadre[i], titulos[i], descripciones[i], estados[i],
+                    prioridades[i], tipos[i], fechasCreacion[i], fechasCompletada[i], versiones[i]));
+        }
+        return tareas;
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    /**
+     * @return Huella del árbol en el momento de la copia (ver ArbolTareas.huella()).
+     */
+    public long getHuella() {
+        return huella;
+    }
+}
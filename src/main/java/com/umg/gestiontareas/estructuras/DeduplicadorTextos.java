@@ -0,0 +1,33 @@
+package com.umg.gestiontareas.estructuras;
+
+/**
+ * Deduplica textos repetidos (títulos y descripciones) con una tabla de tamaño fijo indexada por hash.
+ * Si un texto igual ya está en su posición se devuelve esa instancia; si no, el nuevo texto ocupa la posición.
+ * A diferencia de un HashMap o de String.intern(), no guarda una entrada por cada texto distinto:
+ * los textos únicos no cuestan memoria adicional y los repetidos (plantillas, lotes) se comparten
+ * con alta probabilidad. No garantiza deduplicar todos los repetidos cuando hay colisiones.
+ * No es seguro para uso concurrente.
+ */
+public class DeduplicadorTextos {
+
+    private static final int CAPACIDAD = 1 << 14;
+
+    private final String[] tabla = new String[CAPACIDAD];
+
+    /**
+     * @return Una instancia igual a texto ya vista antes, o el propio texto.
+     */
+    public String deduplicar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        int hash = texto.hashCode();
+        int i = (hash ^ (hash >>> 16)) & (CAPACIDAD - 1);
+        String existente = tabla[i];
+        if (existente != null && existente.equals(texto)) {
+            return existente;
+        }
+        tabla[i] = texto;
+        return texto;
+    }
+}
@@ -0,0 +1,96 @@
+package com.umg.gestiontareas.estructuras;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de la construcción masiva del árbol de tareas.
+ * Reúne en un solo reporte las tareas que no pudieron enlazarse:
+ * huérfanas (su padre no existe) y tareas que forman parte de un ciclo.
+ */
+public class DiagnosticoArbol {
+
+    // Cantidad máxima de IDs que se incluyen en el resumen para no inundar el log
+    private static final int MAX_IDS_EN_RESUMEN = 20;
+
+    private final int totalTareas;
+    private final int tareasEnArbol;
+    private final List<Long> idsHuerfanas = new ArrayList<>();
+    private final List<Long> idsEnCiclo = new ArrayList<>();
+    private int descendientesNoEnlazados;
+    private long duracionMillis;
+
+    public DiagnosticoArbol(int totalTareas, int tareasEnArbol) {
+        this.totalTareas = totalTareas;
+        this.tareasEnArbol = tareasEnArbol;
+    }
+
+    void agregarHuerfana(Long id) {
+        idsHuerfanas.add(id);
+    }
+
+    void agregarEnCiclo(Long id) {
+        idsEnCiclo.add(id);
+    }
+
+    void incrementarDescendientesNoEnlazados() {
+        descendientesNoEnlazados++;
+    }
+
+    public void setDuracionMillis(long duracionMillis) {
+        this.duracionMillis = duracionMillis;
+    }
+
+    public int getTotalTareas() {
+        return totalTareas;
+    }
+
+    public int getTareasEnArbol() {
+        return tareasEnArbol;
+    }
+
+    /**
+     * @return IDs de las tareas cuyo padre no existe en la base de datos.
+     */
+    public List<Long> getIdsHuerfanas() {
+        return idsHuerfanas;
+    }
+
+    /**
+     * @return IDs de las tareas que forman parte de un ciclo padre-hijo.
+     */
+    public List<Long> getIdsEnCiclo() {
+        return idsEnCiclo;
+    }
+
+    /**
+     * @return Tareas que quedaron fuera del árbol por descender de una huérfana o de un ciclo.
+     */
+    public int getDescendientesNoEnlazados() {
+        return descendientesNoEnlazados;
+    }
+
+    public long getDuracionMillis() {
+        return duracionMillis;
+    }
+
+    public boolean tieneProblemas() {
+        return tareasEnArbol < totalTareas;
+    }
+
+    public String resumen() {
+        return "total=" + totalTareas
+                + ", enArbol=" + tareasEnArbol
+                + ", huerfanas=" + idsHuerfanas.size() + " " + primerosIds(idsHuerfanas)
+                + ", enCiclo=" + idsEnCiclo.size() + " " + primerosIds(idsEnCiclo)
+                + ", descendientesNoEnlazados=" + descendientesNoEnlazados
+                + ", duracionMs=" + duracionMillis;
+    }
+
+    private static String primerosIds(List<Long> ids) {
+        if (ids.size() <= MAX_IDS_EN_RESUMEN) {
+            return ids.toString();
+        }
+        return ids.subList(0, MAX_IDS_EN_RESUMEN) + "...";
+    }
+}
@@ -0,0 +1,55 @@
+package com.umg.gestiontareas.estructuras;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Diccionario de valores categóricos (estado, prioridad, tipo) compartidos entre los nodos del árbol.
+ * Los nodos guardan la instancia registrada en lugar del String de cada Tarea, así que cada valor
+ * registrado existe una sola vez en memoria aunque lo compartan millones de tareas; con referencias
+ * comprimidas (heap menor a 32 GB) la referencia ocupa lo mismo que un código int.
+ * Los valores son texto libre, así que el diccionario registra como máximo 'limite' valores distintos:
+ * a partir de ahí los valores nuevos se guardan tal como llegan, sin compartir, y el diccionario no crece más.
+ * No es seguro para uso concurrente.
+ */
+public class DiccionarioValores {
+
+    // Muy por encima de los valores habituales (PENDIENTE, ALTA, TRABAJO, ...)
+    public static final int LIMITE = 1024;
+
+    private final Map<String, String> valores = new HashMap<>();
+    private final int limite;
+
+    public DiccionarioValores() {
+        this(LIMITE);
+    }
+
+    DiccionarioValores(int limite) {
+        this.limite = limite;
+    }
+
+    /**
+     * @return La instancia registrada igual a valor, registrándolo si hay lugar; si el diccionario está lleno
+     * y el valor no estaba registrado, el propio valor.
+     */
+    public String compartir(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        String registrado = valores.get(valor);
+        if (registrado != null) {
+            return registrado;
+        }
+        if (valores.size() < limite) {
+            valores.put(valor, valor);
+        }
+        return valor;
+    }
+
+    /**
+     * @return Cantidad de valores distintos registrados (como máximo el límite).
+     */
+    public int tamano() {
+        return valores.size();
+    }
+}
@@ -0,0 +1,602 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.Tarea;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria sobre el título y la descripción de las tareas.
+ * <p>
+ * Los textos se normalizan (minúsculas, sin tildes) y se separan en términos. Por cada término se guarda
+ * la lista de tareas donde aparece, ordenada por ID, con un peso que cuenta el título PESO_TITULO veces
+ * más que la descripción y se normaliza por la longitud del texto.
+ * <p>
+ * Una búsqueda exige que aparezcan todos los términos de la consulta (cada uno como palabra completa o como
+ * prefijo) y ordena por TF-IDF: las coincidencias exactas valen más que las de prefijo y los términos raros,
+ * más que los frecuentes. Se empieza por el término más selectivo y los demás solo se buscan en las tareas
+ * que ya coinciden, avanzando por sus listas ordenadas.
+ * <p>
+ * Para que un término muy frecuente no obligue a recorrer toda su lista, las candidatas se toman en ventanas de
+ * hasta MAX_CANDIDATAS tareas, de los IDs más altos (las más recientes) a los más bajos, y se deja de buscar
+ * cuando ya hay 'limite' coincidencias. Un término con menos apariciones que eso se evalúa completo; con uno
+ * más frecuente, el orden por relevancia es el de las coincidencias más recientes, no el de todas.
+ * <p>
+ * No es seguro para uso concurrente; IndiceBusquedaConcurrente lo protege.
+ */
+public class IndiceBusqueda {
+
+    static final float PESO_TITULO = 3f;
+    // Prefijos más cortos expandirían a demasiados términos
+    private static final int LONGITUD_MINIMA_PREFIJO = 2;
+    private static final int MAX_TERMINOS_POR_PREFIJO = 64;
+    private static final float FACTOR_PREFIJO = 0.5f;
+    // Apariciones del término más selectivo que se evalúan por ventana
+    static final int MAX_CANDIDATAS = 10_000;
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "de", "la", "el", "en", "y", "los", "las", "del", "un", "una", "por", "para", "con", "que", "se", "al", "lo");
+
+    /**
+     * Una tarea encontrada y su puntaje de relevancia.
+     */
+    public record Coincidencia(long idTarea, double puntaje) {
+    }
+
+    private final TreeMap<String, Apariciones> indice = new TreeMap<>();
+    // Términos de cada tarea, para quitarlos cuando la tarea cambia o se elimina
+    private final MapaLong<TerminosTarea> terminosPorTarea = new MapaLong<>();
+
+    /**
+     * Construye el índice de todas las tareas. El análisis de los textos se hace en paralelo;
+     * después las tareas se agregan en orden de ID, así que cada lista de apariciones solo crece por el final.
+     */
+    public static IndiceBusqueda construir(Collection<Tarea> tareas) {
+        record Analizada(long id, TerminosTarea terminos) {
+        }
+        Analizada[] analizadas = tareas.parallelStream()
+                .filter(tarea -> tarea.getId() != null)
+                .map(tarea -> new Analizada(tarea.getId(), analizar(tarea.getTitulo(), tarea.getDescripcion())))
+                .filter(analizada -> analizada.terminos() != null)
+                .toArray(Analizada[]::new);
+        Arrays.parallelSort(analizadas, Comparator.comparingLong(Analizada::id));
+        IndiceBusqueda indice = new IndiceBusqueda();
+        for (Analizada analizada : analizadas) {
+            indice.aplicar(analizada.id(), analizada.terminos());
+        }
+        return indice;
+    }
+
+    /**
+     * Agrega o actualiza una tarea en el índice.
+     */
+    public void indexar(Tarea tarea) {
+        aplicar(tarea.getId(), analizar(tarea.getTitulo(), tarea.getDescripcion()));
+    }
+
+    public void eliminar(long idTarea) {
+        aplicar(idTarea, null);
+    }
+
+    /**
+     * Reemplaza los términos de una tarea por los ya analizados. Si no cambiaron (por ejemplo,
+     * al completar una tarea), no hace nada.
+     * @param terminos Resultado de analizar(), o null para quitar la tarea del índice.
+     */
+    void aplicar(long idTarea, TerminosTarea terminos) {
+        TerminosTarea anteriores = terminosPorTarea.get(idTarea);
+        if (anteriores != null && anteriores.igualA(terminos)) {
+            return;
+        }
+        if (anteriores != null) {
+            for (String termino : anteriores.terminos) {
+                Apariciones apariciones = indice.get(termino);
+                apariciones.quitar(idTarea);
+                if (apariciones.cantidad() == 0) {
+                    indice.remove(termino);
+                }
+            }
+            terminosPorTarea.remove(idTarea);
+        }
+        if (terminos == null) {
+            return;
+        }
+        for (int i = 0; i < terminos.terminos.length; i++) {
+            Map.Entry<String, Apariciones> entrada = indice.ceilingEntry(terminos.terminos[i]);
+            if (entrada != null && entrada.getKey().equals(terminos.terminos[i])) {
+                terminos.terminos[i] = entrada.getKey(); // Una sola instancia de cada término en memoria
+                entrada.getValue().poner(idTarea, terminos.pesos[i]);
+            } else {
+                Apariciones apariciones = new Apariciones();
+                apariciones.poner(idTarea, terminos.pesos[i]);
+                indice.put(terminos.terminos[i], apariciones);
+            }
+        }
+        terminosPorTarea.put(idTarea, terminos);
+    }
+
+    /**
+     * Busca las tareas que contienen todos los términos de la consulta.
+     * @param consulta Texto libre; cada término coincide como palabra completa o como comienzo de una palabra.
+     * @param limite Cantidad máxima de resultados.
+     * @return Las tareas encontradas, de la más a la menos relevante.
+     */
+    public List<Coincidencia> buscar(String consulta, int limite) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenizar(consulta)));
+        if (tokens.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        List<TerminoConsulta> terminosConsulta = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            TerminoConsulta termino = expandir(token);
+            if (termino.apariciones.isEmpty()) {
+                return List.of(); // Un término sin coincidencias deja la búsqueda vacía
+            }
+            terminosConsulta.add(termino);
+        }
+        terminosConsulta.sort(Comparator.comparingLong(TerminoConsulta::totalApariciones));
+
+        TerminoConsulta masSelectivo = terminosConsulta.get(0);
+        Candidatas encontradas = new Candidatas(Math.min(limite, MAX_CANDIDATAS));
+        long hasta = Long.MAX_VALUE;
+        do {
+            long desde = masSelectivo.inicioVentana(hasta);
+            Candidatas candidatas = masSelectivo.candidatas(desde, hasta);
+            for (int t = 1; t < terminosConsulta.size() && candidatas.tamano > 0; t++) {
+                candidatas.filtrar(terminosConsulta.get(t));
+            }
+            encontradas.agregarTodas(candidatas);
+            hasta = desde;
+        } while (hasta != Long.MIN_VALUE && encontradas.tamano < limite);
+        return encontradas.mejores(limite);
+    }
+
+    public int tamano() {
+        return terminosPorTarea.tamano();
+    }
+
+    public int cantidadTerminos() {
+        return indice.size();
+    }
+
+    // Término exacto más los términos que empiezan con él, cada uno con su factor de puntaje (idf y exactitud)
+    private TerminoConsulta expandir(String token) {
+        TerminoConsulta termino = new TerminoConsulta();
+        int total = Math.max(1, tamano());
+        Apariciones exacto = indice.get(token);
+        if (exacto != null) {
+            termino.agregar(exacto, idf(total, exacto.cantidad()));
+        }
+        if (token.length() >= LONGITUD_MINIMA_PREFIJO) {
+            int expandidos = 0;
+            for (Apariciones apariciones : indice.subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+                if (++expandidos > MAX_TERMINOS_POR_PREFIJO) {
+                    break;
+                }
+                termino.agregar(apariciones, FACTOR_PREFIJO * idf(total, apariciones.cantidad()));
+            }
+        }
+        return termino;
+    }
+
+    private static float idf(int totalTareas, int tareasConTermino) {
+        return (float) Math.log(1 + (double) totalTareas / tareasConTermino);
+    }
+
+    /**
+     * Normaliza el texto (minúsculas, sin tildes) y lo separa en términos, descartando palabras vacías
+     * y términos de una letra.
+     */
+    static List<String> tokenizar(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return List.of();
+        }
+        String normalizado = DIACRITICOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARADORES.split(normalizado)) {
+            if ((token.length() >= 2 || (token.length() == 1 && Character.isDigit(token.charAt(0))))
+                    && !PALABRAS_VACIAS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Calcula los términos de una tarea y su peso: las apariciones en el título cuentan PESO_TITULO veces,
+     * y el total se divide por la raíz de la longitud (ponderada) del texto.
+     * @return Los términos ordenados, o null si la tarea no tiene ningún término.
+     */
+    static TerminosTarea analizar(String titulo, String descripcion) {
+        List<String> deTitulo = tokenizar(titulo);
+        List<String> deDescripcion = tokenizar(descripcion);
+        if (deTitulo.isEmpty() && deDescripcion.isEmpty()) {
+            return null;
+        }
+        TreeMap<String, Float> cuentas = new TreeMap<>();
+        deTitulo.forEach(termino -> cuentas.merge(termino, PESO_TITULO, Float::sum));
+        deDescripcion.forEach(termino -> cuentas.merge(termino, 1f, Float::sum));
+        float longitud = (float) Math.sqrt(PESO_TITULO * deTitulo.size() + deDescripcion.size());
+        String[] terminos = new String[cuentas.size()];
+        float[] pesos = new float[cuentas.size()];
+        int i = 0;
+        for (Map.Entry<String, Float> cuenta : cuentas.entrySet()) {
+            terminos[i] = cuenta.getKey();
+            pesos[i] = cuenta.getValue() / longitud;
+            i++;
+        }
+        return new TerminosTarea(terminos, pesos);
+    }
+
+    /**
+     * Términos de una tarea (ordenados) con su peso.
+     */
+    static final class TerminosTarea {
+        private final String[] terminos;
+        private final float[] pesos;
+
+        private TerminosTarea(String[] terminos, float[] pesos) {
+            this.terminos = terminos;
+            this.pesos = pesos;
+        }
+
+        private boolean igualA(TerminosTarea otros) {
+            return otros != null && Arrays.equals(terminos, otros.terminos) && Arrays.equals(pesos, otros.pesos);
+        }
+    }
+
+    /**
+     * Tareas donde aparece un término, ordenadas por ID, con su peso.
+     * Quitar una tarea solo pone su peso en 0 (búsqueda binaria); la lista se compacta cuando la mitad
+     * de las posiciones están borradas. Las tareas nuevas tienen IDs mayores y se agregan al final.
+     */
+    private static final class Apariciones {
+        private long[] ids = new long[2];
+        private float[] pesos = new float[2];
+        private int tamano;
+        private int borradas;
+
+        void poner(long id, float peso) {
+            if (tamano == 0 || id > ids[tamano - 1]) {
+                asegurarCapacidad();
+                ids[tamano] = id;
+                pesos[tamano] = peso;
+                tamano++;
+                return;
+            }
+            int i = Arrays.binarySearch(ids, 0, tamano, id);
+            if (i >= 0) {
+                if (pesos[i] == 0) {
+                    borradas--;
+                }
+                pesos[i] = peso;
+                return;
+            }
+            i = -i - 1;
+            asegurarCapacidad();
+            System.arraycopy(ids, i, ids, i + 1, tamano - i);
+            System.arraycopy(pesos, i, pesos, i + 1, tamano - i);
+            ids[i] = id;
+            pesos[i] = peso;
+            tamano++;
+        }
+
+        void quitar(long id) {
+            int i = Arrays.binarySearch(ids, 0, tamano, id);
+            if (i >= 0 && pesos[i] != 0) {
+                pesos[i] = 0;
+                borradas++;
+                if (borradas * 2 > tamano) {
+                    compactar();
+                }
+            }
+        }
+
+        /**
+         * Primera posición desde 'desde' con un ID mayor o igual a 'id' (tamano si no hay ninguna).
+         * Avanza en saltos que se duplican y termina con búsqueda binaria, así que recorrer la lista
+         * con IDs crecientes cuesta según cuántas posiciones se saltan, no según el largo de la lista.
+         */
+        int buscarDesde(long id, int desde) {
+            int bajo = desde;
+            int alto = desde;
+            int salto = 1;
+            while (alto < tamano && ids[alto] < id) {
+                bajo = alto + 1;
+                alto += salto;
+                salto <<= 1;
+            }
+            int i = Arrays.binarySearch(ids, bajo, Math.min(alto + 1, tamano), id);
+            return i >= 0 ? i : -i - 1;
+        }
+
+        int cantidad() {
+            return tamano - borradas;
+        }
+
+        private void asegurarCapacidad() {
+            if (tamano == ids.length) {
+                ids = Arrays.copyOf(ids, tamano * 2);
+                pesos = Arrays.copyOf(pesos, tamano * 2);
+            }
+        }
+
+        private void compactar() {
+            int j = 0;
+            for (int i = 0; i < tamano; i++) {
+                if (pesos[i] != 0) {
+                    ids[j] = ids[i];
+                    pesos[j] = pesos[i];
+                    j++;
+                }
+            }
+            tamano = j;
+            borradas = 0;
+            if (ids.length > 16 && tamano < ids.length / 4) {
+                ids = Arrays.copyOf(ids, Math.max(2, tamano * 2));
+                pesos = Arrays.copyOf(pesos, Math.max(2, tamano * 2));
+            }
+        }
+    }
+
+    /**
+     * Un término de la consulta: las listas de apariciones que le corresponden y el factor de cada una.
+     */
+    private static final class TerminoConsulta {
+        private final List<Apariciones> apariciones = new ArrayList<>();
+        private float[] factores = new float[4];
+        private long totalApariciones;
+
+        void agregar(Apariciones lista, float factor) {
+            if (apariciones.size() == factores.length) {
+                factores = Arrays.copyOf(factores, factores.length * 2);
+            }
+            factores[apariciones.size()] = factor;
+            apariciones.add(lista);
+            totalApariciones += lista.cantidad();
+        }
+
+        long totalApariciones() {
+            return totalApariciones;
+        }
+
+        /**
+         * Inicio (inclusivo) de la ventana que termina en 'hasta': el ID más alto que deja como máximo
+         * MAX_CANDIDATAS apariciones de cada lista en [inicio, hasta), o Long.MIN_VALUE si caben todas.
+         */
+        long inicioVentana(long hasta) {
+            long inicio = Long.MIN_VALUE;
+            for (Apariciones lista : apariciones) {
+                int fin = lista.buscarDesde(hasta, 0);
+                if (fin > MAX_CANDIDATAS) {
+                    inicio = Math.max(inicio, lista.ids[fin - MAX_CANDIDATAS]);
+                }
+            }
+            return inicio;
+        }
+
+        // Une las listas (ordenadas por ID) en [desde, hasta), sumando el puntaje de las tareas que aparecen en varias
+        Candidatas candidatas(long desde, long hasta) {
+            int[] inicios = new int[apariciones.size()];
+            int[] fines = new int[apariciones.size()];
+            long total = 0;
+            long minimo = Long.MAX_VALUE;
+            long maximo = Long.MIN_VALUE;
+            for (int l = 0; l < apariciones.size(); l++) {
+                Apariciones lista = apariciones.get(l);
+                inicios[l] = lista.buscarDesde(desde, 0);
+                fines[l] = lista.buscarDesde(hasta, inicios[l]);
+                if (inicios[l] < fines[l]) {
+                    total += fines[l] - inicios[l];
+                    minimo = Math.min(minimo, lista.ids[inicios[l]]);
+                    maximo = Math.max(maximo, lista.ids[fines[l] - 1]);
+                }
+            }
+            if (apariciones.size() == 1) {
+                Apariciones lista = apariciones.get(0);
+                Candidatas candidatas = new Candidatas((int) total);
+                for (int i = inicios[0]; i < fines[0]; i++) {
+                    if (lista.pesos[i] != 0) {
+                        candidatas.agregar(lista.ids[i], lista.pesos[i] * factores[0]);
+                    }
+                }
+                return candidatas;
+            }
+            long rango = maximo - minimo + 1;
+            // Con IDs densos (lo normal con IDs autoincrementales) se acumula en un arreglo indexado por ID
+            if (rango > 0 && rango <= 4 * total + 1024) {
+                return unirDenso(minimo, (int) rango, inicios, fines, total);
+            }
+            return unirMezclando(inicios, fines, total);
+        }
+
+        private Candidatas unirDenso(long minimo, int rango, int[] inicios, int[] fines, long total) {
+            float[] puntajes = new float[rango];
+            for (int l = 0; l < apariciones.size(); l++) {
+                Apariciones lista = apariciones.get(l);
+                for (int i = inicios[l]; i < fines[l]; i++) {
+                    puntajes[(int) (lista.ids[i] - minimo)] += lista.pesos[i] * factores[l];
+                }
+            }
+            Candidatas candidatas = new Candidatas((int) Math.min(total, rango));
+            for (int i = 0; i < rango; i++) {
+                if (puntajes[i] != 0) {
+                    candidatas.agregar(minimo + i, puntajes[i]);
+                }
+            }
+            return candidatas;
+        }
+
+        // Mezcla de k listas ordenadas con un montículo, para IDs muy dispersos
+        private Candidatas unirMezclando(int[] inicios, int[] fines, long total) {
+            Candidatas candidatas = new Candidatas((int) Math.min(total, Integer.MAX_VALUE - 8));
+            int[] posiciones = inicios.clone();
+            PriorityQueue<Integer> siguientes = new PriorityQueue<>(apariciones.size(),
+                    Comparator.comparingLong(lista -> apariciones.get(lista).ids[posiciones[lista]]));
+            for (int lista = 0; lista < apariciones.size(); lista++) {
+                if (posiciones[lista] < fines[lista]) {
+                    siguientes.add(lista);
+                }
+            }
+            while (!siguientes.isEmpty()) {
+                int lista = siguientes.poll();
+                Apariciones actual = apariciones.get(lista);
+                int i = posiciones[lista];
+                if (actual.pesos[i] != 0) {
+                    long id = actual.ids[i];
+                    float puntaje = actual.pesos[i] * factores[lista];
+                    if (candidatas.tamano > 0 && candidatas.ids[candidatas.tamano - 1] == id) {
+                        candidatas.puntajes[candidatas.tamano - 1] += puntaje;
+                    } else {
+                        candidatas.agregar(id, puntaje);
+                    }
+                }
+                if (++posiciones[lista] < fines[lista]) {
+                    siguientes.add(lista);
+                }
+            }
+            return candidatas;
+        }
+    }
+
+    /**
+     * Tareas que coinciden con los términos ya procesados y su puntaje acumulado.
+     */
+    private static final class Candidatas {
+        private long[] ids;
+        private float[] puntajes;
+        private int tamano;
+
+        Candidatas(int capacidad) {
+            ids = new long[Math.max(1, capacidad)];
+            puntajes = new float[Math.max(1, capacidad)];
+        }
+
+        void agregar(long id, float puntaje) {
+            if (tamano == ids.length) {
+                ids = Arrays.copyOf(ids, tamano * 2);
+                puntajes = Arrays.copyOf(puntajes, tamano * 2);
+            }
+            ids[tamano] = id;
+            puntajes[tamano] = puntaje;
+            tamano++;
+        }
+
+        // Agrega las candidatas de otra ventana (IDs distintos)
+        void agregarTodas(Candidatas otras) {
+            for (int i = 0; i < otras.tamano; i++) {
+                agregar(otras.ids[i], otras.puntajes[i]);
+            }
+        }
+
+        // Conserva solo las candidatas que también contienen el término, sumando su puntaje.
+        // Candidatas y listas están ordenadas por ID, así que cada lista se recorre una sola vez hacia adelante.
+        void filtrar(TerminoConsulta termino) {
+            int listas = termino.apariciones.size();
+            int[] posiciones = new int[listas];
+            int j = 0;
+            for (int i = 0; i < tamano; i++) {
+                float puntaje = 0;
+                for (int l = 0; l < listas; l++) {
+                    Apariciones lista = termino.apariciones.get(l);
+                    int p = lista.buscarDesde(ids[i], posiciones[l]);
+                    posiciones[l] = p;
+                    if (p < lista.tamano && lista.ids[p] == ids[i]) {
+                        puntaje += lista.pesos[p] * termino.factores[l];
+                    }
+                }
+                if (puntaje > 0) {
+                    ids[j] = ids[i];
+                    puntajes[j] = puntajes[i] + puntaje;
+                    j++;
+                }
+            }
+            tamano = j;
+        }
+
+        // Las 'limite' de mayor puntaje; a igual puntaje, primero la más reciente (mayor ID)
+        List<Coincidencia> mejores(int limite) {
+            int k = Math.min(limite, tamano);
+            if (k == 0) {
+                return List.of();
+            }
+            // Montículo mínimo de posiciones: la raíz es la peor de las mejores encontradas
+            int[] monticulo = new int[k];
+            int enMonticulo = 0;
+            for (int i = 0; i < tamano; i++) {
+                if (enMonticulo < k) {
+                    monticulo[enMonticulo] = i;
+                    subir(monticulo, enMonticulo++);
+                } else if (mejorQue(i, monticulo[0])) {
+                    monticulo[0] = i;
+                    bajar(monticulo, k);
+                }
+            }
+            List<Coincidencia> resultado = new ArrayList<>(k);
+            for (int n = k; n > 0; n--) {
+                int peor = monticulo[0];
+                resultado.add(new Coincidencia(ids[peor], puntajes[peor]));
+                monticulo[0] = monticulo[n - 1];
+                bajar(monticulo, n - 1);
+            }
+            Collections.reverse(resultado);
+            return resultado;
+        }
+
+        private boolean mejorQue(int a, int b) {
+            return puntajes[a] > puntajes[b] || (puntajes[a] == puntajes[b] && ids[a] > ids[b]);
+        }
+
+        private void subir(int[] monticulo, int i) {
+            while (i > 0) {
+                int padre = (i - 1) / 2;
+                if (!mejorQue(monticulo[padre], monticulo[i])) {
+                    break;
+                }
+                intercambiar(monticulo, padre, i);
+                i = padre;
+            }
+        }
+
+        private void bajar(int[] monticulo, int tamanoMonticulo) {
+            int i = 0;
+            while (true) {
+                int menor = i;
+                int izquierdo = 2 * i + 1;
+                int derecho = izquierdo + 1;
+                if (izquierdo < tamanoMonticulo && mejorQue(monticulo[menor], monticulo[izquierdo])) {
+                    menor = izquierdo;
+                }
+                if (derecho < tamanoMonticulo && mejorQue(monticulo[menor], monticulo[derecho])) {
+                    menor = derecho;
+                }
+                if (menor == i) {
+                    return;
+                }
+                intercambiar(monticulo, i, menor);
+                i = menor;
+            }
+        }
+
+        private static void intercambiar(int[] monticulo, int a, int b) {
+            int temporal = monticulo[a];
+            monticulo[a] = monticulo[b];
+            monticulo[b] = temporal;
+        }
+    }
+}
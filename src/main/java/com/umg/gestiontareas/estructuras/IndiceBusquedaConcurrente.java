@@ -0,0 +1,88 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.Tarea;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Envoltura de IndiceBusqueda para uso concurrente.
+ * Las búsquedas comparten un bloqueo de lectura; los cambios toman el de escritura solo para actualizar
+ * las listas, porque el análisis de los textos se hace antes, fuera del bloqueo.
+ */
+public class IndiceBusquedaConcurrente {
+
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    private IndiceBusqueda indice = new IndiceBusqueda(); // Protegido por 'bloqueo'
+    private volatile int tamano;
+
+    /**
+     * Agrega o actualiza las tareas en el índice.
+     */
+    public void indexar(Collection<Tarea> tareas) {
+        List<Long> ids = new ArrayList<>(tareas.size());
+        List<IndiceBusqueda.TerminosTarea> terminos = new ArrayList<>(tareas.size());
+        for (Tarea tarea : tareas) {
+            if (tarea.getId() != null) {
+                ids.add(tarea.getId());
+                terminos.add(IndiceBusqueda.analizar(tarea.getTitulo(), tarea.getDescripcion()));
+            }
+        }
+        bloqueo.writeLock().lock();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                indice.aplicar(ids.get(i), terminos.get(i));
+            }
+            tamano = indice.tamano();
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(Collection<Long> idsTareas) {
+        bloqueo.writeLock().lock();
+        try {
+            idsTareas.forEach(indice::eliminar);
+            tamano = indice.tamano();
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @see IndiceBusqueda#buscar(String, int)
+     */
+    public List<IndiceBusqueda.Coincidencia> buscar(String consulta, int limite) {
+        bloqueo.readLock().lock();
+        try {
+            return indice.buscar(consulta, limite);
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Construye un índice nuevo fuera del bloqueo (en paralelo) y lo reemplaza de una sola vez.
+     * @return Cantidad de términos distintos del índice nuevo.
+     */
+    public int reconstruir(Collection<Tarea> tareas) {
+        IndiceBusqueda nuevo = IndiceBusqueda.construir(tareas);
+        bloqueo.writeLock().lock();
+        try {
+            indice = nuevo;
+            tamano = nuevo.tamano();
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+        return nuevo.cantidadTerminos();
+    }
+
+    /**
+     * @return Cantidad de tareas en el índice.
+     */
+    public int tamano() {
+        return tamano;
+    }
+}
@@ -0,0 +1,63 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.Tarea;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Copia inmutable de las tareas del árbol (en preorden) en una versión determinada.
+ * Se publica completa de una sola vez, así que quien la lee nunca ve un árbol a medio modificar.
+ * La representación serializada se calcula una sola vez por instantánea y se reutiliza.
+ */
+public final class InstantaneaArbol {
+
+    private final long version;
+    private final int tamano;
+    private final long huella;
+    private final List<Tarea> tareas;
+    private volatile byte[] serializada;
+
+    InstantaneaArbol(long version, int tamano, long huella, List<Tarea> tareas) {
+        this.version = version;
+        this.tamano = tamano;
+        this.huella = huella;
+        this.tareas = Collections.unmodifiableList(tareas);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Tareas de la instantánea en preorden. La lista no se puede modificar y las tareas no deben modificarse.
+     */
+    public List<Tarea> getTareas() {
+        return tareas;
+    }
+
+    /**
+     * ETag HTTP del contenido, calculado con la cantidad de tareas y la huella de sus IDs y versiones
+     * (ver ArbolTareas.huella()). No depende de la instancia ni de reinicios, así que detrás de un balanceador
+     * todas las instancias con las mismas tareas responden 304 al mismo If-None-Match.
+     * Es débil porque el orden de los hermanos puede variar entre instancias aunque las tareas sean las mismas.
+     */
+    public String getEtag() {
+        return "W/\"" + tamano + "-" + Long.toHexString(huella) + "\"";
+    }
+
+    /**
+     * Devuelve la instantánea serializada, calculándola la primera vez.
+     * Si dos lectores llegan a la vez, ambos pueden serializar, pero el resultado es el mismo.
+     * @param serializador Convierte la lista de tareas en bytes (por ejemplo, JSON).
+     */
+    public byte[] serializada(Function<List<Tarea>, byte[]> serializador) {
+        byte[] bytes = serializada;
+        if (bytes == null) {
+            bytes = serializador.apply(tareas);
+            serializada = bytes;
+        }
+        return bytes;
+    }
+}
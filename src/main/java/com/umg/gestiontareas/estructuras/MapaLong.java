@@ -0,0 +1,161 @@
+package com.umg.gestiontareas.estructuras;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de claves long primitivas con direccionamiento abierto (sondeo lineal).
+ * Evita crear un Long por cada clave y un objeto de entrada por cada par, como haría HashMap.
+ * Las eliminaciones usan desplazamiento hacia atrás, así que no deja marcas de borrado.
+ * No es seguro para uso concurrente.
+ * @param <V> Tipo de los valores. No se admiten valores null.
+ */
+public class MapaLong<V> {
+
+    private static final float FACTOR_CARGA = 0.6f;
+    private static final int CAPACIDAD_MINIMA = 16;
+
+    private long[] claves;
+    private Object[] valores; // Una posición con valor null está libre
+    private int tamano;
+    private int umbral;
+
+    public MapaLong() {
+        this(CAPACIDAD_MINIMA);
+    }
+
+    public MapaLong(int capacidadEsperada) {
+        int capacidad = potenciaDeDosPara((int) (capacidadEsperada / FACTOR_CARGA) + 1);
+        inicializar(capacidad);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long clave) {
+        int mascara = claves.length - 1;
+        for (int i = indice(clave, mascara); valores[i] != null; i = (i + 1) & mascara) {
+            if (claves[i] == clave) {
+                return (V) valores[i];
+            }
+        }
+        return null;
+    }
+
+    public boolean contiene(long clave) {
+        return get(clave) != null;
+    }
+
+    /**
+     * Asocia el valor a la clave.
+     * @return El valor anterior, o null si la clave no existía.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long clave, V valor) {
+        if (valor == null) {
+            throw new IllegalArgumentException("MapaLong no admite valores null");
+        }
+        int mascara = claves.length - 1;
+        int i = indice(clave, mascara);
+        while (valores[i] != null) {
+            if (claves[i] == clave) {
+                V anterior = (V) valores[i];
+                valores[i] = valor;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        claves[i] = clave;
+        valores[i] = valor;
+        if (++tamano > umbral) {
+            redimensionar(claves.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Elimina la clave del mapa.
+     * @return El valor eliminado, o null si la clave no existía.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long clave) {
+        int mascara = claves.length - 1;
+        int i = indice(clave, mascara);
+        while (valores[i] != null) {
+            if (claves[i] == clave) {
+                V anterior = (V) valores[i];
+                desplazarHaciaAtras(i, mascara);
+                tamano--;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    public boolean estaVacio() {
+        return tamano == 0;
+    }
+
+    public void limpiar() {
+        Arrays.fill(valores, null);
+        tamano = 0;
+    }
+
+    // Rellena el hueco dejado en 'libre' con las entradas siguientes del mismo grupo de sondeo
+    private void desplazarHaciaAtras(int libre, int mascara) {
+        int i = (libre + 1) & mascara;
+        while (valores[i] != null) {
+            int ideal = indice(claves[i], mascara);
+            // La entrada puede moverse a 'libre' si 'libre' está entre su posición ideal y su posición actual
+            if (((i - ideal) & mascara) >= ((i - libre) & mascara)) {
+                claves[libre] = claves[i];
+                valores[libre] = valores[i];
+                libre = i;
+            }
+            i = (i + 1) & mascara;
+        }
+        valores[libre] = null;
+    }
+
+    private void redimensionar(int nuevaCapacidad) {
+        long[] clavesAnteriores = claves;
+        Object[] valoresAnteriores = valores;
+        inicializar(nuevaCapacidad);
+        int mascara = nuevaCapacidad - 1;
+        for (int j = 0; j < valoresAnteriores.length; j++) {
+            if (valoresAnteriores[j] != null) {
+                int i = indice(clavesAnteriores[j], mascara);
+                while (valores[i] != null) {
+                    i = (i + 1) & mascara;
+                }
+                claves[i] = clavesAnteriores[j];
+                valores[i] = valoresAnteriores[j];
+            }
+        }
+    }
+
+    private void inicializar(int capacidad) {
+        claves = new long[capacidad];
+        valores = new Object[capacidad];
+        umbral = (int) (capacidad * FACTOR_CARGA);
+    }
+
+    private static int indice(long clave, int mascara) {
+        // Mezcla de bits (finalizador de MurmurHash3) para repartir IDs consecutivos
+        long h = clave;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & mascara;
+    }
+
+    private static int potenciaDeDosPara(int n) {
+        int capacidad = CAPACIDAD_MINIMA;
+        while (capacidad < n) {
+            capacidad <<= 1;
+        }
+        return capacidad;
+    }
+}
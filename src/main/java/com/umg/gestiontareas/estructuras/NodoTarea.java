@@ -0,0 +1,125 @@
+package com.umg.gestiontareas.estructuras;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Nodo del árbol de tareas en memoria.
+ * Cada nodo conoce a su padre (null si es raíz) y a sus hijos directos.
+ * En lugar de la entidad Tarea guarda sus datos en forma compacta: ID y versión como long,
+ * estado, prioridad y tipo como valores compartidos de un DiccionarioValores y las fechas como microsegundos
+ * desde la época. El ID del padre no se guarda: sale del enlace al nodo padre, así que no puede contradecirlo.
+ * ArbolTareas vuelve a crear la Tarea solo cuando una consulta la devuelve.
+ * Mantiene además el conteo por estado de todo su subárbol (incluido el propio nodo),
+ * que ArbolTareas actualiza de forma incremental en cada cambio.
+ * Guarda también su posición en la lista de hijos de su padre, para desenlazarlo sin recorrer la lista.
+ */
+public class NodoTarea {
+
+    // Valor del ID del padre, de la versión y de las fechas cuando son null
+    static final long SIN_VALOR = Long.MIN_VALUE;
+
+    private final long id;
+    private String titulo;
+    private String descripcion;
+    private String estado;
+    private String prioridad;
+    private String tipo;
+    private long fechaCreacion;
+    private long fechaCompletada;
+    private long version;
+    private NodoTarea padre;
+    private int posicion; // Índice del nodo en la lista de hijos de su padre (o en las raíces)
+    private final List<NodoTarea> hijos = new ArrayList<>();
+    private final ConteoEstados conteoSubarbol = new ConteoEstados();
+
+    NodoTarea(long id, NodoTarea padre) {
+        this.id = id;
+        this.padre = padre;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public NodoTarea getPadre() {
+        return padre;
+    }
+
+    /**
+     * @return Hijos directos del nodo. Solo ArbolTareas debe modificar la lista, porque mantiene la posición de cada hijo.
+     */
+    public List<NodoTarea> getHijos() {
+        return hijos;
+    }
+
+    /**
+     * @return Conteo por estado del subárbol de este nodo, incluido el propio nodo.
+     */
+    public ConteoEstados getConteoSubarbol() {
+        return conteoSubarbol;
+    }
+
+    /**
+     * @return ID del nodo padre en el árbol, o SIN_VALOR si es raíz.
+     */
+    long getIdTareaPadre() {
+        return padre != null ? padre.id : SIN_VALOR;
+    }
+
+    String getTitulo() {
+        return titulo;
+    }
+
+    String getDescripcion() {
+        return descripcion;
+    }
+
+    String getEstado() {
+        return estado;
+    }
+
+    String getPrioridad() {
+        return prioridad;
+    }
+
+    String getTipo() {
+        return tipo;
+    }
+
+    long getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    long getFechaCompletada() {
+        return fechaCompletada;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    void setDatos(String titulo, String descripcion, String estado, String prioridad, String tipo,
+                  long fechaCreacion, long fechaCompletada, long version) {
+        this.titulo = titulo;
+        this.descripcion = descripcion;
+        this.estado = estado;
+        this.prioridad = prioridad;
+        this.tipo = tipo;
+        this.fechaCreacion = fechaCreacion;
+        this.fechaCompletada = fechaCompletada;
+        this.version = version;
+    }
+
+    void setPadre(NodoTarea padre) {
+        this.padre = padre;
+    }
+
+    int getPosicion() {
+        return posicion;
+    }
+
+    void setPosicion(int posicion) {
+        this.posicion = posicion;
+    }
+}
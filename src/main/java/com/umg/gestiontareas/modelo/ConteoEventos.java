@@ -0,0 +1,12 @@
+package com.umg.gestiontareas.modelo;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cantidad de eventos de un tipo en un intervalo de tiempo.
+ * @param inicio Inicio del intervalo.
+ * @param eventType Tipo de evento.
+ * @param cantidad Eventos registrados en el intervalo.
+ */
+public record ConteoEventos(LocalDateTime inicio, String eventType, long cantidad) {
+}
@@ -0,0 +1,81 @@
+package com.umg.gestiontareas.modelo;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Evento pendiente de publicar en RabbitMQ (patrón outbox transaccional).
+ * Se inserta en la misma transacción que el cambio de la tarea, así que el evento existe si y solo si
+ * el cambio se guardó. RabbitMQSender lo publica después y marca fechaPublicacion.
+ * idMensaje viaja como messageId del mensaje AMQP y el receptor lo usa como _id del log en MongoDB,
+ * de modo que publicar dos veces el mismo evento (reintento o reenvío) deja un solo log.
+ */
+@Entity
+@Table(name = "eventos_outbox", indexes = {
+        // Pendientes en orden de inserción: WHERE fecha_publicacion IS NULL ORDER BY id
+        @Index(name = "idx_outbox_pendientes", columnList = "fecha_publicacion, id"),
+        @Index(name = "idx_outbox_creacion", columnList = "fecha_creacion")
+})
+public class EventoOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // ObjectId en hexadecimal: único y creciente en el tiempo, igual que los _id que asignaba MongoDB
+    @Column(nullable = false, unique = true, length = 24)
+    private String idMensaje;
+
+    @Column(nullable = false, length = 64)
+    private String tipo;
+
+    private Long idTarea;
+
+    // TareaEvento serializado en JSON; los eventos por lote incluyen todos los IDs afectados
+    @Column(nullable = false, columnDefinition = "mediumtext")
+    private String carga;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    private LocalDateTime fechaPublicacion; // null = pendiente
+
+    public EventoOutbox() {
+    }
+
+    public EventoOutbox(String idMensaje, TareaEvento evento, String carga) {
+        this.idMensaje = idMensaje;
+        this.tipo = evento.tipo().name();
+        this.idTarea = evento.idTarea();
+        this.carga = carga;
+        this.fechaCreacion = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getIdMensaje() {
+        return idMensaje;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public Long getIdTarea() {
+        return idTarea;
+    }
+
+    public String getCarga() {
+        return carga;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public LocalDateTime getFechaPublicacion() {
+        return fechaPublicacion;
+    }
+}
@@ -0,0 +1,57 @@
+package com.umg.gestiontareas.modelo;
+
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Granularidad de los resúmenes de eventos en MongoDB.
+ * Cada granularidad tiene su propia colección (un documento por tipo de evento y período) y se calcula a partir de la anterior:
+ * los resúmenes por minuto salen de event_logs y los resúmenes por hora, de los resúmenes por minuto.
+ */
+public enum GranularidadResumen {
+    MINUTO("event_rollups_minuto", ChronoUnit.MINUTES, "event_logs", "timestamp", false),
+    HORA("event_rollups_hora", ChronoUnit.HOURS, "event_rollups_minuto", "inicio", true);
+
+    private final String coleccion;
+    private final ChronoUnit unidad;
+    private final String coleccionOrigen;
+    private final String campoTiempoOrigen;
+    private final boolean origenResumido;
+
+    GranularidadResumen(String coleccion, ChronoUnit unidad, String coleccionOrigen, String campoTiempoOrigen,
+                        boolean origenResumido) {
+        this.coleccion = coleccion;
+        this.unidad = unidad;
+        this.coleccionOrigen = coleccionOrigen;
+        this.campoTiempoOrigen = campoTiempoOrigen;
+        this.origenResumido = origenResumido;
+    }
+
+    /**
+     * @return Colección donde se guardan los resúmenes.
+     */
+    public String getColeccion() {
+        return coleccion;
+    }
+
+    public ChronoUnit getUnidad() {
+        return unidad;
+    }
+
+    /**
+     * @return Colección de la que se calcula este resumen.
+     */
+    public String getColeccionOrigen() {
+        return coleccionOrigen;
+    }
+
+    public String getCampoTiempoOrigen() {
+        return campoTiempoOrigen;
+    }
+
+    /**
+     * @return true si el origen ya son resúmenes (se suma su cantidad) y false si son eventos sueltos (se cuentan).
+     */
+    public boolean isOrigenResumido() {
+        return origenResumido;
+    }
+}
@@ -4,29 +4,45 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 
+/**
+ * Log de un evento de tarea en MongoDB.
+ * Los índices (TTL sobre timestamp y los compuestos por eventType e idTarea) los crea ResumenEventosService.
+ */
 @Document(collection = "event_logs") // Mapea esta clase a una colección llamada "event_logs" en MongoDB
 public class LogEntry {
 
     @Id // Marca este campo como el ID del documento en MongoDB
-    private String id; // Los IDs de MongoDB suelen ser Strings (UUIDs)
+    // idMensaje del outbox (un ObjectId en hexadecimal, que Spring guarda como ObjectId) o, si falta, lo asigna MongoDB.
+    // En ambos casos crece con el tiempo, así los inserts van al final del índice
+    private String id;
 
     private String message; // El mensaje del log o evento
     private String eventType; // Tipo de evento (ej. "TAREA_CREADA", "TAREA_ELIMINADA", "TAREA_PROGRAMADA")
+    private Long idTarea; // Tarea del evento (null en los eventos por lote sin tarea principal)
     private LocalDateTime timestamp; // Marca de tiempo del evento
 
     public LogEntry() {
-        this.id = UUID.randomUUID().toString(); // Genera un ID único para cada log
         this.timestamp = LocalDateTime.now(); // Establece la marca de tiempo actual
     }
 
     public LogEntry(String message, String eventType) {
-        this(); // Llama al constructor por defecto para inicializar id y timestamp
+        this(); // Llama al constructor por defecto para inicializar el timestamp
         this.message = message;
         this.eventType = eventType;
     }
 
+    public LogEntry(String message, String eventType, Long idTarea) {
+        this(message, eventType);
+        this.idTarea = idTarea;
+    }
+
+    public LogEntry(String id, String message, String eventType, Long idTarea, LocalDateTime timestamp) {
+        this(message, eventType, idTarea);
+        this.id = id;
+        this.timestamp = timestamp;
+    }
+
     // Getters
     public String getId() {
         return id;
@@ -40,6 +56,10 @@ public class LogEntry {
         return eventType;
     }
 
+    public Long getIdTarea() {
+        return idTarea;
+    }
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
@@ -0,0 +1,27 @@
+package com.umg.gestiontareas.modelo;
+
+import java.util.List;
+
+/**
+ * Una página de logs de eventos, del más reciente al más antiguo, obtenida con paginación por cursor
+ * sobre (timestamp, _id). siguienteCursor se pasa como "cursor" en la siguiente solicitud,
+ * o es null si ya no hay más eventos.
+ */
+public class PaginaEventos {
+
+    private final List<LogEntry> eventos;
+    private final String siguienteCursor;
+
+    public PaginaEventos(List<LogEntry> eventos, String siguienteCursor) {
+        this.eventos = eventos;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public List<LogEntry> getEventos() {
+        return eventos;
+    }
+
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+}
@@ -0,0 +1,28 @@
+package com.umg.gestiontareas.modelo;
+
+import java.util.List;
+
+/**
+ * Una página de tareas obtenida con paginación por cursor (keyset).
+ * siguienteCursor es el valor a enviar en la siguiente solicitud (el ID para "despuesDe" en los listados
+ * ordenados por ID, o "<fechaCreacion>_<id>" para "cursor" en los ordenados por fecha),
+ * o null si ya no hay más tareas.
+ */
+public class PaginaTareas {
+
+    private final List<Tarea> tareas;
+    private final String siguienteCursor;
+
+    public PaginaTareas(List<Tarea> tareas, String siguienteCursor) {
+        this.tareas = tareas;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public List<Tarea> getTareas() {
+        return tareas;
+    }
+
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+}
@@ -0,0 +1,44 @@
+package com.umg.gestiontareas.modelo;
+
+import java.util.Map;
+
+/**
+ * Progreso de una tarea y de todas sus subtareas (el subárbol incluye a la propia tarea).
+ * Se obtiene de los agregados que mantiene el árbol en memoria, sin recorrer el subárbol.
+ */
+public class ProgresoTarea {
+
+    private final Long idTarea;
+    private final int totalTareas;
+    private final int tareasCompletadas;
+    private final double porcentajeCompletado;
+    private final Map<String, Integer> conteoPorEstado;
+
+    public ProgresoTarea(Long idTarea, int totalTareas, int tareasCompletadas, Map<String, Integer> conteoPorEstado) {
+        this.idTarea = idTarea;
+        this.totalTareas = totalTareas;
+        this.tareasCompletadas = tareasCompletadas;
+        this.porcentajeCompletado = totalTareas == 0 ? 0 : tareasCompletadas * 100.0 / totalTareas;
+        this.conteoPorEstado = conteoPorEstado;
+    }
+
+    public Long getIdTarea() {
+        return idTarea;
+    }
+
+    public int getTotalTareas() {
+        return totalTareas;
+    }
+
+    public int getTareasCompletadas() {
+        return tareasCompletadas;
+    }
+
+    public double getPorcentajeCompletado() {
+        return porcentajeCompletado;
+    }
+
+    public Map<String, Integer> getConteoPorEstado() {
+        return conteoPorEstado;
+    }
+}
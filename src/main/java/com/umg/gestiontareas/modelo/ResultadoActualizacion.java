@@ -0,0 +1,24 @@
+package com.umg.gestiontareas.modelo;
+
+/**
+ * Resultado de actualizar una tarea (PUT o PATCH) con bloqueo optimista.
+ * @param estado Qué pasó con la actualización.
+ * @param tarea La tarea guardada cuando estado es ACTUALIZADA; null en los demás casos.
+ */
+public record ResultadoActualizacion(Estado estado, Tarea tarea) {
+
+    public enum Estado {
+        ACTUALIZADA,
+        NO_ENCONTRADA,
+        VERSION_DISTINTA, // La versión esperada (If-Match) no es la actual
+        CAMBIOS_INVALIDOS
+    }
+
+    public static ResultadoActualizacion actualizada(Tarea tarea) {
+        return new ResultadoActualizacion(Estado.ACTUALIZADA, tarea);
+    }
+
+    public static ResultadoActualizacion de(Estado estado) {
+        return new ResultadoActualizacion(estado, null);
+    }
+}
@@ -0,0 +1,9 @@
+package com.umg.gestiontareas.modelo;
+
+/**
+ * Una tarea encontrada por la búsqueda por texto.
+ * @param tarea La tarea.
+ * @param puntaje Relevancia (TF-IDF); solo sirve para comparar resultados de una misma búsqueda.
+ */
+public record ResultadoBusqueda(Tarea tarea, double puntaje) {
+}
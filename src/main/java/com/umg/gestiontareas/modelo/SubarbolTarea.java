@@ -0,0 +1,36 @@
+package com.umg.gestiontareas.modelo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Una tarea con sus subtareas anidadas, tal como se devuelve en GET /api/tareas/{id}/subarbol.
+ * Cuando se alcanza el límite de profundidad, las subtareas no se expanden y
+ * subtareasOmitidas indica cuántas subtareas directas quedaron fuera.
+ */
+public class SubarbolTarea {
+
+    private final Tarea tarea;
+    private final List<SubarbolTarea> subtareas = new ArrayList<>();
+    private int subtareasOmitidas;
+
+    public SubarbolTarea(Tarea tarea) {
+        this.tarea = tarea;
+    }
+
+    public Tarea getTarea() {
+        return tarea;
+    }
+
+    public List<SubarbolTarea> getSubtareas() {
+        return subtareas;
+    }
+
+    public int getSubtareasOmitidas() {
+        return subtareasOmitidas;
+    }
+
+    public void setSubtareasOmitidas(int subtareasOmitidas) {
+        this.subtareasOmitidas = subtareasOmitidas;
+    }
+}
@@ -1,10 +1,23 @@
 package com.umg.gestiontareas.modelo;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*; // Si estás usando Spring Data JPA
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDateTime; // Para la fecha y hora de creación
 
 @Entity // Indica que esta clase es una entidad JPA (para la base de datos)
-@Table(name = "tareas") // Especifica el nombre de la tabla en la base de datos
+@Table(name = "tareas", indexes = { // Especifica el nombre de la tabla en la base de datos
+        // Índices para los filtros de clasificación; incluyen fecha_creacion para que los listados ordenados por fecha
+        // (estado-ordenado, prioridad-ordenada) no ordenen aparte. Los filtros simples se ordenan por ID y solo los usan para filtrar.
+        @Index(name = "idx_tareas_estado_fecha", columnList = "estado, fecha_creacion"),
+        @Index(name = "idx_tareas_prioridad_fecha", columnList = "prioridad, fecha_creacion"),
+        @Index(name = "idx_tareas_tipo_fecha", columnList = "tipo, fecha_creacion"),
+        // Índice para el filtro combinado (estado + prioridad + tipo + rango de fechas). Con los tres valores fijos,
+        // InnoDB lo recorre en orden (fecha_creacion, id), el mismo del cursor, así que filtra y ordena a la vez
+        @Index(name = "idx_tareas_clasificacion", columnList = "estado, prioridad, tipo, fecha_creacion"),
+        @Index(name = "idx_tareas_id_padre", columnList = "id_tarea_padre")
+})
+@DynamicUpdate // Los UPDATE incluyen solo las columnas que cambiaron
 public class Tarea {
 
     @Id // Indica que este atributo es la clave primaria
@@ -27,6 +40,13 @@ public class Tarea {
 
     private Long idTareaPadre; // Para almacenar el ID de la tarea padre en la DB
 
+    // Versión para el bloqueo optimista: cada UPDATE la incrementa y falla si otro la cambió antes.
+    // El cliente no la envía en el cuerpo; la recibe como ETag y la devuelve en If-Match.
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     // ¡NUEVO ATRIBUTO PARA LA RELACIÓN PADRE-HIJO!
     // Usamos @ManyToOne para indicar que muchas subtareas pueden tener un solo padre.
     // @JoinColumn especifica la columna de la clave foránea en la tabla 'tareas'
@@ -50,6 +70,24 @@ public class Tarea {
         this.fechaCreacion = LocalDateTime.now();
     }
 
+    /**
+     * Crea una copia con los mismos valores (útil para guardar el estado anterior de una tarea).
+     * @param otra La tarea a copiar.
+     */
+    public Tarea(Tarea otra) {
+        this.id = otra.id;
+        this.titulo = otra.titulo;
+        this.descripcion = otra.descripcion;
+        this.estado = otra.estado;
+        this.prioridad = otra.prioridad;
+        this.tipo = otra.tipo;
+        this.fechaCreacion = otra.fechaCreacion;
+        this.fechaCompletada = otra.fechaCompletada;
+        this.idTareaPadre = otra.idTareaPadre;
+        this.version = otra.version;
+        this.tareaPadre = otra.tareaPadre;
+    }
+
     // Getters para todos los atributos
     public Long getId() {
         return id;
@@ -95,6 +133,14 @@ public class Tarea {
         this.idTareaPadre = idTareaPadre;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     // Setters para los atributos que necesites modificar
     // ¡AÑADE ESTE SETTER!
     public void setId(Long id) { // Este ya lo debiste haber añadido en el paso anterior
@@ -121,6 +167,10 @@ public class Tarea {
         this.tipo = tipo;
     }
 
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
     public void setFechaCompletada(LocalDateTime fechaCompletada) {
         this.fechaCompletada = fechaCompletada;
     }
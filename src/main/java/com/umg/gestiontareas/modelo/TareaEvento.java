@@ -0,0 +1,82 @@
+package com.umg.gestiontareas.modelo;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Evento estructurado de una tarea, publicado en RabbitMQ como JSON (content-type application/json).
+ * Los campos null o vacíos no se serializan, y los nombres largos se envían abreviados ("id", "padre", "ts",
+ * "campos", "ids"); los nombres completos se siguen aceptando al leer, para los eventos que ya estaban
+ * en el outbox o en la cola.
+ * @param tipo Tipo de evento.
+ * @param idTarea ID de la tarea afectada.
+ * @param idPadre ID de la tarea padre, si aplica.
+ * @param timestamp Momento del evento en milisegundos desde epoch.
+ * @param camposCambiados Campos modificados (solo en actualizaciones).
+ * @param detalle Información adicional, por ejemplo la acción que se deshizo.
+ * @param idsAfectados IDs de todas las tareas afectadas (solo en operaciones por lote).
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record TareaEvento(TipoEventoTarea tipo,
+                          @JsonProperty("id") @JsonAlias("idTarea") Long idTarea,
+                          @JsonProperty("padre") @JsonAlias("idPadre") Long idPadre,
+                          @JsonProperty("ts") @JsonAlias("timestamp") long timestamp,
+                          @JsonProperty("campos") @JsonAlias("camposCambiados") List<String> camposCambiados,
+                          String detalle,
+                          @JsonProperty("ids") @JsonAlias("idsAfectados") List<Long> idsAfectados) {
+
+    public static TareaEvento de(TipoEventoTarea tipo, Tarea tarea) {
+        return new TareaEvento(tipo, tarea.getId(), tarea.getIdTareaPadre(), System.currentTimeMillis(), null, null, null);
+    }
+
+    public static TareaEvento actualizacion(Tarea tarea, List<String> camposCambiados) {
+        return new TareaEvento(TipoEventoTarea.TAREA_ACTUALIZADA, tarea.getId(), tarea.getIdTareaPadre(),
+                System.currentTimeMillis(), camposCambiados, null, null);
+    }
+
+    public static TareaEvento deshecha(String accion, Long idTarea) {
+        return new TareaEvento(TipoEventoTarea.ACCION_DESHECHA, idTarea, null, System.currentTimeMillis(), null, accion, null);
+    }
+
+    /**
+     * Evento agregado de una operación por lote: un solo mensaje para todas las tareas afectadas.
+     */
+    public static TareaEvento lote(TipoEventoTarea tipo, List<Long> idsAfectados) {
+        return new TareaEvento(tipo, null, null, System.currentTimeMillis(), null, null, idsAfectados);
+    }
+
+    /**
+     * Evento de una operación en cascada sobre el subárbol de idTarea.
+     */
+    public static TareaEvento cascada(TipoEventoTarea tipo, Long idTarea, List<Long> idsAfectados) {
+        return new TareaEvento(tipo, idTarea, null, System.currentTimeMillis(), null, null, idsAfectados);
+    }
+
+    /**
+     * @return Descripción legible del evento, usada como mensaje del log.
+     */
+    public String describir() {
+        StringBuilder texto = new StringBuilder(tipo.getDescripcion()).append(":");
+        if (idsAfectados != null && !idsAfectados.isEmpty()) {
+            if (idTarea != null) {
+                texto.append(" ID ").append(idTarea).append(",");
+            }
+            texto.append(" ").append(idsAfectados.size()).append(" tareas afectadas");
+        } else {
+            texto.append(" ID ").append(idTarea);
+        }
+        if (idPadre != null) {
+            texto.append(", Padre ID: ").append(idPadre);
+        }
+        if (camposCambiados != null && !camposCambiados.isEmpty()) {
+            texto.append(", Campos: ").append(String.join(",", camposCambiados));
+        }
+        if (detalle != null) {
+            texto.append(", Detalle: ").append(detalle);
+        }
+        return texto.toString();
+    }
+}
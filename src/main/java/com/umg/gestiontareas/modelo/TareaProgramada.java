@@ -0,0 +1,113 @@
+package com.umg.gestiontareas.modelo;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Tarea en espera de ser procesada por el planificador.
+ * Se persiste en MySQL para que la programación sobreviva a un reinicio.
+ * Guarda una copia de los datos de la tarea al momento de programarla.
+ */
+@Entity
+@Table(name = "tareas_programadas", indexes = {
+        // Mismo orden que usa el planificador: prioridad, luego fecha de ejecución, luego orden de llegada
+        @Index(name = "idx_programadas_orden", columnList = "rango_prioridad, fecha_ejecucion, id")
+})
+public class TareaProgramada {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long idTarea;
+
+    private String titulo;
+
+    private String descripcion;
+
+    private String estado;
+
+    private String prioridad;
+
+    private String tipo;
+
+    private int rangoPrioridad; // 0 = ALTA, 1 = MEDIA, 2 = BAJA, 3 = sin prioridad conocida
+
+    private LocalDateTime fechaEjecucion;
+
+    private LocalDateTime fechaProgramacion;
+
+    public TareaProgramada() {
+    }
+
+    public TareaProgramada(Tarea tarea, LocalDateTime fechaEjecucion) {
+        this.idTarea = tarea.getId();
+        this.titulo = tarea.getTitulo();
+        this.descripcion = tarea.getDescripcion();
+        this.estado = tarea.getEstado();
+        this.prioridad = tarea.getPrioridad();
+        this.tipo = tarea.getTipo();
+        this.rangoPrioridad = rangoDePrioridad(tarea.getPrioridad());
+        this.fechaProgramacion = LocalDateTime.now();
+        this.fechaEjecucion = fechaEjecucion != null ? fechaEjecucion : this.fechaProgramacion;
+    }
+
+    /**
+     * Convierte una prioridad en su rango de orden: ALTA antes que MEDIA antes que BAJA.
+     * @param prioridad La prioridad de la tarea.
+     * @return El rango (menor se procesa primero).
+     */
+    public static int rangoDePrioridad(String prioridad) {
+        if (prioridad == null) {
+            return 3;
+        }
+        switch (prioridad.toUpperCase()) {
+            case "ALTA":
+                return 0;
+            case "MEDIA":
+                return 1;
+            case "BAJA":
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    /**
+     * Reconstruye la tarea con los datos guardados al programarla.
+     * @return La tarea programada.
+     */
+    public Tarea aTarea() {
+        Tarea tarea = new Tarea(titulo, descripcion, estado, prioridad, tipo);
+        tarea.setId(idTarea);
+        return tarea;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getIdTarea() {
+        return idTarea;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public String getPrioridad() {
+        return prioridad;
+    }
+
+    public int getRangoPrioridad() {
+        return rangoPrioridad;
+    }
+
+    public LocalDateTime getFechaEjecucion() {
+        return fechaEjecucion;
+    }
+
+    public LocalDateTime getFechaProgramacion() {
+        return fechaProgramacion;
+    }
+}
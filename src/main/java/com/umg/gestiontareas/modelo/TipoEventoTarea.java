@@ -0,0 +1,30 @@
+package com.umg.gestiontareas.modelo;
+
+/**
+ * Tipos de eventos de tareas que se publican en RabbitMQ.
+ * El nombre de cada constante es el eventType que se guarda en MongoDB.
+ */
+public enum TipoEventoTarea {
+    TAREA_CREADA("Tarea creada"),
+    SUBTAREA_CREADA("Subtarea creada"),
+    TAREA_ACTUALIZADA("Tarea actualizada"),
+    TAREA_ELIMINADA("Tarea eliminada"),
+    TAREA_COMPLETADA("Tarea completada"),
+    TAREA_PROGRAMADA("Tarea programada"),
+    TAREA_PROCESADA("Tarea procesada"),
+    TAREAS_CREADAS_LOTE("Tareas creadas en lote"),
+    TAREAS_COMPLETADAS_LOTE("Tareas completadas en lote"),
+    SUBARBOL_ELIMINADO("Subárbol eliminado"),
+    SUBARBOL_COMPLETADO("Subárbol completado"),
+    ACCION_DESHECHA("Acción deshecha");
+
+    private final String descripcion;
+
+    TipoEventoTarea(String descripcion) {
+        this.descripcion = descripcion;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+}
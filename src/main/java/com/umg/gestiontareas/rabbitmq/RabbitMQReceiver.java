@@ -2,48 +2,169 @@ package com.umg.gestiontareas.rabbitmq; // Asegúrate de que este paquete sea el
 
 import com.umg.gestiontareas.config.RabbitMQConfig;
 import com.umg.gestiontareas.modelo.LogEntry; // Importa la nueva entidad LogEntry
-import com.umg.gestiontareas.repositorio.LogEntryRepository; // Importa el nuevo repositorio
+import com.umg.gestiontareas.modelo.TareaEvento;
+import com.umg.gestiontareas.servicios.ResumenEventosService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Receptor de eventos de tareas (TareaEvento en JSON) que los registra en MongoDB.
+ * El eventType se toma directamente del tipo del evento, sin analizar texto.
+ * Tiene dos modos, elegidos con gestion.rabbitmq.receptor.modo:
+ * "lote" (por defecto) guarda cada lote con un solo insertMany no ordenado;
+ * "individual" guarda un documento por mensaje.
+ * El messageId de cada mensaje (idMensaje del outbox) se usa como _id del log, así que un evento
+ * publicado más de una vez (reintento del publicador o reenvío) se guarda una sola vez: los repetidos se ignoran.
+ * El timestamp del log es el del evento, no el de su llegada, para que un reenvío conserve la fecha original.
+ * Si esa fecha cae en minutos que ResumenEventosService ya resumió, se le pide que los vuelva a contar;
+ * si eso falla, el mensaje se rechaza y al volver a entregarse (ya como repetido) se reintenta el recuento.
+ * Registra la latencia de escritura en MongoDB, el retraso de cada evento desde que se publicó
+ * y los errores de consumo.
+ */
 @Component // Indica que esta clase es un componente de Spring
 public class RabbitMQReceiver {
 
-    private static final Logger LOGGER = Logger.getLogger(RabbitMQReceiver.class.getName());
+    private static final Logger LOGGER = LoggerFactory.getLogger(RabbitMQReceiver.class);
+
+    // Código de MongoDB para "clave duplicada"
+    private static final int CLAVE_DUPLICADA = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
 
     @Autowired
-    private LogEntryRepository logEntryRepository; // Inyecta el repositorio de logs de MongoDB
-
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_NAME)
-    public void receiveMessage(String message) {
-        LOGGER.log(Level.INFO, "Mensaje recibido de RabbitMQ: {0}", message);
-
-        // Opcional: Extraer el tipo de evento del mensaje si el formato lo permite
-        // Por ahora, lo ponemos como un String simple, pero podrías parsear el mensaje
-        String eventType = "TAREA_EVENTO";
-        if (message.contains("Tarea creada")) {
-            eventType = "TAREA_CREADA";
-        } else if (message.contains("Tarea actualizada")) {
-            eventType = "TAREA_ACTUALIZADA";
-        } else if (message.contains("Tarea eliminada")) {
-            eventType = "TAREA_ELIMINADA";
-        } else if (message.contains("Tarea completada")) {
-            eventType = "TAREA_COMPLETADA";
-        } else if (message.contains("Tarea programada")) {
-            eventType = "TAREA_PROGRAMADA";
-        } else if (message.contains("Tarea procesada")) {
-            eventType = "TAREA_PROCESADA";
-        } else if (message.contains("Subtarea creada")) { // Para el nuevo evento de subtarea
-            eventType = "SUBTAREA_CREADA";
+    private ResumenEventosService resumenEventosService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer escrituraIndividual;
+    private Timer escrituraLote;
+    private Timer retrasoEventos;
+    private Counter erroresConsumo;
+
+    @PostConstruct
+    public void registrarMetricas() {
+        escrituraIndividual = Timer.builder("gestion.mongo.escritura")
+                .description("Escritura de logs de eventos en MongoDB")
+                .tag("modo", "individual")
+                .register(meterRegistry);
+        escrituraLote = Timer.builder("gestion.mongo.escritura")
+                .description("Escritura de logs de eventos en MongoDB")
+                .tag("modo", "lote")
+                .register(meterRegistry);
+        retrasoEventos = Timer.builder("gestion.rabbitmq.consumo.retraso")
+                .description("Tiempo entre la creación de un evento y su registro en MongoDB")
+                .register(meterRegistry);
+        erroresConsumo = Counter.builder("gestion.rabbitmq.consumo.errores")
+                .description("Mensajes o lotes cuyo procesamiento falló")
+                .register(meterRegistry);
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_NAME,
+            autoStartup = "#{'${gestion.rabbitmq.receptor.modo:lote}' == 'individual'}")
+    public void receiveMessage(TareaEvento evento,
+                               @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String idMensaje) {
+        LOGGER.debug("Evento recibido de RabbitMQ: {} (ID {})", evento.tipo(), evento.idTarea());
+
+        // Crear y guardar el log en MongoDB; insert (no save) para que un repetido falle en lugar de reemplazarse
+        LogEntry logEntry = crearLogEntry(evento, idMensaje);
+        try {
+            escrituraIndividual.record(() -> mongoTemplate.insert(logEntry));
+        } catch (DuplicateKeyException e) {
+            LOGGER.debug("Evento {} repetido; ya estaba registrado en MongoDB.", idMensaje);
+            reabrirResumenes(List.of(logEntry));
+            return;
+        } catch (RuntimeException e) {
+            erroresConsumo.increment();
+            throw e;
+        }
+        reabrirResumenes(List.of(logEntry));
+        registrarRetraso(evento);
+        LOGGER.debug("Log de evento guardado en MongoDB: {}", logEntry.getId());
+    }
+
+    /**
+     * Recibe un lote de eventos y los guarda en MongoDB con una sola escritura no ordenada.
+     * Si la escritura falla, la excepción hace que el lote completo se rechace y se vuelva a entregar;
+     * como la escritura no es ordenada, los eventos repetidos no impiden guardar el resto del lote.
+     * @param mensajes Los eventos del lote, con sus cabeceras.
+     */
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_NAME, containerFactory = "loteListenerContainerFactory",
+            autoStartup = "#{'${gestion.rabbitmq.receptor.modo:lote}' == 'lote'}")
+    public void receiveLote(List<Message<TareaEvento>> mensajes) {
+        LOGGER.debug("Lote de {} eventos recibido de RabbitMQ.", mensajes.size());
+        List<LogEntry> entradas = new ArrayList<>(mensajes.size());
+        for (Message<TareaEvento> mensaje : mensajes) {
+            entradas.add(crearLogEntry(mensaje.getPayload(), mensaje.getHeaders().get(AmqpHeaders.MESSAGE_ID, String.class)));
+        }
+        int repetidos = 0;
+        try {
+            escrituraLote.record(() -> mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LogEntry.class)
+                    .insert(entradas)
+                    .execute());
+        } catch (BulkOperationException e) {
+            if (!e.getErrors().stream().allMatch(error -> error.getCode() == CLAVE_DUPLICADA)) {
+                erroresConsumo.increment();
+                throw e;
+            }
+            repetidos = e.getErrors().size();
+        } catch (RuntimeException e) {
+            erroresConsumo.increment();
+            throw e;
+        }
+        reabrirResumenes(entradas);
+        mensajes.forEach(mensaje -> registrarRetraso(mensaje.getPayload()));
+        LOGGER.info("Lote de {} logs de eventos guardado en MongoDB ({} repetidos ignorados).",
+                entradas.size() - repetidos, repetidos);
+    }
+
+    // Los repetidos también se informan: si el recuento falló en la entrega anterior, se reintenta ahora
+    private void reabrirResumenes(List<LogEntry> entradas) {
+        List<Instant> momentos = new ArrayList<>(entradas.size());
+        for (LogEntry entrada : entradas) {
+            momentos.add(entrada.getTimestamp().atZone(ZoneId.systemDefault()).toInstant());
         }
+        try {
+            resumenEventosService.reabrirPeriodos(momentos);
+        } catch (RuntimeException e) {
+            erroresConsumo.increment();
+            throw e;
+        }
+    }
+
+    private void registrarRetraso(TareaEvento evento) {
+        if (evento.timestamp() > 0) {
+            retrasoEventos.record(Math.max(0, System.currentTimeMillis() - evento.timestamp()), TimeUnit.MILLISECONDS);
+        }
+    }
 
-        // Crear y guardar el log en MongoDB
-        LogEntry logEntry = new LogEntry(message, eventType);
-        logEntryRepository.save(logEntry);
-        LOGGER.log(Level.INFO, "Log de evento guardado en MongoDB: {0}", logEntry.getId());
+    // Sin messageId (mensajes publicados antes del outbox) MongoDB asigna un ObjectId nuevo
+    private static LogEntry crearLogEntry(TareaEvento evento, String idMensaje) {
+        LocalDateTime momento = evento.timestamp() > 0
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(evento.timestamp()), ZoneId.systemDefault())
+                : LocalDateTime.now();
+        return new LogEntry(idMensaje, evento.describir(), evento.tipo().name(), evento.idTarea(), momento);
     }
 }
@@ -1,35 +1,293 @@
 package com.umg.gestiontareas.servicios; // Asegúrate de que este paquete sea el correcto
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.umg.gestiontareas.config.RabbitMQConfig;
+import com.umg.gestiontareas.modelo.EventoOutbox;
+import com.umg.gestiontareas.modelo.TareaEvento;
+import com.umg.gestiontareas.repositorio.EventoOutboxRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Publicador de eventos del outbox (tabla eventos_outbox) hacia RabbitMQ.
+ * Un hilo en segundo plano lee los eventos pendientes en orden, los publica en lotes esperando
+ * la confirmación del broker (publisher confirms) y recién entonces los marca como publicados.
+ * Cada mensaje lleva como messageId el idMensaje del evento. La entrega es "al menos una vez":
+ * si la aplicación se detiene entre publicar y marcar, el lote se vuelve a publicar y el receptor descarta los repetidos.
+ * Sondea cada espera-lote-ms, pero OutboxEventos lo despierta en cuanto se confirma una transacción con eventos.
+ * Cada lote se toma con SELECT ... FOR UPDATE SKIP LOCKED dentro de una transacción que dura hasta marcarlo,
+ * así que con varias instancias cada evento lo publica una sola de ellas.
+ * Los mensajes llevan además el ID de este publicador y un número de secuencia consecutivo
+ * (cabeceras x-publicador y x-secuencia), con los que ReplicacionReceiver detecta mensajes perdidos.
+ * Un número nunca se reutiliza: si un lote falla, parte de él pudo llegar al broker con esos números,
+ * así que el reintento usa números nuevos y los receptores ven un hueco y resincronizan.
+ */
 @Component // Indica que esta clase es un componente de Spring
 public class RabbitMQSender {
 
-    private static final Logger LOGGER = Logger.getLogger(RabbitMQSender.class.getName());
+    private static final Logger LOGGER = LoggerFactory.getLogger(RabbitMQSender.class);
+
+    private static final long ESPERA_REINTENTO_INICIAL_MS = 500;
+    private static final long ESPERA_REINTENTO_MAXIMA_MS = 30_000;
 
     @Autowired
     private RabbitTemplate rabbitTemplate; // Spring Boot autoconfigura esto con tus propiedades
 
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${gestion.rabbitmq.publicador.tamano-lote:100}")
+    private int tamanoLote;
+
+    @Value("${gestion.rabbitmq.publicador.espera-lote-ms:500}")
+    private long esperaLoteMs;
+
+    @Value("${gestion.rabbitmq.publicador.timeout-confirmacion-ms:5000}")
+    private long timeoutConfirmacionMs;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean hilosVirtuales;
+
+    // Permisos = avisos de eventos nuevos; el hilo publicador espera uno o, a lo sumo, espera-lote-ms
+    private final Semaphore avisos = new Semaphore(0);
+    private volatile boolean activo;
+    private Thread hiloPublicador;
+
+    // Identifica a este publicador ante los receptores; la secuencia solo la usa el hilo publicador
+    private final String idPublicador = UUID.randomUUID().toString();
+    private long secuencia;
+
+    // Métricas del publicador
+    private final AtomicLong mensajesPublicados = new AtomicLong();
+    private final AtomicLong lotesPublicados = new AtomicLong();
+    private final AtomicLong fallosPublicacion = new AtomicLong();
+    private volatile int ultimoTamanoLote;
+    private volatile long ultimaLatenciaConfirmacionMs;
+    private final AtomicLong latenciaConfirmacionTotalMs = new AtomicLong();
+    private volatile long pendientes;
+    private Timer temporizadorPublicacion;
+
+    @PostConstruct
+    public void iniciar() {
+        registrarMetricas();
+        activo = true;
+        if (hilosVirtuales) {
+            hiloPublicador = Thread.ofVirtual().name("rabbitmq-publicador").start(this::ejecutarPublicacion);
+        } else {
+            hiloPublicador = new Thread(this::ejecutarPublicacion, "rabbitmq-publicador");
+            hiloPublicador.setDaemon(true);
+            hiloPublicador.start();
+        }
+        LOGGER.info("Publicador del outbox hacia RabbitMQ iniciado (lote={}, sondeo={} ms).", tamanoLote, esperaLoteMs);
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        activo = false;
+        avisos.release();
+        hiloPublicador.join(timeoutConfirmacionMs * 2);
+        // Lo que no se alcanzó a publicar sigue en el outbox para el siguiente arranque
+        LOGGER.info("Publicador del outbox hacia RabbitMQ detenido.");
+    }
+
+    /**
+     * Avisa que hay eventos nuevos en el outbox, para publicarlos sin esperar al siguiente sondeo.
+     */
+    public void despertar() {
+        if (avisos.availablePermits() == 0) {
+            avisos.release();
+        }
+    }
+
+    // Expone las métricas del publicador en Micrometer (prefijo gestion.rabbitmq.publicador)
+    private void registrarMetricas() {
+        temporizadorPublicacion = Timer.builder("gestion.rabbitmq.publicador.lote")
+                .description("Tiempo de publicar un lote y recibir su confirmación del broker")
+                .register(meterRegistry);
+        Gauge.builder("gestion.rabbitmq.publicador.pendientes", this, RabbitMQSender::getPendientes)
+                .description("Eventos del outbox pendientes de publicar (según la última lectura)")
+                .register(meterRegistry);
+        FunctionCounter.builder("gestion.rabbitmq.publicador.mensajes", mensajesPublicados, AtomicLong::get)
+                .description("Mensajes publicados y confirmados")
+                .register(meterRegistry);
+        FunctionCounter.builder("gestion.rabbitmq.publicador.fallos", fallosPublicacion, AtomicLong::get)
+                .description("Intentos de publicación de un lote que fallaron")
+                .register(meterRegistry);
+    }
+
+    private void ejecutarPublicacion() {
+        long espera = ESPERA_REINTENTO_INICIAL_MS;
+        while (activo) {
+            try {
+                Integer publicados = transactionTemplate.execute(estado -> publicarPendientes());
+                if (publicados == null || publicados == 0) {
+                    avisos.tryAcquire(esperaLoteMs, TimeUnit.MILLISECONDS);
+                    avisos.drainPermits();
+                }
+                espera = ESPERA_REINTENTO_INICIAL_MS;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (AmqpException e) {
+                // La transacción se revirtió: el lote sigue pendiente y sin bloquear mientras se espera
+                fallosPublicacion.incrementAndGet();
+                LOGGER.warn("No se pudo publicar un lote de mensajes; reintentando en {} ms: {}", espera, e.getMessage());
+                esperar(espera);
+                espera = Math.min(espera * 2, ESPERA_REINTENTO_MAXIMA_MS);
+            } catch (DataAccessException | TransactionException e) {
+                LOGGER.warn("No se pudo leer o actualizar el outbox de eventos; se reintenta en {} ms: {}",
+                        esperaLoteMs, e.getMessage());
+                esperar(esperaLoteMs);
+            }
+        }
+    }
+
+    // Toma un lote de pendientes, lo publica y lo marca, todo dentro de la transacción en curso.
+    // Si la publicación falla, la excepción revierte la transacción y libera los eventos.
+    private int publicarPendientes() {
+        List<EventoOutbox> lote = eventoOutboxRepository.reclamarPendientes(tamanoLote);
+        if (lote.size() < tamanoLote) {
+            pendientes = lote.size(); // Un lote incompleto ya trae todos los pendientes; con lotes llenos cuenta contarPendientes
+        }
+        if (lote.isEmpty()) {
+            return 0;
+        }
+        publicarLote(lote);
+        eventoOutboxRepository.marcarPublicados(lote.stream().map(EventoOutbox::getId).toList(), LocalDateTime.now());
+        return lote.size();
+    }
+
     /**
-     * Envía un mensaje de texto a RabbitMQ.
-     * @param message El mensaje a enviar.
+     * Actualiza la métrica de pendientes con un conteo del outbox. Va en su propio ciclo, fuera de la transacción
+     * del publicador, para no recorrer el índice de pendientes mientras se tienen bloqueadas las filas de un lote.
      */
-    public void sendTareaEvent(String message) {
-        LOGGER.log(Level.INFO, "Enviando mensaje a RabbitMQ: {0}", message);
-        rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY, message);
-        LOGGER.log(Level.INFO, "Mensaje enviado exitosamente.");
-    }
-
-    // Opcional: Si quieres enviar objetos Tarea directamente (requiere configuración de Jackson en RabbitMQConfig)
-    // public void sendTareaObject(Tarea tarea) {
-    //     LOGGER.log(Level.INFO, "Enviando objeto Tarea a RabbitMQ: {0}", tarea.getTitulo());
-    //     rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY, tarea);
-    //     LOGGER.log(Level.INFO, "Objeto Tarea enviado exitosamente.");
-    // }
-}
\ No newline at end of file
+    @Scheduled(initialDelayString = "${gestion.rabbitmq.publicador.conteo-pendientes-ms:15000}",
+            fixedDelayString = "${gestion.rabbitmq.publicador.conteo-pendientes-ms:15000}")
+    public void contarPendientes() {
+        try {
+            pendientes = eventoOutboxRepository.countByFechaPublicacionIsNull();
+        } catch (DataAccessException e) {
+            LOGGER.warn("No se pudieron contar los eventos pendientes del outbox: {}", e.getMessage());
+        }
+    }
+
+    private void publicarLote(List<EventoOutbox> lote) {
+        List<TareaEvento> eventos = new ArrayList<>(lote.size());
+        for (EventoOutbox pendiente : lote) {
+            eventos.add(leerEvento(pendiente));
+        }
+        long inicio = System.nanoTime();
+        rabbitTemplate.invoke(operaciones -> {
+            for (int i = 0; i < lote.size(); i++) {
+                if (eventos.get(i) == null) {
+                    continue;
+                }
+                String idMensaje = lote.get(i).getIdMensaje();
+                long numero = ++secuencia;
+                operaciones.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.ROUTING_KEY, eventos.get(i), mensaje -> {
+                    mensaje.getMessageProperties().setMessageId(idMensaje);
+                    mensaje.getMessageProperties().setHeader(RabbitMQConfig.CABECERA_PUBLICADOR, idPublicador);
+                    mensaje.getMessageProperties().setHeader(RabbitMQConfig.CABECERA_SECUENCIA, numero);
+                    return mensaje;
+                });
+            }
+            operaciones.waitForConfirmsOrDie(timeoutConfirmacionMs);
+            return null;
+        });
+        long latenciaNanos = System.nanoTime() - inicio;
+        temporizadorPublicacion.record(latenciaNanos, TimeUnit.NANOSECONDS);
+        long latenciaMs = latenciaNanos / 1_000_000;
+        ultimaLatenciaConfirmacionMs = latenciaMs;
+        latenciaConfirmacionTotalMs.addAndGet(latenciaMs);
+        ultimoTamanoLote = lote.size();
+        lotesPublicados.incrementAndGet();
+        mensajesPublicados.addAndGet(lote.size());
+        LOGGER.debug("Lote de {} mensajes confirmado en {} ms.", lote.size(), latenciaMs);
+    }
+
+    // Un evento que no se puede leer nunca se podrá publicar: se registra el error y se marca junto con el lote
+    private TareaEvento leerEvento(EventoOutbox pendiente) {
+        try {
+            return objectMapper.readValue(pendiente.getCarga(), TareaEvento.class);
+        } catch (JsonProcessingException e) {
+            LOGGER.error("Evento {} del outbox ilegible; se descarta: {}", pendiente.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static void esperar(long milisegundos) {
+        try {
+            Thread.sleep(milisegundos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Métricas para monitoreo del publicador
+
+    public String getIdPublicador() {
+        return idPublicador;
+    }
+
+    public long getPendientes() {
+        return pendientes;
+    }
+
+    public long getMensajesPublicados() {
+        return mensajesPublicados.get();
+    }
+
+    public long getLotesPublicados() {
+        return lotesPublicados.get();
+    }
+
+    public int getUltimoTamanoLote() {
+        return ultimoTamanoLote;
+    }
+
+    public long getUltimaLatenciaConfirmacionMs() {
+        return ultimaLatenciaConfirmacionMs;
+    }
+
+    public double getLatenciaConfirmacionPromedioMs() {
+        long lotes = lotesPublicados.get();
+        return lotes == 0 ? 0 : (double) latenciaConfirmacionTotalMs.get() / lotes;
+    }
+
+    public long getFallosPublicacion() {
+        return fallosPublicacion.get();
+    }
+}
@@ -0,0 +1,154 @@
+package com.umg.gestiontareas.rabbitmq;
+
+import com.umg.gestiontareas.config.RabbitMQConfig;
+import com.umg.gestiontareas.modelo.TareaEvento;
+import com.umg.gestiontareas.servicios.TareaService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.listener.AsyncConsumerStartedEvent;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Receptor de replicación entre instancias (gestion.instancias.modo=multiple).
+ * Cada instancia consume su propia cola anónima enlazada al fanout gestionTareasReplicacion y aplica
+ * los eventos de todas las instancias (incluida ella misma) a su árbol, índice y caché,
+ * leyendo de MySQL el estado actual de las tareas afectadas.
+ * Detecta mensajes perdidos con la secuencia de cada publicador (cabeceras x-publicador y x-secuencia):
+ * ante un hueco, o cuando el consumidor (re)arranca y la cola pudo haberse recreado vacía,
+ * reconstruye todo desde MySQL con TareaService.resincronizar().
+ * Esa primera resincronización es también la carga inicial del árbol en este modo; si al terminar de arrancar
+ * la aplicación el consumidor todavía no se conectó (RabbitMQ caído), el árbol se carga igual desde MySQL.
+ */
+@Component
+@ConditionalOnProperty(name = "gestion.instancias.modo", havingValue = "multiple")
+public class ReplicacionReceiver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicacionReceiver.class);
+
+    private static final String ID_LISTENER = "replicacion";
+
+    @Autowired
+    private TareaService tareaService;
+
+    @Autowired
+    private RabbitListenerEndpointRegistry registroListeners;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Última secuencia vista de cada publicador
+    private final Map<String, Long> ultimasSecuencias = new ConcurrentHashMap<>();
+
+    private volatile boolean sincronizado;
+
+    private Counter eventosAplicados;
+    private Counter resincronizaciones;
+
+    @PostConstruct
+    public void registrarMetricas() {
+        eventosAplicados = Counter.builder("gestion.replicacion.eventos")
+                .description("Eventos de replicación aplicados al árbol en memoria")
+                .register(meterRegistry);
+        resincronizaciones = Counter.builder("gestion.replicacion.resincronizaciones")
+                .description("Reconstrucciones completas del árbol desde MySQL")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Un solo consumidor, para aplicar los eventos en el orden en que se publicaron.
+     */
+    @RabbitListener(id = ID_LISTENER, queues = "#{colaReplicacion.name}", concurrency = "1")
+    public void recibirEvento(TareaEvento evento,
+                              @Header(name = RabbitMQConfig.CABECERA_PUBLICADOR, required = false) String publicador,
+                              @Header(name = RabbitMQConfig.CABECERA_SECUENCIA, required = false) Long secuencia) {
+        if (hayHueco(publicador, secuencia)) {
+            LOGGER.warn("Se perdieron eventos del publicador {} antes de la secuencia {}; resincronizando.",
+                    publicador, secuencia);
+            resincronizar();
+            return; // La reconstrucción ya incluye este evento
+        }
+        aplicar(evento);
+    }
+
+    // Al (re)arrancar el consumidor la cola anónima pudo recrearse vacía: lo publicado mientras tanto se perdió
+    @EventListener
+    public void alIniciarConsumidor(AsyncConsumerStartedEvent evento) {
+        if (evento.getSource() == registroListeners.getListenerContainer(ID_LISTENER)) {
+            LOGGER.info("Consumidor de replicación iniciado; resincronizando el árbol.");
+            resincronizar();
+        }
+    }
+
+    // Sin consumidor todavía, el árbol estaría vacío hasta que RabbitMQ responda
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciarAplicacion() {
+        if (!sincronizado) {
+            LOGGER.warn("El consumidor de replicación todavía no se conectó; cargando el árbol desde MySQL.");
+            resincronizar();
+        }
+    }
+
+    // Registra la secuencia y devuelve true si faltan mensajes entre la anterior y esta.
+    // Una secuencia repetida o menor (reintento del publicador) no es hueco y el evento se aplica igual.
+    private boolean hayHueco(String publicador, Long secuencia) {
+        if (publicador == null || secuencia == null) {
+            return false;
+        }
+        Long ultima = ultimasSecuencias.get(publicador);
+        if (ultima != null && secuencia <= ultima) {
+            return false;
+        }
+        ultimasSecuencias.put(publicador, secuencia);
+        return ultima != null && secuencia > ultima + 1;
+    }
+
+    private void aplicar(TareaEvento evento) {
+        switch (evento.tipo()) {
+            case TAREA_PROGRAMADA, TAREA_PROCESADA:
+                return; // No cambian tareas; la cola de programadas ya es compartida en MySQL
+            case ACCION_DESHECHA:
+                // Deshacer un lote o una eliminación en cascada no dice qué tareas volvieron
+                if (evento.idTarea() == null || "ELIMINAR_CASCADA".equals(evento.detalle())) {
+                    resincronizar();
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        List<Long> ids = new ArrayList<>();
+        if (evento.idTarea() != null) {
+            ids.add(evento.idTarea());
+        }
+        if (evento.idsAfectados() != null) {
+            ids.addAll(evento.idsAfectados());
+        }
+        if (!ids.isEmpty()) {
+            tareaService.aplicarCambiosExternos(ids);
+            eventosAplicados.increment();
+        }
+    }
+
+    // Olvida las secuencias antes de leer MySQL: lo que llegue después se acepta como punto de partida
+    private void resincronizar() {
+        ultimasSecuencias.clear();
+        tareaService.resincronizar();
+        sincronizado = true;
+        resincronizaciones.increment();
+    }
+}
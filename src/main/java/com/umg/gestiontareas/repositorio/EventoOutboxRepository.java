@@ -0,0 +1,52 @@
+package com.umg.gestiontareas.repositorio;
+
+import com.umg.gestiontareas.modelo.EventoOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    /**
+     * Toma y bloquea hasta 'limite' eventos pendientes, en orden de inserción (usa idx_outbox_pendientes).
+     * SKIP LOCKED (MySQL 8.0+) salta los que otra instancia ya tomó, así que varios publicadores
+     * reparten los pendientes sin publicar dos veces el mismo. Debe llamarse dentro de una transacción.
+     */
+    @Query(value = "SELECT * FROM eventos_outbox WHERE fecha_publicacion IS NULL ORDER BY id LIMIT :limite FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<EventoOutbox> reclamarPendientes(@Param("limite") int limite);
+
+    long countByFechaPublicacionIsNull();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE EventoOutbox e SET e.fechaPublicacion = :fecha WHERE e.id IN :ids")
+    int marcarPublicados(@Param("ids") Collection<Long> ids, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Vuelve a marcar como pendientes los eventos creados en el rango, para que se publiquen otra vez.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE EventoOutbox e SET e.fechaPublicacion = NULL "
+            + "WHERE e.fechaCreacion >= :desde AND e.fechaCreacion < :hasta AND e.fechaPublicacion IS NOT NULL")
+    int marcarPendientes(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Borra hasta 'limite' eventos ya publicados creados antes de 'antesDe'.
+     * Se borra por bloques para no mantener un bloqueo largo sobre la tabla.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM eventos_outbox WHERE fecha_creacion < :antesDe AND fecha_publicacion IS NOT NULL LIMIT :limite",
+            nativeQuery = true)
+    int borrarPublicados(@Param("antesDe") LocalDateTime antesDe, @Param("limite") int limite);
+}
@@ -0,0 +1,61 @@
+package com.umg.gestiontareas.repositorio;
+
+import com.umg.gestiontareas.modelo.Tarea;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Especificaciones JPA para construir filtros combinados sobre Tarea.
+ * Solo se agregan al WHERE los criterios presentes, para que MySQL pueda usar
+ * el índice compuesto que corresponda en lugar de condiciones del tipo "(:x IS NULL OR ...)".
+ */
+public final class TareaEspecificaciones {
+
+    private TareaEspecificaciones() {
+    }
+
+    /**
+     * Filtro combinado por estado, prioridad, tipo y rango de fecha de creación, paginado por cursor sobre
+     * (fechaCreacion, id) para que el orden coincida con el de idx_tareas_clasificacion. Cualquier criterio null se omite.
+     * @param estado Estado exacto.
+     * @param prioridad Prioridad exacta.
+     * @param tipo Tipo exacto.
+     * @param desde Fecha de creación mínima (inclusive).
+     * @param hasta Fecha de creación máxima (exclusiva).
+     * @param fechaCursor Fecha de creación de la última tarea de la página anterior (null en la primera página).
+     * @param idCursor ID de la última tarea de la página anterior (null en la primera página).
+     * @return La especificación con los criterios presentes.
+     */
+    public static Specification<Tarea> conFiltros(String estado, String prioridad, String tipo,
+                                                 LocalDateTime desde, LocalDateTime hasta,
+                                                 LocalDateTime fechaCursor, Long idCursor) {
+        return (raiz, consulta, cb) -> {
+            List<Predicate> criterios = new ArrayList<>();
+            if (estado != null) {
+                criterios.add(cb.equal(raiz.get("estado"), estado));
+            }
+            if (prioridad != null) {
+                criterios.add(cb.equal(raiz.get("prioridad"), prioridad));
+            }
+            if (tipo != null) {
+                criterios.add(cb.equal(raiz.get("tipo"), tipo));
+            }
+            if (desde != null) {
+                criterios.add(cb.greaterThanOrEqualTo(raiz.get("fechaCreacion"), desde));
+            }
+            if (hasta != null) {
+                criterios.add(cb.lessThan(raiz.get("fechaCreacion"), hasta));
+            }
+            if (fechaCursor != null && idCursor != null) {
+                // Misma condición que findByEstadoDespuesDe: (fecha > :fecha) OR (fecha = :fecha AND id > :id)
+                criterios.add(cb.or(cb.greaterThan(raiz.get("fechaCreacion"), fechaCursor),
+                        cb.and(cb.equal(raiz.get("fechaCreacion"), fechaCursor), cb.greaterThan(raiz.get("id"), idCursor))));
+            }
+            return cb.and(criterios.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package com.umg.gestiontareas.repositorio;
+
+import com.umg.gestiontareas.modelo.Tarea;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operaciones masivas sobre la tabla tareas usando JDBC por lotes.
+ * Hibernate no agrupa inserciones cuando el ID es IDENTITY; aquí se envían como un lote
+ * (con rewriteBatchedStatements=true, MySQL Connector/J lo convierte en INSERTs multi-fila)
+ * y se recuperan los IDs generados. Participa en la transacción JPA activa.
+ */
+@Repository
+@Timed(value = "gestion.tareas.jdbc", description = "Operaciones JDBC por lotes sobre la tabla tareas")
+public class TareaJdbcRepository {
+
+    // Cantidad de filas por lote enviado al driver
+    public static final int TAMANO_LOTE = 1000;
+
+    private static final String SQL_INSERTAR =
+            "INSERT INTO tareas (titulo, descripcion, estado, prioridad, tipo, fecha_creacion, fecha_completada, id_tarea_padre, version) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String SQL_RESTAURAR =
+            "INSERT INTO tareas (titulo, descripcion, estado, prioridad, tipo, fecha_creacion, fecha_completada, id_tarea_padre, id, version) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Los UPDATE por JDBC incrementan la versión igual que Hibernate, para que el bloqueo optimista detecte el cambio
+    private static final String SQL_COMPLETAR =
+            "UPDATE tareas SET estado = 'COMPLETADA', fecha_completada = :fecha, version = version + 1 WHERE id IN (:ids)";
+
+    private static final String SQL_RESTAURAR_ESTADO =
+            "UPDATE tareas SET estado = ?, fecha_completada = ?, version = version + 1 WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Inserta las tareas en lotes y asigna a cada una el ID generado por MySQL.
+     * @param tareas Tareas nuevas (sin ID).
+     * @return Las mismas tareas, ya con su ID.
+     */
+    public List<Tarea> insertarLote(List<Tarea> tareas) {
+        for (int inicio = 0; inicio < tareas.size(); inicio += TAMANO_LOTE) {
+            List<Tarea> lote = tareas.subList(inicio, Math.min(inicio + TAMANO_LOTE, tareas.size()));
+            KeyHolder claves = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    conexion -> conexion.prepareStatement(SQL_INSERTAR, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            asignarColumnas(ps, lote.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return lote.size();
+                        }
+                    },
+                    claves);
+            List<Map<String, Object>> idsGenerados = claves.getKeyList();
+            for (int i = 0; i < lote.size(); i++) {
+                Number id = (Number) idsGenerados.get(i).values().iterator().next();
+                lote.get(i).setId(id.longValue());
+                lote.get(i).setVersion(0L);
+            }
+        }
+        return tareas;
+    }
+
+    /**
+     * Vuelve a insertar tareas eliminadas conservando su ID y su versión originales (para deshacer).
+     * Las tareas deben venir con cada padre antes que sus hijos.
+     * @param tareas Copias de las tareas eliminadas.
+     */
+    public void restaurarLote(List<Tarea> tareas) {
+        jdbcTemplate.batchUpdate(SQL_RESTAURAR, tareas, TAMANO_LOTE, (ps, tarea) -> {
+            asignarColumnas(ps, tarea);
+            ps.setLong(9, tarea.getId());
+            ps.setLong(10, tarea.getVersion() != null ? tarea.getVersion() : 0L);
+        });
+    }
+
+    /**
+     * Marca como completadas todas las tareas indicadas con una sentencia UPDATE por cada bloque de IDs.
+     * @param ids IDs de las tareas.
+     * @param fecha Fecha de completado.
+     * @return Cantidad de filas actualizadas.
+     */
+    public int completarLote(Collection<Long> ids, LocalDateTime fecha) {
+        int actualizadas = 0;
+        List<Long> lista = new ArrayList<>(ids);
+        for (int inicio = 0; inicio < lista.size(); inicio += TAMANO_LOTE) {
+            MapSqlParameterSource parametros = new MapSqlParameterSource()
+                    .addValue("fecha", Timestamp.valueOf(fecha))
+                    .addValue("ids", lista.subList(inicio, Math.min(inicio + TAMANO_LOTE, lista.size())));
+            actualizadas += namedParameterJdbcTemplate.update(SQL_COMPLETAR, parametros);
+        }
+        return actualizadas;
+    }
+
+    /**
+     * Restaura el estado y la fecha de completado de varias tareas en un solo lote (para deshacer).
+     * @param tareasAnteriores Copias de las tareas con los valores a restaurar.
+     */
+    public void restaurarEstados(List<Tarea> tareasAnteriores) {
+        jdbcTemplate.batchUpdate(SQL_RESTAURAR_ESTADO, tareasAnteriores, TAMANO_LOTE, (ps, tarea) -> {
+            ps.setString(1, tarea.getEstado());
+            ps.setObject(2, tarea.getFechaCompletada() != null ? Timestamp.valueOf(tarea.getFechaCompletada()) : null, Types.TIMESTAMP);
+            ps.setLong(3, tarea.getId());
+        });
+    }
+
+    private static void asignarColumnas(PreparedStatement ps, Tarea tarea) throws SQLException {
+        ps.setString(1, tarea.getTitulo());
+        ps.setString(2, tarea.getDescripcion());
+        ps.setString(3, tarea.getEstado());
+        ps.setString(4, tarea.getPrioridad());
+        ps.setString(5, tarea.getTipo());
+        ps.setObject(6, tarea.getFechaCreacion() != null ? Timestamp.valueOf(tarea.getFechaCreacion()) : null, Types.TIMESTAMP);
+        ps.setObject(7, tarea.getFechaCompletada() != null ? Timestamp.valueOf(tarea.getFechaCompletada()) : null, Types.TIMESTAMP);
+        ps.setObject(8, tarea.getIdTareaPadre(), Types.BIGINT);
+    }
+}
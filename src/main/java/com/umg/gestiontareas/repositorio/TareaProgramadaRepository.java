@@ -0,0 +1,31 @@
+package com.umg.gestiontareas.repositorio;
+
+import com.umg.gestiontareas.modelo.TareaProgramada;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface TareaProgramadaRepository extends JpaRepository<TareaProgramada, Long> {
+    // Las tareas programadas pendientes se cargan completas al inicio con findAll()
+    // y se eliminan con deleteById() cuando un trabajador las procesa.
+
+    /**
+     * Toma y bloquea la siguiente tarea programada vencida (fecha_ejecucion <= ahora) según el orden
+     * del planificador (usa idx_programadas_orden).
+     * SKIP LOCKED (MySQL 8.0+) salta la que otra instancia está procesando, así que varias instancias
+     * pueden sacar tareas de la misma tabla sin repetirlas. Debe llamarse dentro de una transacción.
+     */
+    @Query(value = "SELECT * FROM tareas_programadas WHERE fecha_ejecucion <= :ahora "
+            + "ORDER BY rango_prioridad, fecha_ejecucion, id LIMIT 1 FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    TareaProgramada reclamarSiguiente(@Param("ahora") LocalDateTime ahora);
+
+    // true si queda alguna tarea programada (lee una sola fila, a diferencia de count())
+    boolean existsByIdNotNull();
+
+    TareaProgramada findFirstByFechaEjecucionLessThanEqualOrderByRangoPrioridadAscFechaEjecucionAscIdAsc(LocalDateTime ahora);
+}
@@ -1,15 +1,25 @@
 package com.umg.gestiontareas.repositorio;
 
 import com.umg.gestiontareas.modelo.Tarea;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface TareaRepositoryMySQL extends JpaRepository<Tarea, Long> {
+public interface TareaRepositoryMySQL extends JpaRepository<Tarea, Long>, JpaSpecificationExecutor<Tarea> {
     // JpaRepository nos proporciona métodos básicos para CRUD (Crear, Leer, Actualizar, Eliminar)
     // para la entidad Tarea que tiene un ID de tipo Long.
+    // JpaSpecificationExecutor permite los filtros combinados de TareaEspecificaciones.
 
     // Métodos personalizados para buscar y clasificar tareas
 
@@ -34,19 +44,67 @@ public interface TareaRepositoryMySQL extends JpaRepository<Tarea, Long> {
      */
     List<Tarea> findByTipo(String tipo);
 
+    // Listados ordenados por fecha de creación, paginados por cursor sobre (fechaCreacion, id).
+    // Usan idx_tareas_estado_fecha e idx_tareas_prioridad_fecha; InnoDB agrega el ID al final de cada índice,
+    // así que el orden completo y la condición del cursor se resuelven sobre el índice.
+
     /**
-     * Busca tareas por un estado y las ordena por fecha de creación (ascendente).
-     * @param estado El estado de la tarea.
-     * @return Una lista de tareas ordenadas por fecha de creación.
+     * Primera página de las tareas de un estado, por fecha de creación ascendente.
      */
-    List<Tarea> findByEstadoOrderByFechaCreacionAsc(String estado);
+    List<Tarea> findByEstadoOrderByFechaCreacionAscIdAsc(String estado, Limit limite);
+
+    /**
+     * Página de las tareas de un estado creadas después de (fecha, id), por fecha de creación ascendente.
+     */
+    @Query("SELECT t FROM Tarea t WHERE t.estado = :estado"
+            + " AND (t.fechaCreacion > :fecha OR (t.fechaCreacion = :fecha AND t.id > :id))"
+            + " ORDER BY t.fechaCreacion ASC, t.id ASC")
+    List<Tarea> findByEstadoDespuesDe(@Param("estado") String estado, @Param("fecha") LocalDateTime fecha,
+                                      @Param("id") Long id, Limit limite);
+
+    /**
+     * Primera página de las tareas de una prioridad, por fecha de creación descendente.
+     */
+    List<Tarea> findByPrioridadOrderByFechaCreacionDescIdDesc(String prioridad, Limit limite);
+
+    /**
+     * Página de las tareas de una prioridad creadas antes de (fecha, id), por fecha de creación descendente.
+     */
+    @Query("SELECT t FROM Tarea t WHERE t.prioridad = :prioridad"
+            + " AND (t.fechaCreacion < :fecha OR (t.fechaCreacion = :fecha AND t.id < :id))"
+            + " ORDER BY t.fechaCreacion DESC, t.id DESC")
+    List<Tarea> findByPrioridadAntesDe(@Param("prioridad") String prioridad, @Param("fecha") LocalDateTime fecha,
+                                       @Param("id") Long id, Limit limite);
+
+    // Métodos paginados por cursor (keyset): devuelven las tareas con ID mayor al cursor,
+    // ordenadas por ID, sin usar OFFSET, por lo que el costo no crece con el número de página.
+
+    /**
+     * Obtiene una página de tareas con ID mayor a idCursor.
+     * @param idCursor El último ID de la página anterior (0 para la primera página).
+     * @param limite Cantidad máxima de tareas a devolver.
+     * @return Tareas ordenadas por ID ascendente.
+     */
+    List<Tarea> findByIdGreaterThanOrderByIdAsc(Long idCursor, Limit limite);
+
+    List<Tarea> findByEstadoAndIdGreaterThanOrderByIdAsc(String estado, Long idCursor, Limit limite);
+
+    List<Tarea> findByPrioridadAndIdGreaterThanOrderByIdAsc(String prioridad, Long idCursor, Limit limite);
+
+    List<Tarea> findByTipoAndIdGreaterThanOrderByIdAsc(String tipo, Long idCursor, Limit limite);
 
     /**
-     * Busca tareas por una prioridad y las ordena por fecha de creación (descendente).
-     * @param prioridad La prioridad de la tarea.
-     * @return Una lista de tareas ordenadas por fecha de creación.
+     * Recorre todas las tareas ordenadas por ID como un Stream, leyendo filas del driver a medida que se consumen.
+     * El fetch size Integer.MIN_VALUE activa el modo streaming de MySQL Connector/J.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     * @return Stream de todas las tareas.
      */
-    List<Tarea> findByPrioridadOrderByFechaCreacionDesc(String prioridad);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Tarea t ORDER BY t.id")
+    Stream<Tarea> streamTodasOrdenadasPorId();
 
     // Puedes añadir más métodos combinando criterios o de ordenación si lo necesitas.
     // Ej: List<Tarea> findByEstadoAndPrioridad(String estado, String prioridad);
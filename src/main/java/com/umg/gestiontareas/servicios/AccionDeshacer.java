@@ -0,0 +1,51 @@
+package com.umg.gestiontareas.servicios;
+
+import com.umg.gestiontareas.modelo.Tarea;
+
+import java.util.List;
+
+/**
+ * Acción registrada en el historial para poder deshacerla.
+ * Guarda el tipo de operación y una copia del estado de la tarea antes del cambio.
+ * Las operaciones por lote guardan las copias de todas las tareas afectadas y se deshacen como una unidad.
+ */
+class AccionDeshacer {
+    private final String tipo;
+    private final Tarea tareaAnterior;
+    private final Long idPadreAsociado;
+    private final List<Tarea> tareasAnteriores;
+
+    public AccionDeshacer(String tipo, Tarea tareaAnterior) {
+        this(tipo, tareaAnterior, null);
+    }
+
+    public AccionDeshacer(String tipo, Tarea tareaAnterior, Long idPadreAsociado) {
+        this.tipo = tipo;
+        this.tareaAnterior = tareaAnterior;
+        this.idPadreAsociado = idPadreAsociado;
+        this.tareasAnteriores = List.of();
+    }
+
+    public AccionDeshacer(String tipo, List<Tarea> tareasAnteriores) {
+        this.tipo = tipo;
+        this.tareaAnterior = null;
+        this.idPadreAsociado = null;
+        this.tareasAnteriores = tareasAnteriores;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public Tarea getTareaAnterior() {
+        return tareaAnterior;
+    }
+
+    public Long getIdPadreAsociado() {
+        return idPadreAsociado;
+    }
+
+    public List<Tarea> getTareasAnteriores() {
+        return tareasAnteriores;
+    }
+}
@@ -0,0 +1,219 @@
+package com.umg.gestiontareas.servicios;
+
+import com.umg.gestiontareas.modelo.ConteoEventos;
+import com.umg.gestiontareas.modelo.GranularidadResumen;
+import com.umg.gestiontareas.modelo.LogEntry;
+import com.umg.gestiontareas.modelo.PaginaEventos;
+import io.micrometer.core.annotation.Timed;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas sobre los logs de eventos de MongoDB (event_logs).
+ * El listado usa paginación por cursor sobre (timestamp, _id), del evento más reciente al más antiguo,
+ * y cada combinación de filtros tiene un índice que ya entrega los documentos en ese orden.
+ * Los conteos por intervalo se calculan dentro de MongoDB: la parte ya resumida sale de las colecciones
+ * de ResumenEventosService y solo el tramo más reciente se cuenta sobre los logs.
+ */
+@Service
+@Timed("gestion.eventos.servicio")
+public class EventoService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventoService.class);
+
+    public static final int TAMANO_PAGINA_POR_DEFECTO = 100;
+    public static final int TAMANO_PAGINA_MAXIMO = 1000;
+    // Máximo de intervalos por consulta de conteo (por ejemplo, una semana por minuto son 10080)
+    public static final int INTERVALOS_MAXIMOS = 20_000;
+
+    /**
+     * Intervalos admitidos en los conteos. Cada uno se arma a partir de la granularidad de resumen
+     * más fina que le sirve.
+     */
+    private enum Intervalo {
+        MINUTO(ChronoUnit.MINUTES, Duration.ofMinutes(1), GranularidadResumen.MINUTO),
+        HORA(ChronoUnit.HOURS, Duration.ofHours(1), GranularidadResumen.HORA),
+        DIA(ChronoUnit.DAYS, Duration.ofDays(1), GranularidadResumen.HORA);
+
+        private final ChronoUnit unidad;
+        private final Duration duracion;
+        private final GranularidadResumen base;
+
+        Intervalo(ChronoUnit unidad, Duration duracion, GranularidadResumen base) {
+            this.unidad = unidad;
+            this.duracion = duracion;
+            this.base = base;
+        }
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ResumenEventosService resumenEventosService;
+
+    /**
+     * Obtiene una página de logs de eventos, del más reciente al más antiguo.
+     * @param eventType Tipo de evento (opcional).
+     * @param idTarea ID de la tarea (opcional).
+     * @param desde Solo eventos desde este momento, inclusivo (opcional).
+     * @param hasta Solo eventos anteriores a este momento (opcional).
+     * @param cursor Cursor devuelto con la página anterior (opcional).
+     * @param limite Tamaño de página; se acota a TAMANO_PAGINA_MAXIMO.
+     * @return La página y el cursor para la siguiente, o null si el cursor no es válido.
+     */
+    public PaginaEventos obtenerPaginaEventos(String eventType, Long idTarea, LocalDateTime desde, LocalDateTime hasta,
+                                              String cursor, Integer limite) {
+        LOGGER.debug("Obteniendo eventos: tipo={}, tarea={}, desde={}, hasta={}, cursor={}", eventType, idTarea, desde, hasta, cursor);
+        List<Criteria> filtros = new ArrayList<>();
+        if (eventType != null) {
+            filtros.add(Criteria.where("eventType").is(eventType));
+        }
+        if (idTarea != null) {
+            filtros.add(Criteria.where("idTarea").is(idTarea));
+        }
+        if (desde != null) {
+            filtros.add(Criteria.where("timestamp").gte(desde));
+        }
+        if (hasta != null) {
+            filtros.add(Criteria.where("timestamp").lt(hasta));
+        }
+        if (cursor != null) {
+            Criteria despuesDelCursor = criterioCursor(cursor);
+            if (despuesDelCursor == null) {
+                return null;
+            }
+            filtros.add(despuesDelCursor);
+        }
+
+        int tamano = limite == null || limite <= 0 ? TAMANO_PAGINA_POR_DEFECTO : Math.min(limite, TAMANO_PAGINA_MAXIMO);
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.DESC, "timestamp", "_id"))
+                .limit(tamano + 1);
+        if (!filtros.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(filtros));
+        }
+        List<LogEntry> eventos = mongoTemplate.find(query, LogEntry.class);
+        if (eventos.size() > tamano) {
+            eventos = eventos.subList(0, tamano);
+            return new PaginaEventos(eventos, crearCursor(eventos.get(tamano - 1)));
+        }
+        return new PaginaEventos(eventos, null);
+    }
+
+    /**
+     * Cuenta los eventos por tipo y por intervalo.
+     * Los límites se redondean hacia abajo al minuto (intervalo "minuto") o a la hora ("hora" y "dia"),
+     * y los intervalos se alinean en UTC.
+     * @param intervalo "minuto", "hora" o "dia".
+     * @param desde Inicio del rango (opcional; por defecto, un día antes de 'hasta').
+     * @param hasta Fin del rango, exclusivo (opcional; por defecto, ahora).
+     * @param eventType Tipo de evento (opcional).
+     * @return Conteos ordenados por inicio y tipo, o null si el intervalo no es válido
+     * o el rango tiene más de INTERVALOS_MAXIMOS intervalos.
+     */
+    public List<ConteoEventos> contarEventos(String intervalo, LocalDateTime desde, LocalDateTime hasta, String eventType) {
+        Intervalo tipoIntervalo = intervaloDe(intervalo);
+        if (tipoIntervalo == null) {
+            return null;
+        }
+        ChronoUnit unidadBase = tipoIntervalo.base.getUnidad();
+        ZoneId zona = ZoneId.systemDefault();
+        Instant fin = (hasta != null ? hasta.atZone(zona).toInstant() : Instant.now()).truncatedTo(unidadBase);
+        Instant inicio = (desde != null ? desde.atZone(zona).toInstant() : fin.minus(Duration.ofDays(1))).truncatedTo(unidadBase);
+        if (!inicio.isBefore(fin)) {
+            return List.of();
+        }
+        if (Duration.between(inicio, fin).dividedBy(tipoIntervalo.duracion) > INTERVALOS_MAXIMOS) {
+            return null;
+        }
+        LOGGER.debug("Contando eventos por {} de {} a {} (tipo={})", tipoIntervalo, inicio, fin, eventType);
+
+        // Hasta la marca se leen los resúmenes; desde la marca, los logs
+        Instant marca = resumenEventosService.obtenerMarca(tipoIntervalo.base);
+        Instant corte = marca == null || marca.isBefore(inicio) ? inicio : marca.isAfter(fin) ? fin : marca;
+        Map<List<Object>, ConteoEventos> conteos = new HashMap<>();
+        if (inicio.isBefore(corte)) {
+            acumular(conteos, tipoIntervalo.base.getColeccion(), ResumenEventosService.pipelineConteo(
+                    "inicio", true, tipoIntervalo.duracion, inicio, corte, eventType), zona);
+        }
+        if (corte.isBefore(fin)) {
+            acumular(conteos, mongoTemplate.getCollectionName(LogEntry.class), ResumenEventosService.pipelineConteo(
+                    "timestamp", false, tipoIntervalo.duracion, corte, fin, eventType), zona);
+        }
+        List<ConteoEventos> resultado = new ArrayList<>(conteos.values());
+        resultado.sort(Comparator.comparing(ConteoEventos::inicio)
+                .thenComparing(ConteoEventos::eventType, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return resultado;
+    }
+
+    // Suma los conteos de un pipeline; un intervalo cortado por la marca llega de los dos orígenes
+    private void acumular(Map<List<Object>, ConteoEventos> conteos, String coleccion, List<Document> pipeline, ZoneId zona) {
+        for (Document fila : mongoTemplate.getCollection(coleccion).aggregate(pipeline)) {
+            LocalDateTime inicio = LocalDateTime.ofInstant(fila.getDate("inicio").toInstant(), zona);
+            String eventType = fila.getString("eventType");
+            long cantidad = ((Number) fila.get("cantidad")).longValue();
+            conteos.merge(Arrays.asList(inicio, eventType), new ConteoEventos(inicio, eventType, cantidad),
+                    (a, b) -> new ConteoEventos(a.inicio(), a.eventType(), a.cantidad() + b.cantidad()));
+        }
+    }
+
+    private static Intervalo intervaloDe(String intervalo) {
+        if (intervalo == null) {
+            return Intervalo.HORA;
+        }
+        for (Intervalo valor : Intervalo.values()) {
+            if (valor.name().equalsIgnoreCase(intervalo)) {
+                return valor;
+            }
+        }
+        return null;
+    }
+
+    // El cursor es "<timestamp en milisegundos>_<id>" del último evento de la página
+    private static String crearCursor(LogEntry ultimo) {
+        long millis = ultimo.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return millis + "_" + ultimo.getId();
+    }
+
+    // Eventos anteriores al cursor en el orden (timestamp, _id) descendente; null si el cursor no es válido
+    private static Criteria criterioCursor(String cursor) {
+        int separador = cursor.indexOf('_');
+        if (separador <= 0 || separador == cursor.length() - 1) {
+            return null;
+        }
+        long millis;
+        try {
+            millis = Long.parseLong(cursor.substring(0, separador));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        String textoId = cursor.substring(separador + 1);
+        // Los logs anteriores a los ObjectId tienen un UUID como _id
+        Object id = ObjectId.isValid(textoId) ? new ObjectId(textoId) : textoId;
+        LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        return new Criteria().orOperator(
+                Criteria.where("timestamp").lt(timestamp),
+                new Criteria().andOperator(Criteria.where("timestamp").is(timestamp), Criteria.where("_id").lt(id)));
+    }
+}
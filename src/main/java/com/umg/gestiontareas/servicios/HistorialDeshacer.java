@@ -0,0 +1,163 @@
+package com.umg.gestiontareas.servicios;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Historial de acciones para "deshacer", separado por usuario y seguro para uso concurrente.
+ * Cada usuario tiene su propia pila con su propio bloqueo, así que las operaciones de usuarios
+ * distintos no compiten entre sí. La memoria está acotada en tres niveles:
+ * profundidad máxima por usuario (se descartan las acciones más antiguas), peso total máximo
+ * y expiración del historial de usuarios inactivos. El peso de un historial es la cantidad de
+ * copias de tareas que guarda (una acción por lote pesa tantas copias como tareas afectó), así
+ * que el límite sigue a la memoria ocupada y no a la cantidad de usuarios; al superarlo se
+ * descartan historiales completos empezando por los menos usados.
+ */
+@Component
+class HistorialDeshacer {
+
+    private final int profundidadMaxima;
+    private final Cache<String, PilaUsuario> pilas;
+    private final AtomicLong totalAcciones = new AtomicLong();
+
+    HistorialDeshacer(@Value("${gestion.deshacer.profundidad-maxima:50}") int profundidadMaxima,
+                      @Value("${gestion.deshacer.peso-maximo:500000}") long pesoMaximo,
+                      @Value("${gestion.deshacer.inactividad-minutos:60}") long inactividadMinutos) {
+        this.profundidadMaxima = profundidadMaxima;
+        this.pilas = Caffeine.newBuilder()
+                .maximumWeight(pesoMaximo)
+                .weigher((String usuario, PilaUsuario pila) -> pila.peso())
+                .expireAfterAccess(Duration.ofMinutes(inactividadMinutos))
+                // Síncrono, para que el total de acciones baje junto con la expulsión
+                .evictionListener((String usuario, PilaUsuario pila, RemovalCause causa) -> {
+                    if (pila != null) {
+                        totalAcciones.addAndGet(-pila.descartar());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Registra una acción en el historial del usuario.
+     * Si el historial ya tiene la profundidad máxima, se descarta la acción más antigua.
+     */
+    void registrar(String usuario, AccionDeshacer accion) {
+        // compute vuelve a pesar la pila después de modificarla
+        pilas.asMap().compute(usuario, (clave, pila) -> {
+            PilaUsuario destino = pila != null ? pila : new PilaUsuario();
+            totalAcciones.addAndGet(destino.push(accion, profundidadMaxima));
+            return destino;
+        });
+    }
+
+    /**
+     * Saca la acción más reciente del historial del usuario.
+     * @return La acción, o null si el usuario no tiene acciones para deshacer.
+     */
+    AccionDeshacer sacarUltima(String usuario) {
+        AccionDeshacer[] sacada = new AccionDeshacer[1];
+        pilas.asMap().computeIfPresent(usuario, (clave, pila) -> {
+            sacada[0] = pila.pop();
+            if (sacada[0] != null) {
+                totalAcciones.decrementAndGet();
+            }
+            return pila;
+        });
+        return sacada[0];
+    }
+
+    /**
+     * @return Cantidad de acciones en el historial del usuario.
+     */
+    int profundidad(String usuario) {
+        PilaUsuario pila = pilas.getIfPresent(usuario);
+        return pila != null ? pila.tamano() : 0;
+    }
+
+    /**
+     * @return Total de acciones guardadas sumando todos los usuarios.
+     */
+    long totalAcciones() {
+        return totalAcciones.get();
+    }
+
+    /**
+     * @return Peso total de los historiales (copias de tareas guardadas), acotado por gestion.deshacer.peso-maximo.
+     */
+    long pesoTotal() {
+        return pilas.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    /**
+     * Aplica en el momento las expulsiones pendientes de la caché (Caffeine las hace en segundo plano).
+     */
+    void mantenimiento() {
+        pilas.cleanUp();
+    }
+
+    /**
+     * @return Cantidad aproximada de usuarios con historial.
+     */
+    long totalUsuarios() {
+        return pilas.estimatedSize();
+    }
+
+    // Pila de un usuario; cada una se sincroniza sobre sí misma
+    private static final class PilaUsuario {
+        private final Deque<AccionDeshacer> acciones = new ArrayDeque<>();
+        private boolean descartada;
+        private int peso;
+
+        // Devuelve cuánto cambió el tamaño (1 si se agregó, 0 si se agregó descartando la más antigua)
+        synchronized int push(AccionDeshacer accion, int profundidadMaxima) {
+            if (descartada) {
+                return 0;
+            }
+            acciones.push(accion);
+            peso += pesoDe(accion);
+            if (acciones.size() > profundidadMaxima) {
+                peso -= pesoDe(acciones.removeLast());
+                return 0;
+            }
+            return 1;
+        }
+
+        synchronized AccionDeshacer pop() {
+            AccionDeshacer accion = acciones.poll();
+            if (accion != null) {
+                peso -= pesoDe(accion);
+            }
+            return accion;
+        }
+
+        // Al menos 1, para que un historial vacío también cuente mientras no expire
+        synchronized int peso() {
+            return 1 + peso;
+        }
+
+        synchronized int tamano() {
+            return acciones.size();
+        }
+
+        // Vacía la pila al salir de la caché y devuelve cuántas acciones tenía
+        synchronized int descartar() {
+            descartada = true;
+            int tamano = acciones.size();
+            acciones.clear();
+            peso = 0;
+            return tamano;
+        }
+
+        private static int pesoDe(AccionDeshacer accion) {
+            return Math.max(1, accion.getTareasAnteriores().size());
+        }
+    }
+}
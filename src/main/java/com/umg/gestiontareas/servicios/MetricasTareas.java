@@ -0,0 +1,42 @@
+package com.umg.gestiontareas.servicios;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Métricas de las estructuras en memoria del servicio: historial de deshacer, planificador y caché de tareas.
+ * Spring Boot registra automáticamente cada MeterBinder en el MeterRegistry.
+ */
+@Component
+class MetricasTareas implements MeterBinder {
+
+    @Autowired
+    private HistorialDeshacer historialDeshacer;
+
+    @Autowired
+    private PlanificadorTareas planificadorTareas;
+
+    @Autowired
+    private TareaCache tareaCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("gestion.deshacer.acciones", historialDeshacer, HistorialDeshacer::totalAcciones)
+                .description("Acciones guardadas en el historial de deshacer de todos los usuarios")
+                .register(registry);
+        Gauge.builder("gestion.deshacer.usuarios", historialDeshacer, HistorialDeshacer::totalUsuarios)
+                .description("Usuarios con historial de deshacer")
+                .register(registry);
+        Gauge.builder("gestion.deshacer.peso", historialDeshacer, HistorialDeshacer::pesoTotal)
+                .description("Copias de tareas guardadas en el historial de deshacer (límite gestion.deshacer.peso-maximo)")
+                .register(registry);
+        Gauge.builder("gestion.planificador.pendientes", planificadorTareas, PlanificadorTareas::tamano)
+                .description("Tareas programadas pendientes de procesar")
+                .register(registry);
+        CaffeineCacheMetrics.monitor(registry, tareaCache.getCache(), "tareas");
+    }
+}
@@ -0,0 +1,114 @@
+package com.umg.gestiontareas.servicios;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.umg.gestiontareas.modelo.EventoOutbox;
+import com.umg.gestiontareas.modelo.TareaEvento;
+import com.umg.gestiontareas.repositorio.EventoOutboxRepository;
+import io.micrometer.core.annotation.Timed;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+
+/**
+ * Outbox transaccional de eventos de tareas.
+ * Los servicios registran cada evento dentro de la misma transacción que el cambio en MySQL, así que un fallo
+ * entre guardar y publicar ya no pierde eventos, y una caída de RabbitMQ no frena las escrituras.
+ * RabbitMQSender publica los pendientes en lotes; al confirmar la transacción se le avisa para que no espere
+ * al siguiente sondeo. Los eventos publicados se conservan gestion.outbox.retencion-dias para poder reenviarlos.
+ */
+@Service
+@Timed("gestion.outbox")
+public class OutboxEventos {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxEventos.class);
+
+    // Filas borradas por sentencia al limpiar eventos viejos
+    private static final int TAMANO_BLOQUE_LIMPIEZA = 10_000;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private RabbitMQSender rabbitMQSender;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${gestion.outbox.retencion-dias:30}")
+    private long retencionDias;
+
+    /**
+     * Registra un evento para publicarlo cuando la transacción actual se confirme.
+     * Debe llamarse dentro de la transacción que guarda el cambio; si la transacción se revierte, el evento también.
+     * @param evento El evento a publicar.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(TareaEvento evento) {
+        LOGGER.debug("Registrando evento en el outbox: {} (ID {})", evento.tipo(), evento.idTarea());
+        String carga;
+        try {
+            carga = objectMapper.writeValueAsString(evento);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        eventoOutboxRepository.save(new EventoOutbox(new ObjectId().toHexString(), evento, carga));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                rabbitMQSender.despertar();
+            }
+        });
+    }
+
+    /**
+     * Vuelve a publicar los eventos creados en el rango (por ejemplo, para reconstruir event_logs).
+     * Los eventos conservan su idMensaje, así que los que ya están en MongoDB no se duplican.
+     * @return Cantidad de eventos marcados para reenviar.
+     */
+    public int reenviar(LocalDateTime desde, LocalDateTime hasta) {
+        int marcados = eventoOutboxRepository.marcarPendientes(desde, hasta);
+        LOGGER.info("{} eventos del outbox marcados para reenviar (desde {} hasta {}).", marcados, desde, hasta);
+        if (marcados > 0) {
+            rabbitMQSender.despertar();
+        }
+        return marcados;
+    }
+
+    /**
+     * Borra los eventos ya publicados con más de gestion.outbox.retencion-dias (0 = conservarlos siempre).
+     */
+    @Scheduled(initialDelayString = "${gestion.outbox.limpieza-intervalo-ms:3600000}",
+            fixedDelayString = "${gestion.outbox.limpieza-intervalo-ms:3600000}")
+    public void limpiarPublicados() {
+        if (retencionDias <= 0) {
+            return;
+        }
+        LocalDateTime antesDe = LocalDateTime.now().minusDays(retencionDias);
+        try {
+            long borrados = 0;
+            int bloque;
+            do {
+                bloque = eventoOutboxRepository.borrarPublicados(antesDe, TAMANO_BLOQUE_LIMPIEZA);
+                borrados += bloque;
+            } while (bloque == TAMANO_BLOQUE_LIMPIEZA);
+            if (borrados > 0) {
+                LOGGER.info("{} eventos publicados borrados del outbox (anteriores a {}).", borrados, antesDe);
+            }
+        } catch (DataAccessException e) {
+            LOGGER.warn("No se pudo limpiar el outbox de eventos: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.umg.gestiontareas.servicios;
+
+import com.umg.gestiontareas.modelo.Tarea;
+import com.umg.gestiontareas.modelo.TareaProgramada;
+import com.umg.gestiontareas.repositorio.TareaProgramadaRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Planificador de tareas programadas. Reemplaza a la cola FIFO ColaTareasProgramadas.
+ * Solo entrega tareas cuya fecha de ejecución ya llegó; entre ellas ordena por prioridad
+ * (ALTA, MEDIA, BAJA), luego por fecha de ejecución más temprana y luego por orden de llegada.
+ * Usa dos montículos: uno de tareas en espera ordenado por fecha de ejecución y otro de tareas
+ * listas ordenado por ORDEN; al sacar, las tareas que vencieron pasan del primero al segundo.
+ * Los dos se protegen con el monitor del planificador, así que varios trabajadores pueden sacar
+ * tareas a la vez sin que una misma tarea se entregue dos veces.
+ * Cada tarea programada se persiste en MySQL y se borra al procesarla; al iniciar se recargan
+ * las pendientes. Una tarea entra a los montículos cuando se confirma su alta, y si el borrado
+ * al procesarla no se confirma vuelve a ellos. Si la aplicación cae entre sacar y borrar, la tarea se vuelve a entregar.
+ * Con gestion.instancias.modo=multiple no usa los montículos: la tabla tareas_programadas es la cola
+ * compartida por todas las instancias, y cada una saca la siguiente tarea vencida con
+ * SELECT ... FOR UPDATE SKIP LOCKED y la borra en la misma transacción. En ese modo tamano() devuelve
+ * el último conteo periódico de la tabla (gestion.planificador.conteo-ms), para que la métrica no cuente filas en cada lectura.
+ */
+@Component
+public class PlanificadorTareas {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlanificadorTareas.class);
+
+    public static final Comparator<TareaProgramada> ORDEN = Comparator
+            .comparingInt(TareaProgramada::getRangoPrioridad)
+            .thenComparing(TareaProgramada::getFechaEjecucion)
+            .thenComparing(TareaProgramada::getId);
+
+    // Orden de las tareas en espera: la que vence primero
+    private static final Comparator<TareaProgramada> POR_VENCIMIENTO = Comparator
+            .comparing(TareaProgramada::getFechaEjecucion)
+            .thenComparing(TareaProgramada::getId);
+
+    @Autowired
+    private TareaProgramadaRepository tareaProgramadaRepository;
+
+    @Value("${gestion.instancias.modo:unica}")
+    private String modoInstancias;
+
+    private boolean compartida;
+
+    // Solo en modo compartido: último conteo de tareas_programadas
+    private volatile int tamanoCompartido;
+
+    private Clock reloj = Clock.systemDefaultZone();
+
+    // Protegidos por el monitor del planificador
+    private final PriorityQueue<TareaProgramada> enEspera = new PriorityQueue<>(64, POR_VENCIMIENTO);
+    private final PriorityQueue<TareaProgramada> listas = new PriorityQueue<>(64, ORDEN);
+
+    @PostConstruct
+    public void cargarPendientes() {
+        compartida = "multiple".equals(modoInstancias);
+        if (compartida) {
+            LOGGER.info("Planificador en modo compartido: la cola de tareas programadas se lee de MySQL.");
+            return;
+        }
+        List<TareaProgramada> pendientes = tareaProgramadaRepository.findAll();
+        synchronized (this) {
+            enEspera.addAll(pendientes);
+        }
+        LOGGER.info("Planificador iniciado con {} tareas programadas pendientes.", pendientes.size());
+    }
+
+    /**
+     * Programa una tarea. Se persiste y entra al montículo cuando se confirma la transacción.
+     * @param tarea La tarea a programar.
+     * @param fechaEjecucion Momento desde el que puede ejecutarse (null = ahora).
+     * @return La tarea programada guardada.
+     */
+    public TareaProgramada programar(Tarea tarea, LocalDateTime fechaEjecucion) {
+        TareaProgramada programada = tareaProgramadaRepository.save(new TareaProgramada(tarea, fechaEjecucion));
+        if (!compartida) {
+            alConfirmar(programada, true);
+        }
+        return programada;
+    }
+
+    /**
+     * Saca la siguiente tarea vencida según el orden del planificador y la borra de la base de datos.
+     * Es seguro llamarlo desde varios hilos a la vez y, en modo compartido, desde varias instancias.
+     * @return La tarea, o null si no hay tareas programadas vencidas.
+     */
+    @Transactional
+    public Tarea siguiente() {
+        if (compartida) {
+            TareaProgramada programada = tareaProgramadaRepository.reclamarSiguiente(ahora());
+            if (programada == null) {
+                return null;
+            }
+            tareaProgramadaRepository.deleteById(programada.getId());
+            return programada.aTarea();
+        }
+        TareaProgramada programada = sacarVencida();
+        if (programada == null) {
+            return null;
+        }
+        try {
+            tareaProgramadaRepository.deleteById(programada.getId());
+        } catch (RuntimeException e) {
+            devolver(programada);
+            throw e;
+        }
+        alConfirmar(programada, false);
+        return programada.aTarea();
+    }
+
+    /**
+     * @return La tarea que entregaría siguiente() en este momento sin sacarla, o null si no hay tareas vencidas.
+     */
+    public Tarea verSiguiente() {
+        TareaProgramada programada;
+        if (compartida) {
+            programada = tareaProgramadaRepository.findFirstByFechaEjecucionLessThanEqualOrderByRangoPrioridadAscFechaEjecucionAscIdAsc(ahora());
+        } else {
+            synchronized (this) {
+                promoverVencidas();
+                programada = listas.peek();
+            }
+        }
+        return programada != null ? programada.aTarea() : null;
+    }
+
+    /**
+     * @return true si no hay tareas programadas, vencidas o no.
+     */
+    public boolean estaVacia() {
+        if (compartida) {
+            return !tareaProgramadaRepository.existsByIdNotNull();
+        }
+        synchronized (this) {
+            return listas.isEmpty() && enEspera.isEmpty();
+        }
+    }
+
+    /**
+     * @return Cantidad de tareas programadas pendientes, vencidas o no. En modo compartido, según el último conteo.
+     */
+    public int tamano() {
+        if (compartida) {
+            return tamanoCompartido;
+        }
+        synchronized (this) {
+            return listas.size() + enEspera.size();
+        }
+    }
+
+    // En modo compartido la cola es la tabla: se cuenta cada tanto en lugar de en cada lectura de tamano()
+    @Scheduled(fixedDelayString = "${gestion.planificador.conteo-ms:15000}")
+    public void contarCompartidas() {
+        if (!compartida) {
+            return;
+        }
+        try {
+            tamanoCompartido = (int) tareaProgramadaRepository.count();
+        } catch (DataAccessException e) {
+            LOGGER.warn("No se pudieron contar las tareas programadas: {}", e.getMessage());
+        }
+    }
+
+    private synchronized TareaProgramada sacarVencida() {
+        promoverVencidas();
+        return listas.poll();
+    }
+
+    // Pasa a listas las tareas en espera cuya fecha de ejecución ya llegó
+    private void promoverVencidas() {
+        LocalDateTime ahora = ahora();
+        while (!enEspera.isEmpty() && !enEspera.peek().getFechaEjecucion().isAfter(ahora)) {
+            listas.offer(enEspera.poll());
+        }
+    }
+
+    // Vuelve a poner una tarea sacada cuyo borrado no se confirmó
+    private synchronized void devolver(TareaProgramada programada) {
+        enEspera.offer(programada);
+    }
+
+    // Con transacción activa, al confirmar agrega la tarea (alta) o, al revertir, la devuelve (procesada).
+    // Sin transacción el alta se aplica en el momento y la baja ya quedó hecha.
+    private void alConfirmar(TareaProgramada programada, boolean alta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (alta) {
+                devolver(programada);
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int estado) {
+                if (alta == (estado == STATUS_COMMITTED)) {
+                    devolver(programada);
+                }
+            }
+        });
+    }
+
+    private LocalDateTime ahora() {
+        return LocalDateTime.now(reloj);
+    }
+}
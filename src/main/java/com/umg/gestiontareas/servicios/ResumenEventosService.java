@@ -0,0 +1,337 @@
+package com.umg.gestiontareas.servicios;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.RenameCollectionOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import com.umg.gestiontareas.modelo.GranularidadResumen;
+import com.umg.gestiontareas.modelo.LogEntry;
+import io.micrometer.core.annotation.Timed;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retención y resumen de los logs de eventos en MongoDB.
+ * <p>
+ * Al primer ciclo crea los índices de event_logs: un índice TTL sobre timestamp, que borra los logs
+ * con más de gestion.mongo.logs.retencion-dias, y los índices (timestamp, _id), (eventType, timestamp, _id)
+ * e (idTarea, timestamp, _id), que sirven a las consultas de EventoService sin ordenar en memoria.
+ * También prepara las colecciones de resúmenes: un índice único (eventType, inicio) y un índice TTL con su propia retención.
+ * <p>
+ * Cada ciclo cuenta los eventos por tipo y por minuto, y con esos conteos arma los de cada hora.
+ * Solo se resumen períodos cerrados (con gestion.mongo.resumen.retraso-segundos de margen para eventos que llegan tarde).
+ * El avance de cada granularidad se guarda como una marca en event_rollups_marcas. Cada resumen se escribe con un
+ * upsert por (eventType, inicio) y la marca se avanza después, con una actualización condicional. Si la instancia
+ * se cae entre las dos escrituras, o si dos instancias resumen el mismo período, se vuelven a escribir los mismos
+ * documentos: no se pierden períodos ni se duplican conteos.
+ * Los eventos que llegan con fecha anterior a la marca (un reenvío, o una caída de RabbitMQ) los informa el receptor
+ * con reabrirPeriodos, que vuelve a contar los minutos y horas ya resumidos en los que caen.
+ */
+@Service
+@Timed("gestion.mongo.resumen")
+public class ResumenEventosService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResumenEventosService.class);
+
+    private static final String COLECCION_MARCAS = "event_rollups_marcas";
+    private static final String INDICE_TTL = "ttl_timestamp";
+    private static final String INDICE_TIEMPO = "timestamp_id";
+    private static final String INDICE_TIPO = "tipo_timestamp_id";
+    private static final String INDICE_TAREA = "tarea_timestamp_id";
+    // Índice (eventType, timestamp) de versiones anteriores; lo reemplaza INDICE_TIPO
+    private static final String INDICE_TIPO_ANTERIOR = "tipo_timestamp";
+    private static final String INDICE_PERIODO = "tipo_inicio";
+    private static final String INDICE_TTL_RESUMEN = "ttl_inicio";
+    // Máximo período resumido por ciclo, para ponerse al día de a poco tras una parada larga
+    private static final Duration VENTANA_MAXIMA = Duration.ofDays(1);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${gestion.mongo.logs.retencion-dias:30}")
+    private long retencionLogsDias;
+
+    @Value("${gestion.mongo.resumen.retencion-minutos-dias:30}")
+    private long retencionMinutosDias;
+
+    @Value("${gestion.mongo.resumen.retencion-horas-dias:365}")
+    private long retencionHorasDias;
+
+    @Value("${gestion.mongo.resumen.retraso-segundos:60}")
+    private long retrasoSegundos;
+
+    private volatile boolean coleccionesPreparadas;
+
+    /**
+     * Ciclo periódico: prepara las colecciones si hace falta y resume los períodos cerrados.
+     * Si MongoDB no responde, se registra un aviso y se reintenta en el siguiente ciclo.
+     */
+    @Scheduled(initialDelayString = "${gestion.mongo.resumen.intervalo-ms:60000}",
+            fixedDelayString = "${gestion.mongo.resumen.intervalo-ms:60000}")
+    public void resumirEventos() {
+        try {
+            if (!coleccionesPreparadas) {
+                prepararColecciones();
+                coleccionesPreparadas = true;
+            }
+            Instant limiteMinutos = Instant.now().minusSeconds(retrasoSegundos).truncatedTo(GranularidadResumen.MINUTO.getUnidad());
+            resumir(GranularidadResumen.MINUTO, limiteMinutos);
+            // Una hora se resume cuando todos sus minutos ya están resumidos
+            Instant marcaMinutos = leerMarca(GranularidadResumen.MINUTO);
+            if (marcaMinutos != null) {
+                resumir(GranularidadResumen.HORA, marcaMinutos.truncatedTo(GranularidadResumen.HORA.getUnidad()));
+            }
+        } catch (DataAccessException | MongoException e) {
+            LOGGER.warn("No se pudo generar el resumen de eventos: {}", e.getMessage());
+        }
+    }
+
+    private void prepararColecciones() {
+        IndexOperations indices = mongoTemplate.indexOps(LogEntry.class);
+        indices.ensureIndex(new Index().on("timestamp", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                .named(INDICE_TIEMPO));
+        indices.ensureIndex(new Index().on("eventType", Sort.Direction.ASC).on("timestamp", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC).named(INDICE_TIPO));
+        indices.ensureIndex(new Index().on("idTarea", Sort.Direction.ASC).on("timestamp", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC).named(INDICE_TAREA));
+        if (indices.getIndexInfo().stream().anyMatch(indice -> INDICE_TIPO_ANTERIOR.equals(indice.getName()))) {
+            indices.dropIndex(INDICE_TIPO_ANTERIOR);
+            LOGGER.info("Índice {} de event_logs eliminado (lo reemplaza {}).", INDICE_TIPO_ANTERIOR, INDICE_TIPO);
+        }
+        asegurarTtl(mongoTemplate.getCollectionName(LogEntry.class), "timestamp", INDICE_TTL, retencionLogsDias);
+        prepararResumenes(GranularidadResumen.MINUTO, retencionMinutosDias);
+        prepararResumenes(GranularidadResumen.HORA, retencionHorasDias);
+        LOGGER.info("Colecciones de eventos preparadas: retención de logs {} días, resúmenes por minuto {} días, por hora {} días.",
+                retencionLogsDias, retencionMinutosDias, retencionHorasDias);
+    }
+
+    private void prepararResumenes(GranularidadResumen granularidad, long retencionDias) {
+        migrarSerieTemporal(granularidad.getColeccion());
+        mongoTemplate.indexOps(granularidad.getColeccion()).ensureIndex(new Index()
+                .on("eventType", Sort.Direction.ASC).on("inicio", Sort.Direction.ASC).unique().named(INDICE_PERIODO));
+        asegurarTtl(granularidad.getColeccion(), "inicio", INDICE_TTL_RESUMEN, retencionDias);
+    }
+
+    // Índice TTL sobre un campo de fecha; si ya existe con otra retención, se cambia sin reconstruirlo
+    private void asegurarTtl(String coleccion, String campo, String nombre, long retencionDias) {
+        long segundosRetencion = TimeUnit.DAYS.toSeconds(retencionDias);
+        try {
+            mongoTemplate.indexOps(coleccion).ensureIndex(new Index().on(campo, Sort.Direction.ASC).named(nombre)
+                    .expire(segundosRetencion, TimeUnit.SECONDS));
+        } catch (DataAccessException e) {
+            mongoTemplate.executeCommand(new Document("collMod", coleccion)
+                    .append("index", new Document("name", nombre).append("expireAfterSeconds", segundosRetencion)));
+        }
+    }
+
+    /**
+     * Las versiones anteriores guardaban los resúmenes en colecciones de series temporales, que no admiten upserts.
+     * Si la colección es de series temporales, se copia a una colección normal (con un documento por tipo y período;
+     * un período duplicado por un fallo anterior se queda con un solo conteo) y se reemplaza la original.
+     */
+    private void migrarSerieTemporal(String coleccion) {
+        Document info = mongoTemplate.getDb().listCollections().filter(new Document("name", coleccion)).first();
+        if (info == null || !"timeseries".equals(info.getString("type"))) {
+            return;
+        }
+        String temporal = coleccion + "_migracion";
+        mongoTemplate.getCollection(coleccion).aggregate(List.of(
+                new Document("$group", new Document("_id", new Document("eventType", "$eventType").append("inicio", "$inicio"))
+                        .append("cantidad", new Document("$max", "$cantidad"))),
+                new Document("$project", new Document("_id", 0)
+                        .append("inicio", "$_id.inicio")
+                        .append("eventType", "$_id.eventType")
+                        .append("cantidad", 1)),
+                new Document("$out", temporal))).toCollection();
+        mongoTemplate.getCollection(temporal).renameCollection(
+                new MongoNamespace(mongoTemplate.getDb().getName(), coleccion), new RenameCollectionOptions().dropTarget(true));
+        LOGGER.info("Resúmenes de {} migrados de serie temporal a colección normal.", coleccion);
+    }
+
+    /**
+     * Resume los períodos cerrados de una granularidad, desde su marca hasta el límite (como máximo VENTANA_MAXIMA).
+     * @param granularidad La granularidad a resumir.
+     * @param limite Fin (exclusivo) del último período cerrado.
+     */
+    private void resumir(GranularidadResumen granularidad, Instant limite) {
+        Instant desde = leerMarca(granularidad);
+        if (desde == null) {
+            iniciarMarca(granularidad, limite);
+            return;
+        }
+        if (!desde.isBefore(limite)) {
+            return;
+        }
+        Instant hasta = desde.plus(VENTANA_MAXIMA).isBefore(limite) ? desde.plus(VENTANA_MAXIMA) : limite;
+        List<Document> resumenes = calcular(granularidad, desde, hasta);
+        guardar(granularidad, resumenes);
+        // Si falla la escritura, la marca no se mueve y el período se vuelve a resumir en el siguiente ciclo
+        if (!avanzarMarca(granularidad, desde, hasta)) {
+            LOGGER.debug("El resumen por {} desde {} ya lo guardó otra instancia.", granularidad, desde);
+            return;
+        }
+        LOGGER.info("Resumen por {} de {} a {}: {} documentos.", granularidad, desde, hasta, resumenes.size());
+    }
+
+    // Un upsert por (eventType, inicio): reescribir un período deja el mismo conteo
+    private void guardar(GranularidadResumen granularidad, List<Document> resumenes) {
+        if (resumenes.isEmpty()) {
+            return;
+        }
+        List<WriteModel<Document>> escrituras = new ArrayList<>(resumenes.size());
+        for (Document resumen : resumenes) {
+            escrituras.add(new ReplaceOneModel<>(
+                    Filters.and(Filters.eq("eventType", resumen.get("eventType")), Filters.eq("inicio", resumen.get("inicio"))),
+                    resumen, new ReplaceOptions().upsert(true)));
+        }
+        mongoTemplate.getCollection(granularidad.getColeccion()).bulkWrite(escrituras, new BulkWriteOptions().ordered(false));
+    }
+
+    private List<Document> calcular(GranularidadResumen granularidad, Instant desde, Instant hasta) {
+        List<Document> pipeline = pipelineConteo(granularidad.getCampoTiempoOrigen(), granularidad.isOrigenResumido(),
+                granularidad.getUnidad().getDuration(), desde, hasta, null);
+        return mongoTemplate.getCollection(granularidad.getColeccionOrigen())
+                .aggregate(pipeline)
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Pipeline que cuenta eventos por eventType y por período. Lo usan también los conteos de EventoService.
+     * El inicio de cada período se calcula restando a la fecha sus milisegundos desde 1970 módulo la duración,
+     * que para minutos, horas y días da lo mismo que $dateTrunc en UTC.
+     * Devuelve documentos {inicio, eventType, cantidad}. El filtro por rango de tiempo usa los índices sobre timestamp.
+     * @param campoTiempo Campo con la fecha del evento ("timestamp" en los logs, "inicio" en los resúmenes).
+     * @param origenResumido true para sumar el campo cantidad de resúmenes; false para contar documentos.
+     * @param periodo Duración de cada período (un minuto, una hora o un día).
+     * @param desde Inicio del rango (inclusivo).
+     * @param hasta Fin del rango (exclusivo).
+     * @param eventType Tipo de evento a contar, o null para todos.
+     */
+    static List<Document> pipelineConteo(String campoTiempo, boolean origenResumido, Duration periodo,
+                                         Instant desde, Instant hasta, String eventType) {
+        Document filtro = new Document(campoTiempo, new Document("$gte", Date.from(desde)).append("$lt", Date.from(hasta)));
+        if (eventType != null) {
+            filtro.append("eventType", eventType);
+        }
+        String fecha = "$" + campoTiempo;
+        Document inicio = new Document("$subtract", List.of(fecha, new Document("$mod", List.of(
+                new Document("$subtract", List.of(fecha, new Date(0))), periodo.toMillis()))));
+        return List.of(
+                new Document("$match", filtro),
+                new Document("$group", new Document("_id", new Document("eventType", "$eventType")
+                        .append("inicio", inicio))
+                        .append("cantidad", new Document("$sum", origenResumido ? "$cantidad" : 1))),
+                new Document("$project", new Document("_id", 0)
+                        .append("inicio", "$_id.inicio")
+                        .append("eventType", "$_id.eventType")
+                        .append("cantidad", 1)));
+    }
+
+    /**
+     * Vuelve a resumir los períodos ya cerrados que contienen alguno de los momentos indicados, para que un evento
+     * guardado después de que su minuto se resumió entre en los conteos. Cada minuto afectado se recuenta completo
+     * desde event_logs, y cada hora que lo contiene desde los resúmenes por minuto; los upserts reemplazan los
+     * conteos anteriores. Los momentos posteriores a la marca se ignoran (los resume el ciclo normal), igual que los
+     * anteriores a la retención de los logs, porque el recuento ya no tendría el resto de los eventos de ese minuto.
+     * @param momentos Fechas de los eventos recién guardados.
+     */
+    public void reabrirPeriodos(Collection<Instant> momentos) {
+        Instant marcaMinutos = leerMarca(GranularidadResumen.MINUTO);
+        if (marcaMinutos == null) {
+            return;
+        }
+        Instant retenidos = Instant.now().minus(retencionLogsDias, ChronoUnit.DAYS);
+        TreeSet<Instant> minutos = new TreeSet<>();
+        for (Instant momento : momentos) {
+            if (momento.isBefore(marcaMinutos) && momento.isAfter(retenidos)) {
+                minutos.add(momento.truncatedTo(GranularidadResumen.MINUTO.getUnidad()));
+            }
+        }
+        if (minutos.isEmpty()) {
+            return;
+        }
+        TreeSet<Instant> horas = new TreeSet<>();
+        for (Instant minuto : minutos) {
+            guardar(GranularidadResumen.MINUTO, calcular(GranularidadResumen.MINUTO, minuto, minuto.plus(1, ChronoUnit.MINUTES)));
+            horas.add(minuto.truncatedTo(GranularidadResumen.HORA.getUnidad()));
+        }
+        // La hora de la marca de minutos todavía no está cerrada: el ciclo la resume entera al cerrarla
+        Instant marcaHoras = leerMarca(GranularidadResumen.HORA);
+        for (Instant hora : horas) {
+            if (marcaHoras != null && hora.isBefore(marcaHoras)) {
+                guardar(GranularidadResumen.HORA, calcular(GranularidadResumen.HORA, hora, hora.plus(1, ChronoUnit.HOURS)));
+            }
+        }
+        LOGGER.info("Resúmenes reabiertos por eventos tardíos: {} minutos desde {}.", minutos.size(), minutos.first());
+    }
+
+    /**
+     * @param granularidad La granularidad.
+     * @return Fin (exclusivo) del período ya resumido, o null si todavía no se resumió nada.
+     */
+    public Instant obtenerMarca(GranularidadResumen granularidad) {
+        return leerMarca(granularidad);
+    }
+
+    private Instant leerMarca(GranularidadResumen granularidad) {
+        Document marca = mongoTemplate.findById(granularidad.name(), Document.class, COLECCION_MARCAS);
+        return marca != null ? marca.getDate("hasta").toInstant() : null;
+    }
+
+    /**
+     * Crea la marca en el período del evento más antiguo del origen, o en el límite si el origen está vacío.
+     */
+    private void iniciarMarca(GranularidadResumen granularidad, Instant limite) {
+        String campoTiempo = granularidad.getCampoTiempoOrigen();
+        Query masAntiguo = new Query().with(Sort.by(Sort.Direction.ASC, campoTiempo)).limit(1);
+        masAntiguo.fields().include(campoTiempo);
+        Document primero = mongoTemplate.findOne(masAntiguo, Document.class, granularidad.getColeccionOrigen());
+        Instant inicio = primero != null && primero.getDate(campoTiempo) != null
+                ? primero.getDate(campoTiempo).toInstant().truncatedTo(granularidad.getUnidad())
+                : limite;
+        try {
+            mongoTemplate.insert(new Document("_id", granularidad.name()).append("hasta", Date.from(inicio)), COLECCION_MARCAS);
+            LOGGER.info("Marca de resumen por {} iniciada en {}.", granularidad, inicio);
+        } catch (DuplicateKeyException e) {
+            // Otra instancia la creó primero
+        }
+    }
+
+    // Mueve la marca de 'actual' a 'nueva' solo si nadie la cambió antes
+    private boolean avanzarMarca(GranularidadResumen granularidad, Instant actual, Instant nueva) {
+        UpdateResult resultado = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(granularidad.name()).and("hasta").is(Date.from(actual))),
+                Update.update("hasta", Date.from(nueva)),
+                COLECCION_MARCAS);
+        return resultado.getModifiedCount() == 1;
+    }
+}
@@ -0,0 +1,80 @@
+package com.umg.gestiontareas.servicios;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.umg.gestiontareas.modelo.Tarea;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Caché en memoria de tareas por ID (lectura a través de la caché).
+ * Está acotada por tamaño y por tiempo de vida, y registra aciertos, fallos y desalojos.
+ * TareaService la mantiene coherente actualizándola o invalidándola en cada escritura.
+ * Guarda copias separadas de las entidades: una tarea en caché nunca es la instancia que Hibernate
+ * administra, así que un save() que falla (o que copia el estado nuevo con merge) no la modifica.
+ * Quien recibe una tarea de la caché no debe modificarla; para cambiarla se trabaja sobre una copia.
+ */
+@Component
+public class TareaCache {
+
+    private final Cache<Long, Tarea> cache;
+
+    public TareaCache(@Value("${gestion.cache.tareas.tamano-maximo:10000}") long tamanoMaximo,
+                      @Value("${gestion.cache.tareas.ttl-segundos:300}") long ttlSegundos) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Obtiene la tarea de la caché o, si no está, la carga con el cargador y la guarda.
+     * Si el cargador devuelve null (la tarea no existe), no se guarda nada.
+     * @param id ID de la tarea.
+     * @param cargador Función que lee la tarea de la base de datos.
+     * @return La tarea, o null si no existe.
+     */
+    public Tarea obtener(Long id, Function<Long, Tarea> cargador) {
+        return cache.get(id, clave -> {
+            Tarea cargada = cargador.apply(clave);
+            return cargada != null ? new Tarea(cargada) : null;
+        });
+    }
+
+    /**
+     * Guarda una copia de la tarea (por ejemplo, la entidad recién guardada).
+     */
+    public void guardar(Tarea tarea) {
+        if (tarea != null && tarea.getId() != null) {
+            cache.put(tarea.getId(), new Tarea(tarea));
+        }
+    }
+
+    public void invalidar(Long id) {
+        if (id != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    public void invalidarTodo() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats estadisticas() {
+        return cache.stats();
+    }
+
+    public long tamanoEstimado() {
+        return cache.estimatedSize();
+    }
+
+    // Acceso para registrar las métricas de Caffeine en Micrometer
+    Cache<Long, Tarea> getCache() {
+        return cache;
+    }
+}
@@ -1,228 +1,923 @@
 package com.umg.gestiontareas.servicios;
 
-import com.umg.estructuras.pila.PilaAcciones;
-import com.umg.estructuras.arbol.ArbolJerarquicoTareas;
-import com.umg.estructuras.cola.ColaTareasProgramadas;
-import com.umg.estructuras.arbol.NodoArbolTarea; // Importa NodoArbolTarea
+import com.umg.gestiontareas.estructuras.ArbolTareasConcurrente;
+import com.umg.gestiontareas.estructuras.ConteoEstados;
+import com.umg.gestiontareas.estructuras.DiagnosticoArbol;
+import com.umg.gestiontareas.estructuras.IndiceBusqueda;
+import com.umg.gestiontareas.estructuras.IndiceBusquedaConcurrente;
+import com.umg.gestiontareas.estructuras.InstantaneaArbol;
+import com.umg.gestiontareas.estructuras.NodoTarea;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.umg.gestiontareas.modelo.PaginaTareas;
+import com.umg.gestiontareas.modelo.ProgresoTarea;
+import com.umg.gestiontareas.modelo.ResultadoActualizacion;
+import com.umg.gestiontareas.modelo.ResultadoBusqueda;
+import com.umg.gestiontareas.modelo.SubarbolTarea;
 import com.umg.gestiontareas.modelo.Tarea;
+import com.umg.gestiontareas.modelo.TareaEvento;
+import com.umg.gestiontareas.modelo.TipoEventoTarea;
+import com.umg.gestiontareas.repositorio.TareaEspecificaciones;
+import com.umg.gestiontareas.repositorio.TareaJdbcRepository;
 import com.umg.gestiontareas.repositorio.TareaRepositoryMySQL;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import jakarta.annotation.PostConstruct; // Importa para el método PostConstruct
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.stream.Collectors; // Para usar Collectors
-import java.util.ArrayList; // Asegúrate de importar ArrayList
+import java.util.Map;
 import java.util.Objects; // Importa para usar Objects.equals
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+/**
+ * Servicio de tareas. Cada método público registra un Timer "gestion.tareas.servicio"
+ * (etiquetas class, method y exception) con la cantidad de llamadas y su latencia.
+ */
 @Service
+@Timed(value = "gestion.tareas.servicio", description = "Llamadas a TareaService")
 public class TareaService {
 
-    private static final Logger LOGGER = Logger.getLogger(TareaService.class.getName());
+    private static final Logger LOGGER = LoggerFactory.getLogger(TareaService.class);
+
+    // Límites de la paginación por cursor
+    public static final int TAMANO_PAGINA_POR_DEFECTO = 100;
+    public static final int TAMANO_PAGINA_MAXIMO = 1000;
 
     @Autowired
     private TareaRepositoryMySQL tareaRepository;
 
     @Autowired
-    private RabbitMQSender rabbitMQSender;
+    private TareaJdbcRepository tareaJdbcRepository; // Inserciones y actualizaciones masivas por lotes JDBC
 
-    private PilaAcciones<AccionDeshacer> pilaDeshacer = new PilaAcciones<>();
-    private ArbolJerarquicoTareas<Tarea> arbolTareas = new ArbolJerarquicoTareas<>();
-    private ColaTareasProgramadas<Tarea> colaTareasProgramadas = new ColaTareasProgramadas<>();
+    @Autowired
+    private ObjectMapper objectMapper;
 
-    // Clase interna AccionDeshacer DEFINIDA DENTRO de TareaService
-    private static class AccionDeshacer {
-        private String tipo;
-        private Tarea tareaAnterior;
-        private Long idPadreAsociado;
+    @PersistenceContext
+    private EntityManager entityManager;
 
-        public AccionDeshacer(String tipo, Tarea tareaAnterior) {
-            this.tipo = tipo;
-            this.tareaAnterior = tareaAnterior;
-            this.idPadreAsociado = null;
-        }
+    @Autowired
+    private OutboxEventos outboxEventos; // Eventos para RabbitMQ, guardados en la misma transacción que el cambio
 
-        public AccionDeshacer(String tipo, Tarea tareaAnterior, Long idPadreAsociado) {
-            this.tipo = tipo;
-            this.tareaAnterior = tareaAnterior;
-            this.idPadreAsociado = idPadreAsociado;
-        }
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
-        public String getTipo() {
-            return tipo;
-        }
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-        public Tarea getTareaAnterior() {
-            return tareaAnterior;
-        }
+    @Autowired
+    private TareaCache tareaCache;
 
-        public Long getIdPadreAsociado() {
-            return idPadreAsociado;
-        }
-    }
+    @Autowired
+    private HistorialDeshacer historialDeshacer; // Historial de deshacer separado por usuario
+
+    @Autowired
+    private PlanificadorTareas planificadorTareas; // Tareas programadas por prioridad y fecha, persistidas en MySQL
+
+    @Value("${gestion.instancias.modo:unica}")
+    private String modoInstancias;
+
+    // Árbol en memoria: los cambios van bajo bloqueo y /jerarquia se sirve desde instantáneas inmutables
+    private final ArbolTareasConcurrente arbolTareas = new ArbolTareasConcurrente();
+
+    // Índice invertido de título y descripción para la búsqueda por texto
+    private final IndiceBusquedaConcurrente indiceBusqueda = new IndiceBusquedaConcurrente();
 
     // Método que se ejecuta automáticamente después de que se construye el bean
     @PostConstruct
     public void inicializarArbolDesdeDB() {
-        LOGGER.log(Level.INFO, "Inicializando el árbol de tareas desde la base de datos al inicio de la aplicación.");
+        // En modo multiinstancia lo carga ReplicacionReceiver cuando arranca su consumidor, que igual tiene que resincronizar
+        if ("multiple".equals(modoInstancias)) {
+            LOGGER.info("Modo multiinstancia: el árbol de tareas se carga al iniciar el consumidor de replicación.");
+        } else {
+            LOGGER.info("Inicializando el árbol de tareas desde la base de datos al inicio de la aplicación.");
+            reconstruirArbolEIndice();
+        }
+        Gauge.builder("gestion.arbol.tareas", arbolTareas, ArbolTareasConcurrente::tamano)
+                .description("Tareas en el árbol en memoria")
+                .register(meterRegistry);
+        Gauge.builder("gestion.arbol.version", arbolTareas, ArbolTareasConcurrente::getVersion)
+                .description("Versión actual del árbol (cambia con cada modificación)")
+                .register(meterRegistry);
+        Gauge.builder("gestion.busqueda.tareas", indiceBusqueda, IndiceBusquedaConcurrente::tamano)
+                .description("Tareas en el índice de búsqueda por texto")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Vuelve a cargar el árbol y el índice de búsqueda desde MySQL y vacía la caché.
+     * En modo multiinstancia se usa cuando esta instancia pudo perder eventos de las demás
+     * (hueco en la secuencia, cola de replicación recreada) o cuando un evento no alcanza para
+     * saber qué cambió. Las lecturas siguen sirviéndose del árbol anterior hasta que el nuevo está listo.
+     */
+    public void resincronizar() {
+        LOGGER.info("Resincronizando el árbol de tareas con la base de datos.");
+        reconstruirArbolEIndice();
+        tareaCache.invalidarTodo();
+    }
+
+    // Construye el árbol y el índice a partir de todas las tareas de MySQL y los publica de una sola vez
+    private void reconstruirArbolEIndice() {
         List<Tarea> todasLasTareas = tareaRepository.findAll();
-        // Limpiamos el árbol actual para reconstruirlo
-        arbolTareas = new ArbolJerarquicoTareas<>();
-
-        // Separamos tareas sin padre y con padre para un procesamiento ordenado
-        List<Tarea> tareasSinPadre = todasLasTareas.stream()
-                .filter(tarea -> tarea.getIdTareaPadre() == null)
-                .collect(Collectors.toList());
-
-        List<Tarea> tareasConPadre = todasLasTareas.stream()
-                .filter(tarea -> tarea.getIdTareaPadre() != null)
-                .collect(Collectors.toList());
-
-        // Primero agregamos todas las tareas que no tienen padre
-        for (Tarea tarea : tareasSinPadre) {
-            arbolTareas.agregarTarea(tarea, null);
-        }
-
-        // Luego, en pasadas, agregamos las tareas que tienen padre
-        // Esto asegura que los padres existan en el árbol antes de intentar agregar los hijos
-        boolean algoAgregadoEnPasada;
-        do {
-            algoAgregadoEnPasada = false;
-            List<Tarea> tareasAgregadasEnEstaPasada = new ArrayList<>(); // Usar ArrayList
-            for (Tarea tarea : tareasConPadre) {
-                // Solo intentamos agregar si la tarea aún no está en el árbol
-                // y si su padre ya está en el árbol
-                if (arbolTareas.buscarNodoPorId(tarea.getId()) == null && arbolTareas.buscarNodoPorId(tarea.getIdTareaPadre()) != null) {
-                    arbolTareas.agregarTarea(tarea, tarea.getIdTareaPadre());
-                    tareasAgregadasEnEstaPasada.add(tarea);
-                    algoAgregadoEnPasada = true;
+
+        // Construimos el árbol nuevo en una sola pasada (agrupando por idTareaPadre) y luego lo publicamos
+        DiagnosticoArbol diagnostico = arbolTareas.reconstruir(todasLasTareas);
+
+        if (diagnostico.tieneProblemas()) {
+            LOGGER.warn("Tareas que no se pudieron enlazar al árbol (padre inexistente o ciclo): {}", diagnostico.resumen());
+        }
+        LOGGER.info("Árbol de tareas reconstruido con {} elementos desde la base de datos en {} ms.",
+                diagnostico.getTareasEnArbol(), diagnostico.getDuracionMillis());
+
+        long inicioIndice = System.nanoTime();
+        int terminos = indiceBusqueda.reconstruir(todasLasTareas);
+        LOGGER.info("Índice de búsqueda construido con {} tareas y {} términos en {} ms.",
+                indiceBusqueda.tamano(), terminos, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioIndice));
+    }
+
+    /**
+     * Aplica en la caché, el árbol y el índice los cambios que otra instancia hizo sobre estas tareas.
+     * El estado se lee de MySQL en lugar de tomarlo del evento, así que aplicar el mismo evento
+     * dos veces, o uno que esta misma instancia ya aplicó, no cambia el resultado.
+     * Las tareas que ya no existen se quitan del árbol junto con su subárbol, igual que al eliminarlas.
+     * @param ids IDs de las tareas afectadas.
+     */
+    public void aplicarCambiosExternos(Collection<Long> ids) {
+        List<Long> pendientes = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Tarea> encontradas = new ArrayList<>(pendientes.size());
+        for (int inicio = 0; inicio < pendientes.size(); inicio += TareaJdbcRepository.TAMANO_LOTE) {
+            List<Long> bloque = pendientes.subList(inicio, Math.min(inicio + TareaJdbcRepository.TAMANO_LOTE, pendientes.size()));
+            encontradas.addAll(tareaRepository.findAllById(bloque));
+        }
+        // Padres antes que hijos, para que al agregar una subtarea nueva su padre ya esté en el árbol
+        encontradas.sort(Comparator.comparing(Tarea::getId));
+        Set<Long> existentes = new HashSet<>();
+        encontradas.forEach(tarea -> existentes.add(tarea.getId()));
+        List<Long> eliminadas = pendientes.stream().filter(id -> !existentes.contains(id)).toList();
+
+        encontradas.forEach(tareaCache::guardar);
+        eliminadas.forEach(tareaCache::invalidar);
+        arbolTareas.modificar(arbol -> {
+            eliminadas.forEach(arbol::eliminarNodoPorId);
+            for (Tarea tarea : encontradas) {
+                if (!arbol.reemplazarTarea(tarea)) {
+                    arbol.agregarTarea(tarea, tarea.getIdTareaPadre());
                 }
             }
-            // Removemos las tareas que ya agregamos para la próxima pasada
-            tareasConPadre.removeAll(tareasAgregadasEnEstaPasada);
+            // Segunda pasada: con todas las tareas ya en el árbol, cada una queda bajo el padre que indica MySQL
+            for (Tarea tarea : encontradas) {
+                NodoTarea padre = arbol.buscarNodoPorId(tarea.getId()).getPadre();
+                Long idPadreActual = padre != null ? padre.getId() : null;
+                if (!Objects.equals(idPadreActual, tarea.getIdTareaPadre())) {
+                    arbol.moverNodo(tarea.getId(), tarea.getIdTareaPadre());
+                }
+            }
+            return null;
+        });
+        indiceBusqueda.eliminar(eliminadas);
+        indiceBusqueda.indexar(encontradas);
+        LOGGER.debug("Cambios externos aplicados: {} tareas actualizadas, {} eliminadas.", encontradas.size(), eliminadas.size());
+    }
+
+
+    /**
+     * Obtiene una página de tareas ordenadas por ID, a partir de un cursor.
+     * @param despuesDeId ID de la última tarea de la página anterior, o null para la primera página.
+     * @param limite Tamaño de página solicitado; se acota a TAMANO_PAGINA_MAXIMO.
+     * @return La página de tareas y el cursor para la siguiente.
+     */
+    public PaginaTareas obtenerPaginaTareas(Long despuesDeId, Integer limite) {
+        LOGGER.debug("Obteniendo página de tareas después del ID: {}", despuesDeId);
+        return paginar(despuesDeId, limite, tareaRepository::findByIdGreaterThanOrderByIdAsc);
+    }
+
+    /**
+     * Escribe todas las tareas como NDJSON (un objeto JSON por línea) a medida que se leen de la base de datos.
+     * Cada entidad se separa del contexto de persistencia después de escribirla, así que la memoria usada
+     * no depende del número de filas.
+     * @param salida Flujo donde se escriben las tareas.
+     * @return Cantidad de tareas exportadas.
+     */
+    @Transactional(readOnly = true)
+    public long exportarTareasNdjson(OutputStream salida) throws IOException {
+        LOGGER.info("Exportando todas las tareas en formato NDJSON.");
+        ObjectWriter escritor = objectMapper.writerFor(Tarea.class);
+        long total = 0;
+        try (Stream<Tarea> tareas = tareaRepository.streamTodasOrdenadasPorId()) {
+            Iterator<Tarea> iterador = tareas.iterator();
+            while (iterador.hasNext()) {
+                Tarea tarea = iterador.next();
+                salida.write(escritor.writeValueAsBytes(tarea));
+                salida.write('\n');
+                entityManager.detach(tarea);
+                total++;
+            }
+        }
+        salida.flush();
+        LOGGER.info("Exportación NDJSON finalizada: {} tareas.", total);
+        return total;
+    }
 
-        } while (algoAgregadoEnPasada && !tareasConPadre.isEmpty()); // Repetimos hasta que no se agregue nada o no queden tareas con padre
+    // Pide una fila de más para saber si existe una página siguiente sin hacer un COUNT
+    private PaginaTareas paginar(Long despuesDeId, Integer limite, BiFunction<Long, Limit, List<Tarea>> consulta) {
+        int tamano = normalizarLimite(limite);
+        long cursor = despuesDeId != null ? despuesDeId : 0L;
+        List<Tarea> tareas = consulta.apply(cursor, Limit.of(tamano + 1));
+        if (tareas.size() > tamano) {
+            tareas = tareas.subList(0, tamano);
+            return new PaginaTareas(tareas, String.valueOf(tareas.get(tamano - 1).getId()));
+        }
+        return new PaginaTareas(tareas, null);
+    }
 
-        if (!tareasConPadre.isEmpty()) {
-            LOGGER.log(Level.WARNING, "No se pudieron agregar {0} tareas con padre al árbol. Posiblemente sus padres no existen en la DB o hay un ciclo.", tareasConPadre.size());
+    // Igual que paginar, con el cursor "<fechaCreacion>_<id>" de los listados ordenados por fecha.
+    // La primera consulta se usa sin cursor y la segunda con él; devuelve null si el cursor no es válido.
+    private PaginaTareas paginarPorFecha(String cursor, Integer limite, Function<Limit, List<Tarea>> primera,
+                                         CursorFecha<List<Tarea>> siguientes) {
+        int tamano = normalizarLimite(limite);
+        List<Tarea> tareas;
+        if (cursor == null) {
+            tareas = primera.apply(Limit.of(tamano + 1));
+        } else {
+            int separador = cursor.lastIndexOf('_');
+            if (separador <= 0) {
+                return null;
+            }
+            try {
+                LocalDateTime fecha = LocalDateTime.parse(cursor.substring(0, separador));
+                long id = Long.parseLong(cursor.substring(separador + 1));
+                tareas = siguientes.consultar(fecha, id, Limit.of(tamano + 1));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                return null;
+            }
+        }
+        if (tareas.size() > tamano) {
+            tareas = tareas.subList(0, tamano);
+            Tarea ultima = tareas.get(tamano - 1);
+            return new PaginaTareas(tareas, ultima.getFechaCreacion() + "_" + ultima.getId());
         }
-        LOGGER.log(Level.INFO, "Árbol de tareas reconstruido con {0} elementos desde la base de datos.", arbolTareas.obtenerTareasDelArbol().size());
+        return new PaginaTareas(tareas, null);
     }
 
+    @FunctionalInterface
+    private interface CursorFecha<T> {
+        T consultar(LocalDateTime fecha, Long id, Limit limite);
+    }
+
+    // Lista los campos que difieren entre el estado anterior y el nuevo de una tarea
+    private static List<String> camposCambiados(Tarea antes, Tarea despues) {
+        List<String> campos = new ArrayList<>();
+        if (!Objects.equals(antes.getTitulo(), despues.getTitulo())) {
+            campos.add("titulo");
+        }
+        if (!Objects.equals(antes.getDescripcion(), despues.getDescripcion())) {
+            campos.add("descripcion");
+        }
+        if (!Objects.equals(antes.getEstado(), despues.getEstado())) {
+            campos.add("estado");
+        }
+        if (!Objects.equals(antes.getPrioridad(), despues.getPrioridad())) {
+            campos.add("prioridad");
+        }
+        if (!Objects.equals(antes.getTipo(), despues.getTipo())) {
+            campos.add("tipo");
+        }
+        if (!Objects.equals(antes.getFechaCompletada(), despues.getFechaCompletada())) {
+            campos.add("fechaCompletada");
+        }
+        if (!Objects.equals(antes.getIdTareaPadre(), despues.getIdTareaPadre())) {
+            campos.add("idTareaPadre");
+        }
+        return campos;
+    }
 
-    public List<Tarea> obtenerTodasLasTareas() {
-        LOGGER.log(Level.INFO, "Obteniendo todas las tareas.");
-        return tareaRepository.findAll();
+    private static int normalizarLimite(Integer limite) {
+        if (limite == null || limite <= 0) {
+            return TAMANO_PAGINA_POR_DEFECTO;
+        }
+        return Math.min(limite, TAMANO_PAGINA_MAXIMO);
     }
 
     public Tarea obtenerTareaPorId(Long id) {
-        LOGGER.log(Level.INFO, "Obteniendo tarea con ID: {0}", id);
-        return tareaRepository.findById(id).orElse(null);
+        LOGGER.debug("Obteniendo tarea con ID: {}", id);
+        return buscarTarea(id);
+    }
+
+    /**
+     * @return Estadísticas de la caché de tareas (aciertos, fallos, desalojos, tamaño).
+     */
+    public Map<String, Number> obtenerEstadisticasCache() {
+        CacheStats estadisticas = tareaCache.estadisticas();
+        Map<String, Number> resultado = new LinkedHashMap<>();
+        resultado.put("aciertos", estadisticas.hitCount());
+        resultado.put("fallos", estadisticas.missCount());
+        resultado.put("tasaAciertos", estadisticas.hitRate());
+        resultado.put("desalojos", estadisticas.evictionCount());
+        resultado.put("tamano", tareaCache.tamanoEstimado());
+        return resultado;
+    }
+
+    // Lectura a través de la caché; solo va a MySQL si la tarea no está en caché
+    private Tarea buscarTarea(Long id) {
+        return tareaCache.obtener(id, clave -> tareaRepository.findById(clave).orElse(null));
+    }
+
+    // Guarda una copia modificada de una tarea leída de la caché. Si su versión quedó vieja (otro cambio
+    // se guardó antes), la copia en caché se descarta para que la próxima lectura traiga la actual.
+    private Tarea guardarCopia(Tarea copia) {
+        try {
+            return tareaRepository.saveAndFlush(copia);
+        } catch (OptimisticLockingFailureException e) {
+            tareaCache.invalidar(copia.getId());
+            throw e;
+        }
+    }
+
+    // Mantiene coherentes las estructuras derivadas después de guardar una tarea
+    private void registrarGuardado(Tarea tarea) {
+        registrarGuardados(List.of(tarea));
     }
 
-    public Tarea crearTarea(Tarea tarea) {
-        LOGGER.log(Level.INFO, "Creando nueva tarea: {0}", tarea.getTitulo());
+    // Igual que registrarGuardado para un lote; el árbol publica una sola versión nueva para todo el lote
+    private void registrarGuardados(List<Tarea> tareas) {
+        tareas.forEach(tareaCache::guardar);
+        actualizarArbolEIndice(tareas);
+    }
+
+    // Igual que registrarGuardados para filas cambiadas con un UPDATE por JDBC: MySQL incrementó su versión,
+    // así que las copias no se guardan en la caché (la próxima lectura trae la versión nueva).
+    // Las copias deben traer la versión que dejó el UPDATE, para que el árbol la devuelva como valor de If-Match.
+    private void registrarActualizadasPorJdbc(List<Tarea> tareas) {
+        tareas.forEach(tarea -> tareaCache.invalidar(tarea.getId()));
+        actualizarArbolEIndice(tareas);
+    }
+
+    private void actualizarArbolEIndice(List<Tarea> tareas) {
+        arbolTareas.modificar(arbol -> {
+            tareas.forEach(arbol::reemplazarTarea); // Actualiza los conteos por estado si la tarea ya está en el árbol
+            return null;
+        });
+        indiceBusqueda.indexar(tareas); // Solo toca el índice si cambió el título o la descripción
+    }
+
+    // Refleja en la caché y el árbol un UPDATE masivo de completado, a partir de las copias anteriores
+    private void registrarCompletadas(List<Tarea> anteriores, LocalDateTime fechaCompletada) {
+        List<Tarea> completadas = new ArrayList<>(anteriores.size());
+        for (Tarea anterior : anteriores) {
+            Tarea completada = conVersionAvanzada(anterior, 1);
+            completada.setEstado("COMPLETADA");
+            completada.setFechaCompletada(fechaCompletada);
+            completadas.add(completada);
+        }
+        registrarActualizadasPorJdbc(completadas);
+    }
+
+    // Copia de la tarea con la versión que le dejan 'actualizaciones' UPDATE por JDBC (cada uno suma 1)
+    private static Tarea conVersionAvanzada(Tarea tarea, int actualizaciones) {
+        Tarea copia = new Tarea(tarea);
+        if (copia.getVersion() != null) {
+            copia.setVersion(copia.getVersion() + actualizaciones);
+        }
+        return copia;
+    }
+
+    // Mantiene coherentes las estructuras derivadas después de eliminar una tarea
+    private void registrarEliminacion(Long id) {
+        registrarEliminaciones(List.of(id));
+    }
+
+    // Igual que registrarEliminacion para un lote
+    private void registrarEliminaciones(List<Long> ids) {
+        ids.forEach(tareaCache::invalidar);
+        indiceBusqueda.eliminar(ids);
+    }
+
+    // Si la transacción de un deshacer se revierte, la acción vuelve al historial para poder intentarlo otra vez
+    private void devolverSiSeRevierte(String usuario, AccionDeshacer accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    if (estado == STATUS_ROLLED_BACK) {
+                        historialDeshacer.registrar(usuario, accion);
+                    }
+                }
+            });
+        }
+    }
+
+    // Aplica los cambios en memoria (caché, árbol, índice e historial de deshacer) cuando la transacción se confirma,
+    // como OutboxEventos con su aviso: si el guardado o el outbox se revierten, la memoria sigue igual que MySQL
+    // y las instantáneas nunca muestran filas sin confirmar. Sin transacción activa se aplican enseguida.
+    private static void alConfirmar(Runnable cambios) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cambios.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cambios.run();
+            }
+        });
+    }
+
+    @Transactional
+    public Tarea crearTarea(Tarea tarea, String usuario) {
+        LOGGER.info("Creando nueva tarea: {}", tarea.getTitulo());
         tarea.setIdTareaPadre(null); // Aseguramos que la tarea principal no tenga padre
         Tarea nuevaTarea = tareaRepository.save(tarea);
-        arbolTareas.agregarTarea(nuevaTarea, null); // Agrega la nueva tarea al árbol (como raíz si no hay padre)
-        pilaDeshacer.push(new AccionDeshacer("CREAR", nuevaTarea)); // Guarda la tarea creada para deshacer
-        String mensaje = "Tarea creada: ID " + nuevaTarea.getId() + ", Título: " + nuevaTarea.getTitulo();
-        rabbitMQSender.sendTareaEvent(mensaje);
+        outboxEventos.registrar(TareaEvento.de(TipoEventoTarea.TAREA_CREADA, nuevaTarea));
+        Tarea copia = new Tarea(nuevaTarea);
+        alConfirmar(() -> {
+            registrarGuardado(copia);
+            arbolTareas.modificar(arbol -> arbol.agregarTarea(copia, null)); // Agrega la nueva tarea al árbol (como raíz si no hay padre)
+            historialDeshacer.registrar(usuario, new AccionDeshacer("CREAR", copia)); // Guarda la tarea creada para deshacer
+        });
         return nuevaTarea;
     }
 
-    public Tarea actualizarTarea(Long id, Tarea tareaActualizada) {
-        LOGGER.log(Level.INFO, "Actualizando tarea con ID: {0}", id);
-        Tarea tareaExistente = tareaRepository.findById(id).orElse(null);
-        if (tareaExistente != null) {
-            pilaDeshacer.push(new AccionDeshacer("ACTUALIZAR", tareaExistente)); // Guarda el estado ANTERIOR para deshacer
-            tareaActualizada.setId(id); // Asegura que la ID sea la correcta para la actualización
+    /**
+     * Crea muchas tareas en una sola operación: se insertan con lotes JDBC (una ida y vuelta a MySQL
+     * por cada TareaJdbcRepository.TAMANO_LOTE filas), el árbol se actualiza una vez con todo el lote,
+     * se publica un único evento agregado y el lote completo se deshace como una sola acción.
+     * Cada tarea conserva su idTareaPadre, que debe referirse a una tarea ya existente.
+     * @param tareas Tareas a crear.
+     * @param usuario Usuario cuyo historial de deshacer registra la operación.
+     * @return Las tareas creadas, con sus IDs.
+     */
+    @Transactional
+    public List<Tarea> crearTareasEnLote(List<Tarea> tareas, String usuario) {
+        LOGGER.info("Creando lote de {} tareas.", tareas.size());
+        if (tareas.isEmpty()) {
+            return tareas;
+        }
+        long inicio = System.nanoTime();
+        tareas.forEach(tarea -> tarea.setId(null));
+        tareaJdbcRepository.insertarLote(tareas);
+        registrarDuracionLote("insertado", tareas.size(), inicio);
+
+        List<Long> ids = new ArrayList<>(tareas.size());
+        List<Tarea> copias = new ArrayList<>(tareas.size());
+        for (Tarea tarea : tareas) {
+            ids.add(tarea.getId());
+            copias.add(new Tarea(tarea));
+        }
+        outboxEventos.registrar(TareaEvento.lote(TipoEventoTarea.TAREAS_CREADAS_LOTE, ids));
+        alConfirmar(() -> {
+            registrarGuardados(copias);
+            int sinPadre = arbolTareas.modificar(arbol -> arbol.agregarTareas(copias));
+            if (sinPadre > 0) {
+                LOGGER.warn("{} tareas del lote tienen un padre inexistente; se agregaron como raíz en el árbol.", sinPadre);
+            }
+            historialDeshacer.registrar(usuario, new AccionDeshacer("CREAR_LOTE", copias));
+        });
+        return tareas;
+    }
+
+    /**
+     * Marca como completadas muchas tareas con sentencias UPDATE ... WHERE id IN (...).
+     * Los IDs que no existen se ignoran.
+     * @param ids IDs de las tareas a completar.
+     * @param usuario Usuario cuyo historial de deshacer registra la operación.
+     * @return Cantidad de tareas completadas.
+     */
+    @Transactional
+    public int completarTareasEnLote(List<Long> ids, String usuario) {
+        LOGGER.info("Completando lote de {} tareas.", ids.size());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        long inicio = System.nanoTime();
+        // Copias del estado anterior para deshacer; se leen con un solo SELECT ... IN
+        List<Tarea> copias = new ArrayList<>(ids.size());
+        List<Long> idsExistentes = new ArrayList<>(ids.size());
+        for (Tarea tarea : tareaRepository.findAllById(ids)) {
+            copias.add(new Tarea(tarea));
+            idsExistentes.add(tarea.getId());
+        }
+        if (idsExistentes.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        int completadas = tareaJdbcRepository.completarLote(idsExistentes, ahora);
+        registrarDuracionLote("completado", completadas, inicio);
+        outboxEventos.registrar(TareaEvento.lote(TipoEventoTarea.TAREAS_COMPLETADAS_LOTE, idsExistentes));
+        alConfirmar(() -> {
+            registrarCompletadas(copias, ahora);
+            historialDeshacer.registrar(usuario, new AccionDeshacer("COMPLETAR_LOTE", copias));
+        });
+        return completadas;
+    }
+
+    private static void registrarDuracionLote(String operacion, int filas, long inicioNanos) {
+        long duracionMs = Math.max(1, (System.nanoTime() - inicioNanos) / 1_000_000);
+        LOGGER.info("Lote de {} tareas {} en {} ms ({} filas/s).",
+                filas, operacion, duracionMs, filas * 1000L / duracionMs);
+    }
+
+    /**
+     * Reemplaza todos los campos editables de una tarea (PUT).
+     * @param versionesEsperadas Versiones que acepta el cliente (If-Match); null = sobre la versión actual, sin comprobarla.
+     * @return El resultado; VERSION_DISTINTA si otro cambio se guardó antes.
+     */
+    public ResultadoActualizacion actualizarTarea(Long id, Tarea tareaActualizada, Set<Long> versionesEsperadas, String usuario) {
+        LOGGER.info("Actualizando tarea con ID: {}", id);
+        Tarea tareaExistente = buscarParaActualizar(id, versionesEsperadas);
+        if (tareaExistente == null) {
+            return ResultadoActualizacion.de(ResultadoActualizacion.Estado.NO_ENCONTRADA);
+        }
+        tareaActualizada.setId(id); // Asegura que la ID sea la correcta para la actualización
+        tareaActualizada.setFechaCreacion(tareaExistente.getFechaCreacion()); // No es editable; sin esto el cuerpo la pondría en "ahora"
+        return guardarActualizacion(tareaExistente, tareaActualizada, versionesEsperadas, usuario);
+    }
+
+    /**
+     * Cambia solo los campos presentes en 'cambios' (PATCH); los demás conservan su valor.
+     * Con @DynamicUpdate el UPDATE incluye solo las columnas que realmente cambiaron.
+     * @param cambios Campos editables (titulo, descripcion, estado, prioridad, tipo, fechaCompletada, idTareaPadre) y su valor nuevo.
+     * @param versionesEsperadas Versiones que acepta el cliente (If-Match); null = sobre la versión actual, sin comprobarla.
+     * @return El resultado; CAMBIOS_INVALIDOS si hay un campo desconocido o un valor del tipo equivocado.
+     */
+    public ResultadoActualizacion actualizarParcialmente(Long id, Map<String, Object> cambios, Set<Long> versionesEsperadas, String usuario) {
+        LOGGER.info("Actualizando parcialmente la tarea con ID: {} (campos: {})", id, cambios.keySet());
+        Tarea tareaExistente = buscarParaActualizar(id, versionesEsperadas);
+        if (tareaExistente == null) {
+            return ResultadoActualizacion.de(ResultadoActualizacion.Estado.NO_ENCONTRADA);
+        }
+        Tarea tareaActualizada = new Tarea(tareaExistente);
+        if (!aplicarCambios(tareaActualizada, cambios)) {
+            return ResultadoActualizacion.de(ResultadoActualizacion.Estado.CAMBIOS_INVALIDOS);
+        }
+        return guardarActualizacion(tareaExistente, tareaActualizada, versionesEsperadas, usuario);
+    }
 
-            // Lógica para actualizar la jerarquía en el árbol en memoria
-            // Comparamos el idTareaPadre existente con el idTareaPadre actualizado
-            if (!Objects.equals(tareaExistente.getIdTareaPadre(), tareaActualizada.getIdTareaPadre())) {
-                LOGGER.log(Level.INFO, "Cambio de padre detectado para tarea ID {0}. Moviendo nodo en el árbol.", id);
-                arbolTareas.moverNodo(tareaActualizada.getId(), tareaActualizada.getIdTareaPadre());
+    // Con If-Match basta la caché: si está desactualizada, el UPDATE con su versión falla y se responde 412, como corresponde.
+    // Sin If-Match se lee de MySQL, para no rechazar al cliente por una versión vieja en caché ni aplicar un PATCH
+    // sobre campos desactualizados. Se usa una copia, como con la caché: con open-in-view la entidad leída sigue
+    // administrada y el save() le copiaría el estado nuevo antes de guardar la copia para deshacer.
+    private Tarea buscarParaActualizar(Long id, Set<Long> versionesEsperadas) {
+        return versionesEsperadas != null ? buscarTarea(id) : tareaRepository.findById(id).map(Tarea::new).orElse(null);
+    }
+
+    // Guarda la tarea actualizada con el UPDATE ... WHERE version = ? de Hibernate.
+    // Si otro cambio se guardó antes, el UPDATE no encuentra la fila y no se toca nada más.
+    private ResultadoActualizacion guardarActualizacion(Tarea tareaExistente, Tarea tareaActualizada,
+                                                        Set<Long> versionesEsperadas, String usuario) {
+        Long id = tareaExistente.getId();
+        if (versionesEsperadas != null && !versionesEsperadas.contains(tareaExistente.getVersion())) {
+            LOGGER.info("Versiones {} de la tarea ID {} desactualizadas (actual: {}).", versionesEsperadas, id, tareaExistente.getVersion());
+            return ResultadoActualizacion.de(ResultadoActualizacion.Estado.VERSION_DISTINTA);
+        }
+        // Los cambios se calculan antes de guardar: save() puede copiar el estado nuevo sobre la entidad existente
+        List<String> cambios = camposCambiados(tareaExistente, tareaActualizada);
+        if (cambios.isEmpty()) {
+            return ResultadoActualizacion.actualizada(tareaExistente); // Nada que escribir
+        }
+        tareaActualizada.setVersion(tareaExistente.getVersion());
+        Tarea tareaGuardada;
+        try {
+            // El UPDATE y el evento del outbox van en una transacción propia, para poder responder 412 si falla la versión
+            tareaGuardada = transactionTemplate.execute(estado -> {
+                Tarea guardada = new Tarea(tareaRepository.saveAndFlush(tareaActualizada));
+                outboxEventos.registrar(TareaEvento.actualizacion(guardada, cambios));
+                alConfirmar(() -> {
+                    historialDeshacer.registrar(usuario, new AccionDeshacer("ACTUALIZAR", new Tarea(tareaExistente))); // Guarda una copia del estado ANTERIOR para deshacer
+
+                    // Si cambió el padre, se mueve el nodo en el árbol en memoria
+                    if (!Objects.equals(tareaExistente.getIdTareaPadre(), guardada.getIdTareaPadre())) {
+                        LOGGER.info("Cambio de padre detectado para tarea ID {}. Moviendo nodo en el árbol.", id);
+                        arbolTareas.modificar(arbol -> arbol.moverNodo(id, guardada.getIdTareaPadre()));
+                    }
+                    registrarGuardado(guardada);
+                });
+                return guardada;
+            });
+        } catch (OptimisticLockingFailureException e) {
+            // La copia en caché puede ser la desactualizada; la próxima lectura trae la versión actual
+            tareaCache.invalidar(id);
+            LOGGER.info("Conflicto de versión al actualizar la tarea ID {}: {}", id, e.getMessage());
+            return ResultadoActualizacion.de(ResultadoActualizacion.Estado.VERSION_DISTINTA);
+        }
+        return ResultadoActualizacion.actualizada(tareaGuardada);
+    }
+
+    // Aplica los campos de un PATCH sobre la tarea. Devuelve false si algún campo no es editable o su valor no es válido.
+    private static boolean aplicarCambios(Tarea tarea, Map<String, Object> cambios) {
+        for (Map.Entry<String, Object> cambio : cambios.entrySet()) {
+            Object valor = cambio.getValue();
+            switch (cambio.getKey()) {
+                case "titulo", "descripcion", "estado", "prioridad", "tipo" -> {
+                    if (valor != null && !(valor instanceof String)) {
+                        return false;
+                    }
+                    asignarTexto(tarea, cambio.getKey(), (String) valor);
+                }
+                case "fechaCompletada" -> {
+                    if (valor == null) {
+                        tarea.setFechaCompletada(null);
+                    } else if (valor instanceof String texto) {
+                        try {
+                            tarea.setFechaCompletada(LocalDateTime.parse(texto));
+                        } catch (DateTimeParseException e) {
+                            return false;
+                        }
+                    } else {
+                        return false;
+                    }
+                }
+                case "idTareaPadre" -> {
+                    if (valor != null && !(valor instanceof Number)) {
+                        return false;
+                    }
+                    tarea.setIdTareaPadre(valor != null ? ((Number) valor).longValue() : null);
+                }
+                default -> {
+                    return false; // id, version, fechaCreacion o un campo desconocido
+                }
             }
+        }
+        return true;
+    }
 
-            Tarea tareaGuardada = tareaRepository.save(tareaActualizada);
-            String mensaje = "Tarea actualizada: ID " + tareaGuardada.getId() + ", Título: " + tareaGuardada.getTitulo();
-            rabbitMQSender.sendTareaEvent(mensaje);
-            return tareaGuardada;
+    private static void asignarTexto(Tarea tarea, String campo, String valor) {
+        switch (campo) {
+            case "titulo" -> tarea.setTitulo(valor);
+            case "descripcion" -> tarea.setDescripcion(valor);
+            case "estado" -> tarea.setEstado(valor);
+            case "prioridad" -> tarea.setPrioridad(valor);
+            default -> tarea.setTipo(valor);
         }
-        return null; // O lanzar una excepción
     }
 
-    public void eliminarTarea(Long id) {
-        LOGGER.log(Level.INFO, "Eliminando tarea con ID: {0}", id);
-        Tarea tareaEliminada = tareaRepository.findById(id).orElse(null);
+    @Transactional
+    public void eliminarTarea(Long id, String usuario) {
+        LOGGER.info("Eliminando tarea con ID: {}", id);
+        Tarea tareaEliminada = buscarTarea(id);
         if (tareaEliminada != null) {
             // Antes de eliminar de DB, guardamos la tarea y su posible padre para deshacer
             Long idPadre = tareaEliminada.getIdTareaPadre(); // Obtenemos el idPadre de la tarea eliminada
-            pilaDeshacer.push(new AccionDeshacer("ELIMINAR", tareaEliminada, idPadre));
+            AccionDeshacer accion = new AccionDeshacer("ELIMINAR", new Tarea(tareaEliminada), idPadre);
 
             tareaRepository.deleteById(id);
-            arbolTareas.eliminarNodoPorId(id); // Eliminar la tarea del árbol en memoria
-            String mensaje = "Tarea eliminada: ID " + tareaEliminada.getId() + ", Título: " + tareaEliminada.getTitulo();
-            rabbitMQSender.sendTareaEvent(mensaje);
+            outboxEventos.registrar(TareaEvento.de(TipoEventoTarea.TAREA_ELIMINADA, tareaEliminada));
+            alConfirmar(() -> {
+                registrarEliminacion(id);
+                arbolTareas.modificar(arbol -> arbol.eliminarNodoPorId(id)); // Eliminar la tarea del árbol en memoria
+                historialDeshacer.registrar(usuario, accion);
+            });
         }
     }
 
-    public void marcarComoCompletada(Long id) {
-        LOGGER.log(Level.INFO, "Marcando tarea con ID: {0} como completada", id);
-        Tarea tareaAnterior = tareaRepository.findById(id).orElse(null);
+    /**
+     * Elimina una tarea junto con todas sus subtareas. El subárbol se obtiene del árbol en memoria
+     * y se borra con una sola sentencia DELETE ... WHERE id IN (...); deshacer lo restaura completo.
+     * @return Cantidad de tareas eliminadas (0 si la tarea no está en el árbol).
+     */
+    @Transactional
+    public int eliminarSubarbol(Long id, String usuario) {
+        LOGGER.info("Eliminando en cascada el subárbol de la tarea con ID: {}", id);
+        List<Tarea> copias = copiasDelSubarbol(id);
+        if (copias.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = copias.stream().map(Tarea::getId).toList();
+        tareaRepository.deleteAllByIdInBatch(ids);
+        outboxEventos.registrar(TareaEvento.cascada(TipoEventoTarea.SUBARBOL_ELIMINADO, id, ids));
+        alConfirmar(() -> {
+            registrarEliminaciones(ids);
+            arbolTareas.modificar(arbol -> arbol.eliminarNodoPorId(id));
+            historialDeshacer.registrar(usuario, new AccionDeshacer("ELIMINAR_CASCADA", copias));
+        });
+        return ids.size();
+    }
+
+    /**
+     * Marca como completadas una tarea y todas sus subtareas pendientes con sentencias UPDATE ... WHERE id IN (...).
+     * Las que ya estaban completadas conservan su fecha de completado.
+     * @return Cantidad de tareas completadas, o -1 si la tarea no está en el árbol.
+     */
+    @Transactional
+    public int completarSubarbol(Long id, String usuario) {
+        LOGGER.info("Completando en cascada el subárbol de la tarea con ID: {}", id);
+        List<Tarea> copias = copiasDelSubarbol(id);
+        if (copias.isEmpty()) {
+            return -1;
+        }
+        List<Tarea> pendientes = new ArrayList<>();
+        for (Tarea copia : copias) {
+            if (!"COMPLETADA".equals(copia.getEstado())) {
+                pendientes.add(copia);
+            }
+        }
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = pendientes.stream().map(Tarea::getId).toList();
+        LocalDateTime ahora = LocalDateTime.now();
+        int completadas = tareaJdbcRepository.completarLote(ids, ahora);
+        outboxEventos.registrar(TareaEvento.cascada(TipoEventoTarea.SUBARBOL_COMPLETADO, id, ids));
+        alConfirmar(() -> {
+            registrarCompletadas(pendientes, ahora);
+            historialDeshacer.registrar(usuario, new AccionDeshacer("COMPLETAR_CASCADA", pendientes));
+        });
+        return completadas;
+    }
+
+    /**
+     * Obtiene el progreso de una tarea y sus subtareas a partir de los agregados del árbol: O(1).
+     * @return El progreso, o null si la tarea no está en el árbol.
+     */
+    public ProgresoTarea obtenerProgreso(Long id) {
+        LOGGER.debug("Obteniendo progreso de la tarea con ID: {}", id);
+        return arbolTareas.leer(arbol -> {
+            NodoTarea nodo = arbol.buscarNodoPorId(id);
+            if (nodo == null) {
+                return null;
+            }
+            ConteoEstados conteo = nodo.getConteoSubarbol();
+            return new ProgresoTarea(id, conteo.total(), conteo.cantidad("COMPLETADA"), conteo.comoMapa());
+        });
+    }
+
+    /**
+     * Busca tareas por palabras del título o la descripción en el índice en memoria.
+     * Todas las palabras deben aparecer, completas o como comienzo de una palabra; el título pesa más.
+     * Las tareas encontradas se leen de MySQL con una sola consulta.
+     * @param consulta Texto a buscar.
+     * @param limite Cantidad máxima de resultados (opcional, máximo TAMANO_PAGINA_MAXIMO).
+     * @return Tareas de la más a la menos relevante.
+     */
+    public List<ResultadoBusqueda> buscarTareas(String consulta, Integer limite) {
+        LOGGER.debug("Buscando tareas por texto: {}", consulta);
+        List<IndiceBusqueda.Coincidencia> coincidencias = indiceBusqueda.buscar(consulta, normalizarLimite(limite));
+        if (coincidencias.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Tarea> tareas = new HashMap<>();
+        tareaRepository.findAllById(coincidencias.stream().map(IndiceBusqueda.Coincidencia::idTarea).toList())
+                .forEach(tarea -> tareas.put(tarea.getId(), tarea));
+        List<ResultadoBusqueda> resultados = new ArrayList<>(coincidencias.size());
+        for (IndiceBusqueda.Coincidencia coincidencia : coincidencias) {
+            Tarea tarea = tareas.get(coincidencia.idTarea());
+            if (tarea != null) {
+                resultados.add(new ResultadoBusqueda(tarea, coincidencia.puntaje()));
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Obtiene una tarea con sus subtareas anidadas desde el árbol en memoria.
+     * @param profundidad Niveles de subtareas a incluir; null = todos.
+     * @return El subárbol, o null si la tarea no está en el árbol.
+     */
+    public SubarbolTarea obtenerSubarbol(Long id, Integer profundidad) {
+        LOGGER.debug("Obteniendo subárbol de la tarea con ID: {}", id);
+        return arbolTareas.leer(arbol -> arbol.obtenerSubarbol(id, profundidad != null ? profundidad : -1));
+    }
+
+    // Copias del estado actual en MySQL de las tareas del subárbol, en preorden (cada padre antes que sus hijos).
+    // Se leen de la base de datos con un solo SELECT ... IN porque el árbol puede tener campos desactualizados.
+    private List<Tarea> copiasDelSubarbol(Long id) {
+        List<Tarea> enArbol = arbolTareas.leer(arbol -> arbol.obtenerTareasDelSubarbol(id));
+        if (enArbol.isEmpty()) {
+            return enArbol;
+        }
+        List<Long> ids = enArbol.stream().map(Tarea::getId).toList();
+        Map<Long, Tarea> porId = new HashMap<>();
+        for (Tarea tarea : tareaRepository.findAllById(ids)) {
+            porId.put(tarea.getId(), tarea);
+        }
+        List<Tarea> copias = new ArrayList<>(ids.size());
+        for (Long idTarea : ids) {
+            Tarea tarea = porId.get(idTarea);
+            if (tarea != null) {
+                copias.add(new Tarea(tarea));
+            }
+        }
+        return copias;
+    }
+
+    @Transactional
+    public void marcarComoCompletada(Long id, String usuario) {
+        LOGGER.info("Marcando tarea con ID: {} como completada", id);
+        Tarea tareaAnterior = buscarTarea(id);
         if (tareaAnterior != null) {
-            pilaDeshacer.push(new AccionDeshacer("COMPLETAR", tareaAnterior));
-            tareaAnterior.setEstado("COMPLETADA");
-            tareaAnterior.setFechaCompletada(LocalDateTime.now());
-            tareaRepository.save(tareaAnterior);
-            String mensaje = "Tarea completada: ID " + tareaAnterior.getId() + ", Título: " + tareaAnterior.getTitulo();
-            rabbitMQSender.sendTareaEvent(mensaje);
+            // Se modifica y guarda una copia: la tarea de la caché y el historial solo cambian si la transacción se confirma
+            Tarea completada = new Tarea(tareaAnterior);
+            completada.setEstado("COMPLETADA");
+            completada.setFechaCompletada(LocalDateTime.now());
+            Tarea guardada = guardarCopia(completada);
+            outboxEventos.registrar(TareaEvento.de(TipoEventoTarea.TAREA_COMPLETADA, guardada));
+            Tarea copiaGuardada = new Tarea(guardada);
+            AccionDeshacer accion = new AccionDeshacer("COMPLETAR", new Tarea(tareaAnterior));
+            alConfirmar(() -> {
+                registrarGuardado(copiaGuardada);
+                historialDeshacer.registrar(usuario, accion);
+            });
         }
     }
 
-    public String deshacerUltimaAccion() {
-        AccionDeshacer accion = pilaDeshacer.pop();
+    /**
+     * Deshace la última acción registrada por el usuario.
+     * Si la transacción se revierte, la acción vuelve al historial y la memoria no cambia.
+     * @param usuario Usuario cuyo historial se usa.
+     * @return Mensaje con el resultado.
+     */
+    @Transactional
+    public String deshacerUltimaAccion(String usuario) {
+        AccionDeshacer accion = historialDeshacer.sacarUltima(usuario);
         if (accion != null) {
+            devolverSiSeRevierte(usuario, accion);
             String tipoAccion = accion.getTipo();
             Tarea tareaAnterior = accion.getTareaAnterior();
             Long idPadreAsociado = accion.getIdPadreAsociado(); // Este es el idPadre de la tarea anterior, si aplica
 
-            LOGGER.log(Level.INFO, "Deshaciendo acción tipo: {0} para tarea ID: {1}", new Object[]{tipoAccion, tareaAnterior != null ? tareaAnterior.getId() : "N/A"});
+            LOGGER.info("Deshaciendo acción tipo: {} para tarea ID: {}", tipoAccion, tareaAnterior != null ? tareaAnterior.getId() : "N/A");
 
             switch (tipoAccion) {
                 case "CREAR":
                     // Para deshacer la creación, eliminamos la tarea de la DB y del árbol
                     if (tareaAnterior != null && tareaAnterior.getId() != null) {
                         tareaRepository.deleteById(tareaAnterior.getId());
-                        arbolTareas.eliminarNodoPorId(tareaAnterior.getId()); // Eliminar del árbol
+                        alConfirmar(() -> {
+                            registrarEliminacion(tareaAnterior.getId());
+                            arbolTareas.modificar(arbol -> arbol.eliminarNodoPorId(tareaAnterior.getId())); // Eliminar del árbol
+                        });
                         String mensaje = "Deshecha la creación de la tarea con ID: " + tareaAnterior.getId();
-                        rabbitMQSender.sendTareaEvent(mensaje);
+                        outboxEventos.registrar(TareaEvento.deshecha(tipoAccion, tareaAnterior.getId()));
                         return mensaje;
                     }
                     return "Deshecha la creación. No se pudo obtener el ID de la tarea creada para borrarla.";
                 case "ELIMINAR":
                     if (tareaAnterior != null) {
-                        tareaRepository.save(tareaAnterior); // Restaurar tarea en DB
-                        arbolTareas.agregarTarea(tareaAnterior, idPadreAsociado); // Re-insertar en el árbol usando su idPadre original
+                        // Se reinserta con su ID original; save() generaría un ID nuevo al ser IDENTITY
+                        tareaJdbcRepository.restaurarLote(List.of(tareaAnterior));
+                        alConfirmar(() -> {
+                            registrarGuardado(tareaAnterior);
+                            arbolTareas.modificar(arbol -> arbol.agregarTarea(tareaAnterior, idPadreAsociado)); // Re-insertar en el árbol usando su idPadre original
+                        });
                         String mensaje = "Deshecha eliminación: ID " + tareaAnterior.getId();
-                        rabbitMQSender.sendTareaEvent(mensaje);
+                        outboxEventos.registrar(TareaEvento.deshecha(tipoAccion, tareaAnterior.getId()));
                         return mensaje;
                     }
                     return "No se pudo deshacer eliminación: tarea anterior nula.";
                 case "ACTUALIZAR":
                     if (tareaAnterior != null) {
-                        tareaRepository.save(tareaAnterior); // Restaurar estado anterior en DB
+                        Tarea tareaActual = tareaRepository.findById(tareaAnterior.getId()).orElse(null);
+                        if (tareaActual == null) {
+                            return "No se pudo deshacer actualización: la tarea ya no existe.";
+                        }
+                        // Deshacer sobrescribe a propósito: se restaura sobre la versión actual en MySQL (no la de la caché,
+                        // que puede estar vieja), no sobre la guardada en el historial
+                        Tarea restaurada = new Tarea(tareaAnterior);
+                        restaurada.setVersion(tareaActual.getVersion());
+                        Tarea guardada = new Tarea(guardarCopia(restaurada)); // Restaurar estado anterior en DB
                         // Si la jerarquía cambió con la actualización, aquí también se debería revertir el árbol
                         Long idTareaActualizada = tareaAnterior.getId(); // ID de la tarea que se actualizó
                         Long idPadreOriginal = tareaAnterior.getIdTareaPadre(); // Padre que tenía ANTES de la actualización
-                        arbolTareas.moverNodo(idTareaActualizada, idPadreOriginal); // Mover el nodo a su posición original
+                        alConfirmar(() -> {
+                            registrarGuardado(guardada);
+                            arbolTareas.modificar(arbol -> arbol.moverNodo(idTareaActualizada, idPadreOriginal)); // Mover el nodo a su posición original
+                        });
                         String mensaje = "Deshecha actualización: ID " + tareaAnterior.getId();
-                        rabbitMQSender.sendTareaEvent(mensaje);
+                        outboxEventos.registrar(TareaEvento.deshecha(tipoAccion, tareaAnterior.getId()));
                         return mensaje;
                     }
                     return "No se pudo deshacer actualización: tarea anterior nula.";
@@ -230,11 +925,14 @@ public class TareaService {
                     if (tareaAnterior != null) {
                         Tarea tareaActual = tareaRepository.findById(tareaAnterior.getId()).orElse(null);
                         if (tareaActual != null) {
-                            tareaActual.setEstado(tareaAnterior.getEstado());
-                            tareaActual.setFechaCompletada(tareaAnterior.getFechaCompletada());
-                            tareaRepository.save(tareaActual);
+                            // Se guarda una copia: la caché solo cambia si el guardado funciona
+                            Tarea restaurada = new Tarea(tareaActual);
+                            restaurada.setEstado(tareaAnterior.getEstado());
+                            restaurada.setFechaCompletada(tareaAnterior.getFechaCompletada());
+                            Tarea guardada = new Tarea(guardarCopia(restaurada));
+                            alConfirmar(() -> registrarGuardado(guardada));
                             String mensaje = "Deshecho completar: ID " + tareaAnterior.getId();
-                            rabbitMQSender.sendTareaEvent(mensaje);
+                            outboxEventos.registrar(TareaEvento.deshecha(tipoAccion, tareaAnterior.getId()));
                             return mensaje;
                         }
                     }
@@ -242,12 +940,47 @@ public class TareaService {
                 case "CREAR_SUBTAREA": // Manejar el deshacer de la creación de subtareas
                     if (tareaAnterior != null && tareaAnterior.getId() != null) {
                         tareaRepository.deleteById(tareaAnterior.getId());
-                        arbolTareas.eliminarNodoPorId(tareaAnterior.getId()); // Eliminar del árbol
+                        alConfirmar(() -> {
+                            registrarEliminacion(tareaAnterior.getId());
+                            arbolTareas.modificar(arbol -> arbol.eliminarNodoPorId(tareaAnterior.getId())); // Eliminar del árbol
+                        });
                         String mensaje = "Deshecha la creación de la subtarea con ID: " + tareaAnterior.getId();
-                        rabbitMQSender.sendTareaEvent(mensaje);
+                        outboxEventos.registrar(TareaEvento.deshecha(tipoAccion, tareaAnterior.getId()));
                         return mensaje;
                     }
                     return "Deshecha la creación de subtarea. No se pudo obtener el ID de la subtarea creada para borrarla.";
+                case "CREAR_LOTE":
+                    List<Long> idsCreados = accion.getTareasAnteriores().stream().map(Tarea::getId).toList();
+                    tareaRepository.deleteAllByIdInBatch(idsCreados); // Un solo DELETE ... WHERE id IN (...)
+                    alConfirmar(() -> {
+                        registrarEliminaciones(idsCreados);
+                        arbolTareas.modificar(arbol -> {
+                            idsCreados.forEach(arbol::eliminarNodoPorId);
+                            return null;
+                        });
+                    });
+                    outboxEventos.registrar(TareaEvento.deshecha(tipoAccion, null));
+                    return "Deshecha la creación en lote de " + idsCreados.size() + " tareas.";
+                case "ELIMINAR_CASCADA":
+                    // Las copias están en preorden: cada padre se reinserta antes que sus hijos
+                    List<Tarea> eliminadas = accion.getTareasAnteriores();
+                    tareaJdbcRepository.restaurarLote(eliminadas);
+                    alConfirmar(() -> {
+                        registrarGuardados(eliminadas);
+                        arbolTareas.modificar(arbol -> arbol.agregarTareas(eliminadas));
+                    });
+                    outboxEventos.registrar(TareaEvento.deshecha(tipoAccion, eliminadas.get(0).getId()));
+                    return "Deshecha la eliminación en cascada de " + eliminadas.size() + " tareas.";
+                case "COMPLETAR_LOTE":
+                case "COMPLETAR_CASCADA":
+                    tareaJdbcRepository.restaurarEstados(accion.getTareasAnteriores());
+                    // Desde la copia hubo dos UPDATE: el que completó y el que restaura. Si hubo otro cambio
+                    // en medio la versión del árbol queda atrás y un If-Match con ella recibe 412 (nunca se pisa nada).
+                    List<Tarea> restauradas = accion.getTareasAnteriores().stream()
+                            .map(anterior -> conVersionAvanzada(anterior, 2)).toList();
+                    alConfirmar(() -> registrarActualizadasPorJdbc(restauradas));
+                    outboxEventos.registrar(TareaEvento.deshecha(tipoAccion, null));
+                    return "Deshecho completar en lote: " + accion.getTareasAnteriores().size() + " tareas.";
                 default:
                     return "No se pudo deshacer la acción desconocida: " + tipoAccion;
             }
@@ -255,94 +988,154 @@ public class TareaService {
         return "No hay acciones para deshacer.";
     }
 
-    public Tarea crearSubtarea(Tarea tarea, Long idPadre) {
-        LOGGER.log(Level.INFO, "Creando subtarea de la tarea con ID: {0}", idPadre);
+    @Transactional
+    public Tarea crearSubtarea(Tarea tarea, Long idPadre, String usuario) {
+        LOGGER.info("Creando subtarea de la tarea con ID: {}", idPadre);
         tarea.setIdTareaPadre(idPadre); // <--- Asignamos el ID del padre a la tarea antes de guardar
         Tarea nuevaSubtarea = tareaRepository.save(tarea);
-        arbolTareas.agregarTarea(nuevaSubtarea, idPadre);
-        pilaDeshacer.push(new AccionDeshacer("CREAR_SUBTAREA", nuevaSubtarea, idPadre));
-        String mensaje = "Subtarea creada: ID " + nuevaSubtarea.getId() + ", Padre ID: " + idPadre;
-        rabbitMQSender.sendTareaEvent(mensaje);
+        outboxEventos.registrar(TareaEvento.de(TipoEventoTarea.SUBTAREA_CREADA, nuevaSubtarea));
+        Tarea copia = new Tarea(nuevaSubtarea);
+        alConfirmar(() -> {
+            registrarGuardado(copia);
+            arbolTareas.modificar(arbol -> arbol.agregarTarea(copia, idPadre));
+            historialDeshacer.registrar(usuario, new AccionDeshacer("CREAR_SUBTAREA", copia, idPadre));
+        });
         return nuevaSubtarea;
     }
 
     public List<Tarea> obtenerJerarquiaTareas() {
-        LOGGER.log(Level.INFO, "Obteniendo la jerarquía de tareas desde el árbol.");
-        return arbolTareas.obtenerTareasDelArbol();
+        LOGGER.debug("Obteniendo la jerarquía de tareas desde el árbol.");
+        return arbolTareas.instantanea().getTareas();
     }
 
     /**
-     * Agrega una tarea a la cola de tareas programadas.
+     * Obtiene la instantánea más reciente de la jerarquía sin esperar a que terminen los cambios en curso.
+     * @return Instantánea inmutable con su versión y ETag.
+     */
+    public InstantaneaArbol obtenerInstantaneaJerarquia() {
+        return arbolTareas.instantanea();
+    }
+
+    /**
+     * @return La jerarquía de la instantánea serializada como JSON; se calcula una sola vez por versión.
+     */
+    public byte[] serializarJerarquia(InstantaneaArbol instantanea) {
+        return instantanea.serializada(tareas -> {
+            try {
+                return objectMapper.writerFor(new TypeReference<List<Tarea>>() { }).writeValueAsBytes(tareas);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Agrega una tarea al planificador de tareas programadas.
      * @param tarea La tarea a programar.
+     * @param fechaEjecucion Momento en que debería ejecutarse (null = ahora); desempata entre tareas de igual prioridad.
      */
-    public void programarTarea(Tarea tarea) {
-        LOGGER.log(Level.INFO, "Programando tarea: {0}", tarea.getTitulo());
-        colaTareasProgramadas.enqueue(tarea);
-        String mensaje = "Tarea programada: ID " + tarea.getId() + ", Título: " + tarea.getTitulo();
-        rabbitMQSender.sendTareaEvent(mensaje);
+    @Transactional
+    public void programarTarea(Tarea tarea, LocalDateTime fechaEjecucion) {
+        LOGGER.info("Programando tarea: {}", tarea.getTitulo());
+        planificadorTareas.programar(tarea, fechaEjecucion);
+        outboxEventos.registrar(TareaEvento.de(TipoEventoTarea.TAREA_PROGRAMADA, tarea));
     }
 
     /**
-     * Procesa la siguiente tarea en la cola de tareas programadas.
+     * Procesa la siguiente tarea programada: la de mayor prioridad y, entre iguales, la de fecha de ejecución más temprana.
      * @return La tarea procesada, o null si la cola está vacía.
      */
+    @Transactional
     public Tarea procesarSiguienteTareaProgramada() {
-        LOGGER.log(Level.INFO, "Procesando la siguiente tarea programada.");
-        Tarea tareaProcesada = colaTareasProgramadas.dequeue();
+        LOGGER.info("Procesando la siguiente tarea programada.");
+        Tarea tareaProcesada = planificadorTareas.siguiente();
         if (tareaProcesada != null) {
             // Aquí podrías añadir lógica para "ejecutar" la tarea,
             // por ejemplo, cambiar su estado a "EN_PROCESO" o "FINALIZADA"
             // y guardarla en la base de datos.
-            LOGGER.log(Level.INFO, "Tarea programada procesada: {0}", tareaProcesada.getTitulo());
-            String mensaje = "Tarea procesada: ID " + tareaProcesada.getId() + ", Título: " + tareaProcesada.getTitulo();
-            rabbitMQSender.sendTareaEvent(mensaje);
+            LOGGER.info("Tarea programada procesada: {}", tareaProcesada.getTitulo());
+            outboxEventos.registrar(TareaEvento.de(TipoEventoTarea.TAREA_PROCESADA, tareaProcesada));
         } else {
-            LOGGER.log(Level.INFO, "No hay tareas en la cola para procesar.");
+            LOGGER.info("No hay tareas en la cola para procesar.");
         }
         return tareaProcesada;
     }
 
     /**
-     * Obtiene (sin eliminar) la siguiente tarea en la cola de tareas programadas.
+     * Obtiene (sin eliminar) la siguiente tarea programada.
      * @return La tarea en el frente de la cola, o null si la cola está vacía.
      */
     public Tarea verSiguienteTareaProgramada() {
-        LOGGER.log(Level.INFO, "Viendo la siguiente tarea programada (peek).");
-        return colaTareasProgramadas.peek();
+        LOGGER.debug("Viendo la siguiente tarea programada (peek).");
+        return planificadorTareas.verSiguiente();
     }
 
     /**
-     * Verifica si la cola de tareas programadas está vacía.
+     * Verifica si no hay tareas programadas pendientes.
      * @return true si la cola está vacía, false en caso contrario.
      */
     public boolean estaColaTareasProgramadasVacia() {
-        LOGGER.log(Level.INFO, "Verificando si la cola de tareas programadas está vacía.");
-        return colaTareasProgramadas.isEmpty();
+        LOGGER.debug("Verificando si la cola de tareas programadas está vacía.");
+        return planificadorTareas.estaVacia();
     }
 
     // Métodos de clasificación y filtrado
-    public List<Tarea> findByEstado(String estado) {
-        LOGGER.log(Level.INFO, "Buscando tareas por estado: {0}", estado);
-        return tareaRepository.findByEstado(estado);
+    public PaginaTareas findByEstado(String estado, Long despuesDeId, Integer limite) {
+        LOGGER.debug("Buscando tareas por estado: {}", estado);
+        return paginar(despuesDeId, limite, (cursor, tamano) -> tareaRepository.findByEstadoAndIdGreaterThanOrderByIdAsc(estado, cursor, tamano));
+    }
+
+    public PaginaTareas findByPrioridad(String prioridad, Long despuesDeId, Integer limite) {
+        LOGGER.debug("Buscando tareas por prioridad: {}", prioridad);
+        return paginar(despuesDeId, limite, (cursor, tamano) -> tareaRepository.findByPrioridadAndIdGreaterThanOrderByIdAsc(prioridad, cursor, tamano));
+    }
+
+    public PaginaTareas findByTipo(String tipo, Long despuesDeId, Integer limite) {
+        LOGGER.debug("Buscando tareas por tipo: {}", tipo);
+        return paginar(despuesDeId, limite, (cursor, tamano) -> tareaRepository.findByTipoAndIdGreaterThanOrderByIdAsc(tipo, cursor, tamano));
     }
 
-    public List<Tarea> findByPrioridad(String prioridad) {
-        LOGGER.log(Level.INFO, "Buscando tareas por prioridad: {0}", prioridad);
-        return tareaRepository.findByPrioridad(prioridad);
+    /**
+     * Filtra tareas combinando estado, prioridad, tipo y rango de fecha de creación en una sola consulta.
+     * Los criterios null se ignoran. El resultado se ordena y se pagina por cursor sobre (fechaCreacion, id),
+     * el orden de idx_tareas_clasificacion, así que MySQL no necesita ordenar las filas aparte.
+     * @return La página de tareas que cumplen todos los criterios presentes, o null si el cursor no es válido.
+     */
+    public PaginaTareas filtrarTareas(String estado, String prioridad, String tipo,
+                                      LocalDateTime desde, LocalDateTime hasta, String cursor, Integer limite) {
+        LOGGER.debug("Filtrando tareas por estado={}, prioridad={}, tipo={}, desde={}, hasta={}",
+                estado, prioridad, tipo, desde, hasta);
+        return paginarPorFecha(cursor, limite,
+                tamano -> filtrarDespuesDe(estado, prioridad, tipo, desde, hasta, null, null, tamano),
+                (fecha, id, tamano) -> filtrarDespuesDe(estado, prioridad, tipo, desde, hasta, fecha, id, tamano));
     }
 
-    public List<Tarea> findByTipo(String tipo) {
-        LOGGER.log(Level.INFO, "Buscando tareas por tipo: {0}", tipo);
-        return tareaRepository.findByTipo(tipo);
+    private List<Tarea> filtrarDespuesDe(String estado, String prioridad, String tipo, LocalDateTime desde,
+                                         LocalDateTime hasta, LocalDateTime fecha, Long id, Limit tamano) {
+        return tareaRepository.findBy(
+                TareaEspecificaciones.conFiltros(estado, prioridad, tipo, desde, hasta, fecha, id),
+                consulta -> consulta.sortBy(Sort.by("fechaCreacion", "id")).limit(tamano.max()).all());
     }
 
-    public List<Tarea> findByEstadoOrderByFechaCreacionAsc(String estado) {
-        LOGGER.log(Level.INFO, "Buscando tareas por estado y ordenando por fecha de creación ascendente: {0}", estado);
-        return tareaRepository.findByEstadoOrderByFechaCreacionAsc(estado);
+    /**
+     * Tareas de un estado por fecha de creación ascendente, paginadas por cursor sobre (fechaCreacion, id).
+     * @return La página, o null si el cursor no es válido.
+     */
+    public PaginaTareas findByEstadoOrderByFechaCreacionAsc(String estado, String cursor, Integer limite) {
+        LOGGER.debug("Buscando tareas por estado y ordenando por fecha de creación ascendente: {}", estado);
+        return paginarPorFecha(cursor, limite,
+                tamano -> tareaRepository.findByEstadoOrderByFechaCreacionAscIdAsc(estado, tamano),
+                (fecha, id, tamano) -> tareaRepository.findByEstadoDespuesDe(estado, fecha, id, tamano));
     }
 
-    public List<Tarea> findByPrioridadOrderByFechaCreacionDesc(String prioridad) {
-        LOGGER.log(Level.INFO, "Buscando tareas por prioridad y ordenando por fecha de creación descendente: {0}", prioridad);
-        return tareaRepository.findByPrioridadOrderByFechaCreacionDesc(prioridad);
+    /**
+     * Tareas de una prioridad por fecha de creación descendente, paginadas por cursor sobre (fechaCreacion, id).
+     * @return La página, o null si el cursor no es válido.
+     */
+    public PaginaTareas findByPrioridadOrderByFechaCreacionDesc(String prioridad, String cursor, Integer limite) {
+        LOGGER.debug("Buscando tareas por prioridad y ordenando por fecha de creación descendente: {}", prioridad);
+        return paginarPorFecha(cursor, limite,
+                tamano -> tareaRepository.findByPrioridadOrderByFechaCreacionDescIdDesc(prioridad, tamano),
+                (fecha, id, tamano) -> tareaRepository.findByPrioridadAntesDe(prioridad, fecha, id, tamano));
     }
 }
@@ -0,0 +1,87 @@
+package com.umg.gestiontareas.api;
+
+import com.umg.gestiontareas.modelo.ResultadoActualizacion;
+import com.umg.gestiontareas.servicios.TareaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TareaControllerTest {
+
+    private TareaService tareaService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void preparar() {
+        tareaService = mock(TareaService.class);
+        TareaController controller = new TareaController();
+        ReflectionTestUtils.setField(controller, "tareaService", tareaService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void deshacerUsaLaCabeceraXUsuario() throws Exception {
+        when(tareaService.deshacerUltimaAccion("ana")).thenReturn("ok");
+
+        mockMvc.perform(post("/api/tareas/deshacer").header(TareaController.CABECERA_USUARIO, "ana"))
+                .andExpect(status().isOk());
+
+        verify(tareaService).deshacerUltimaAccion("ana");
+    }
+
+    @Test
+    void sinCabeceraCadaClienteTieneSuPropioHistorial() throws Exception {
+        mockMvc.perform(post("/api/tareas/deshacer").with(request -> {
+            request.setRemoteAddr("10.0.0.1");
+            return request;
+        })).andExpect(status().isOk());
+        mockMvc.perform(post("/api/tareas/deshacer").with(request -> {
+            request.setRemoteAddr("10.0.0.2");
+            return request;
+        })).andExpect(status().isOk());
+
+        verify(tareaService).deshacerUltimaAccion("anonimo@10.0.0.1");
+        verify(tareaService).deshacerUltimaAccion("anonimo@10.0.0.2");
+    }
+
+    @Test
+    void ifMatchUsaComparacionFuerteYAceptaListas() {
+        assertThat(TareaController.versionesDeIfMatch(null)).isNull();
+        assertThat(TareaController.versionesDeIfMatch(" * ")).isNull();
+        assertThat(TareaController.versionesDeIfMatch("\"3\"")).containsExactly(3L);
+        assertThat(TareaController.versionesDeIfMatch("3")).containsExactly(3L);
+        assertThat(TareaController.versionesDeIfMatch("\"3\", \"5\"")).containsExactlyInAnyOrder(3L, 5L);
+        // Las etiquetas débiles y las que no son versiones no coinciden con ninguna
+        assertThat(TareaController.versionesDeIfMatch("W/\"3\"")).isEmpty();
+        assertThat(TareaController.versionesDeIfMatch("W/\"3\", \"abc\", \"4\"")).containsExactly(4L);
+    }
+
+    @Test
+    void unIfMatchDebilRespondePreconditionFailed() throws Exception {
+        when(tareaService.actualizarParcialmente(eq(5L), anyMap(), eq(Set.of()), anyString()))
+                .thenReturn(ResultadoActualizacion.de(ResultadoActualizacion.Estado.VERSION_DISTINTA));
+
+        mockMvc.perform(patch("/api/tareas/5").header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"estado\": \"EN_PROGRESO\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(tareaService).actualizarParcialmente(eq(5L), anyMap(), eq(Set.of()), anyString());
+    }
+}
@@ -0,0 +1,94 @@
+package com.umg.gestiontareas.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.umg.gestiontareas.modelo.TareaEvento;
+import com.umg.gestiontareas.modelo.TipoEventoTarea;
+import com.umg.gestiontareas.rabbitmq.RabbitMQReceiver;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.listener.adapter.BatchMessagingMessageListenerAdapter;
+import org.springframework.amqp.rabbit.listener.adapter.HandlerAdapter;
+import org.springframework.amqp.rabbit.listener.adapter.MessagingMessageListenerAdapter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Pruebas del convertidor JSON de los eventos: los mensajes salen sin __TypeId__ y los listeners
+ * de RabbitMQReceiver los siguen recibiendo como TareaEvento, uno a uno y por lote.
+ */
+class RabbitMQConfigTest {
+
+    private final MessageConverter convertidor = new RabbitMQConfig().jsonMessageConverter(new ObjectMapper());
+
+    private final TareaEvento evento = new TareaEvento(TipoEventoTarea.TAREA_ACTUALIZADA, 15L, 3L, 1_700_000_000_000L,
+            List.of("estado"), null, null);
+
+    @Test
+    void elMensajeNoLlevaElNombreDeLaClase() {
+        Message mensaje = convertidor.toMessage(evento, new MessageProperties());
+
+        assertThat(mensaje.getMessageProperties().getHeaders()).doesNotContainKey("__TypeId__");
+        assertThat(mensaje.getMessageProperties().getContentType()).isEqualTo(MessageProperties.CONTENT_TYPE_JSON);
+        assertThat(new String(mensaje.getBody(), StandardCharsets.UTF_8)).isEqualTo(
+                "{\"id\":15,\"padre\":3,\"ts\":1700000000000,\"campos\":[\"estado\"],\"tipo\":\"TAREA_ACTUALIZADA\"}");
+    }
+
+    @Test
+    void elListenerIndividualRecibeElEvento() throws Exception {
+        RabbitMQReceiver receptor = mock(RabbitMQReceiver.class);
+        Method metodo = RabbitMQReceiver.class.getMethod("receiveMessage", TareaEvento.class, String.class);
+        MessagingMessageListenerAdapter adaptador = new MessagingMessageListenerAdapter(receptor, metodo);
+        adaptador.setHandlerAdapter(new HandlerAdapter(fabrica().createInvocableHandlerMethod(receptor, metodo)));
+        adaptador.setMessageConverter(convertidor);
+
+        adaptador.onMessage(convertidor.toMessage(evento, new MessageProperties()), null);
+
+        verify(receptor).receiveMessage(eq(evento), isNull());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void elListenerPorLoteRecibeLosEventos() throws Exception {
+        RabbitMQReceiver receptor = mock(RabbitMQReceiver.class);
+        Method metodo = RabbitMQReceiver.class.getMethod("receiveLote", List.class);
+        BatchMessagingMessageListenerAdapter adaptador = new BatchMessagingMessageListenerAdapter(receptor, metodo,
+                false, null, null);
+        adaptador.setHandlerAdapter(new HandlerAdapter(fabrica().createInvocableHandlerMethod(receptor, metodo)));
+        adaptador.setMessageConverter(convertidor);
+        TareaEvento otro = TareaEvento.lote(TipoEventoTarea.TAREAS_CREADAS_LOTE, List.of(20L, 21L));
+
+        adaptador.onMessageBatch(List.of(convertidor.toMessage(evento, new MessageProperties()),
+                convertidor.toMessage(otro, new MessageProperties())), null);
+
+        ArgumentCaptor<List<org.springframework.messaging.Message<TareaEvento>>> lote = ArgumentCaptor.forClass(List.class);
+        verify(receptor).receiveLote(lote.capture());
+        assertThat(lote.getValue()).extracting(org.springframework.messaging.Message::getPayload)
+                .containsExactly(evento, otro);
+    }
+
+    @Test
+    void seLeenLosEventosConLosNombresAnteriores() throws Exception {
+        String anterior = "{\"tipo\":\"TAREA_ACTUALIZADA\",\"idTarea\":15,\"idPadre\":3,\"timestamp\":1700000000000,"
+                + "\"camposCambiados\":[\"estado\"]}";
+
+        assertThat(new ObjectMapper().readValue(anterior, TareaEvento.class)).isEqualTo(evento);
+    }
+
+    private static DefaultMessageHandlerMethodFactory fabrica() {
+        DefaultMessageHandlerMethodFactory fabrica = new DefaultMessageHandlerMethodFactory();
+        fabrica.afterPropertiesSet();
+        return fabrica;
+    }
+}
@@ -0,0 +1,107 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.Tarea;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArbolTareasConcurrenteTest {
+
+    @Test
+    void elEtagDependeDelContenidoYNoDelOrdenNiDeLaInstancia() {
+        List<Tarea> tareas = List.of(tarea(1L, null, 0L), tarea(2L, 1L, 4L), tarea(3L, 1L, 1L), tarea(4L, null, 2L));
+        List<Tarea> alReves = new ArrayList<>(tareas);
+        Collections.reverse(alReves);
+
+        ArbolTareasConcurrente instanciaA = new ArbolTareasConcurrente();
+        ArbolTareasConcurrente instanciaB = new ArbolTareasConcurrente();
+        instanciaA.reconstruir(tareas);
+        instanciaB.modificar(arbol -> arbol.agregarTareas(List.of(tareas.get(0))));
+        instanciaB.modificar(arbol -> arbol.agregarTareas(alReves.subList(0, 3)));
+
+        String etag = instanciaA.instantanea().getEtag();
+        assertThat(etag).startsWith("W/\"4-");
+        assertThat(instanciaB.instantanea().getEtag()).isEqualTo(etag);
+
+        // Una versión nueva cambia el ETag; volver al mismo contenido lo recupera
+        instanciaA.modificar(arbol -> arbol.reemplazarTarea(tarea(3L, 1L, 2L)));
+        assertThat(instanciaA.instantanea().getEtag()).isNotEqualTo(etag);
+        instanciaA.modificar(arbol -> arbol.reemplazarTarea(tarea(3L, 1L, 1L)));
+        assertThat(instanciaA.instantanea().getEtag()).isEqualTo(etag);
+
+        instanciaA.modificar(arbol -> arbol.eliminarNodoPorId(4L));
+        assertThat(instanciaA.instantanea().getEtag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    void laInstantaneaNoEsperaAUnaModificacionEnCurso() throws Exception {
+        ArbolTareasConcurrente arbolTareas = new ArbolTareasConcurrente();
+        arbolTareas.reconstruir(List.of(tarea(1L, null, 0L)));
+        InstantaneaArbol anterior = arbolTareas.instantanea();
+
+        CountDownLatch modificando = new CountDownLatch(1);
+        CountDownLatch terminar = new CountDownLatch(1);
+        CompletableFuture<Void> escritor = CompletableFuture.runAsync(() -> arbolTareas.modificar(arbol -> {
+            arbol.agregarTarea(tarea(2L, 1L, 0L), 1L);
+            modificando.countDown();
+            esperar(terminar);
+            return null;
+        }));
+        assertThat(modificando.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(arbolTareas.instantanea()).isSameAs(anterior);
+
+        terminar.countDown();
+        escritor.get(5, TimeUnit.SECONDS);
+        InstantaneaArbol nueva = arbolTareas.instantanea();
+        assertThat(nueva.getTareas()).extracting(Tarea::getId).containsExactly(1L, 2L);
+        assertThat(nueva.getTareas()).extracting(Tarea::getVersion).containsExactly(0L, 0L);
+        assertThat(arbolTareas.instantanea()).isSameAs(nueva);
+    }
+
+    @Test
+    void variasConsultasAvanzanALaVez() throws Exception {
+        ArbolTareasConcurrente arbolTareas = new ArbolTareasConcurrente();
+        arbolTareas.reconstruir(List.of(tarea(1L, null, 0L)));
+
+        CountDownLatch leyendo = new CountDownLatch(1);
+        CountDownLatch terminar = new CountDownLatch(1);
+        CompletableFuture<Integer> lectorLento = CompletableFuture.supplyAsync(() -> arbolTareas.leer(arbol -> {
+            leyendo.countDown();
+            esperar(terminar);
+            return arbol.tamano();
+        }));
+        assertThat(leyendo.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Otra consulta no espera al lector que sigue dentro del bloqueo
+        Integer tamano = CompletableFuture.supplyAsync(() -> arbolTareas.leer(ArbolTareas::tamano))
+                .get(5, TimeUnit.SECONDS);
+        assertThat(tamano).isEqualTo(1);
+
+        terminar.countDown();
+        assertThat(lectorLento.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+    }
+
+    private static void esperar(CountDownLatch senal) {
+        try {
+            senal.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Tarea tarea(long id, Long idPadre, Long version) {
+        Tarea tarea = new Tarea("Tarea " + id, "", "PENDIENTE", "MEDIA", "GENERAL");
+        tarea.setId(id);
+        tarea.setIdTareaPadre(idPadre);
+        tarea.setVersion(version);
+        return tarea;
+    }
+}
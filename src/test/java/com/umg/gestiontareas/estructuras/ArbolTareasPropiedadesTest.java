@@ -0,0 +1,180 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.Tarea;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Prueba por propiedades de los conteos por estado de ArbolTareas: después de cada operación aleatoria
+ * (agregar, mover, eliminar, cambiar estado, reconstruir), el conteo incremental de cada nodo debe
+ * coincidir con un recuento completo sobre un modelo simple (mapa de padre y estado por ID), y la huella
+ * del contenido debe coincidir con la de un árbol construido desde cero.
+ * Cada semilla es reproducible; si una falla, el mensaje indica la semilla y el paso.
+ */
+class ArbolTareasPropiedadesTest {
+
+    private static final String[] ESTADOS = {"PENDIENTE", "EN_PROGRESO", "COMPLETADA", null};
+    private static final int PASOS = 3000;
+    private static final int IDS_MAXIMOS = 150;
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, 7L, 42L, 2024L, 31337L, 987654321L})
+    void losConteosIncrementalesCoincidenConUnRecuentoCompleto(long semilla) {
+        Random aleatorio = new Random(semilla);
+        ArbolTareas arbol = new ArbolTareas();
+        Map<Long, Long> padres = new HashMap<>(); // ID -> ID del padre (null = raíz)
+        Map<Long, String> estados = new HashMap<>();
+
+        for (int paso = 0; paso < PASOS; paso++) {
+            String contexto = "semilla " + semilla + ", paso " + paso;
+            int operacion = aleatorio.nextInt(100);
+            if (operacion < 35 || padres.isEmpty()) {
+                // Agregar (o volver a agregar un ID existente, que reemplaza y mueve)
+                long id = 1 + aleatorio.nextInt(IDS_MAXIMOS);
+                Long idPadre = padreAleatorio(aleatorio, padres);
+                String estado = ESTADOS[aleatorio.nextInt(ESTADOS.length)];
+                boolean existia = padres.containsKey(id);
+                arbol.agregarTarea(tarea(id, idPadre, estado), idPadre);
+                estados.put(id, estado);
+                if (!existia) {
+                    padres.put(id, idPadre != null && padres.containsKey(idPadre) ? idPadre : null);
+                } else if (puedeMoverse(padres, id, idPadre)) {
+                    padres.put(id, idPadre);
+                }
+            } else if (operacion < 60) {
+                long id = idExistente(aleatorio, padres);
+                Long idPadre = padreAleatorio(aleatorio, padres);
+                boolean esperado = puedeMoverse(padres, id, idPadre);
+                assertThat(arbol.moverNodo(id, idPadre)).as(contexto).isEqualTo(esperado);
+                if (esperado) {
+                    padres.put(id, idPadre);
+                }
+            } else if (operacion < 75) {
+                long id = idExistente(aleatorio, padres);
+                assertThat(arbol.eliminarNodoPorId(id)).as(contexto).isNotNull();
+                for (Long eliminado : subarbol(padres, id)) {
+                    padres.remove(eliminado);
+                    estados.remove(eliminado);
+                }
+            } else if (operacion < 98) {
+                long id = idExistente(aleatorio, padres);
+                String estado = ESTADOS[aleatorio.nextInt(ESTADOS.length)];
+                assertThat(arbol.reemplazarTarea(tarea(id, padres.get(id), estado))).as(contexto).isTrue();
+                estados.put(id, estado);
+            } else {
+                // Reconstruir desde cero debe dar los mismos conteos que los incrementales
+                List<Tarea> tareas = new ArrayList<>();
+                padres.forEach((id, idPadre) -> tareas.add(tarea(id, idPadre, estados.get(id))));
+                arbol = new ArbolTareas();
+                DiagnosticoArbol diagnostico = arbol.construirDesde(tareas);
+                assertThat(diagnostico.tieneProblemas()).as(contexto).isFalse();
+            }
+            verificar(arbol, padres, estados, contexto);
+        }
+    }
+
+    // Compara estructura, posiciones y conteos del árbol con el recuento del modelo
+    private static void verificar(ArbolTareas arbol, Map<Long, Long> padres, Map<Long, String> estados,
+                                  String contexto) {
+        assertThat(arbol.tamano()).as(contexto).isEqualTo(padres.size());
+        assertThat(arbol.obtenerTareasDelArbol()).as(contexto).hasSize(padres.size());
+
+        // La huella incremental debe ser la misma que la de un árbol construido desde cero con esas tareas
+        List<Tarea> tareas = new ArrayList<>();
+        padres.forEach((id, idPadre) -> tareas.add(tarea(id, idPadre, estados.get(id))));
+        ArbolTareas reconstruido = new ArbolTareas();
+        reconstruido.construirDesde(tareas);
+        assertThat(arbol.huella()).as(contexto + ", huella").isEqualTo(reconstruido.huella());
+
+        Map<Long, Map<String, Integer>> esperados = new HashMap<>();
+        for (Map.Entry<Long, String> entrada : estados.entrySet()) {
+            String clave = entrada.getValue() != null ? entrada.getValue() : ConteoEstados.SIN_ESTADO;
+            for (Long actual = entrada.getKey(); actual != null; actual = padres.get(actual)) {
+                esperados.computeIfAbsent(actual, k -> new HashMap<>()).merge(clave, 1, Integer::sum);
+            }
+        }
+
+        for (Long id : padres.keySet()) {
+            NodoTarea nodo = arbol.buscarNodoPorId(id);
+            assertThat(nodo).as(contexto + ", nodo " + id).isNotNull();
+            Long idPadre = padres.get(id);
+            assertThat(nodo.getPadre() != null ? nodo.getPadre().getId() : null)
+                    .as(contexto + ", padre de " + id).isEqualTo(idPadre);
+            if (nodo.getPadre() != null) {
+                assertThat(nodo.getPadre().getHijos().get(nodo.getPosicion()))
+                        .as(contexto + ", posición de " + id).isSameAs(nodo);
+            }
+            for (int i = 0; i < nodo.getHijos().size(); i++) {
+                assertThat(nodo.getHijos().get(i).getPosicion()).as(contexto + ", hijo " + i + " de " + id).isEqualTo(i);
+            }
+
+            Map<String, Integer> esperado = esperados.get(id);
+            ConteoEstados conteo = nodo.getConteoSubarbol();
+            assertThat(conteo.comoMapa()).as(contexto + ", conteo de " + id).isEqualTo(esperado);
+            assertThat(conteo.total()).as(contexto + ", total de " + id)
+                    .isEqualTo(esperado.values().stream().mapToInt(Integer::intValue).sum());
+        }
+    }
+
+    // Un padre existente, null (raíz) o un ID que no está en el árbol
+    private static Long padreAleatorio(Random aleatorio, Map<Long, Long> padres) {
+        int caso = aleatorio.nextInt(10);
+        if (caso == 0 || padres.isEmpty()) {
+            return null;
+        }
+        if (caso == 1) {
+            return 1_000L + aleatorio.nextInt(10);
+        }
+        return idExistente(aleatorio, padres);
+    }
+
+    private static long idExistente(Random aleatorio, Map<Long, Long> padres) {
+        List<Long> ids = new ArrayList<>(padres.keySet());
+        ids.sort(null); // El orden de HashMap no forma parte de la semilla
+        return ids.get(aleatorio.nextInt(ids.size()));
+    }
+
+    // Mismas reglas que ArbolTareas.moverNodo: el padre debe existir y no puede ser el nodo ni un descendiente
+    private static boolean puedeMoverse(Map<Long, Long> padres, long id, Long idPadre) {
+        if (idPadre == null) {
+            return true;
+        }
+        if (!padres.containsKey(idPadre)) {
+            return false;
+        }
+        for (Long actual = idPadre; actual != null; actual = padres.get(actual)) {
+            if (actual == id) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Long> subarbol(Map<Long, Long> padres, long raiz) {
+        List<Long> ids = new ArrayList<>();
+        for (Long id : padres.keySet()) {
+            for (Long actual = id; actual != null; actual = padres.get(actual)) {
+                if (actual == raiz) {
+                    ids.add(id);
+                    break;
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static Tarea tarea(long id, Long idPadre, String estado) {
+        Tarea tarea = new Tarea("Tarea " + id, "", estado, "MEDIA", "GENERAL");
+        tarea.setId(id);
+        tarea.setIdTareaPadre(idPadre);
+        return tarea;
+    }
+}
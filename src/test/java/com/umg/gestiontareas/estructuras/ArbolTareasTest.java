@@ -0,0 +1,86 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.SubarbolTarea;
+import com.umg.gestiontareas.modelo.Tarea;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArbolTareasTest {
+
+    @Test
+    void lasTareasDevueltasConservanLaVersion() {
+        ArbolTareas arbol = new ArbolTareas();
+        arbol.construirDesde(List.of(tarea(1L, null, 3L), tarea(2L, 1L, 0L), tarea(3L, 1L, null)));
+
+        assertThat(arbol.obtenerTarea(1L).getVersion()).isEqualTo(3L);
+        assertThat(arbol.obtenerTarea(3L).getVersion()).isNull();
+        assertThat(arbol.obtenerTareasDelArbol()).extracting(Tarea::getVersion).containsExactly(3L, 0L, null);
+
+        SubarbolTarea subarbol = arbol.obtenerSubarbol(1L, -1);
+        assertThat(subarbol.getTarea().getVersion()).isEqualTo(3L);
+        assertThat(subarbol.getSubtareas()).extracting(vista -> vista.getTarea().getVersion()).containsExactly(0L, null);
+    }
+
+    @Test
+    void reemplazarTareaActualizaLaVersion() {
+        ArbolTareas arbol = new ArbolTareas();
+        arbol.agregarTarea(tarea(1L, null, 0L), null);
+
+        arbol.reemplazarTarea(tarea(1L, null, 1L));
+
+        assertThat(arbol.obtenerTarea(1L).getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void unMovimientoRechazadoNoCambiaElPadreDevuelto() {
+        ArbolTareas arbol = new ArbolTareas();
+        arbol.construirDesde(List.of(tarea(1L, null, 0L), tarea(2L, 1L, 0L), tarea(3L, 2L, 0L)));
+
+        // Mover 1 bajo su nieto 3 formaría un ciclo; el nodo se actualiza pero sigue siendo raíz
+        Tarea cambiada = tarea(1L, 3L, 1L);
+        assertThat(arbol.agregarTarea(cambiada, 3L)).isFalse();
+        assertThat(arbol.obtenerTarea(1L).getIdTareaPadre()).isNull();
+        assertThat(arbol.obtenerTarea(1L).getVersion()).isEqualTo(1L);
+
+        // Reemplazar no mueve el nodo, así que el padre devuelto es el del árbol
+        arbol.reemplazarTarea(tarea(3L, 1L, 1L));
+        assertThat(arbol.obtenerTarea(3L).getIdTareaPadre()).isEqualTo(2L);
+        assertThat(arbol.copiar().aTareas()).extracting(Tarea::getIdTareaPadre).containsExactly(null, 1L, 2L);
+    }
+
+    @Test
+    void losValoresQueExcedenElDiccionarioSeGuardanSinCompartir() {
+        DiccionarioValores diccionario = new DiccionarioValores(2);
+        String pendiente = diccionario.compartir("PENDIENTE");
+        diccionario.compartir("ALTA");
+
+        assertThat(diccionario.compartir(new String("PENDIENTE"))).isSameAs(pendiente);
+        String libre = new String("ESTADO_LIBRE");
+        assertThat(diccionario.compartir(libre)).isSameAs(libre);
+        assertThat(diccionario.compartir(new String("ESTADO_LIBRE"))).isNotSameAs(libre);
+        assertThat(diccionario.tamano()).isEqualTo(2);
+        assertThat(diccionario.compartir(null)).isNull();
+
+        // En el árbol, las tareas con valores fuera del diccionario conservan su estado
+        ArbolTareas arbol = new ArbolTareas();
+        long ultima = DiccionarioValores.LIMITE + 10;
+        for (long id = 1; id <= ultima; id++) {
+            Tarea tarea = tarea(id, null, 0L);
+            tarea.setEstado("ESTADO_" + id);
+            arbol.agregarTarea(tarea, null);
+        }
+        assertThat(arbol.obtenerTarea(ultima).getEstado()).isEqualTo("ESTADO_" + ultima);
+        assertThat(arbol.buscarNodoPorId(ultima).getConteoSubarbol().cantidad("ESTADO_" + ultima)).isEqualTo(1);
+    }
+
+    private static Tarea tarea(long id, Long idPadre, Long version) {
+        Tarea tarea = new Tarea("Tarea " + id, "", "PENDIENTE", "MEDIA", "GENERAL");
+        tarea.setId(id);
+        tarea.setIdTareaPadre(idPadre);
+        tarea.setVersion(version);
+        return tarea;
+    }
+}
@@ -0,0 +1,130 @@
+package com.umg.gestiontareas.estructuras;
+
+import com.umg.gestiontareas.modelo.Tarea;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndiceBusquedaTest {
+
+    @Test
+    void tokenizarNormalizaYDescartaPalabrasVacias() {
+        assertThat(IndiceBusqueda.tokenizar("Revisión del Informe-Mensual, año 2024 y a 3"))
+                .containsExactly("revision", "informe", "mensual", "ano", "2024", "3");
+        assertThat(IndiceBusqueda.tokenizar("  ")).isEmpty();
+        assertThat(IndiceBusqueda.tokenizar(null)).isEmpty();
+    }
+
+    @Test
+    void exigeTodosLosTerminosSinImportarTildesNiMayusculas() {
+        IndiceBusqueda indice = IndiceBusqueda.construir(List.of(
+                tarea(1, "Informe mensual", "para el cliente"),
+                tarea(2, "Informe anual", ""),
+                tarea(3, "Reunión", "revisar el informe MENSUAL")));
+
+        assertThat(ids(indice.buscar("INFORME mensual", 10))).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(ids(indice.buscar("reunion", 10))).containsExactly(3L);
+        assertThat(indice.buscar("informe inexistente", 10)).isEmpty();
+        assertThat(indice.buscar("de la", 10)).isEmpty();
+    }
+
+    @Test
+    void elTituloPesaMasQueLaDescripcion() {
+        IndiceBusqueda indice = IndiceBusqueda.construir(List.of(
+                tarea(1, "", "informe"),
+                tarea(2, "informe", "")));
+
+        assertThat(ids(indice.buscar("informe", 10))).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void losTerminosRarosPesanMasQueLosFrecuentes() {
+        List<Tarea> tareas = new ArrayList<>();
+        tareas.add(tarea(1, "comun", "raro"));
+        tareas.add(tarea(2, "raro", "comun"));
+        for (long id = 3; id <= 50; id++) {
+            tareas.add(tarea(id, "comun", ""));
+        }
+        IndiceBusqueda indice = IndiceBusqueda.construir(tareas);
+
+        List<IndiceBusqueda.Coincidencia> coincidencias = indice.buscar("comun raro", 10);
+        assertThat(ids(coincidencias)).containsExactly(2L, 1L);
+        assertThat(coincidencias.get(0).puntaje()).isGreaterThan(coincidencias.get(1).puntaje());
+    }
+
+    @Test
+    void laPalabraExactaPesaMasQueElPrefijo() {
+        IndiceBusqueda indice = IndiceBusqueda.construir(List.of(
+                tarea(1, "informe", ""),
+                tarea(2, "info", "")));
+
+        assertThat(ids(indice.buscar("info", 10))).containsExactly(2L, 1L);
+        assertThat(ids(indice.buscar("inf", 10))).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(indice.buscar("i", 10)).isEmpty(); // Un solo carácter no se expande
+    }
+
+    @Test
+    void editarYEliminarActualizanElIndice() {
+        IndiceBusqueda indice = IndiceBusqueda.construir(List.of(
+                tarea(1, "Informe mensual", ""),
+                tarea(2, "Informe anual", "")));
+
+        indice.indexar(tarea(1, "Presupuesto mensual", ""));
+        assertThat(ids(indice.buscar("informe", 10))).containsExactly(2L);
+        assertThat(ids(indice.buscar("presupuesto", 10))).containsExactly(1L);
+        assertThat(ids(indice.buscar("mensual", 10))).containsExactly(1L);
+
+        indice.eliminar(2L);
+        assertThat(indice.buscar("informe", 10)).isEmpty();
+        assertThat(indice.buscar("anual", 10)).isEmpty();
+        assertThat(indice.tamano()).isEqualTo(1);
+        assertThat(indice.cantidadTerminos()).isEqualTo(2); // presupuesto y mensual
+
+        // Volver a agregar una tarea con ID menor que las existentes la deja en orden
+        indice.indexar(tarea(2, "Informe anual", ""));
+        indice.indexar(tarea(3, "Informe final", ""));
+        assertThat(ids(indice.buscar("informe", 10))).containsExactly(3L, 2L);
+    }
+
+    @Test
+    void conUnTerminoMuyFrecuenteDevuelveLasCoincidenciasMasRecientes() {
+        int cantidad = 3 * IndiceBusqueda.MAX_CANDIDATAS;
+        IndiceBusqueda indice = IndiceBusqueda.construir(LongStream.rangeClosed(1, cantidad)
+                .mapToObj(id -> tarea(id, "informe", ""))
+                .toList());
+
+        assertThat(ids(indice.buscar("informe", 3))).containsExactly((long) cantidad, cantidad - 1L, cantidad - 2L);
+    }
+
+    @Test
+    void lasVentanasNoPierdenCoincidenciasAntiguas() {
+        int maximo = IndiceBusqueda.MAX_CANDIDATAS;
+        // "beta" aparece en más de MAX_CANDIDATAS tareas, pero solo las 10 primeras también tienen "alfa"
+        List<Tarea> tareas = new ArrayList<>();
+        for (long id = 1; id <= 3L * maximo; id++) {
+            boolean alfa = id <= 10 || id > 2L * maximo;
+            boolean beta = id <= 3L * maximo / 2;
+            tareas.add(tarea(id, (alfa ? "alfa " : "") + (beta ? "beta" : ""), "relleno"));
+        }
+        IndiceBusqueda indice = IndiceBusqueda.construir(tareas);
+
+        assertThat(ids(indice.buscar("alfa beta", 20)))
+                .containsExactlyInAnyOrder(LongStream.rangeClosed(1, 10).boxed().toArray(Long[]::new));
+    }
+
+    private static List<Long> ids(List<IndiceBusqueda.Coincidencia> coincidencias) {
+        return coincidencias.stream().map(IndiceBusqueda.Coincidencia::idTarea).toList();
+    }
+
+    private static Tarea tarea(long id, String titulo, String descripcion) {
+        Tarea tarea = new Tarea();
+        tarea.setId(id);
+        tarea.setTitulo(titulo);
+        tarea.setDescripcion(descripcion);
+        return tarea;
+    }
+}
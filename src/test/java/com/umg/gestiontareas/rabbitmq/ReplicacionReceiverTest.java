@@ -0,0 +1,124 @@
+package com.umg.gestiontareas.rabbitmq;
+
+import com.umg.gestiontareas.modelo.TareaEvento;
+import com.umg.gestiontareas.modelo.TipoEventoTarea;
+import com.umg.gestiontareas.servicios.TareaService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.listener.AsyncConsumerStartedEvent;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas del receptor de replicación: cada entrega del broker se simula llamando a recibirEvento
+ * con las cabeceras x-publicador y x-secuencia que pondría RabbitMQSender.
+ */
+class ReplicacionReceiverTest {
+
+    private final TareaService tareaService = mock(TareaService.class);
+    private final RabbitListenerEndpointRegistry registro = mock(RabbitListenerEndpointRegistry.class);
+    private final MessageListenerContainer contenedor = mock(MessageListenerContainer.class);
+
+    private ReplicacionReceiver receptor;
+
+    @BeforeEach
+    void preparar() {
+        when(registro.getListenerContainer("replicacion")).thenReturn(contenedor);
+        receptor = new ReplicacionReceiver();
+        ReflectionTestUtils.setField(receptor, "tareaService", tareaService);
+        ReflectionTestUtils.setField(receptor, "registroListeners", registro);
+        ReflectionTestUtils.setField(receptor, "meterRegistry", new SimpleMeterRegistry());
+        receptor.registrarMetricas();
+    }
+
+    @Test
+    void aplicaLosEventosConsecutivosLeyendoLasTareasAfectadas() {
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 10L), "p1", 1L);
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_ACTUALIZADA, 11L), "p1", 2L);
+        receptor.recibirEvento(TareaEvento.lote(TipoEventoTarea.TAREA_COMPLETADA, List.of(12L, 13L)), "p1", 3L);
+
+        verify(tareaService).aplicarCambiosExternos(List.of(10L));
+        verify(tareaService).aplicarCambiosExternos(List.of(11L));
+        verify(tareaService).aplicarCambiosExternos(List.of(12L, 13L));
+        verify(tareaService, never()).resincronizar();
+    }
+
+    @Test
+    void unHuecoEnLaSecuenciaResincronizaYLuegoSigueDesdeAhi() {
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 1L), "p1", 1L);
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 3L), "p1", 3L);
+
+        verify(tareaService).resincronizar();
+        verify(tareaService, never()).aplicarCambiosExternos(List.of(3L)); // La reconstrucción ya lo incluye
+
+        // Después de resincronizar cualquier secuencia se acepta como punto de partida
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 7L), "p1", 7L);
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 8L), "p1", 8L);
+        verify(tareaService, times(1)).resincronizar();
+        verify(tareaService).aplicarCambiosExternos(List.of(8L));
+    }
+
+    @Test
+    void cadaPublicadorTieneSuPropiaSecuencia() {
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 1L), "p1", 1L);
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 2L), "p2", 40L);
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 3L), "p1", 2L);
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 4L), "p2", 41L);
+
+        verify(tareaService, never()).resincronizar();
+        verify(tareaService, times(4)).aplicarCambiosExternos(anyCollection());
+    }
+
+    @Test
+    void unaSecuenciaRepetidaSeAplicaSinResincronizar() {
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 1L), "p1", 1L);
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 2L), "p1", 2L);
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 2L), "p1", 2L); // Reentrega del broker
+        receptor.recibirEvento(evento(TipoEventoTarea.TAREA_CREADA, 3L), "p1", 3L);
+
+        verify(tareaService, never()).resincronizar();
+        verify(tareaService, times(2)).aplicarCambiosExternos(List.of(2L));
+    }
+
+    @Test
+    void unDeshacerQueNoIndicaLasTareasResincroniza() {
+        receptor.recibirEvento(TareaEvento.deshecha("ELIMINAR_CASCADA", 5L), "p1", 1L);
+        receptor.recibirEvento(TareaEvento.deshecha("COMPLETAR_LOTE", null), "p1", 2L);
+        receptor.recibirEvento(TareaEvento.deshecha("ACTUALIZAR", 6L), "p1", 3L);
+
+        verify(tareaService, times(2)).resincronizar();
+        verify(tareaService).aplicarCambiosExternos(List.of(6L));
+    }
+
+    @Test
+    void elArbolSeCargaUnaSolaVezAlArrancar() {
+        receptor.alIniciarConsumidor(new AsyncConsumerStartedEvent(contenedor, null));
+        receptor.alIniciarAplicacion();
+        verify(tareaService, times(1)).resincronizar();
+
+        // Si el consumidor no llegó a conectarse, la carga se hace al terminar de arrancar
+        clearInvocations(tareaService);
+        ReplicacionReceiver sinBroker = new ReplicacionReceiver();
+        ReflectionTestUtils.setField(sinBroker, "tareaService", tareaService);
+        ReflectionTestUtils.setField(sinBroker, "meterRegistry", new SimpleMeterRegistry());
+        sinBroker.registrarMetricas();
+        sinBroker.alIniciarAplicacion();
+        verify(tareaService).resincronizar();
+    }
+
+    private static TareaEvento evento(TipoEventoTarea tipo, Long idTarea) {
+        return new TareaEvento(tipo, idTarea, null, System.currentTimeMillis(), null, null, null);
+    }
+}
@@ -0,0 +1,153 @@
+package com.umg.gestiontareas.servicios;
+
+import com.umg.gestiontareas.modelo.Tarea;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistorialDeshacerTest {
+
+    @Test
+    void cadaUsuarioDeshaceSoloSusAcciones() {
+        HistorialDeshacer historial = new HistorialDeshacer(50, 1000, 60);
+        AccionDeshacer deAna = accion(1);
+        AccionDeshacer deLuis = accion(2);
+
+        historial.registrar("ana", deAna);
+        historial.registrar("luis", deLuis);
+
+        assertThat(historial.sacarUltima("ana")).isSameAs(deAna);
+        assertThat(historial.sacarUltima("ana")).isNull();
+        assertThat(historial.sacarUltima("luis")).isSameAs(deLuis);
+        assertThat(historial.sacarUltima("nadie")).isNull();
+    }
+
+    @Test
+    void descartaLaAccionMasAntiguaAlSuperarLaProfundidad() {
+        HistorialDeshacer historial = new HistorialDeshacer(3, 1000, 60);
+        for (int i = 1; i <= 5; i++) {
+            historial.registrar("ana", accion(i));
+        }
+
+        assertThat(historial.profundidad("ana")).isEqualTo(3);
+        assertThat(historial.totalAcciones()).isEqualTo(3);
+        assertThat(historial.sacarUltima("ana").getTareaAnterior().getId()).isEqualTo(5L);
+        assertThat(historial.sacarUltima("ana").getTareaAnterior().getId()).isEqualTo(4L);
+        assertThat(historial.sacarUltima("ana").getTareaAnterior().getId()).isEqualTo(3L);
+        assertThat(historial.sacarUltima("ana")).isNull();
+    }
+
+    @Test
+    void elPesoCuentaLasCopiasDeTareasYNoLosUsuarios() {
+        HistorialDeshacer historial = new HistorialDeshacer(50, 1000, 60);
+        historial.registrar("ana", accion(1));
+        historial.registrar("ana", new AccionDeshacer("CREAR_LOTE", List.of(tarea(2), tarea(3), tarea(4))));
+        historial.mantenimiento();
+
+        // 1 por la pila más 1 + 3 copias
+        assertThat(historial.pesoTotal()).isEqualTo(5);
+
+        historial.sacarUltima("ana");
+        historial.mantenimiento();
+        assertThat(historial.pesoTotal()).isEqualTo(2);
+    }
+
+    @Test
+    void unHistorialGrandeDesalojaAOtrosAunqueHayaPocosUsuarios() {
+        HistorialDeshacer historial = new HistorialDeshacer(50, 100, 60);
+        List<Tarea> lote = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            lote.add(tarea(i));
+        }
+        for (int u = 0; u < 10; u++) {
+            historial.registrar("usuario-" + u, new AccionDeshacer("CREAR_LOTE", lote));
+        }
+        historial.mantenimiento();
+
+        assertThat(historial.pesoTotal()).isLessThanOrEqualTo(100);
+        assertThat(historial.totalUsuarios()).isLessThanOrEqualTo(3);
+        // El contador de acciones sigue a las pilas desalojadas
+        assertThat(historial.totalAcciones()).isEqualTo(historial.totalUsuarios());
+    }
+
+    @Test
+    void registrarYDeshacerConcurrentementeNoPierdeNiDuplicaAcciones() throws Exception {
+        int hilos = 8;
+        int usuarios = 4;
+        int operacionesPorHilo = 20_000;
+        // Sin límite efectivo de profundidad ni de peso: todo lo registrado debe poder sacarse una sola vez
+        HistorialDeshacer historial = new HistorialDeshacer(Integer.MAX_VALUE, Long.MAX_VALUE, 60);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<long[]>> resultados = new ArrayList<>();
+        try {
+            for (int h = 0; h < hilos; h++) {
+                resultados.add(ejecutor.submit(() -> {
+                    inicio.await();
+                    ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+                    long registradas = 0;
+                    long sacadas = 0;
+                    for (int i = 0; i < operacionesPorHilo; i++) {
+                        String usuario = "usuario-" + aleatorio.nextInt(usuarios);
+                        if (aleatorio.nextInt(3) < 2) {
+                            historial.registrar(usuario, accion(i));
+                            registradas++;
+                        } else if (historial.sacarUltima(usuario) != null) {
+                            sacadas++;
+                        }
+                    }
+                    return new long[]{registradas, sacadas};
+                }));
+            }
+            inicio.countDown();
+
+            long registradas = 0;
+            long sacadas = 0;
+            for (Future<long[]> resultado : resultados) {
+                long[] conteo = resultado.get(60, TimeUnit.SECONDS);
+                registradas += conteo[0];
+                sacadas += conteo[1];
+            }
+
+            long restantes = 0;
+            for (int u = 0; u < usuarios; u++) {
+                restantes += historial.profundidad("usuario-" + u);
+            }
+            assertThat(restantes).isEqualTo(registradas - sacadas);
+            assertThat(historial.totalAcciones()).isEqualTo(restantes);
+
+            long vaciadas = 0;
+            for (int u = 0; u < usuarios; u++) {
+                while (historial.sacarUltima("usuario-" + u) != null) {
+                    vaciadas++;
+                }
+            }
+            historial.mantenimiento();
+            assertThat(vaciadas).isEqualTo(restantes);
+            assertThat(historial.totalAcciones()).isZero();
+            assertThat(historial.pesoTotal()).isEqualTo(historial.totalUsuarios());
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    private static AccionDeshacer accion(long idTarea) {
+        return new AccionDeshacer("CREAR", tarea(idTarea));
+    }
+
+    private static Tarea tarea(long id) {
+        Tarea tarea = new Tarea();
+        tarea.setId(id);
+        tarea.setTitulo("Tarea " + id);
+        return tarea;
+    }
+}
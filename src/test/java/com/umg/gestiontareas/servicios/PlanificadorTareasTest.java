@@ -0,0 +1,161 @@
+package com.umg.gestiontareas.servicios;
+
+import com.umg.gestiontareas.modelo.Tarea;
+import com.umg.gestiontareas.modelo.TareaProgramada;
+import com.umg.gestiontareas.repositorio.TareaProgramadaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PlanificadorTareasTest {
+
+    private static final ZoneId ZONA = ZoneId.of("UTC");
+    private static final LocalDateTime AHORA = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    private TareaProgramadaRepository repositorio;
+    private PlanificadorTareas planificador;
+
+    @BeforeEach
+    void preparar() {
+        repositorio = mock(TareaProgramadaRepository.class);
+        AtomicLong ids = new AtomicLong();
+        when(repositorio.save(any(TareaProgramada.class))).thenAnswer(invocacion -> {
+            TareaProgramada programada = invocacion.getArgument(0);
+            ReflectionTestUtils.setField(programada, "id", ids.incrementAndGet());
+            return programada;
+        });
+        when(repositorio.findAll()).thenReturn(List.of());
+        planificador = new PlanificadorTareas();
+        ReflectionTestUtils.setField(planificador, "tareaProgramadaRepository", repositorio);
+        ReflectionTestUtils.setField(planificador, "modoInstancias", "unica");
+        fijarReloj(AHORA);
+        planificador.cargarPendientes();
+    }
+
+    @AfterEach
+    void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void noEntregaTareasQueAunNoVencen() {
+        planificador.programar(tarea("alta futura", "ALTA"), AHORA.plusHours(1));
+        planificador.programar(tarea("baja vencida", "BAJA"), AHORA.minusMinutes(5));
+
+        assertThat(planificador.verSiguiente().getTitulo()).isEqualTo("baja vencida");
+        assertThat(planificador.siguiente().getTitulo()).isEqualTo("baja vencida");
+        assertThat(planificador.siguiente()).isNull();
+        assertThat(planificador.estaVacia()).isFalse();
+        assertThat(planificador.tamano()).isEqualTo(1);
+
+        fijarReloj(AHORA.plusHours(1));
+        assertThat(planificador.siguiente().getTitulo()).isEqualTo("alta futura");
+        assertThat(planificador.estaVacia()).isTrue();
+    }
+
+    @Test
+    void entreTareasVencidasOrdenaPorPrioridadYLuegoPorFecha() {
+        planificador.programar(tarea("media antigua", "MEDIA"), AHORA.minusHours(2));
+        planificador.programar(tarea("alta reciente", "ALTA"), AHORA.minusMinutes(1));
+        planificador.programar(tarea("alta antigua", "ALTA"), AHORA.minusMinutes(30));
+
+        assertThat(planificador.siguiente().getTitulo()).isEqualTo("alta antigua");
+        assertThat(planificador.siguiente().getTitulo()).isEqualTo("alta reciente");
+        assertThat(planificador.siguiente().getTitulo()).isEqualTo("media antigua");
+    }
+
+    @Test
+    void siFallaElBorradoLaTareaNoSePierde() {
+        planificador.programar(tarea("vencida", "ALTA"), AHORA);
+        doThrow(new DataAccessResourceFailureException("sin conexión")).when(repositorio).deleteById(anyLong());
+
+        assertThatThrownBy(() -> planificador.siguiente()).isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(planificador.tamano()).isEqualTo(1);
+
+        doNothing().when(repositorio).deleteById(anyLong());
+        assertThat(planificador.siguiente().getTitulo()).isEqualTo("vencida");
+        assertThat(planificador.estaVacia()).isTrue();
+    }
+
+    @Test
+    void siSeRevierteLaTransaccionDelBorradoLaTareaVuelve() {
+        planificador.programar(tarea("vencida", "ALTA"), AHORA);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(planificador.siguiente().getTitulo()).isEqualTo("vencida");
+        assertThat(planificador.tamano()).isZero();
+        completarTransaccion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(planificador.tamano()).isEqualTo(1);
+        assertThat(planificador.siguiente().getTitulo()).isEqualTo("vencida");
+    }
+
+    @Test
+    void unaTareaProgramadaEntraSoloSiSeConfirmaSuAlta() {
+        TransactionSynchronizationManager.initSynchronization();
+        planificador.programar(tarea("revertida", "ALTA"), AHORA);
+        assertThat(planificador.tamano()).isZero();
+        completarTransaccion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(planificador.estaVacia()).isTrue();
+
+        TransactionSynchronizationManager.initSynchronization();
+        planificador.programar(tarea("confirmada", "ALTA"), AHORA);
+        completarTransaccion(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(planificador.siguiente().getTitulo()).isEqualTo("confirmada");
+    }
+
+    @Test
+    void enModoCompartidoElTamanoSaleDelConteoPeriodico() {
+        ReflectionTestUtils.setField(planificador, "modoInstancias", "multiple");
+        planificador.cargarPendientes();
+        when(repositorio.count()).thenReturn(3L);
+        when(repositorio.existsByIdNotNull()).thenReturn(true);
+
+        assertThat(planificador.tamano()).isZero(); // Todavía sin contar
+        planificador.contarCompartidas();
+        assertThat(planificador.tamano()).isEqualTo(3);
+        assertThat(planificador.tamano()).isEqualTo(3);
+        assertThat(planificador.estaVacia()).isFalse();
+        verify(repositorio, times(1)).count();
+    }
+
+    private void completarTransaccion(int estado) {
+        List<TransactionSynchronization> sincronizaciones = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(sincronizaciones, estado);
+    }
+
+    private void fijarReloj(LocalDateTime momento) {
+        ReflectionTestUtils.setField(planificador, "reloj", Clock.fixed(momento.atZone(ZONA).toInstant(), ZONA));
+    }
+
+    private static Tarea tarea(String titulo, String prioridad) {
+        Tarea tarea = new Tarea(titulo, "", "PENDIENTE", prioridad, "GENERAL");
+        tarea.setId((long) titulo.hashCode());
+        return tarea;
+    }
+}
@@ -0,0 +1,223 @@
+package com.umg.gestiontareas.servicios;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.umg.gestiontareas.config.RabbitMQConfig;
+import com.umg.gestiontareas.modelo.EventoOutbox;
+import com.umg.gestiontareas.modelo.TareaEvento;
+import com.umg.gestiontareas.modelo.TipoEventoTarea;
+import com.umg.gestiontareas.repositorio.EventoOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.AmqpNackReceivedException;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas del publicador del outbox con un broker simulado: el RabbitTemplate es un mock cuyas
+ * confirmaciones (waitForConfirmsOrDie) se controlan desde cada prueba.
+ */
+class RabbitMQSenderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EventoOutboxRepository repositorio = mock(EventoOutboxRepository.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final RabbitOperations operaciones = mock(RabbitOperations.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    // Mensajes "enviados" al broker simulado, con sus propiedades
+    private final List<MessageProperties> enviados = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> tiemposConfirmacion = Collections.synchronizedList(new ArrayList<>());
+
+    private RabbitMQSender sender;
+
+    @BeforeEach
+    void preparar() {
+        sender = new RabbitMQSender();
+        ReflectionTestUtils.setField(sender, "rabbitTemplate", rabbitTemplate);
+        ReflectionTestUtils.setField(sender, "eventoOutboxRepository", repositorio);
+        ReflectionTestUtils.setField(sender, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(sender, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(sender, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(sender, "tamanoLote", 10);
+        ReflectionTestUtils.setField(sender, "esperaLoteMs", 50L);
+        ReflectionTestUtils.setField(sender, "timeoutConfirmacionMs", 1000L);
+
+        when(transactionTemplate.execute(any())).thenAnswer(invocacion ->
+                invocacion.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocacion ->
+                invocacion.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(operaciones));
+        doAnswer(invocacion -> {
+            MessagePostProcessor procesador = invocacion.getArgument(3);
+            MessageProperties propiedades = new MessageProperties();
+            procesador.postProcessMessage(new Message(new byte[0], propiedades));
+            enviados.add(propiedades);
+            return null;
+        }).when(operaciones).convertAndSend(anyString(), anyString(), any(Object.class), any(MessagePostProcessor.class));
+    }
+
+    @AfterEach
+    void detener() throws InterruptedException {
+        sender.detener();
+    }
+
+    @Test
+    void publicaElLoteYLoMarcaDespuesDeLaConfirmacion() throws Exception {
+        List<EventoOutbox> lote = List.of(evento(1L, "a1"), evento(2L, "a2"), evento(3L, "a3"));
+        when(repositorio.reclamarPendientes(anyInt())).thenReturn(lote).thenReturn(List.of());
+
+        sender.iniciar();
+
+        verify(repositorio, timeout(2000)).marcarPublicados(eq(List.of(1L, 2L, 3L)), any());
+        verify(operaciones).waitForConfirmsOrDie(1000L);
+        assertThat(enviados).extracting(MessageProperties::getMessageId).containsExactly("a1", "a2", "a3");
+        assertThat(enviados).allSatisfy(propiedades ->
+                assertThat((String) propiedades.getHeader(RabbitMQConfig.CABECERA_PUBLICADOR)).isEqualTo(sender.getIdPublicador()));
+        assertThat(sender.getMensajesPublicados()).isEqualTo(3);
+        assertThat(sender.getFallosPublicacion()).isZero();
+    }
+
+    @Test
+    void unNackNoMarcaElLoteYSeReintentaConEspera() throws Exception {
+        List<EventoOutbox> lote = List.of(evento(1L, "b1"), evento(2L, "b2"));
+        when(repositorio.reclamarPendientes(anyInt())).thenReturn(lote).thenReturn(lote).thenReturn(List.of());
+        AtomicInteger intentos = new AtomicInteger();
+        doAnswer(invocacion -> {
+            tiemposConfirmacion.add(System.nanoTime());
+            if (intentos.incrementAndGet() == 1) {
+                throw new AmqpNackReceivedException("nack del broker", new Message(new byte[0]));
+            }
+            return null;
+        }).when(operaciones).waitForConfirmsOrDie(anyLong());
+
+        sender.iniciar();
+
+        verify(repositorio, timeout(5000)).marcarPublicados(eq(List.of(1L, 2L)), any());
+        verify(repositorio, times(1)).marcarPublicados(anyList(), any()); // El intento rechazado no se marcó
+        assertThat(intentos.get()).isEqualTo(2);
+        assertThat(sender.getFallosPublicacion()).isEqualTo(1);
+        assertThat(sender.getMensajesPublicados()).isEqualTo(2);
+        long esperaMs = (tiemposConfirmacion.get(1) - tiemposConfirmacion.get(0)) / 1_000_000;
+        assertThat(esperaMs).isGreaterThanOrEqualTo(450); // Espera inicial de reintento: 500 ms
+    }
+
+    @Test
+    void laEsperaEntreReintentosCreceMientrasElBrokerNoConfirma() throws Exception {
+        List<EventoOutbox> lote = List.of(evento(1L, "c1"));
+        when(repositorio.reclamarPendientes(anyInt())).thenReturn(lote).thenReturn(lote).thenReturn(lote)
+                .thenReturn(List.of());
+        AtomicInteger intentos = new AtomicInteger();
+        doAnswer(invocacion -> {
+            tiemposConfirmacion.add(System.nanoTime());
+            if (intentos.incrementAndGet() <= 2) {
+                throw new AmqpNackReceivedException("nack del broker", new Message(new byte[0]));
+            }
+            return null;
+        }).when(operaciones).waitForConfirmsOrDie(anyLong());
+
+        sender.iniciar();
+
+        verify(repositorio, timeout(6000)).marcarPublicados(eq(List.of(1L)), any());
+        long primeraEsperaMs = (tiemposConfirmacion.get(1) - tiemposConfirmacion.get(0)) / 1_000_000;
+        long segundaEsperaMs = (tiemposConfirmacion.get(2) - tiemposConfirmacion.get(1)) / 1_000_000;
+        assertThat(primeraEsperaMs).isGreaterThanOrEqualTo(450);
+        assertThat(segundaEsperaMs).isGreaterThanOrEqualTo(950); // Se duplica: 1000 ms
+        assertThat(sender.getFallosPublicacion()).isEqualTo(2);
+    }
+
+    @Test
+    void laSecuenciaEsConsecutivaEntreLotesYNoSeReutilizaTrasUnFallo() throws Exception {
+        List<EventoOutbox> primero = List.of(evento(1L, "s1"), evento(2L, "s2"));
+        List<EventoOutbox> segundo = List.of(evento(3L, "s3"));
+        // Lotes llenos (tamano-lote = 2) para que el publicador pida el siguiente sin esperar
+        ReflectionTestUtils.setField(sender, "tamanoLote", 2);
+        when(repositorio.reclamarPendientes(anyInt())).thenReturn(primero).thenReturn(primero)
+                .thenReturn(segundo).thenReturn(List.of());
+        AtomicInteger intentos = new AtomicInteger();
+        doAnswer(invocacion -> {
+            if (intentos.incrementAndGet() == 1) {
+                throw new AmqpNackReceivedException("nack del broker", new Message(new byte[0]));
+            }
+            return null;
+        }).when(operaciones).waitForConfirmsOrDie(anyLong());
+
+        sender.iniciar();
+
+        verify(repositorio, timeout(5000)).marcarPublicados(eq(List.of(3L)), any());
+        assertThat(enviados).extracting(MessageProperties::getMessageId).containsExactly("s1", "s2", "s1", "s2", "s3");
+        // El reintento lleva números nuevos: los del intento fallido pudieron llegar al broker
+        assertThat(enviados).extracting(propiedades -> (Long) propiedades.getHeader(RabbitMQConfig.CABECERA_SECUENCIA))
+                .containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void losPendientesSeCuentanFueraDelLote() throws Exception {
+        ReflectionTestUtils.setField(sender, "tamanoLote", 1);
+        when(repositorio.reclamarPendientes(anyInt())).thenReturn(List.of(evento(1L, "e1"))).thenReturn(List.of());
+        when(repositorio.countByFechaPublicacionIsNull()).thenReturn(42L);
+
+        sender.iniciar();
+
+        verify(repositorio, timeout(2000)).marcarPublicados(eq(List.of(1L)), any());
+        verify(repositorio, never()).countByFechaPublicacionIsNull();
+        sender.contarPendientes();
+        assertThat(sender.getPendientes()).isEqualTo(42);
+    }
+
+    @Test
+    void unEventoIlegibleSeDescartaSinFrenarAlResto() throws Exception {
+        EventoOutbox ilegible = evento(2L, "d2");
+        ReflectionTestUtils.setField(ilegible, "carga", "{no es json");
+        when(repositorio.reclamarPendientes(anyInt())).thenReturn(List.of(evento(1L, "d1"), ilegible)).thenReturn(List.of());
+
+        sender.iniciar();
+
+        verify(repositorio, timeout(2000)).marcarPublicados(eq(List.of(1L, 2L)), any());
+        assertThat(enviados).extracting(MessageProperties::getMessageId).containsExactly("d1");
+    }
+
+    @Test
+    void sinPendientesNoPublicaNada() throws Exception {
+        when(repositorio.reclamarPendientes(anyInt())).thenReturn(List.of());
+
+        sender.iniciar();
+
+        verify(repositorio, timeout(2000).atLeast(2)).reclamarPendientes(10);
+        verify(rabbitTemplate, never()).invoke(any());
+        verify(repositorio, never()).marcarPublicados(anyList(), any());
+    }
+
+    private EventoOutbox evento(Long id, String idMensaje) throws Exception {
+        TareaEvento evento = new TareaEvento(TipoEventoTarea.TAREA_CREADA, id, null, System.currentTimeMillis(), null, null, null);
+        EventoOutbox pendiente = new EventoOutbox(idMensaje, evento, objectMapper.writeValueAsString(evento));
+        ReflectionTestUtils.setField(pendiente, "id", id);
+        return pendiente;
+    }
+}
@@ -0,0 +1,168 @@
+package com.umg.gestiontareas.servicios;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.umg.gestiontareas.modelo.GranularidadResumen;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+/**
+ * Pruebas de ResumenEventosService contra un servidor MongoDB en memoria (mongo-java-server).
+ */
+class ResumenEventosServiceTest {
+
+    // Tres horas antes de la hora actual: todos sus minutos ya están cerrados
+    private static final Instant BASE = Instant.now().truncatedTo(ChronoUnit.HOURS).minus(3, ChronoUnit.HOURS);
+
+    private MongoServer servidor;
+    private MongoClient cliente;
+    private MongoTemplate mongoTemplate;
+    private ResumenEventosService servicio;
+
+    @BeforeEach
+    void preparar() {
+        servidor = new MongoServer(new MemoryBackend());
+        cliente = MongoClients.create(servidor.bindAndGetConnectionString());
+        mongoTemplate = spy(new MongoTemplate(cliente, "prueba"));
+        servicio = new ResumenEventosService();
+        ReflectionTestUtils.setField(servicio, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(servicio, "retencionLogsDias", 30L);
+        ReflectionTestUtils.setField(servicio, "retencionMinutosDias", 30L);
+        ReflectionTestUtils.setField(servicio, "retencionHorasDias", 365L);
+        ReflectionTestUtils.setField(servicio, "retrasoSegundos", 60L);
+
+        evento("TAREA_CREADA", BASE.plusSeconds(65));
+        evento("TAREA_CREADA", BASE.plusSeconds(70));
+        evento("TAREA_ELIMINADA", BASE.plusSeconds(90));
+        evento("TAREA_CREADA", BASE.plus(30, ChronoUnit.MINUTES));
+        evento("TAREA_CREADA", BASE.plus(65, ChronoUnit.MINUTES));
+    }
+
+    @AfterEach
+    void cerrar() {
+        cliente.close();
+        servidor.shutdown();
+    }
+
+    @Test
+    void resumePorMinutoYPorHora() {
+        servicio.resumirEventos(); // Inicia las marcas en el evento más antiguo
+        assertThat(servicio.obtenerMarca(GranularidadResumen.MINUTO)).isEqualTo(BASE.plus(1, ChronoUnit.MINUTES));
+        assertThat(servicio.obtenerMarca(GranularidadResumen.HORA)).isEqualTo(BASE);
+
+        servicio.resumirEventos();
+
+        assertThat(resumenes(GranularidadResumen.MINUTO)).containsExactly(
+                "TAREA_CREADA@" + BASE.plus(1, ChronoUnit.MINUTES) + "=2",
+                "TAREA_ELIMINADA@" + BASE.plus(1, ChronoUnit.MINUTES) + "=1",
+                "TAREA_CREADA@" + BASE.plus(30, ChronoUnit.MINUTES) + "=1",
+                "TAREA_CREADA@" + BASE.plus(65, ChronoUnit.MINUTES) + "=1");
+        assertThat(resumenes(GranularidadResumen.HORA)).containsExactly(
+                "TAREA_CREADA@" + BASE + "=3",
+                "TAREA_ELIMINADA@" + BASE + "=1",
+                "TAREA_CREADA@" + BASE.plus(1, ChronoUnit.HOURS) + "=1");
+        assertThat(servicio.obtenerMarca(GranularidadResumen.HORA)).isAfterOrEqualTo(BASE.plus(2, ChronoUnit.HOURS));
+    }
+
+    @Test
+    void repetirUnPeriodoNoDuplicaLosConteos() {
+        servicio.resumirEventos();
+        servicio.resumirEventos();
+        List<String> minutos = resumenes(GranularidadResumen.MINUTO);
+        List<String> horas = resumenes(GranularidadResumen.HORA);
+
+        // Como si la instancia se hubiera caído después de escribir los resúmenes y antes de avanzar la marca
+        moverMarca(GranularidadResumen.MINUTO, BASE.plus(1, ChronoUnit.MINUTES));
+        moverMarca(GranularidadResumen.HORA, BASE);
+        servicio.resumirEventos();
+
+        assertThat(resumenes(GranularidadResumen.MINUTO)).isEqualTo(minutos);
+        assertThat(resumenes(GranularidadResumen.HORA)).isEqualTo(horas);
+    }
+
+    @Test
+    void siFallaLaEscrituraLaMarcaNoAvanzaYElPeriodoSeResumeDespues() {
+        servicio.resumirEventos();
+        Instant marcaInicial = servicio.obtenerMarca(GranularidadResumen.MINUTO);
+
+        doThrow(new MongoException("sin conexión")).when(mongoTemplate).getCollection(eq(GranularidadResumen.MINUTO.getColeccion()));
+        servicio.resumirEventos();
+        assertThat(servicio.obtenerMarca(GranularidadResumen.MINUTO)).isEqualTo(marcaInicial);
+        assertThat(resumenes(GranularidadResumen.MINUTO)).isEmpty();
+
+        doCallRealMethod().when(mongoTemplate).getCollection(eq(GranularidadResumen.MINUTO.getColeccion()));
+        servicio.resumirEventos();
+        assertThat(servicio.obtenerMarca(GranularidadResumen.MINUTO)).isAfter(marcaInicial);
+        assertThat(resumenes(GranularidadResumen.MINUTO)).hasSize(4);
+    }
+
+    @Test
+    void unEventoTardioReabreSusPeriodosYaResumidos() {
+        servicio.resumirEventos();
+        servicio.resumirEventos();
+
+        Instant tardio = BASE.plusSeconds(80);
+        evento("TAREA_CREADA", tardio);
+        evento("TAREA_CREADA", Instant.now()); // Posterior a la marca: lo resume el ciclo normal
+        servicio.reabrirPeriodos(List.of(tardio, Instant.now()));
+
+        assertThat(resumenes(GranularidadResumen.MINUTO)).contains("TAREA_CREADA@" + BASE.plus(1, ChronoUnit.MINUTES) + "=3");
+        assertThat(resumenes(GranularidadResumen.HORA)).containsExactly(
+                "TAREA_CREADA@" + BASE + "=4",
+                "TAREA_ELIMINADA@" + BASE + "=1",
+                "TAREA_CREADA@" + BASE.plus(1, ChronoUnit.HOURS) + "=1");
+    }
+
+    @Test
+    void eliminaElIndicePorTipoDeVersionesAnteriores() {
+        mongoTemplate.indexOps("event_logs").ensureIndex(new Index().on("eventType", Sort.Direction.ASC)
+                .on("timestamp", Sort.Direction.ASC).named("tipo_timestamp"));
+
+        servicio.resumirEventos();
+
+        assertThat(mongoTemplate.indexOps("event_logs").getIndexInfo()).extracting(IndexInfo::getName)
+                .doesNotContain("tipo_timestamp")
+                .contains("timestamp_id", "tipo_timestamp_id", "tarea_timestamp_id", "ttl_timestamp");
+    }
+
+    private void evento(String eventType, Instant momento) {
+        mongoTemplate.insert(new Document("eventType", eventType).append("timestamp", Date.from(momento)), "event_logs");
+    }
+
+    private void moverMarca(GranularidadResumen granularidad, Instant hasta) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(granularidad.name())),
+                Update.update("hasta", Date.from(hasta)), "event_rollups_marcas");
+    }
+
+    // "eventType@inicio=cantidad", ordenados por inicio y tipo
+    private List<String> resumenes(GranularidadResumen granularidad) {
+        Query todos = new Query().with(Sort.by("inicio", "eventType"));
+        return mongoTemplate.find(todos, Document.class, granularidad.getColeccion()).stream()
+                .map(d -> d.getString("eventType") + "@" + d.getDate("inicio").toInstant() + "=" + d.get("cantidad"))
+                .toList();
+    }
+}
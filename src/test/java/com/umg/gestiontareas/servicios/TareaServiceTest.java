@@ -0,0 +1,185 @@
+package com.umg.gestiontareas.servicios;
+
+import com.umg.gestiontareas.modelo.ResultadoActualizacion;
+import com.umg.gestiontareas.modelo.Tarea;
+import com.umg.gestiontareas.repositorio.TareaRepositoryMySQL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TareaServiceTest {
+
+    private TareaRepositoryMySQL tareaRepository;
+    private TareaCache tareaCache;
+    private HistorialDeshacer historialDeshacer;
+    private TareaService servicio;
+
+    @BeforeEach
+    void preparar() {
+        tareaRepository = mock(TareaRepositoryMySQL.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocacion ->
+                invocacion.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        tareaCache = new TareaCache(100, 300);
+        historialDeshacer = new HistorialDeshacer(50, 1000, 60);
+        servicio = new TareaService();
+        ReflectionTestUtils.setField(servicio, "tareaRepository", tareaRepository);
+        ReflectionTestUtils.setField(servicio, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(servicio, "outboxEventos", mock(OutboxEventos.class));
+        ReflectionTestUtils.setField(servicio, "tareaCache", tareaCache);
+        ReflectionTestUtils.setField(servicio, "historialDeshacer", historialDeshacer);
+    }
+
+    @AfterEach
+    void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void sinIfMatchSeActualizaSobreLaVersionDeMySQLAunqueLaCacheEsteVieja() {
+        tareaCache.guardar(tarea(1L, "PENDIENTE", 1L));
+        when(tareaRepository.findById(1L)).thenReturn(Optional.of(tarea(1L, "EN_PROGRESO", 2L)));
+        when(tareaRepository.saveAndFlush(any(Tarea.class))).thenAnswer(invocacion -> {
+            Tarea guardada = new Tarea(invocacion.<Tarea>getArgument(0));
+            assertThat(guardada.getVersion()).isEqualTo(2L);
+            guardada.setVersion(3L);
+            return guardada;
+        });
+
+        ResultadoActualizacion resultado = servicio.actualizarParcialmente(1L, Map.of("titulo", "Nuevo"), null, "ana");
+
+        assertThat(resultado.estado()).isEqualTo(ResultadoActualizacion.Estado.ACTUALIZADA);
+        assertThat(resultado.tarea().getEstado()).isEqualTo("EN_PROGRESO"); // El PATCH parte del estado de MySQL
+        assertThat(tareaCache.obtener(1L, id -> null).getVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    void conIfMatchSeComparaConLasVersionesAceptadas() {
+        tareaCache.guardar(tarea(1L, "PENDIENTE", 2L));
+
+        assertThat(servicio.actualizarParcialmente(1L, Map.of("titulo", "Nuevo"), Set.of(1L), "ana").estado())
+                .isEqualTo(ResultadoActualizacion.Estado.VERSION_DISTINTA);
+        assertThat(servicio.actualizarParcialmente(1L, Map.of("titulo", "Nuevo"), Set.of(), "ana").estado())
+                .isEqualTo(ResultadoActualizacion.Estado.VERSION_DISTINTA);
+        verify(tareaRepository, never()).saveAndFlush(any(Tarea.class));
+
+        when(tareaRepository.saveAndFlush(any(Tarea.class))).thenAnswer(invocacion -> invocacion.getArgument(0));
+        assertThat(servicio.actualizarParcialmente(1L, Map.of("titulo", "Nuevo"), Set.of(1L, 2L), "ana").estado())
+                .isEqualTo(ResultadoActualizacion.Estado.ACTUALIZADA);
+    }
+
+    @Test
+    void deshacerCompletarConConflictoNoModificaLaTareaEnCache() {
+        Tarea enCache = tarea(1L, "COMPLETADA", 4L);
+        tareaCache.guardar(enCache);
+        Tarea cacheada = tareaCache.obtener(1L, id -> null);
+        historialDeshacer.registrar("ana", new AccionDeshacer("COMPLETAR", tarea(1L, "PENDIENTE", 3L)));
+        when(tareaRepository.findById(1L)).thenReturn(Optional.of(tarea(1L, "COMPLETADA", 5L)));
+        when(tareaRepository.saveAndFlush(any(Tarea.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Tarea.class, 1L));
+
+        assertThatThrownBy(() -> servicio.deshacerUltimaAccion("ana"))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        assertThat(cacheada.getEstado()).isEqualTo("COMPLETADA");
+        assertThat(cacheada.getVersion()).isEqualTo(4L);
+    }
+
+    @Test
+    void deshacerCompletarRestauraSobreLaVersionDeMySQL() {
+        tareaCache.guardar(tarea(1L, "COMPLETADA", 4L)); // Versión vieja en caché
+        historialDeshacer.registrar("ana", new AccionDeshacer("COMPLETAR", tarea(1L, "PENDIENTE", 3L)));
+        when(tareaRepository.findById(1L)).thenReturn(Optional.of(tarea(1L, "COMPLETADA", 5L)));
+        when(tareaRepository.saveAndFlush(any(Tarea.class))).thenAnswer(invocacion -> {
+            Tarea guardada = new Tarea(invocacion.<Tarea>getArgument(0));
+            assertThat(guardada.getVersion()).isEqualTo(5L);
+            guardada.setVersion(6L);
+            return guardada;
+        });
+
+        servicio.deshacerUltimaAccion("ana");
+
+        Tarea enCache = tareaCache.obtener(1L, id -> null);
+        assertThat(enCache.getEstado()).isEqualTo("PENDIENTE");
+        assertThat(enCache.getVersion()).isEqualTo(6L);
+    }
+
+    @Test
+    void laMemoriaSoloCambiaSiLaTransaccionSeConfirma() {
+        when(tareaRepository.save(any(Tarea.class))).thenAnswer(invocacion -> {
+            Tarea guardada = invocacion.getArgument(0);
+            guardada.setId(guardada.getTitulo().equals("Revertida") ? 1L : 2L);
+            guardada.setVersion(0L);
+            return guardada;
+        });
+
+        TransactionSynchronizationManager.initSynchronization();
+        servicio.crearTarea(new Tarea("Revertida", "", "PENDIENTE", "MEDIA", "GENERAL"), "ana");
+        completarTransaccion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(servicio.obtenerJerarquiaTareas()).isEmpty();
+        assertThat(servicio.buscarTareas("revertida", 10)).isEmpty();
+        assertThat(historialDeshacer.profundidad("ana")).isZero();
+
+        TransactionSynchronizationManager.initSynchronization();
+        servicio.crearTarea(new Tarea("Confirmada", "", "PENDIENTE", "MEDIA", "GENERAL"), "ana");
+        assertThat(servicio.obtenerJerarquiaTareas()).isEmpty(); // Todavía sin confirmar
+        completarTransaccion(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(servicio.obtenerJerarquiaTareas()).extracting(Tarea::getId).containsExactly(2L);
+        assertThat(tareaCache.obtener(2L, id -> null)).isNotNull();
+        assertThat(historialDeshacer.profundidad("ana")).isEqualTo(1);
+    }
+
+    @Test
+    void siElDeshacerSeRevierteLaAccionVuelveAlHistorial() {
+        AccionDeshacer accion = new AccionDeshacer("CREAR", tarea(1L, "PENDIENTE", 0L));
+        historialDeshacer.registrar("ana", accion);
+
+        TransactionSynchronizationManager.initSynchronization();
+        servicio.deshacerUltimaAccion("ana");
+        assertThat(historialDeshacer.profundidad("ana")).isZero();
+        completarTransaccion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(historialDeshacer.sacarUltima("ana")).isSameAs(accion);
+    }
+
+    // Lo que hace el administrador de transacciones al terminar: afterCommit solo si se confirmó, y luego afterCompletion
+    private static void completarTransaccion(int estado) {
+        List<TransactionSynchronization> sincronizaciones = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (estado == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(sincronizaciones);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(sincronizaciones, estado);
+    }
+
+    private static Tarea tarea(long id, String estado, long version) {
+        Tarea tarea = new Tarea("Tarea " + id, "", estado, "MEDIA", "GENERAL");
+        tarea.setId(id);
+        tarea.setVersion(version);
+        return tarea;
+    }
+}